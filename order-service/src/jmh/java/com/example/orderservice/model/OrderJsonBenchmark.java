@@ -0,0 +1,70 @@
+package com.example.orderservice.model;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * JSON serialization of order lists as returned by {@code GET /orders}, using an
+ * ObjectMapper configured the way Spring MVC configures its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderJsonBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int orderCount;
+
+    private ObjectMapper objectMapper;
+    private List<Order> orders;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        // A fixed seed keeps the payload identical between runs and commits
+        Random random = new Random(42);
+        orders = new ArrayList<>(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            orders.add(new Order(new UUID(random.nextLong(), random.nextLong()).toString(), "Customer " + random.nextInt(1000),
+                    BigDecimal.valueOf(random.nextInt(100_000), 2), LocalDate.of(2024, 1, 1).plusDays(random.nextInt(366)),
+                    i % 2 == 0 ? "https://order-management-invoices.s3.amazonaws.com/invoices/" + i + "/invoice.pdf" : null));
+        }
+        json = objectMapper.writeValueAsBytes(orders);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(orders);
+    }
+
+    @Benchmark
+    public Order[] deserialize() throws IOException {
+        return objectMapper.readValue(json, Order[].class);
+    }
+}
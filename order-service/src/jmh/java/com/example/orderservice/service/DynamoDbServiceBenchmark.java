@@ -0,0 +1,55 @@
+package com.example.orderservice.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.orderservice.model.Order;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Conversion between orders and DynamoDB items, which runs for every order read or written.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamoDbServiceBenchmark {
+
+    private DynamoDbService dynamoDbService;
+    private Order order;
+    private Map<String, AttributeValue> item;
+
+    @Setup
+    public void setup() {
+        dynamoDbService = new DynamoDbService(null, "orders");
+        order = new Order("0f8fad5b-d9cb-469f-a165-70867728950e", "Benchmark Customer", new BigDecimal("149.99"),
+                LocalDate.of(2024, 3, 15), "http://localhost:4566/order-management-invoices/invoice.pdf");
+        item = dynamoDbService.toItem(order);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> toItem() {
+        return dynamoDbService.toItem(order);
+    }
+
+    @Benchmark
+    public Order mapToOrder() {
+        return dynamoDbService.mapToOrder(item);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.orderservice.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import com.example.orderservice.cache.NoOpOrderCache;
+import com.example.orderservice.model.Order;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * {@link OrderService#createOrder} against the in-memory mock services, with and without
+ * an invoice, so the cost of the order pipeline itself is measured without network calls.
+ * State is rebuilt every iteration to keep the in-memory stores from growing unbounded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderServiceBenchmark {
+
+    private static final byte[] INVOICE = new byte[4096];
+
+    private OrderService orderService;
+    private OrderWriteBuffer orderWriteBuffer;
+    private NotificationDispatcher notificationDispatcher;
+    private MockMultipartFile invoice;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MockDynamoDbService dynamoDbService = new MockDynamoDbService();
+        orderWriteBuffer = new OrderWriteBuffer(dynamoDbService, meterRegistry, false, 25, Duration.ofMillis(10),
+                1, 1000, 1, Duration.ofMillis(1));
+        SilentSnsService snsService = new SilentSnsService();
+        // In-memory outbox, so the benchmark does not measure fsync
+        DependencyGuards dependencyGuards = new DependencyGuards(meterRegistry);
+        notificationDispatcher = new NotificationDispatcher(snsService, dependencyGuards, meterRegistry,
+                2, 100_000, Duration.ofMillis(100), 1, Duration.ofMillis(1), 10, Duration.ofMillis(10), "", DataSize.ofMegabytes(4), Duration.ZERO);
+        orderService = new OrderService(dynamoDbService, new MockS3Service(), new NoOpOrderCache(),
+                orderWriteBuffer, notificationDispatcher, new OrderStatusRegistry(1000), new SyncTaskExecutor(), dependencyGuards,
+                meterRegistry);
+        invoice = new MockMultipartFile("invoiceFile", "invoice.pdf", "application/pdf", INVOICE);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        notificationDispatcher.shutdown();
+        orderWriteBuffer.shutdown();
+    }
+
+    @Benchmark
+    public Order createOrder() throws IOException {
+        return orderService.createOrder("Benchmark Customer", "149.99", "2024-03-15", null);
+    }
+
+    @Benchmark
+    public Order createOrderWithInvoice() throws IOException {
+        return orderService.createOrder("Benchmark Customer", "149.99", "2024-03-15", invoice);
+    }
+
+    /**
+     * Accepts notifications without the console output of {@link MockSnsService}.
+     */
+    private static final class SilentSnsService extends SnsService {
+        private SilentSnsService() {
+            super(null, "benchmark-topic");
+        }
+
+        @Override
+        public void sendOrderNotification(Order order) {
+        }
+
+        @Override
+        public List<Order> sendOrderNotifications(List<Order> orders) {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.orderservice.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+/**
+ * Invoice upload and download through {@link S3Service} against an in-memory S3 client, so
+ * the streaming and multipart code is measured without network time. With the default
+ * 16MB threshold the 32MB invoice takes the multipart path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class S3ServiceBenchmark {
+
+    @Param({"65536", "33554432"})
+    private int invoiceBytes;
+
+    private S3Service s3Service;
+    private MockMultipartFile invoice;
+
+    @Setup
+    public void setup() {
+        byte[] content = new byte[invoiceBytes];
+        new Random(42).nextBytes(content);
+        invoice = new MockMultipartFile("invoiceFile", "invoice.pdf", "application/pdf", content);
+        s3Service = new S3Service(new InMemoryS3Client(content), null, null, "benchmark-bucket",
+                DataSize.ofMegabytes(16), DataSize.ofMegabytes(8), 4, 8, Duration.ofMinutes(15));
+    }
+
+    @TearDown
+    public void tearDown() {
+        s3Service.shutdown();
+    }
+
+    @Benchmark
+    public String uploadFile() throws IOException {
+        return s3Service.uploadFile("invoices/benchmark/invoice.pdf", invoice);
+    }
+
+    @Benchmark
+    public void openFile(Blackhole blackhole) throws IOException {
+        byte[] buffer = new byte[8192];
+        try (InvoiceDownload download = s3Service.openFile("invoices/benchmark/invoice.pdf", null, null)) {
+            InputStream content = download.getContent();
+            for (int count = content.read(buffer); count >= 0; count = content.read(buffer)) {
+                blackhole.consume(buffer);
+            }
+        }
+    }
+
+    /**
+     * Accepts uploads by reading and discarding the body, and serves one fixed object.
+     */
+    private static final class InMemoryS3Client implements S3Client {
+        private final byte[] object;
+
+        private InMemoryS3Client(byte[] object) {
+            this.object = object;
+        }
+
+        @Override
+        public PutObjectResponse putObject(PutObjectRequest request, RequestBody body) {
+            drain(body);
+            return PutObjectResponse.builder().eTag("\"put\"").build();
+        }
+
+        @Override
+        public CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+            return CreateMultipartUploadResponse.builder().uploadId("benchmark-upload").build();
+        }
+
+        @Override
+        public UploadPartResponse uploadPart(UploadPartRequest request, RequestBody body) {
+            drain(body);
+            return UploadPartResponse.builder().eTag("\"part-" + request.partNumber() + "\"").build();
+        }
+
+        @Override
+        public CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+            return CompleteMultipartUploadResponse.builder().eTag("\"multipart\"").build();
+        }
+
+        @Override
+        public AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+            return AbortMultipartUploadResponse.builder().build();
+        }
+
+        @Override
+        public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request) {
+            GetObjectResponse response = GetObjectResponse.builder()
+                    .contentType("application/pdf")
+                    .contentLength((long) object.length)
+                    .eTag("\"put\"")
+                    .build();
+            return new ResponseInputStream<>(response, AbortableInputStream.create(new ByteArrayInputStream(object)));
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private static void drain(RequestBody body) {
+            byte[] buffer = new byte[8192];
+            try (InputStream in = body.contentStreamProvider().newStream()) {
+                while (in.read(buffer) >= 0) {
+                    // Discard
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.orderservice.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import com.example.orderservice.model.Order;
+
+/**
+ * LRU order cache with a time-to-live, bounded by entry count and by an estimate of
+ * retained heap. Loads run outside the lock so a slow lookup never blocks cache hits.
+ * Expired entries are no longer served by {@link #get} but stay until they are reloaded,
+ * evicted or found missing, so {@link #getStale} can still fall back on them.
+ */
+public class InMemoryOrderCache implements OrderCache {
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final boolean writeThrough;
+    private final LongSupplier nanoClock;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long estimatedBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * @param ttl          how long an entry may be served after it was cached
+     * @param maxEntries   maximum number of cached orders
+     * @param maxBytes     maximum estimated heap held by cached orders; zero or less means unbounded
+     * @param writeThrough cache orders on save instead of only invalidating them
+     */
+    public InMemoryOrderCache(Duration ttl, int maxEntries, long maxBytes, boolean writeThrough) {
+        this(ttl, maxEntries, maxBytes, writeThrough, System::nanoTime);
+    }
+
+    InMemoryOrderCache(Duration ttl, int maxEntries, long maxBytes, boolean writeThrough, LongSupplier nanoClock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.writeThrough = writeThrough;
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public Order get(String orderId, Function<String, Order> loader) {
+        Order cached = lookup(orderId);
+        if (cached != null) {
+            return cached;
+        }
+
+        Order order = loader.apply(orderId);
+        if (order != null) {
+            put(order);
+        } else {
+            invalidate(orderId);
+        }
+        return order;
+    }
+
+    @Override
+    public CompletableFuture<Order> getAsync(String orderId, Function<String, CompletableFuture<Order>> loader) {
+        Order cached = lookup(orderId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return loader.apply(orderId).thenApply(order -> {
+            if (order != null) {
+                put(order);
+            } else {
+                invalidate(orderId);
+            }
+            return order;
+        });
+    }
+
+    /**
+     * Returns the live entry for {@code orderId}, counting a hit, or null after counting a miss.
+     */
+    private Order lookup(String orderId) {
+        synchronized (this) {
+            Entry entry = entries.get(orderId);
+            if (entry != null) {
+                if (entry.expiresAtNanos - nanoClock.getAsLong() > 0) {
+                    hits.increment();
+                    return entry.order;
+                }
+                if (!entry.expired) {
+                    entry.expired = true;
+                    expirations.increment();
+                }
+            }
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    public void onSave(Order order) {
+        if (writeThrough) {
+            put(order);
+        } else {
+            invalidate(order.getOrderId());
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(String orderId) {
+        remove(orderId);
+    }
+
+    @Override
+    public synchronized Order getStale(String orderId) {
+        Entry entry = entries.get(orderId);
+        return entry != null ? entry.order : null;
+    }
+
+    @Override
+    public synchronized OrderCacheStats stats() {
+        return OrderCacheStats.builder()
+                .hits(hits.sum())
+                .misses(misses.sum())
+                .evictions(evictions.sum())
+                .expirations(expirations.sum())
+                .size(entries.size())
+                .estimatedBytes(estimatedBytes)
+                .build();
+    }
+
+    private synchronized void put(Order order) {
+        long bytes = estimateBytes(order);
+        if (maxBytes > 0 && bytes > maxBytes) {
+            return;
+        }
+
+        remove(order.getOrderId());
+        entries.put(order.getOrderId(), new Entry(order, bytes, nanoClock.getAsLong() + ttlNanos));
+        estimatedBytes += bytes;
+
+        // Evict least recently used entries until both bounds hold again
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || (maxBytes > 0 && estimatedBytes > maxBytes)) {
+            estimatedBytes -= eldest.next().getValue().bytes;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private void remove(String orderId) {
+        Entry removed = entries.remove(orderId);
+        if (removed != null) {
+            estimatedBytes -= removed.bytes;
+        }
+    }
+
+    /**
+     * Rough retained size of a cached order: object headers and fields plus string contents.
+     */
+    static long estimateBytes(Order order) {
+        return 160
+                + stringBytes(order.getOrderId())
+                + stringBytes(order.getCustomerName())
+                + stringBytes(order.getInvoiceFileUrl());
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40L + value.length() * 2L;
+    }
+
+    private static final class Entry {
+        private final Order order;
+        private final long bytes;
+        private final long expiresAtNanos;
+        private boolean expired;
+
+        private Entry(Order order, long bytes, long expiresAtNanos) {
+            this.order = order;
+            this.bytes = bytes;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
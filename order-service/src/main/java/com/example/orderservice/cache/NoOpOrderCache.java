@@ -0,0 +1,40 @@
+package com.example.orderservice.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import com.example.orderservice.model.Order;
+
+/**
+ * Cache that never stores anything, used when caching is switched off.
+ */
+public class NoOpOrderCache implements OrderCache {
+
+    @Override
+    public Order get(String orderId, Function<String, Order> loader) {
+        return loader.apply(orderId);
+    }
+
+    @Override
+    public CompletableFuture<Order> getAsync(String orderId, Function<String, CompletableFuture<Order>> loader) {
+        return loader.apply(orderId);
+    }
+
+    @Override
+    public void onSave(Order order) {
+    }
+
+    @Override
+    public void invalidate(String orderId) {
+    }
+
+    @Override
+    public Order getStale(String orderId) {
+        return null;
+    }
+
+    @Override
+    public OrderCacheStats stats() {
+        return new OrderCacheStats();
+    }
+}
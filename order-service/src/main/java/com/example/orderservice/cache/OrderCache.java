@@ -0,0 +1,40 @@
+package com.example.orderservice.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import com.example.orderservice.model.Order;
+
+/**
+ * In-process cache placed in front of order lookups.
+ * Implementations decide how long entries live and how writes are reflected.
+ */
+public interface OrderCache {
+
+    /**
+     * Returns the cached order, or loads it with {@code loader} and caches the result.
+     * Orders that are not found ({@code null}) are not cached.
+     */
+    Order get(String orderId, Function<String, Order> loader);
+
+    /**
+     * Non-blocking {@link #get}: on a miss {@code loader} starts the lookup, and the order is
+     * cached once the returned future completes with one.
+     */
+    CompletableFuture<Order> getAsync(String orderId, Function<String, CompletableFuture<Order>> loader);
+
+    /**
+     * Reflects a successful save, either by caching the new order or by dropping the old entry.
+     */
+    void onSave(Order order);
+
+    void invalidate(String orderId);
+
+    /**
+     * Returns the cached order even if it has expired, without loading it; for serving
+     * reads while the order store is unavailable.
+     */
+    Order getStale(String orderId);
+
+    OrderCacheStats stats();
+}
@@ -0,0 +1,22 @@
+package com.example.orderservice.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Point-in-time counters of an {@link OrderCache}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderCacheStats {
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long size;
+    private long estimatedBytes;
+}
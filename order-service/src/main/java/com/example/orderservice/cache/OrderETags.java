@@ -0,0 +1,97 @@
+package com.example.orderservice.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderPage;
+
+/**
+ * ETags for order reads, hashed from the order fields rather than from a serialized body.
+ * <p>
+ * An ETag identifies the orders, not the bytes of one representation: JSON, CBOR and Smile
+ * responses, gzipped or not, share it. That makes them weak validators ({@code W/"..."}),
+ * which is also what lets Tomcat still compress the response; it leaves responses with a
+ * strong ETag uncompressed. {@code If-None-Match} uses weak comparison, so conditional GETs
+ * are unaffected.
+ */
+public final class OrderETags {
+
+    // 128 bits of SHA-256
+    private static final int HASH_BYTES = 16;
+
+    private OrderETags() {
+    }
+
+    public static String of(Order order) {
+        MessageDigest digest = sha256();
+        update(digest, order);
+        return eTag(digest);
+    }
+
+    public static String of(OrderPage page) {
+        MessageDigest digest = sha256();
+        for (Order order : page.getOrders()) {
+            update(digest, order);
+        }
+        update(digest, page.getNextToken());
+        return eTag(digest);
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header holds {@code eTag}, or is {@code *}.
+     */
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = opaqueTag(eTag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || opaqueTag(trimmed).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
+
+    private static void update(MessageDigest digest, Order order) {
+        update(digest, order.getOrderId());
+        update(digest, order.getCustomerName());
+        update(digest, order.getOrderAmount() != null ? order.getOrderAmount().toString() : null);
+        update(digest, order.getOrderDate() != null ? order.getOrderDate().toString() : null);
+        update(digest, order.getInvoiceFileUrl());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        // A length prefix keeps ("ab", "c") and ("a", "bc") apart; null is a lone 0xff, which no prefix starts with
+        if (value == null) {
+            digest.update((byte) 0xff);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    private static String eTag(MessageDigest digest) {
+        return "W/\"" + HexFormat.of().formatHex(digest.digest(), 0, HASH_BYTES) + "\"";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.orderservice.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * The ETag last served for each list query (its endpoint and parameters), tagged with the
+ * collection version it was read at (see {@code OrderService#getCollectionVersion}). While
+ * no order has been written since, a poller presenting that ETag can be answered 304
+ * without reading DynamoDB at all.
+ * <p>
+ * The version only counts writes made through this instance, so the shortcut is only
+ * correct when this is the only instance writing orders; writes from other instances, or
+ * made directly to the table, go unnoticed for up to {@code maxAge}. A {@code maxAge} of
+ * zero, the default, disables it and every conditional read compares the content ETag.
+ */
+public class OrderPageETags {
+
+    private final long maxAgeNanos;
+    private final int maxEntries;
+    private final LongSupplier nanoClock;
+
+    private final LinkedHashMap<List<?>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param maxAge     how long a served ETag is trusted without reading the orders again
+     * @param maxEntries maximum number of queries remembered
+     */
+    public OrderPageETags(Duration maxAge, int maxEntries) {
+        this(maxAge, maxEntries, System::nanoTime);
+    }
+
+    OrderPageETags(Duration maxAge, int maxEntries, LongSupplier nanoClock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxAgeNanos = maxAge.toNanos();
+        this.maxEntries = maxEntries;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * The ETag served for {@code query} at {@code version}, or null if it was served at
+     * another version, too long ago, or not at all.
+     */
+    public synchronized String get(List<?> query, long version) {
+        Entry entry = entries.get(query);
+        if (entry == null || entry.version != version || nanoClock.getAsLong() - entry.servedAt >= maxAgeNanos) {
+            return null;
+        }
+        return entry.eTag;
+    }
+
+    /**
+     * Records the ETag of {@code query} as read at {@code version}, the collection version
+     * taken before the read started.
+     */
+    public synchronized void put(List<?> query, long version, String eTag) {
+        if (maxAgeNanos <= 0) {
+            return;
+        }
+        entries.put(query, new Entry(version, eTag, nanoClock.getAsLong()));
+        if (entries.size() > maxEntries) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final String eTag;
+        private final long servedAt;
+
+        private Entry(long version, String eTag, long servedAt) {
+            this.version = version;
+            this.eTag = eTag;
+            this.servedAt = servedAt;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.orderservice.config;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.example.orderservice.ratelimit.AdaptiveConcurrencyLimit;
+import com.example.orderservice.ratelimit.AdmissionControlFilter;
+import com.example.orderservice.ratelimit.AdmissionControlFilter.EndpointGroup;
+import com.example.orderservice.ratelimit.ClientRateLimiter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Admission control in front of the controllers, see {@link AdmissionControlFilter}.
+ * Disabled with {@code orders.limits.enabled=false}. The per-client limit is off unless
+ * {@code orders.limits.client.ratePerSecond} is set; behind a load balancer it also needs
+ * {@code orders.limits.client.trustedProxies}, or every request shares the balancer's bucket.
+ */
+@Configuration
+@ConditionalOnProperty(name = "orders.limits.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlConfig {
+
+    @Value("${orders.limits.read.initialLimit:100}")
+    private int readInitialLimit;
+
+    @Value("${orders.limits.read.maxLimit:400}")
+    private int readMaxLimit;
+
+    @Value("${orders.limits.read.targetLatency:250ms}")
+    private Duration readTargetLatency;
+
+    @Value("${orders.limits.write.initialLimit:50}")
+    private int writeInitialLimit;
+
+    @Value("${orders.limits.write.maxLimit:200}")
+    private int writeMaxLimit;
+
+    @Value("${orders.limits.write.targetLatency:1s}")
+    private Duration writeTargetLatency;
+
+    @Value("${orders.limits.minLimit:4}")
+    private int minLimit;
+
+    @Value("${orders.limits.backoffRatio:0.9}")
+    private double backoffRatio;
+
+    @Value("${orders.limits.bulk.maxConcurrency:4}")
+    private int bulkMaxConcurrency;
+
+    @Value("${orders.limits.bulk.maxUtilization:0.5}")
+    private double bulkMaxUtilization;
+
+    @Value("${orders.limits.retryAfter:1s}")
+    private Duration retryAfter;
+
+    @Value("${orders.limits.client.ratePerSecond:0}")
+    private double clientRatePerSecond;
+
+    @Value("${orders.limits.client.burst:100}")
+    private double clientBurst;
+
+    @Value("${orders.limits.client.maxClients:10000}")
+    private int maxClients;
+
+    @Value("${orders.limits.client.trustedProxies:0}")
+    private int trustedProxies;
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(MeterRegistry meterRegistry) {
+        Map<EndpointGroup, AdaptiveConcurrencyLimit> limits = Map.of(
+                EndpointGroup.READ, new AdaptiveConcurrencyLimit(readInitialLimit, Math.min(minLimit, readInitialLimit),
+                        readMaxLimit, readTargetLatency, backoffRatio),
+                EndpointGroup.WRITE, new AdaptiveConcurrencyLimit(writeInitialLimit, Math.min(minLimit, writeInitialLimit),
+                        writeMaxLimit, writeTargetLatency, backoffRatio),
+                // Bulk requests run for as long as their body streams, so their latency says
+                // nothing about the dependencies; they get a fixed limit instead
+                EndpointGroup.BULK, new AdaptiveConcurrencyLimit(bulkMaxConcurrency, bulkMaxConcurrency,
+                        bulkMaxConcurrency, Duration.ofDays(1), backoffRatio));
+        ClientRateLimiter clientRateLimiter = clientRatePerSecond > 0
+                ? new ClientRateLimiter(clientRatePerSecond, clientBurst, maxClients)
+                : null;
+
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(new AdmissionControlFilter(
+                limits, clientRateLimiter, trustedProxies, bulkMaxUtilization, retryAfter, meterRegistry));
+        // After the observation filter, so rejected requests still show up in http.server.requests
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
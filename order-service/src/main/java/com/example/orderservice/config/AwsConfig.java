@@ -1,14 +1,39 @@
 package com.example.orderservice.config;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.example.orderservice.metrics.AwsSdkMetricPublisher;
+import com.example.orderservice.metrics.AwsSdkMetricsInterceptor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.awscore.client.builder.AwsAsyncClientBuilder;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.awscore.client.builder.AwsSyncClientBuilder;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.sns.SnsClient;
 
 @Configuration
@@ -23,35 +48,184 @@ public class AwsConfig {
     @Value("${aws.region}")
     private String region;
 
+    @Value("${aws.dynamodb.endpoint:}")
+    private String dynamoDbEndpoint;
+
+    @Value("${aws.s3.endpoint:}")
+    private String s3Endpoint;
+
+    @Value("${aws.sns.endpoint:}")
+    private String snsEndpoint;
+
     private StaticCredentialsProvider credentialsProvider() {
         AwsBasicCredentials awsCredentials = AwsBasicCredentials.create(accessKey, secretKey);
         return StaticCredentialsProvider.create(awsCredentials);
     }
 
+    /**
+     * One connection pool shared by every AWS client, so {@code aws.http.maxConnections}
+     * bounds the connections the service opens in total. {@code aws.http.transport} selects
+     * the pooled Apache client ({@code apache}) or the JDK's HttpURLConnection
+     * ({@code url-connection}), which starts faster and has no pool settings of its own.
+     */
     @Bean
-    public DynamoDbClient dynamoDbClient() {
-        return DynamoDbClient.builder()
-                .credentialsProvider(credentialsProvider())
-                .region(Region.of(region))
-                .endpointOverride(java.net.URI.create("http://localhost:8000"))
-                .build();
+    public SdkHttpClient awsHttpClient(@Value("${aws.http.transport:apache}") String transport,
+                                       @Value("${aws.http.maxConnections:100}") int maxConnections,
+                                       @Value("${aws.http.connectionTimeout:2s}") Duration connectionTimeout,
+                                       @Value("${aws.http.socketTimeout:30s}") Duration socketTimeout,
+                                       @Value("${aws.http.connectionAcquisitionTimeout:5s}") Duration connectionAcquisitionTimeout,
+                                       @Value("${aws.http.connectionTimeToLive:5m}") Duration connectionTimeToLive,
+                                       @Value("${aws.http.connectionMaxIdleTime:60s}") Duration connectionMaxIdleTime,
+                                       @Value("${aws.http.tcpKeepAlive:true}") boolean tcpKeepAlive) {
+        switch (transport) {
+            case "apache":
+                return ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .connectionTimeout(connectionTimeout)
+                        .socketTimeout(socketTimeout)
+                        .connectionAcquisitionTimeout(connectionAcquisitionTimeout)
+                        .connectionTimeToLive(connectionTimeToLive)
+                        .connectionMaxIdleTime(connectionMaxIdleTime)
+                        .tcpKeepAlive(tcpKeepAlive)
+                        .useIdleConnectionReaper(true)
+                        .build();
+            case "url-connection":
+                return UrlConnectionHttpClient.builder()
+                        .connectionTimeout(connectionTimeout)
+                        .socketTimeout(socketTimeout)
+                        .build();
+            default:
+                throw new IllegalArgumentException("Unknown aws.http.transport '" + transport
+                        + "', expected apache or url-connection");
+        }
+    }
+
+    /**
+     * Netty client shared by the async AWS clients behind the {@code /async/orders} API. A
+     * few event loop threads ({@code aws.async.eventLoopThreads}, 0 for Netty's default of
+     * two per core) multiplex up to {@code aws.async.maxConcurrency} requests in flight;
+     * requests beyond that queue without holding a thread.
+     */
+    @Bean
+    public SdkAsyncHttpClient awsAsyncHttpClient(@Value("${aws.async.maxConcurrency:500}") int maxConcurrency,
+                                                 @Value("${aws.async.maxPendingConnectionAcquires:10000}") int maxPendingConnectionAcquires,
+                                                 @Value("${aws.async.eventLoopThreads:0}") int eventLoopThreads,
+                                                 @Value("${aws.http.connectionTimeout:2s}") Duration connectionTimeout,
+                                                 @Value("${aws.http.socketTimeout:30s}") Duration socketTimeout,
+                                                 @Value("${aws.http.connectionAcquisitionTimeout:5s}") Duration connectionAcquisitionTimeout,
+                                                 @Value("${aws.http.connectionTimeToLive:5m}") Duration connectionTimeToLive,
+                                                 @Value("${aws.http.connectionMaxIdleTime:60s}") Duration connectionMaxIdleTime,
+                                                 @Value("${aws.http.tcpKeepAlive:true}") boolean tcpKeepAlive) {
+        NettyNioAsyncHttpClient.Builder builder = NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(maxConcurrency)
+                .maxPendingConnectionAcquires(maxPendingConnectionAcquires)
+                .connectionTimeout(connectionTimeout)
+                .readTimeout(socketTimeout)
+                .writeTimeout(socketTimeout)
+                .connectionAcquisitionTimeout(connectionAcquisitionTimeout)
+                .connectionTimeToLive(connectionTimeToLive)
+                .connectionMaxIdleTime(connectionMaxIdleTime)
+                .tcpKeepAlive(tcpKeepAlive);
+        if (eventLoopThreads > 0) {
+            builder.eventLoopGroupBuilder(SdkEventLoopGroup.builder().numberOfThreads(eventLoopThreads));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Settings shared by every AWS client: the retry policy, API call timeouts ({@code 0}
+     * means none) and metrics. Each call is recorded in Micrometer through
+     * {@link AwsSdkMetricsInterceptor} and {@link AwsSdkMetricPublisher}.
+     */
+    @Bean
+    public ClientOverrideConfiguration awsClientOverrideConfiguration(MeterRegistry meterRegistry,
+                                                                      @Value("${aws.retry.mode:standard}") String retryMode,
+                                                                      @Value("${aws.retry.maxAttempts:3}") int maxAttempts,
+                                                                      @Value("${aws.client.apiCallTimeout:0s}") Duration apiCallTimeout,
+                                                                      @Value("${aws.client.apiCallAttemptTimeout:0s}") Duration apiCallAttemptTimeout) {
+        ClientOverrideConfiguration.Builder builder = ClientOverrideConfiguration.builder()
+                .retryPolicy(RetryPolicy.builder(RetryMode.valueOf(retryMode.toUpperCase(Locale.ROOT)))
+                        .numRetries(Math.max(0, maxAttempts - 1))
+                        .build())
+                .addExecutionInterceptor(new AwsSdkMetricsInterceptor(meterRegistry))
+                .addMetricPublisher(new AwsSdkMetricPublisher(meterRegistry));
+        if (!apiCallTimeout.isZero()) {
+            builder.apiCallTimeout(apiCallTimeout);
+        }
+        if (!apiCallAttemptTimeout.isZero()) {
+            builder.apiCallAttemptTimeout(apiCallAttemptTimeout);
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public DynamoDbClient dynamoDbClient(SdkHttpClient awsHttpClient, ClientOverrideConfiguration awsClientOverrideConfiguration) {
+        return configure(DynamoDbClient.builder(), awsHttpClient, awsClientOverrideConfiguration, dynamoDbEndpoint).build();
+    }
+
+    @Bean
+    public S3Client s3Client(SdkHttpClient awsHttpClient, ClientOverrideConfiguration awsClientOverrideConfiguration) {
+        return configure(S3Client.builder(), awsHttpClient, awsClientOverrideConfiguration, s3Endpoint).build();
+    }
+
+    @Bean
+    public DynamoDbAsyncClient dynamoDbAsyncClient(SdkAsyncHttpClient awsAsyncHttpClient,
+                                                   ClientOverrideConfiguration awsClientOverrideConfiguration) {
+        return configureAsync(DynamoDbAsyncClient.builder(), awsAsyncHttpClient, awsClientOverrideConfiguration, dynamoDbEndpoint).build();
+    }
+
+    @Bean
+    public S3AsyncClient s3AsyncClient(SdkAsyncHttpClient awsAsyncHttpClient,
+                                       ClientOverrideConfiguration awsClientOverrideConfiguration) {
+        return configureAsync(S3AsyncClient.builder(), awsAsyncHttpClient, awsClientOverrideConfiguration, s3Endpoint).build();
     }
 
+    /**
+     * Signs invoice URLs for the same endpoint as {@link #s3Client}. Path-style URLs are
+     * used so they resolve against LocalStack without bucket subdomains.
+     */
     @Bean
-    public S3Client s3Client() {
-        return S3Client.builder()
+    public S3Presigner s3Presigner() {
+        S3Presigner.Builder builder = S3Presigner.builder()
                 .credentialsProvider(credentialsProvider())
                 .region(Region.of(region))
-                .endpointOverride(java.net.URI.create("http://localhost:4566"))
-                .build();
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build());
+        if (!s3Endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(s3Endpoint));
+        }
+        return builder.build();
     }
 
     @Bean
-    public SnsClient snsClient() {
-        return SnsClient.builder()
-                .credentialsProvider(credentialsProvider())
-                .endpointOverride(java.net.URI.create("http://localhost:4566"))
+    public SnsClient snsClient(SdkHttpClient awsHttpClient, ClientOverrideConfiguration awsClientOverrideConfiguration) {
+        return configure(SnsClient.builder(), awsHttpClient, awsClientOverrideConfiguration, snsEndpoint).build();
+    }
+
+    /**
+     * Applies the shared credentials, region, HTTP client and override configuration, and
+     * points the client at {@code endpoint} unless it is empty (the regional AWS endpoint).
+     */
+    private <B extends AwsClientBuilder<B, ?> & AwsSyncClientBuilder<B, ?>> B configure(
+            B builder, SdkHttpClient httpClient, ClientOverrideConfiguration overrideConfiguration, String endpoint) {
+        builder.credentialsProvider(credentialsProvider())
+                .region(Region.of(region))
+                .overrideConfiguration(overrideConfiguration)
+                .httpClient(httpClient);
+        if (!endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder;
+    }
+
+    private <B extends AwsClientBuilder<B, ?> & AwsAsyncClientBuilder<B, ?>> B configureAsync(
+            B builder, SdkAsyncHttpClient httpClient, ClientOverrideConfiguration overrideConfiguration, String endpoint) {
+        builder.credentialsProvider(credentialsProvider())
                 .region(Region.of(region))
-                .build();
+                .overrideConfiguration(overrideConfiguration)
+                .httpClient(httpClient);
+        if (!endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder;
     }
-}
\ No newline at end of file
+}
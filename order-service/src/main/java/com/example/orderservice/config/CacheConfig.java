@@ -0,0 +1,58 @@
+package com.example.orderservice.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.orderservice.cache.InMemoryOrderCache;
+import com.example.orderservice.cache.NoOpOrderCache;
+import com.example.orderservice.cache.OrderCache;
+import com.example.orderservice.cache.OrderPageETags;
+
+/**
+ * Order cache configuration. Set {@code orders.cache.enabled} per profile to switch
+ * the read-through cache in front of DynamoDB on or off. {@code orders.etag.pages.*}
+ * configures the ETags remembered for conditional list reads.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Value("${orders.cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${orders.cache.ttl:30s}")
+    private Duration ttl;
+
+    @Value("${orders.cache.maxEntries:10000}")
+    private int maxEntries;
+
+    @Value("${orders.cache.maxBytes:0}")
+    private long maxBytes;
+
+    @Value("${orders.cache.writeMode:write-through}")
+    private String writeMode;
+
+    @Value("${orders.etag.pages.maxAge:0s}")
+    private Duration pageETagMaxAge;
+
+    @Value("${orders.etag.pages.maxEntries:1000}")
+    private int pageETagMaxEntries;
+
+    @Bean
+    public OrderCache orderCache() {
+        if (!enabled) {
+            return new NoOpOrderCache();
+        }
+        if (!"write-through".equals(writeMode) && !"invalidate".equals(writeMode)) {
+            throw new IllegalArgumentException("orders.cache.writeMode must be write-through or invalidate");
+        }
+        return new InMemoryOrderCache(ttl, maxEntries, maxBytes, "write-through".equals(writeMode));
+    }
+
+    @Bean
+    public OrderPageETags orderPageETags() {
+        return new OrderPageETags(pageETagMaxAge, pageETagMaxEntries);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.orderservice.config;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.example.orderservice.service.DynamoDbService;
+import com.example.orderservice.service.IdempotencyStore;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.CreateGlobalSecondaryIndexAction;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTimeToLiveRequest;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexUpdate;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+import software.amazon.awssdk.services.dynamodb.model.TimeToLiveSpecification;
+import software.amazon.awssdk.services.dynamodb.model.TimeToLiveStatus;
+import software.amazon.awssdk.services.dynamodb.model.UpdateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateTimeToLiveRequest;
+
+/**
+ * Provisions the orders table and its query indexes, and the idempotency key table with
+ * TTL on {@code expiresAt}, for local runs against DynamoDB Local or LocalStack. Enabled with
+ * {@code aws.dynamodb.createTables=true}; existing tables are left alone apart from adding
+ * indexes they are missing.
+ */
+@Component
+@Profile("!test & !local-store")
+@ConditionalOnProperty(name = "aws.dynamodb.createTables", havingValue = "true")
+public class DynamoDbTableInitializer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DynamoDbTableInitializer.class);
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+    private final String idempotencyTableName;
+
+    public DynamoDbTableInitializer(DynamoDbClient dynamoDbClient, @Value("${aws.dynamodb.tableName}") String tableName,
+                                    @Value("${aws.dynamodb.idempotencyTableName:order-idempotency}") String idempotencyTableName) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+        this.idempotencyTableName = idempotencyTableName;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            ensureTable();
+            ensureIdempotencyTable();
+        } catch (SdkException e) {
+            // Local DynamoDB may simply not be running yet; the service still starts
+            log.warn("Could not provision DynamoDB tables {} and {}", tableName, idempotencyTableName, e);
+        }
+    }
+
+    /**
+     * Creates the idempotency key table if it is missing and makes sure expired keys are
+     * removed by DynamoDB's TTL.
+     */
+    public void ensureIdempotencyTable() {
+        try {
+            dynamoDbClient.describeTable(DescribeTableRequest.builder().tableName(idempotencyTableName).build());
+        } catch (ResourceNotFoundException e) {
+            log.info("Creating DynamoDB table {}", idempotencyTableName);
+            dynamoDbClient.createTable(CreateTableRequest.builder()
+                    .tableName(idempotencyTableName)
+                    .attributeDefinitions(attribute(IdempotencyStore.KEY))
+                    .keySchema(key(IdempotencyStore.KEY, KeyType.HASH))
+                    .billingMode(BillingMode.PAY_PER_REQUEST)
+                    .build());
+            dynamoDbClient.waiter().waitUntilTableExists(DescribeTableRequest.builder().tableName(idempotencyTableName).build());
+        }
+
+        TimeToLiveStatus ttlStatus = dynamoDbClient.describeTimeToLive(DescribeTimeToLiveRequest.builder()
+                        .tableName(idempotencyTableName)
+                        .build())
+                .timeToLiveDescription()
+                .timeToLiveStatus();
+        if (ttlStatus != TimeToLiveStatus.ENABLED && ttlStatus != TimeToLiveStatus.ENABLING) {
+            dynamoDbClient.updateTimeToLive(UpdateTimeToLiveRequest.builder()
+                    .tableName(idempotencyTableName)
+                    .timeToLiveSpecification(TimeToLiveSpecification.builder()
+                            .attributeName(IdempotencyStore.EXPIRES_AT)
+                            .enabled(true)
+                            .build())
+                    .build());
+        }
+    }
+
+    public void ensureTable() {
+        TableDescription table;
+        try {
+            table = dynamoDbClient.describeTable(DescribeTableRequest.builder().tableName(tableName).build()).table();
+        } catch (ResourceNotFoundException e) {
+            log.info("Creating DynamoDB table {} with indexes {}", tableName, indexNames());
+            dynamoDbClient.createTable(CreateTableRequest.builder()
+                    .tableName(tableName)
+                    .attributeDefinitions(attributeDefinitions())
+                    .keySchema(key("orderId", KeyType.HASH))
+                    .globalSecondaryIndexes(globalSecondaryIndexes())
+                    .billingMode(BillingMode.PAY_PER_REQUEST)
+                    .build());
+            dynamoDbClient.waiter().waitUntilTableExists(DescribeTableRequest.builder().tableName(tableName).build());
+            return;
+        }
+
+        Set<String> existing = table.globalSecondaryIndexes().stream()
+                .map(GlobalSecondaryIndexDescription::indexName)
+                .collect(Collectors.toSet());
+        for (GlobalSecondaryIndex index : globalSecondaryIndexes()) {
+            if (!existing.contains(index.indexName())) {
+                log.info("Adding index {} to DynamoDB table {}", index.indexName(), tableName);
+                dynamoDbClient.updateTable(UpdateTableRequest.builder()
+                        .tableName(tableName)
+                        .attributeDefinitions(attributeDefinitions())
+                        .globalSecondaryIndexUpdates(GlobalSecondaryIndexUpdate.builder()
+                                .create(CreateGlobalSecondaryIndexAction.builder()
+                                        .indexName(index.indexName())
+                                        .keySchema(index.keySchema())
+                                        .projection(index.projection())
+                                        .build())
+                                .build())
+                        .build());
+            }
+        }
+    }
+
+    static List<GlobalSecondaryIndex> globalSecondaryIndexes() {
+        Projection all = Projection.builder().projectionType(ProjectionType.ALL).build();
+        return List.of(
+                GlobalSecondaryIndex.builder()
+                        .indexName(DynamoDbService.CUSTOMER_DATE_INDEX)
+                        .keySchema(key("customerName", KeyType.HASH), key("orderDate", KeyType.RANGE))
+                        .projection(all)
+                        .build(),
+                GlobalSecondaryIndex.builder()
+                        .indexName(DynamoDbService.ORDER_DATE_INDEX)
+                        .keySchema(key("orderDate", KeyType.HASH), key("orderId", KeyType.RANGE))
+                        .projection(all)
+                        .build());
+    }
+
+    private static List<AttributeDefinition> attributeDefinitions() {
+        return List.of(
+                attribute("orderId"),
+                attribute("customerName"),
+                attribute("orderDate"));
+    }
+
+    private static List<String> indexNames() {
+        return globalSecondaryIndexes().stream().map(GlobalSecondaryIndex::indexName).collect(Collectors.toList());
+    }
+
+    private static AttributeDefinition attribute(String name) {
+        return AttributeDefinition.builder().attributeName(name).attributeType(ScalarAttributeType.S).build();
+    }
+
+    private static KeySchemaElement key(String name, KeyType type) {
+        return KeySchemaElement.builder().attributeName(name).keyType(type).build();
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.orderservice.config;
 
+import java.net.URI;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -7,9 +10,12 @@ import org.springframework.context.annotation.Profile;
 
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.SdkHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.sns.SnsClient;
 
 /**
@@ -20,39 +26,64 @@ import software.amazon.awssdk.services.sns.SnsClient;
 @Profile("test")
 public class MockAwsConfig {
 
+    @Value("${aws.dynamodb.endpoint:http://localhost:8000}")
+    private String dynamoDbEndpoint;
+
+    @Value("${aws.s3.endpoint:http://localhost:4566}")
+    private String s3Endpoint;
+
+    @Value("${aws.sns.endpoint:http://localhost:4566}")
+    private String snsEndpoint;
+
     @Bean
     @Primary
-    public DynamoDbClient dynamoDbClient() {
+    public DynamoDbClient dynamoDbClient(SdkHttpClient awsHttpClient) {
         // Create a DynamoDbClient with dummy credentials and LocalStack endpoint
         return DynamoDbClient.builder()
                 .credentialsProvider(StaticCredentialsProvider.create(
                         AwsBasicCredentials.create("test", "test")))
                 .region(Region.US_EAST_1)
-                .endpointOverride(java.net.URI.create("http://localhost:8000"))
+                .httpClient(awsHttpClient)
+                .endpointOverride(URI.create(dynamoDbEndpoint))
                 .build();
     }
 
     @Bean
     @Primary
-    public S3Client s3Client() {
+    public S3Client s3Client(SdkHttpClient awsHttpClient) {
         // Create an S3Client with dummy credentials and LocalStack endpoint
         return S3Client.builder()
                 .credentialsProvider(StaticCredentialsProvider.create(
                         AwsBasicCredentials.create("test", "test")))
                 .region(Region.US_EAST_1)
-                .endpointOverride(java.net.URI.create("http://localhost:4566"))
+                .httpClient(awsHttpClient)
+                .endpointOverride(URI.create(s3Endpoint))
+                .build();
+    }
+
+    @Bean
+    @Primary
+    public S3Presigner s3Presigner() {
+        // Create an S3Presigner with dummy credentials and LocalStack endpoint
+        return S3Presigner.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create("test", "test")))
+                .region(Region.US_EAST_1)
+                .endpointOverride(URI.create(s3Endpoint))
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build())
                 .build();
     }
 
     @Bean
     @Primary
-    public SnsClient snsClient() {
+    public SnsClient snsClient(SdkHttpClient awsHttpClient) {
         // Create an SnsClient with dummy credentials and LocalStack endpoint
         return SnsClient.builder()
                 .credentialsProvider(StaticCredentialsProvider.create(
                         AwsBasicCredentials.create("test", "test")))
                 .region(Region.US_EAST_1)
-                .endpointOverride(java.net.URI.create("http://localhost:4566"))
+                .httpClient(awsHttpClient)
+                .endpointOverride(URI.create(snsEndpoint))
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.example.orderservice.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor for the order creation pipeline: invoice uploads that run alongside the
+ * DynamoDB write, and orders accepted with {@code Prefer: respond-async}.
+ * When the pool and its queue are full the caller runs the task itself, so overload
+ * degrades to the serial pipeline instead of rejecting orders.
+ * <p>
+ * With {@code spring.threads.virtual.enabled=true} on Java 21 or later, every pipeline task
+ * gets its own virtual thread instead, matching the Tomcat request threads Spring Boot
+ * switches to virtual threads under the same flag. The pipeline is then bounded by the
+ * AWS connection pool ({@code aws.http.maxConnections}) rather than by a thread count.
+ */
+@Configuration
+public class OrderPipelineConfig {
+
+    @Value("${orders.pipeline.corePoolSize:8}")
+    private int corePoolSize;
+
+    @Value("${orders.pipeline.maxPoolSize:32}")
+    private int maxPoolSize;
+
+    @Value("${orders.pipeline.queueCapacity:500}")
+    private int queueCapacity;
+
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskExecutor orderPipelineExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("order-pipeline-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    @Bean(name = "orderPipelineExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskExecutor virtualOrderPipelineExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("order-pipeline-");
+        executor.setVirtualThreads(true);
+        // Tracks running tasks so shutdown waits for them, like the pooled executor
+        executor.setTaskTerminationTimeout(30_000);
+        return executor;
+    }
+}
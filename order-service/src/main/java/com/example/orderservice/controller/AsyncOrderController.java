@@ -0,0 +1,134 @@
+package com.example.orderservice.controller;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.example.orderservice.cache.OrderETags;
+import com.example.orderservice.cache.OrderPageETags;
+import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderPage;
+import com.example.orderservice.service.OrderService;
+
+/**
+ * Non-blocking variants of the core {@link OrderController} endpoints, served from the async
+ * AWS clients. Each handler returns a CompletableFuture, so the request thread goes back to
+ * the pool as soon as the AWS calls are issued and the response is written when they
+ * complete; in-flight orders are bounded by the Netty client's concurrency, not by Tomcat's
+ * thread count.
+ */
+@RestController
+@RequestMapping("/async/orders")
+@CrossOrigin(origins = "http://localhost:3000")
+public class AsyncOrderController {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final OrderService orderService;
+    private final OrderPageETags orderPageETags;
+
+    public AsyncOrderController(OrderService orderService, OrderPageETags orderPageETags) {
+        this.orderService = orderService;
+        this.orderPageETags = orderPageETags;
+    }
+
+    @PostMapping
+    public CompletableFuture<ResponseEntity<Order>> createOrder(
+            @RequestParam("customerName") String customerName,
+            @RequestParam("orderAmount") String orderAmount,
+            @RequestParam("orderDate") String orderDate,
+            @RequestParam(value = "invoiceFile", required = false) MultipartFile invoiceFile) {
+
+        try {
+            return orderService.createOrderAsync(customerName, orderAmount, orderDate, invoiceFile)
+                    .thenApply(order -> ResponseEntity.status(HttpStatus.CREATED).body(order));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+        }
+    }
+
+    @GetMapping("/{orderId}")
+    public CompletableFuture<ResponseEntity<Order>> getOrder(@PathVariable String orderId) {
+        return orderService.getOrderAsync(orderId).thenApply(order -> order != null
+                ? ResponseEntity.ok().eTag(OrderETags.of(order)).varyBy(HttpHeaders.ACCEPT).body(order)
+                : ResponseEntity.notFound().build());
+    }
+
+    /**
+     * A page of orders with an ETag of its content. As in {@code GET /orders?limit=}, the
+     * opt-in single-instance shortcut of {@link OrderPageETags} answers 304 without reading
+     * DynamoDB when nothing has been written through this instance since the client's copy.
+     */
+    @GetMapping(params = "limit")
+    public CompletableFuture<ResponseEntity<OrderPage>> getOrderPage(
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "nextToken", required = false) String nextToken,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        List<?> query = Arrays.asList("page", limit, nextToken);
+        long version = orderService.getCollectionVersion();
+        String served = orderPageETags.get(query, version);
+        if (served != null && OrderETags.matches(ifNoneMatch, served)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(served).varyBy(HttpHeaders.ACCEPT).build());
+        }
+        try {
+            return orderService.getOrdersAsync(limit, nextToken).thenApply(page -> {
+                String eTag = OrderETags.of(page);
+                orderPageETags.put(query, version, eTag);
+                return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT).body(page);
+            });
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+    }
+
+    /**
+     * Downloads the whole invoice; ranges and conditional requests are served by
+     * {@code GET /orders/{orderId}/invoice}.
+     */
+    @GetMapping("/{orderId}/invoice")
+    public CompletableFuture<ResponseEntity<Resource>> getInvoice(@PathVariable String orderId) {
+        return orderService.openInvoiceAsync(orderId).thenApply(download -> {
+            if (download == null) {
+                return ResponseEntity.notFound().build();
+            }
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(download.getContentType() != null
+                            ? MediaType.parseMediaType(download.getContentType())
+                            : MediaType.APPLICATION_OCTET_STREAM)
+                    .contentLength(download.getContentLength())
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename(OrderController.invoiceFileName(orderId, download.getFileName()))
+                            .build()
+                            .toString());
+            if (download.getETag() != null) {
+                response.eTag(download.getETag());
+            }
+            return response.body(new InputStreamResource(download.getContent()));
+        });
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.orderservice.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import com.example.orderservice.service.DependencyUnavailableException;
+
+/**
+ * Answers 503 with {@code Retry-After} when a request needed a dependency whose circuit
+ * breaker is open or whose bulkhead is full, for both the blocking and async controllers
+ */
+@RestControllerAdvice
+public class DependencyUnavailableHandler {
+
+    @ExceptionHandler(DependencyUnavailableException.class)
+    public ResponseEntity<Void> dependencyUnavailable(DependencyUnavailableException e) {
+        long retryAfterSeconds = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                .build();
+    }
+}
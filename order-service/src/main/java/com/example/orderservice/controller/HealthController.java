@@ -1,16 +1,50 @@
 package com.example.orderservice.controller;
 
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.orderservice.model.DependencyHealth;
+import com.example.orderservice.model.HealthReport;
+import com.example.orderservice.service.DependencyHealthMonitor;
+
 /**
- * Simple health check controller to verify the application is running
+ * Health check controller: a plain running check, plus liveness and readiness endpoints
+ * for load balancers and orchestrators
  */
 @RestController
 public class HealthController {
 
+    private final DependencyHealthMonitor dependencyHealthMonitor;
+
+    public HealthController(DependencyHealthMonitor dependencyHealthMonitor) {
+        this.dependencyHealthMonitor = dependencyHealthMonitor;
+    }
+
     @GetMapping("/health")
     public String health() {
         return "Application is running";
     }
-}
\ No newline at end of file
+
+    /**
+     * Liveness deliberately ignores dependencies: restarting the node would not fix an
+     * unreachable DynamoDB, S3 or SNS.
+     */
+    @GetMapping("/health/live")
+    public HealthReport live() {
+        return new HealthReport(DependencyHealth.Status.UP, List.of());
+    }
+
+    /**
+     * Readiness from the cached dependency probes; 503 unless every dependency is UP.
+     */
+    @GetMapping("/health/ready")
+    public ResponseEntity<HealthReport> ready() {
+        HealthReport report = dependencyHealthMonitor.readiness();
+        HttpStatus status = report.getStatus() == DependencyHealth.Status.UP ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body(report);
+    }
+}
@@ -1,75 +1,451 @@
 package com.example.orderservice.controller;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.orderservice.cache.OrderETags;
+import com.example.orderservice.cache.OrderPageETags;
+import com.example.orderservice.model.BulkOrderResult;
 import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderPage;
+import com.example.orderservice.model.OrderStatus;
+import com.example.orderservice.model.PresignedInvoiceUrl;
+import com.example.orderservice.service.BulkOrderIngestService;
+import com.example.orderservice.service.IdempotencyKeyMismatchException;
+import com.example.orderservice.service.IdempotencyRequestInProgressException;
+import com.example.orderservice.service.IdempotencyService;
+import com.example.orderservice.service.InvoiceDownload;
+import com.example.orderservice.service.OrderAlreadyExistsException;
+import com.example.orderservice.service.OrderExportService;
 import com.example.orderservice.service.OrderService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
 @RestController
 @RequestMapping("/orders")
 @CrossOrigin(origins = "http://localhost:3000")
 public class OrderController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_DATE_RANGE_DAYS = 366;
+
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
+    private final BulkOrderIngestService bulkOrderIngestService;
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
+    private final OrderPageETags orderPageETags;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderExportService orderExportService,
+                           BulkOrderIngestService bulkOrderIngestService, IdempotencyService idempotencyService,
+                           ObjectMapper objectMapper, OrderPageETags orderPageETags) {
         this.orderService = orderService;
+        this.orderExportService = orderExportService;
+        this.bulkOrderIngestService = bulkOrderIngestService;
+        this.idempotencyService = idempotencyService;
+        this.objectMapper = objectMapper;
+        this.orderPageETags = orderPageETags;
     }
 
+    /**
+     * Reserves an order ID and returns a presigned PUT URL to upload its invoice to S3
+     * directly. Pass the returned {@code invoiceKey} to {@code POST /orders} afterwards.
+     */
+    @PostMapping("/invoice-uploads")
+    public ResponseEntity<PresignedInvoiceUrl> presignInvoiceUpload(
+            @RequestParam("fileName") String fileName,
+            @RequestParam(value = "contentType", required = false) String contentType) {
+        return ResponseEntity.ok(orderService.presignInvoiceUpload(fileName, contentType));
+    }
+
+    /**
+     * Creates an order. With {@code Prefer: respond-async} the order is only validated and
+     * accepted here; the response is 202 Accepted with a {@code Location} pointing at the
+     * order's status URL, and creation continues in the background.
+     * <p>
+     * Instead of an {@code invoiceFile}, an {@code invoiceKey} from
+     * {@code POST /orders/invoice-uploads} may be given once the invoice has been uploaded
+     * to S3; the order is then created synchronously under the reserved ID.
+     * <p>
+     * With an {@code Idempotency-Key} header a retried request is answered with the order
+     * the first request created, marked {@code Idempotent-Replayed: true}, instead of
+     * creating another one. The key may not be reused for a different request (422) and
+     * a retry while the first request is still running is rejected with 409. Keys apply to
+     * synchronous creation with an {@code invoiceFile}; an {@code invoiceKey} already makes
+     * the request idempotent through its reserved order ID.
+     */
     @PostMapping
-    public ResponseEntity<Order> createOrder(
+    public ResponseEntity<?> createOrder(
             @RequestParam("customerName") String customerName,
             @RequestParam("orderAmount") String orderAmount,
             @RequestParam("orderDate") String orderDate,
-            @RequestParam(value = "invoiceFile", required = false) MultipartFile invoiceFile) {
+            @RequestParam(value = "invoiceFile", required = false) MultipartFile invoiceFile,
+            @RequestParam(value = "invoiceKey", required = false) String invoiceKey,
+            @RequestHeader(value = "Prefer", required = false) String prefer,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         
         try {
+            if (idempotencyKey != null) {
+                if (invoiceKey != null || (prefer != null && prefer.contains("respond-async"))) {
+                    return ResponseEntity.badRequest().build();
+                }
+                IdempotencyService.Result result = idempotencyService.createOrder(idempotencyKey, customerName, orderAmount,
+                        orderDate, invoiceFile);
+                return ResponseEntity.status(HttpStatus.CREATED)
+                        .header("Idempotent-Replayed", Boolean.toString(result.isReplayed()))
+                        .body(result.getOrder());
+            }
+            if (invoiceKey != null) {
+                if (invoiceFile != null && !invoiceFile.isEmpty()) {
+                    return ResponseEntity.badRequest().build();
+                }
+                Order createdOrder = orderService.createOrderWithUploadedInvoice(customerName, orderAmount, orderDate, invoiceKey);
+                return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
+            }
+            if (prefer != null && prefer.contains("respond-async")) {
+                Order acceptedOrder = orderService.submitOrder(customerName, orderAmount, orderDate, invoiceFile);
+                return ResponseEntity.accepted()
+                        .location(URI.create("/orders/" + acceptedOrder.getOrderId() + "/status"))
+                        .body(new OrderStatus(acceptedOrder.getOrderId(), OrderStatus.State.ACCEPTED, null));
+            }
             Order createdOrder = orderService.createOrder(customerName, orderAmount, orderDate, invoiceFile);
             return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
+        } catch (IdempotencyKeyMismatchException e) {
+            return ResponseEntity.unprocessableEntity().build();
+        } catch (IdempotencyRequestInProgressException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (OrderAlreadyExistsException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * Creates orders from an NDJSON or CSV body, one record per line. The body is read
+     * incrementally and a result per record is streamed back as NDJSON in input order.
+     * CSV bodies need a header naming the customerName, orderAmount and orderDate columns.
+     */
+    @PostMapping(value = "/bulk",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void bulkCreateOrders(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BulkOrderIngestService.Format format = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? BulkOrderIngestService.Format.NDJSON
+                : BulkOrderIngestService.Format.CSV;
+        Charset charset = request.getCharacterEncoding() != null
+                ? Charset.forName(request.getCharacterEncoding())
+                : StandardCharsets.UTF_8;
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        ObjectWriter writer = objectMapper.writerFor(BulkOrderResult.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (Reader body = new InputStreamReader(request.getInputStream(), charset);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            bulkOrderIngestService.ingest(body, format, new BulkOrderIngestService.ResultSink() {
+                @Override
+                public void accept(BulkOrderResult result) throws IOException {
+                    writer.writeValue(generator, result);
+                    generator.writeRaw('\n');
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    generator.flush();
+                }
+            });
+        }
+    }
+
+    @GetMapping("/{orderId}/status")
+    public ResponseEntity<OrderStatus> getOrderStatus(@PathVariable String orderId) {
+        OrderStatus status = orderService.getOrderStatus(orderId);
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    /**
+     * Returns an order with an ETag of its content; a matching {@code If-None-Match} is
+     * answered with 304 and no body.
+     */
     @GetMapping("/{orderId}")
     public ResponseEntity<Order> getOrder(@PathVariable String orderId) {
         Order order = orderService.getOrder(orderId);
         if (order == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(order);
+        return ResponseEntity.ok().eTag(OrderETags.of(order)).varyBy(HttpHeaders.ACCEPT).body(order);
     }
 
-    @GetMapping
-    public ResponseEntity<List<Order>> getAllOrders() {
-        List<Order> orders = orderService.getAllOrders();
-        return ResponseEntity.ok(orders);
+    /**
+     * A page of orders, the first 100 unless {@code limit} says otherwise. The whole table
+     * is only served as the NDJSON stream of {@link #streamOrders}, so no request collects
+     * every order in memory.
+     */
+    @GetMapping(params = {"!customerName", "!from"})
+    public ResponseEntity<OrderPage> getOrderPage(
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "nextToken", required = false) String nextToken,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return conditionalRead(Arrays.asList("page", limit, nextToken), ifNoneMatch,
+                    () -> orderService.getOrders(limit, nextToken), OrderETags::of);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
-    @GetMapping("/{orderId}/invoice")
-    public ResponseEntity<byte[]> getInvoice(@PathVariable String orderId) {
+    /**
+     * Finds a customer's orders, optionally between {@code from} and {@code to} (inclusive),
+     * through the customer/date index instead of scanning the table.
+     */
+    @GetMapping(params = "customerName")
+    public ResponseEntity<OrderPage> getOrdersByCustomer(
+            @RequestParam("customerName") String customerName,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "nextToken", required = false) String nextToken,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return findOrders(customerName, from, to, limit, nextToken, ifNoneMatch);
+    }
+
+    /**
+     * Finds the orders placed between {@code from} and {@code to} (inclusive, at most
+     * {@value #MAX_DATE_RANGE_DAYS} days apart) through the order date index.
+     */
+    @GetMapping(params = {"from", "!customerName"})
+    public ResponseEntity<OrderPage> getOrdersByDate(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "nextToken", required = false) String nextToken,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_DATE_RANGE_DAYS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return findOrders(null, from, to, limit, nextToken, ifNoneMatch);
+    }
+
+    private ResponseEntity<OrderPage> findOrders(String customerName, LocalDate from, LocalDate to,
+                                                 int limit, String nextToken, String ifNoneMatch) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE || (from != null && to != null && from.isAfter(to))) {
+            return ResponseEntity.badRequest().build();
+        }
         try {
-            byte[] invoiceData = orderService.getInvoice(orderId);
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_PDF);
-            headers.setContentDispositionFormData("attachment", "invoice-" + orderId + ".pdf");
-            return new ResponseEntity<>(invoiceData, headers, HttpStatus.OK);
-        } catch (Exception e) {
-            return ResponseEntity.notFound().build();
+            return conditionalRead(Arrays.asList("find", customerName, from, to, limit, nextToken), ifNoneMatch,
+                    () -> orderService.findOrders(customerName, from, to, limit, nextToken), OrderETags::of);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Reads a list of orders and answers it with an ETag of its content. When the
+     * single-instance shortcut of {@link OrderPageETags} is enabled, a client already holding
+     * the ETag this instance last served for {@code query}, with no order written since, is
+     * answered 304 without reading the orders at all.
+     */
+    private <T> ResponseEntity<T> conditionalRead(List<?> query, String ifNoneMatch, Supplier<T> read,
+                                                  Function<T, String> eTagOf) {
+        long version = orderService.getCollectionVersion();
+        String served = orderPageETags.get(query, version);
+        if (served != null && OrderETags.matches(ifNoneMatch, served)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(served).varyBy(HttpHeaders.ACCEPT).build();
+        }
+
+        T body = read.get();
+        String eTag = eTagOf.apply(body);
+        orderPageETags.put(query, version, eTag);
+        // Spring answers a matching If-None-Match with 304 without serializing the body
+        return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT).body(body);
+    }
+
+    /**
+     * Streams every order as newline-delimited JSON, writing and flushing each
+     * scan page as soon as it arrives instead of collecting the table first. The stream
+     * cannot be paged, so {@code limit} and {@code nextToken} are rejected.
+     */
+    @GetMapping(params = {"!customerName", "!from"}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamOrders(@RequestParam(value = "limit", required = false) Integer limit,
+                             @RequestParam(value = "nextToken", required = false) String nextToken,
+                             HttpServletResponse response) throws IOException {
+        if (limit != null || nextToken != null) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "The NDJSON stream of every order cannot be paged");
+            return;
+        }
+        writeNdjson(response, orderService::forEachOrderPage);
+    }
+
+    /**
+     * Exports the whole table as newline-delimited JSON using a parallel scan with
+     * {@code segments} workers, optionally capped at {@code readCapacityUnits} per second.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void exportOrders(
+            @RequestParam(value = "segments", defaultValue = "4") int segments,
+            @RequestParam(value = "ordered", defaultValue = "false") boolean ordered,
+            @RequestParam(value = "readCapacityUnits", required = false) Double readCapacityUnits,
+            HttpServletResponse response) throws IOException {
+
+        if (segments < 1 || segments > OrderExportService.MAX_SEGMENTS) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "segments must be between 1 and " + OrderExportService.MAX_SEGMENTS);
+            return;
+        }
+        try {
+            writeNdjson(response, pageAction -> {
+                try {
+                    if (readCapacityUnits != null) {
+                        orderExportService.exportOrders(segments, ordered, readCapacityUnits, pageAction);
+                    } else {
+                        orderExportService.exportOrders(segments, ordered, pageAction);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Order export interrupted", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many concurrent exports");
+        }
+    }
+
+    private void writeNdjson(HttpServletResponse response, Consumer<Consumer<List<Order>>> pageSource) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        ObjectWriter writer = objectMapper.writerFor(Order.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            pageSource.accept(page -> {
+                try {
+                    for (Order order : page) {
+                        writer.writeValue(generator, order);
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Returns a presigned GET URL to download the invoice from S3 directly.
+     */
+    @GetMapping("/{orderId}/invoice/url")
+    public ResponseEntity<PresignedInvoiceUrl> getInvoiceUrl(@PathVariable String orderId) {
+        PresignedInvoiceUrl url = orderService.presignInvoiceDownload(orderId);
+        return url != null ? ResponseEntity.ok(url) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Streams the invoice straight from S3 to the client. Supports a single {@code Range}
+     * (answered with 206) and {@code If-None-Match} (answered with 304 when the ETag matches).
+     */
+    @GetMapping("/{orderId}/invoice")
+    public void getInvoice(@PathVariable String orderId,
+                           @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                           HttpServletResponse response) throws IOException {
+        try (InvoiceDownload download = orderService.openInvoice(orderId, range, ifNoneMatch)) {
+            if (download == null) {
+                response.setStatus(HttpStatus.NOT_FOUND.value());
+                return;
+            }
+
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            if (download.getETag() != null) {
+                response.setHeader(HttpHeaders.ETAG, download.getETag());
+            }
+            if (download.isNotModified()) {
+                response.setStatus(HttpStatus.NOT_MODIFIED.value());
+                return;
+            }
+
+            if (download.isPartial()) {
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, download.getContentRange());
+            }
+            response.setContentType(download.getContentType() != null
+                    ? download.getContentType()
+                    : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setContentLengthLong(download.getContentLength());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename(invoiceFileName(orderId, download.getFileName()))
+                    .build()
+                    .toString());
+
+            try {
+                StreamUtils.copy(download.getContent(), response.getOutputStream());
+            } catch (IOException e) {
+                // The client went away; drop the S3 connection rather than draining the rest
+                download.abort();
+                throw e;
+            }
+        } catch (S3Exception e) {
+            // A missing object or an unsatisfiable range is the client's; anything else is an S3 failure
+            if (e.statusCode() != HttpStatus.NOT_FOUND.value()
+                    && e.statusCode() != HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+                throw e;
+            }
+            response.setStatus(e.statusCode());
+        }
+    }
+
+    static String invoiceFileName(String orderId, String storedFileName) {
+        int extension = storedFileName.lastIndexOf('.');
+        return "invoice-" + orderId + (extension >= 0 ? storedFileName.substring(extension) : ".pdf");
+    }
+}
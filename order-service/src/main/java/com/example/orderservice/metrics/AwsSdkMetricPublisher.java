@@ -0,0 +1,96 @@
+package com.example.orderservice.metrics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+/**
+ * Turns the SDK's own per-call metrics into meters for what interceptors cannot see, tagged
+ * with {@code service}:
+ * <ul>
+ * <li>{@code aws.sdk.http.connection.acquire} - time an attempt waited for a pooled HTTP connection</li>
+ * <li>{@code aws.sdk.http.pending.acquires} - attempts already waiting for a connection when one was requested</li>
+ * <li>{@code aws.sdk.retry.backoff} - backoff delay before each retry</li>
+ * </ul>
+ * The HTTP clients also report their pool state with every request, which is kept in gauges
+ * tagged with {@code client} (e.g. {@code Apache}), since the pool is shared by all services:
+ * {@code aws.sdk.http.pool.max}, {@code aws.sdk.http.pool.leased},
+ * {@code aws.sdk.http.pool.available} and {@code aws.sdk.http.pool.pending}. A pool is
+ * saturated when {@code leased} reaches {@code max} and {@code pending} stays above zero.
+ */
+public class AwsSdkMetricPublisher implements MetricPublisher {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicInteger> poolGauges = new ConcurrentHashMap<>();
+
+    public AwsSdkMetricPublisher(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void publish(MetricCollection apiCall) {
+        List<String> serviceIds = apiCall.metricValues(CoreMetric.SERVICE_ID);
+        String service = serviceIds.isEmpty() ? "unknown" : serviceIds.get(0);
+
+        apiCall.childrenWithName("ApiCallAttempt").forEach(attempt -> {
+            attempt.metricValues(CoreMetric.BACKOFF_DELAY_DURATION).stream()
+                    .filter(backoff -> !backoff.isZero())
+                    .forEach(backoff -> timer("aws.sdk.retry.backoff", "Backoff before a retry", service).record(backoff));
+
+            attempt.childrenWithName("HttpClient").forEach(http -> {
+                List<String> clientNames = http.metricValues(HttpMetric.HTTP_CLIENT_NAME);
+                String client = clientNames.isEmpty() ? "unknown" : clientNames.get(0);
+                updatePoolGauge("aws.sdk.http.pool.max", "Maximum connections in the HTTP client pool", client, http, HttpMetric.MAX_CONCURRENCY);
+                updatePoolGauge("aws.sdk.http.pool.leased", "HTTP connections in use", client, http, HttpMetric.LEASED_CONCURRENCY);
+                updatePoolGauge("aws.sdk.http.pool.available", "Idle HTTP connections in the pool", client, http, HttpMetric.AVAILABLE_CONCURRENCY);
+                updatePoolGauge("aws.sdk.http.pool.pending", "Requests waiting for an HTTP connection", client, http, HttpMetric.PENDING_CONCURRENCY_ACQUIRES);
+                for (Duration acquire : http.metricValues(HttpMetric.CONCURRENCY_ACQUIRE_DURATION)) {
+                    timer("aws.sdk.http.connection.acquire", "Time waiting for a pooled HTTP connection", service).record(acquire);
+                }
+                for (Integer pending : http.metricValues(HttpMetric.PENDING_CONCURRENCY_ACQUIRES)) {
+                    DistributionSummary.builder("aws.sdk.http.pending.acquires")
+                            .description("Requests waiting for a pooled HTTP connection")
+                            .tag("service", service)
+                            .register(meterRegistry)
+                            .record(pending);
+                }
+            });
+        });
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void updatePoolGauge(String name, String description, String client, MetricCollection http, SdkMetric<Integer> metric) {
+        List<Integer> values = http.metricValues(metric);
+        if (values.isEmpty()) {
+            return;
+        }
+        poolGauges.computeIfAbsent(name + '|' + client, key -> {
+            AtomicInteger value = new AtomicInteger();
+            Gauge.builder(name, value, AtomicInteger::get)
+                    .description(description)
+                    .tag("client", client)
+                    .register(meterRegistry);
+            return value;
+        }).set(values.get(values.size() - 1));
+    }
+
+    private Timer timer(String name, String description, String service) {
+        return Timer.builder(name).description(description).tag("service", service).register(meterRegistry);
+    }
+}
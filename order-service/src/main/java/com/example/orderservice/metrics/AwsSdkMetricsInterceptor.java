@@ -0,0 +1,146 @@
+package com.example.orderservice.metrics;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.http.SdkHttpResponse;
+
+/**
+ * Records every AWS SDK call made by the DynamoDB, S3 and SNS clients, tagged with the
+ * {@code service} and {@code operation}:
+ * <ul>
+ * <li>{@code aws.sdk.calls} - latency of the whole call including retries, tagged with
+ * {@code outcome} ({@code success} or {@code error}) and {@code exception}</li>
+ * <li>{@code aws.sdk.retries} - attempts after the first</li>
+ * <li>{@code aws.sdk.throttles} - attempts rejected with a throttling error</li>
+ * <li>{@code aws.sdk.request.bytes} / {@code aws.sdk.response.bytes} - payload size per attempt</li>
+ * <li>{@code aws.sdk.calls.in.flight} - calls currently running, per service</li>
+ * </ul>
+ */
+public class AwsSdkMetricsInterceptor implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Long> START_NANOS = new ExecutionAttribute<>("MetricsStartNanos");
+    private static final ExecutionAttribute<Integer> ATTEMPTS = new ExecutionAttribute<>("MetricsAttempts");
+    private static final ExecutionAttribute<Boolean> LAST_ATTEMPT_THROTTLED = new ExecutionAttribute<>("MetricsLastAttemptThrottled");
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public AwsSdkMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(START_NANOS, System.nanoTime());
+        executionAttributes.putAttribute(ATTEMPTS, 0);
+        inFlight(service(executionAttributes)).incrementAndGet();
+    }
+
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+        Integer attempts = executionAttributes.getAttribute(ATTEMPTS);
+        executionAttributes.putAttribute(ATTEMPTS, attempts != null ? attempts + 1 : 1);
+        executionAttributes.putAttribute(LAST_ATTEMPT_THROTTLED, false);
+
+        long contentLength = context.httpRequest().firstMatchingHeader("Content-Length").map(Long::parseLong)
+                .orElseGet(() -> context.requestBody().map(body -> body.optionalContentLength().orElse(-1L)).orElse(-1L));
+        if (contentLength >= 0) {
+            payloadSummary("aws.sdk.request.bytes", "Request payload size per attempt", executionAttributes).record(contentLength);
+        }
+    }
+
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        SdkHttpResponse response = context.httpResponse();
+        if (isThrottled(response)) {
+            executionAttributes.putAttribute(LAST_ATTEMPT_THROTTLED, true);
+            meterRegistry.counter("aws.sdk.throttles", tags(executionAttributes)).increment();
+        }
+        response.firstMatchingHeader("Content-Length").map(Long::parseLong).ifPresent(length ->
+                payloadSummary("aws.sdk.response.bytes", "Response payload size per attempt", executionAttributes).record(length));
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        complete(executionAttributes, "success", "none");
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        Throwable failure = context.exception();
+        // Query-protocol services such as SNS only name the throttling error in the body
+        if (failure instanceof AwsServiceException && ((AwsServiceException) failure).isThrottlingException()
+                && !Boolean.TRUE.equals(executionAttributes.getAttribute(LAST_ATTEMPT_THROTTLED))) {
+            meterRegistry.counter("aws.sdk.throttles", tags(executionAttributes)).increment();
+        }
+        complete(executionAttributes, "error", failure.getClass().getSimpleName());
+    }
+
+    private void complete(ExecutionAttributes executionAttributes, String outcome, String exception) {
+        Long startNanos = executionAttributes.getAttribute(START_NANOS);
+        if (startNanos == null) {
+            return;
+        }
+        inFlight(service(executionAttributes)).decrementAndGet();
+        Timer.builder("aws.sdk.calls")
+                .description("AWS SDK calls, including retries")
+                .tags(tags(executionAttributes).and("outcome", outcome, "exception", exception))
+                .register(meterRegistry)
+                .record(Duration.ofNanos(System.nanoTime() - startNanos));
+
+        Integer attempts = executionAttributes.getAttribute(ATTEMPTS);
+        if (attempts != null && attempts > 1) {
+            meterRegistry.counter("aws.sdk.retries", tags(executionAttributes)).increment(attempts - 1);
+        }
+    }
+
+    private DistributionSummary payloadSummary(String name, String description, ExecutionAttributes executionAttributes) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit("bytes")
+                .tags(tags(executionAttributes))
+                .register(meterRegistry);
+    }
+
+    private AtomicInteger inFlight(String service) {
+        return inFlight.computeIfAbsent(service, name ->
+                meterRegistry.gauge("aws.sdk.calls.in.flight", Tags.of("service", name), new AtomicInteger()));
+    }
+
+    static boolean isThrottled(SdkHttpResponse response) {
+        int status = response.statusCode();
+        if (status == 429 || status == 503) {
+            return true;
+        }
+        // JSON-protocol services such as DynamoDB name the error in a header
+        Optional<String> errorType = response.firstMatchingHeader("x-amzn-ErrorType");
+        return status == 400 && errorType.isPresent() && (errorType.get().startsWith("Throttling")
+                || errorType.get().startsWith("ProvisionedThroughputExceeded")
+                || errorType.get().startsWith("RequestLimitExceeded")
+                || errorType.get().startsWith("TooManyRequests"));
+    }
+
+    private static Tags tags(ExecutionAttributes executionAttributes) {
+        return Tags.of("service", service(executionAttributes),
+                "operation", String.valueOf(executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME)));
+    }
+
+    private static String service(ExecutionAttributes executionAttributes) {
+        return String.valueOf(executionAttributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME));
+    }
+}
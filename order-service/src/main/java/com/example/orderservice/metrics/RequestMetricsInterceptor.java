@@ -0,0 +1,67 @@
+package com.example.orderservice.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Adds what Spring Boot's {@code http.server.requests} timer leaves out, tagged with
+ * {@code method} and {@code uri} template:
+ * <ul>
+ * <li>{@code http.server.requests.active} - requests in flight and how long they have been running</li>
+ * <li>{@code http.server.requests.bytes} - request body size</li>
+ * </ul>
+ */
+public class RequestMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String SAMPLE_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".sample";
+
+    private final MeterRegistry meterRegistry;
+
+    public RequestMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Async requests are dispatched again; keep the sample from the first dispatch
+        if (request.getAttribute(SAMPLE_ATTRIBUTE) != null) {
+            return true;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Tags tags = Tags.of("method", request.getMethod(), "uri", pattern != null ? pattern.toString() : "UNKNOWN");
+
+        request.setAttribute(SAMPLE_ATTRIBUTE, LongTaskTimer.builder("http.server.requests.active")
+                .description("HTTP requests in flight")
+                .tags(tags)
+                .register(meterRegistry)
+                .start());
+
+        long contentLength = request.getContentLengthLong();
+        if (contentLength >= 0) {
+            DistributionSummary.builder("http.server.requests.bytes")
+                    .description("HTTP request body size")
+                    .baseUnit("bytes")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(contentLength);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object sample = request.getAttribute(SAMPLE_ATTRIBUTE);
+        if (sample != null) {
+            ((LongTaskTimer.Sample) sample).stop();
+            request.removeAttribute(SAMPLE_ATTRIBUTE);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.orderservice.model;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of the latest health probe of one AWS dependency.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class DependencyHealth {
+
+    public enum Status {
+        UP,
+        DEGRADED,
+        DOWN
+    }
+
+    private String name;
+    private Status status;
+    private long latencyMillis;
+    private String error;
+    private Instant checkedAt;
+    /**
+     * State of the dependency's circuit breaker: CLOSED, OPEN or HALF_OPEN.
+     */
+    private String circuitBreaker;
+}
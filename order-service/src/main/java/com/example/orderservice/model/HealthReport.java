@@ -0,0 +1,21 @@
+package com.example.orderservice.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Body of the liveness and readiness endpoints.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HealthReport {
+
+    private DependencyHealth.Status status;
+    private List<DependencyHealth> dependencies;
+}
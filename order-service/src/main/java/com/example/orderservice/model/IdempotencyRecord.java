@@ -0,0 +1,31 @@
+package com.example.orderservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An {@code Idempotency-Key} claimed by an order creation request, with a fingerprint of
+ * the request so the key cannot be reused for a different order.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    public enum Status {
+        IN_PROGRESS,
+        COMPLETED
+    }
+
+    private String idempotencyKey;
+    private String requestHash;
+    private String orderId;
+    private Status status;
+    /**
+     * Epoch second after which the record is ignored and DynamoDB's TTL removes it.
+     */
+    private long expiresAt;
+}
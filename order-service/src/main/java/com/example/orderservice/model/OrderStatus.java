@@ -0,0 +1,26 @@
+package com.example.orderservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of an order accepted for asynchronous creation.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatus {
+
+    public enum State {
+        ACCEPTED,
+        COMPLETED,
+        FAILED
+    }
+
+    private String orderId;
+    private State state;
+    private String message;
+}
@@ -0,0 +1,30 @@
+package com.example.orderservice.model;
+
+import java.time.Instant;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A short-lived S3 URL a client uses to transfer an invoice directly, without the bytes
+ * passing through the order service.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresignedInvoiceUrl {
+
+    private String orderId;
+    private String invoiceKey;
+    private String method;
+    private String url;
+    /**
+     * Headers that were signed into the URL and must be sent unchanged with the request.
+     */
+    private Map<String, String> headers;
+    private Instant expiresAt;
+}
@@ -0,0 +1,103 @@
+package com.example.orderservice.ratelimit;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit that follows downstream latency with AIMD (additive increase,
+ * multiplicative decrease). A request that finishes within {@code targetLatency} while the
+ * limit was being used grows the limit by about one per limit's worth of requests; a slow
+ * or failed request cuts it by {@code backoffRatio}. Requests admitted before the last cut
+ * are not counted again, so one slow burst shrinks the limit once rather than once per
+ * request of the burst.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final double backoffRatio;
+    private final LongSupplier nanoClock;
+
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+
+    /**
+     * @param initialLimit  limit until the first latency samples arrive
+     * @param minLimit      the limit never drops below this
+     * @param maxLimit      the limit never grows beyond this
+     * @param targetLatency requests slower than this count as a congestion signal
+     * @param backoffRatio  factor applied to the limit on congestion, between 0 and 1
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, Duration targetLatency, double backoffRatio) {
+        this(initialLimit, minLimit, maxLimit, targetLatency, backoffRatio, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, Duration targetLatency, double backoffRatio,
+                             LongSupplier nanoClock) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= minLimit <= initialLimit <= maxLimit");
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("backoffRatio must be between 0 and 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.nanoClock = nanoClock;
+        this.limit = initialLimit;
+        this.lastDecreaseNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Admits a request if fewer than the current limit are in flight.
+     *
+     * @return the start time to pass to {@link #release}, or -1 if the request must be rejected
+     */
+    public synchronized long tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return -1;
+        }
+        inFlight++;
+        return nanoClock.getAsLong();
+    }
+
+    /**
+     * Ends a request admitted by {@link #tryAcquire} and adapts the limit to how it went.
+     *
+     * @param startNanos the value returned by {@link #tryAcquire}
+     * @param failed     whether the request failed because of the service or its dependencies
+     */
+    public synchronized void release(long startNanos, boolean failed) {
+        long now = nanoClock.getAsLong();
+        boolean saturated = inFlight * 2 >= limit;
+        inFlight--;
+
+        if (failed || now - startNanos > targetLatencyNanos) {
+            if (startNanos - lastDecreaseNanos >= 0) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastDecreaseNanos = now;
+            }
+        } else if (saturated) {
+            // Only grow while the limit is actually in use, so an idle service keeps a sane limit
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Share of the current limit in use, from 0 to 1.
+     */
+    public synchronized double utilization() {
+        return inFlight / Math.floor(limit);
+    }
+}
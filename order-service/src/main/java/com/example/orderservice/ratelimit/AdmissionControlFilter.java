@@ -0,0 +1,250 @@
+package com.example.orderservice.ratelimit;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Sheds load before a request reaches a controller, and before its multipart body is read.
+ * <ul>
+ * <li>Each client has a token bucket; a client over its rate gets 429 with
+ * {@code Retry-After} set to when its next token is due. Clients are told apart only by
+ * what they cannot choose themselves: the authenticated principal, else their address as
+ * seen by the first of {@code trustedProxies} proxies in front of this service (taken from
+ * {@code X-Forwarded-For}), else the remote address.</li>
+ * <li>Each {@link EndpointGroup} has its own {@link AdaptiveConcurrencyLimit}, so slow
+ * writes cannot take the capacity reads need. A request over its group's limit gets 503
+ * with a fixed {@code Retry-After}.</li>
+ * <li>Bulk requests also get 503 while reads or writes use more than
+ * {@code bulkMaxUtilization} of their limit, so interactive traffic goes first.</li>
+ * </ul>
+ * Health, actuator and API documentation endpoints, and CORS preflights, are never limited.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    /**
+     * Endpoints sharing a concurrency limit, in order of priority.
+     */
+    public enum EndpointGroup {
+        READ,
+        WRITE,
+        BULK
+    }
+
+    private final Map<EndpointGroup, AdaptiveConcurrencyLimit> limits;
+    private final ClientRateLimiter clientRateLimiter;
+    private final int trustedProxies;
+    private final double bulkMaxUtilization;
+    private final String retryAfterSeconds;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param limits             concurrency limit of every endpoint group
+     * @param clientRateLimiter  per-client rate limit, or null for none
+     * @param trustedProxies     number of proxies in front of this service that append to {@code X-Forwarded-For}
+     * @param bulkMaxUtilization bulk requests are shed while reads or writes use more than this share of their limit
+     * @param retryAfter         {@code Retry-After} sent with 503 responses
+     */
+    public AdmissionControlFilter(Map<EndpointGroup, AdaptiveConcurrencyLimit> limits, ClientRateLimiter clientRateLimiter,
+                                  int trustedProxies, double bulkMaxUtilization, Duration retryAfter,
+                                  MeterRegistry meterRegistry) {
+        this.limits = new EnumMap<>(limits);
+        if (this.limits.size() != EndpointGroup.values().length) {
+            throw new IllegalArgumentException("A limit is needed for every endpoint group");
+        }
+        this.clientRateLimiter = clientRateLimiter;
+        if (trustedProxies < 0) {
+            throw new IllegalArgumentException("trustedProxies must not be negative");
+        }
+        this.trustedProxies = trustedProxies;
+        this.bulkMaxUtilization = bulkMaxUtilization;
+        this.retryAfterSeconds = Long.toString(Math.max(1, (retryAfter.toMillis() + 999) / 1000));
+        this.meterRegistry = meterRegistry;
+
+        this.limits.forEach((group, limit) -> {
+            String tag = tag(group);
+            Gauge.builder("orders.limits.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                    .description("Current adaptive concurrency limit")
+                    .tag("group", tag)
+                    .register(meterRegistry);
+            Gauge.builder("orders.limits.inflight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .description("Requests admitted and not yet completed")
+                    .tag("group", tag)
+                    .register(meterRegistry);
+        });
+        if (clientRateLimiter != null) {
+            Gauge.builder("orders.limits.clients", clientRateLimiter, ClientRateLimiter::getClientCount)
+                    .description("Clients with a tracked token bucket")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        EndpointGroup group = classify(request);
+        if (group == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (clientRateLimiter != null) {
+            double waitSeconds = clientRateLimiter.tryAcquire(clientId(request));
+            if (waitSeconds > 0) {
+                reject(response, group, "client-rate", HttpStatus.TOO_MANY_REQUESTS, Long.toString((long) Math.ceil(waitSeconds)));
+                return;
+            }
+        }
+
+        if (group == EndpointGroup.BULK
+                && (limits.get(EndpointGroup.READ).utilization() > bulkMaxUtilization
+                || limits.get(EndpointGroup.WRITE).utilization() > bulkMaxUtilization)) {
+            reject(response, group, "priority", HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds);
+            return;
+        }
+
+        AdaptiveConcurrencyLimit limit = limits.get(group);
+        long start = limit.tryAcquire();
+        if (start < 0) {
+            reject(response, group, "concurrency", HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds);
+            return;
+        }
+
+        boolean released = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete(limit, start));
+                released = true;
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            limit.release(start, true);
+            released = true;
+            throw e;
+        } finally {
+            if (!released) {
+                limit.release(start, response.getStatus() >= 500);
+            }
+        }
+    }
+
+    /**
+     * The endpoint group of a request, or null if it is never limited.
+     */
+    static EndpointGroup classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+        if ("OPTIONS".equals(method) || path.equals("/health") || path.startsWith("/health/")
+                || path.startsWith("/actuator") || path.startsWith("/swagger-ui") || path.startsWith("/v3/api-docs")) {
+            return null;
+        }
+
+        boolean read = "GET".equals(method) || "HEAD".equals(method);
+        if (path.equals("/orders/bulk") || path.equals("/orders/export")
+                || (read && path.equals("/orders") && request.getParameterMap().isEmpty() && acceptsNdjson(request))) {
+            return EndpointGroup.BULK;
+        }
+        return read ? EndpointGroup.READ : EndpointGroup.WRITE;
+    }
+
+    private static boolean acceptsNdjson(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+    }
+
+    String clientId(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "principal:" + principal.getName();
+        }
+        if (trustedProxies > 0) {
+            // Each proxy appends the address it received the request from, so the last
+            // trustedProxies entries are trustworthy and anything before them may be forged
+            List<String> forwardedFor = new ArrayList<>();
+            for (String header : Collections.list(request.getHeaders(X_FORWARDED_FOR))) {
+                for (String address : header.split(",")) {
+                    if (!address.isBlank()) {
+                        forwardedFor.add(address.trim());
+                    }
+                }
+            }
+            if (!forwardedFor.isEmpty()) {
+                return forwardedFor.get(Math.max(0, forwardedFor.size() - trustedProxies));
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, EndpointGroup group, String reason, HttpStatus status, String retryAfter) {
+        Counter.builder("orders.limits.rejected")
+                .description("Requests rejected by admission control")
+                .tag("group", tag(group))
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+    }
+
+    private static String tag(EndpointGroup group) {
+        return group.name().toLowerCase();
+    }
+
+    /**
+     * Releases the permit of an asynchronous request once it has completed.
+     */
+    private static final class ReleaseOnComplete implements AsyncListener {
+        private final AdaptiveConcurrencyLimit limit;
+        private final long start;
+        private volatile boolean failed;
+
+        private ReleaseOnComplete(AdaptiveConcurrencyLimit limit, long start) {
+            this.limit = limit;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            HttpServletResponse response = (HttpServletResponse) event.getSuppliedResponse();
+            limit.release(start, failed || response.getStatus() >= 500);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            failed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Still the same request
+        }
+    }
+}
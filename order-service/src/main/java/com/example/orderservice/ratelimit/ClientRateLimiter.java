@@ -0,0 +1,58 @@
+package com.example.orderservice.ratelimit;
+
+import java.util.LinkedHashMap;
+
+import com.example.orderservice.service.TokenBucket;
+
+/**
+ * One {@link TokenBucket} per client, for the most recently seen {@code maxClients} clients.
+ * A client that is evicted and comes back starts with a full bucket, so {@code maxClients}
+ * should comfortably exceed the number of clients active within a burst window.
+ */
+public class ClientRateLimiter {
+
+    private final double ratePerSecond;
+    private final double burst;
+    private final int maxClients;
+
+    private final LinkedHashMap<String, TokenBucket> buckets = new LinkedHashMap<>(16, 0.75f, true);
+
+    public ClientRateLimiter(double ratePerSecond, double burst, int maxClients) {
+        if (ratePerSecond <= 0 || burst < 1 || maxClients < 1) {
+            throw new IllegalArgumentException("Rate, burst and maxClients must be positive");
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.maxClients = maxClients;
+    }
+
+    /**
+     * Takes one request from {@code clientId}'s bucket.
+     *
+     * @return zero if the request is allowed, otherwise the seconds until it would be
+     */
+    public double tryAcquire(String clientId) {
+        TokenBucket bucket = bucket(clientId);
+        if (bucket.tryAcquire(1)) {
+            return 0;
+        }
+        // Never report zero for a rejected request, the bucket may have refilled in between
+        return Math.max(bucket.secondsUntilAvailable(1), Double.MIN_VALUE);
+    }
+
+    public synchronized int getClientCount() {
+        return buckets.size();
+    }
+
+    private synchronized TokenBucket bucket(String clientId) {
+        TokenBucket bucket = buckets.get(clientId);
+        if (bucket == null) {
+            bucket = new TokenBucket(ratePerSecond, burst);
+            buckets.put(clientId, bucket);
+            if (buckets.size() > maxClients) {
+                buckets.remove(buckets.keySet().iterator().next());
+            }
+        }
+        return bucket;
+    }
+}
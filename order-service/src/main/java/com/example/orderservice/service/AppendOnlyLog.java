@@ -0,0 +1,457 @@
+package com.example.orderservice.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Durable, memory-mapped append-only log of opaque records.
+ * <p>
+ * Each record is stored as {@code [length][crc32c][payload]}. Appends copy the record into
+ * a mapped region of the log file, which is grown by remapping when it fills up.
+ * {@link #sync()} waits until everything appended so far has been forced to disk. One
+ * background thread does the forcing, so every writer that is waiting while a force runs is
+ * covered by the next one (group commit). With a {@code commitDelay} the thread also waits
+ * that long before forcing, to collect more writers per fsync.
+ * <p>
+ * On open the log is scanned up to the first record that is missing or fails its checksum,
+ * which is where a crash interrupted the last writes. Everything after it is discarded.
+ * {@link #compact} copies the records that are still needed into a new generation file
+ * ({@code name-<generation>.log}) and switches to it once that file is complete. Older
+ * generations are deleted, or skipped on the next open if deleting them fails.
+ * <p>
+ * A generation is mapped as a single buffer, so it is limited to 2GB; compaction keeps it
+ * small.
+ */
+public class AppendOnlyLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(AppendOnlyLog.class);
+
+    /**
+     * Bytes of the length and checksum that precede every payload.
+     */
+    public static final int HEADER_BYTES = 8;
+
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE;
+    private static final int COPY_BUFFER_BYTES = 1 << 20;
+
+    /**
+     * Receives the records of the log in the order they were appended.
+     */
+    @FunctionalInterface
+    public interface RecordVisitor {
+        /**
+         * @param offset  position of the record, as returned by {@link #append}
+         * @param payload the record's payload; only valid during the call
+         */
+        void visit(long offset, ByteBuffer payload);
+    }
+
+    private final Path directory;
+    private final String name;
+    private final Pattern fileNamePattern;
+    private final int initialSize;
+    private final long commitDelayNanos;
+
+    // Guarded by "this"
+    private long generation;
+    private FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private int writePosition;
+
+    // Bytes appended over the life of this instance; never reset by compaction, so the
+    // group commit bookkeeping below survives a switch to a new generation
+    private volatile long appendedBytes;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition syncRequested = syncLock.newCondition();
+    private final Condition syncCompleted = syncLock.newCondition();
+    private long requestedBytes;
+    private long durableBytes;
+    private RuntimeException syncFailure;
+    private boolean closed;
+    private boolean syncerStopped;
+    private final Thread syncer;
+
+    public AppendOnlyLog(Path directory, String name, int initialSize, Duration commitDelay) throws IOException {
+        if (initialSize < HEADER_BYTES + 1) {
+            throw new IllegalArgumentException("initialSize is too small");
+        }
+        this.directory = directory;
+        this.name = name;
+        this.fileNamePattern = Pattern.compile(Pattern.quote(name) + "-(\\d+)\\.log");
+        this.initialSize = initialSize;
+        this.commitDelayNanos = commitDelay.toNanos();
+
+        Files.createDirectories(directory);
+        open();
+
+        this.syncer = new Thread(this::syncLoop, "append-log-sync-" + name);
+        this.syncer.setDaemon(true);
+        this.syncer.start();
+    }
+
+    /**
+     * Calls {@code visitor} for every record of the log, oldest first.
+     */
+    public synchronized void forEach(RecordVisitor visitor) {
+        ByteBuffer view = buffer.duplicate();
+        int position = 0;
+        while (position < writePosition) {
+            int length = view.getInt(position);
+            view.limit(position + HEADER_BYTES + length).position(position + HEADER_BYTES);
+            visitor.visit(position, view.slice());
+            view.clear();
+            position += HEADER_BYTES + length;
+        }
+    }
+
+    /**
+     * Appends a record. It is visible to {@link #forEach} immediately and durable once a
+     * later {@link #sync()} returns.
+     *
+     * @return the offset of the record in the current generation
+     */
+    public synchronized long append(byte[] payload) {
+        if (payload.length == 0) {
+            throw new IllegalArgumentException("Empty records are not supported");
+        }
+        int recordBytes = HEADER_BYTES + payload.length;
+        ensureCapacity(recordBytes);
+
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        int offset = writePosition;
+        // The length goes last so a reader never sees a length without its payload
+        ByteBuffer view = buffer.duplicate();
+        view.putInt(offset + 4, (int) crc.getValue());
+        view.position(offset + HEADER_BYTES);
+        view.put(payload);
+        view.putInt(offset, payload.length);
+        writePosition += recordBytes;
+        appendedBytes += recordBytes;
+        return offset;
+    }
+
+    /**
+     * Length in bytes, header included, of the record at {@code offset}.
+     */
+    public synchronized int recordBytes(long offset) {
+        return HEADER_BYTES + buffer.getInt((int) offset);
+    }
+
+    /**
+     * Bytes used by the current generation.
+     */
+    public synchronized long size() {
+        return writePosition;
+    }
+
+    /**
+     * Blocks until every record appended before this call is on disk.
+     *
+     * @throws UncheckedIOException if forcing the log to disk failed; the log should not
+     *                              be written to afterwards
+     */
+    public void sync() {
+        long target = appendedBytes;
+        syncLock.lock();
+        try {
+            if (target > requestedBytes) {
+                requestedBytes = target;
+                syncRequested.signal();
+            }
+            while (durableBytes < target && syncFailure == null && !syncerStopped) {
+                syncCompleted.awaitUninterruptibly();
+            }
+            if (syncFailure != null) {
+                throw syncFailure;
+            }
+            if (durableBytes < target) {
+                throw new IllegalStateException("Log " + name + " is closed");
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Rewrites the log so that it contains only the records at {@code liveOffsets}, in that
+     * order, and switches to the new file. Appends wait until compaction has finished.
+     *
+     * @return the new offset of each record, in the same order as {@code liveOffsets}
+     */
+    public synchronized long[] compact(long[] liveOffsets) throws IOException {
+        long nextGeneration = generation + 1;
+        Path target = file(nextGeneration);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        long[] newOffsets = new long[liveOffsets.length];
+
+        ByteBuffer view = buffer.duplicate();
+        ByteBuffer copyBuffer = ByteBuffer.allocateDirect(COPY_BUFFER_BYTES);
+        long written = 0;
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < liveOffsets.length; i++) {
+                int offset = (int) liveOffsets[i];
+                int recordBytes = HEADER_BYTES + view.getInt(offset);
+                view.limit(offset + recordBytes).position(offset);
+                if (copyBuffer.remaining() < recordBytes) {
+                    writeFully(out, copyBuffer.flip());
+                    copyBuffer.clear();
+                }
+                if (copyBuffer.remaining() < recordBytes) {
+                    writeFully(out, view);
+                } else {
+                    copyBuffer.put(view);
+                }
+                view.clear();
+                newOffsets[i] = written;
+                written += recordBytes;
+            }
+            writeFully(out, copyBuffer.flip());
+            out.force(true);
+        }
+        if (written > MAX_CAPACITY - HEADER_BYTES) {
+            Files.delete(temporary);
+            throw new IllegalStateException("Compacted log " + name + " would exceed 2GB");
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory();
+
+        // Everything appended so far is now durable in the new generation
+        FileChannel previousChannel = channel;
+        long previousGeneration = generation;
+        generation = nextGeneration;
+        channel = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityFor(written));
+        writePosition = (int) written;
+        markDurable(appendedBytes);
+
+        previousChannel.close();
+        deleteQuietly(file(previousGeneration));
+        return newOffsets;
+    }
+
+    /**
+     * Forces outstanding records to disk and stops the group commit thread.
+     */
+    @Override
+    public void close() throws IOException {
+        syncLock.lock();
+        try {
+            closed = true;
+            syncRequested.signal();
+        } finally {
+            syncLock.unlock();
+        }
+        try {
+            syncer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    private void open() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.collect(Collectors.toList());
+        }
+        generation = 1;
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            Matcher matcher = fileNamePattern.matcher(fileName);
+            if (matcher.matches()) {
+                generation = Math.max(generation, Long.parseLong(matcher.group(1)));
+            } else if (fileNamePattern.matcher(fileName.replaceFirst("\\.tmp$", "")).matches()) {
+                // An unfinished compaction; the generation it was copied from is still intact
+                deleteQuietly(file);
+            }
+        }
+        for (Path file : files) {
+            Matcher matcher = fileNamePattern.matcher(file.getFileName().toString());
+            if (matcher.matches() && Long.parseLong(matcher.group(1)) < generation) {
+                deleteQuietly(file);
+            }
+        }
+
+        Path file = file(generation);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(initialSize, channel.size()));
+        writePosition = recover();
+    }
+
+    /**
+     * Finds the end of the last intact record and zeroes everything after it, so that
+     * leftovers of a torn write can never be mistaken for records later on.
+     */
+    private int recover() {
+        ByteBuffer view = buffer.duplicate();
+        int capacity = view.capacity();
+        CRC32C crc = new CRC32C();
+        int position = 0;
+        while (position <= capacity - HEADER_BYTES) {
+            int length = view.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || length > capacity - position - HEADER_BYTES) {
+                log.warn("Discarding log {} from offset {}: invalid record length {}", name, position, length);
+                break;
+            }
+            view.limit(position + HEADER_BYTES + length).position(position + HEADER_BYTES);
+            crc.reset();
+            crc.update(view);
+            view.clear();
+            if ((int) crc.getValue() != view.getInt(position + 4)) {
+                log.warn("Discarding log {} from offset {}: record checksum does not match", name, position);
+                break;
+            }
+            position += HEADER_BYTES + length;
+        }
+
+        int cleared = position;
+        while (cleared < capacity) {
+            if (cleared <= capacity - Long.BYTES) {
+                if (view.getLong(cleared) != 0) {
+                    view.putLong(cleared, 0);
+                }
+                cleared += Long.BYTES;
+            } else {
+                view.put(cleared++, (byte) 0);
+            }
+        }
+        return position;
+    }
+
+    private void ensureCapacity(int recordBytes) {
+        if (recordBytes <= buffer.capacity() - writePosition) {
+            return;
+        }
+        long required = (long) writePosition + recordBytes;
+        if (required > MAX_CAPACITY) {
+            throw new IllegalStateException("Log " + name + " is full; compact it first");
+        }
+        try {
+            // Flush what the old mapping holds before the syncer starts forcing the new one
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityFor(required));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to grow log " + name, e);
+        }
+    }
+
+    private int capacityFor(long usedBytes) {
+        return (int) Math.min(MAX_CAPACITY, Math.max(initialSize, usedBytes * 2));
+    }
+
+    private void syncLoop() {
+        while (true) {
+            syncLock.lock();
+            try {
+                while (requestedBytes <= durableBytes && !closed) {
+                    syncRequested.awaitUninterruptibly();
+                }
+                if (requestedBytes <= durableBytes) {
+                    syncerStopped = true;
+                    syncCompleted.signalAll();
+                    return;
+                }
+            } finally {
+                syncLock.unlock();
+            }
+            if (commitDelayNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(commitDelayNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            long target;
+            MappedByteBuffer mapped;
+            synchronized (this) {
+                target = appendedBytes;
+                mapped = buffer;
+            }
+            try {
+                mapped.force();
+                markDurable(target);
+            } catch (RuntimeException e) {
+                log.error("Failed to force log {} to disk", name, e);
+                syncLock.lock();
+                try {
+                    syncFailure = new UncheckedIOException("Failed to force log " + name + " to disk",
+                            e instanceof UncheckedIOException ? ((UncheckedIOException) e).getCause() : new IOException(e));
+                    syncerStopped = true;
+                    syncCompleted.signalAll();
+                    return;
+                } finally {
+                    syncLock.unlock();
+                }
+            }
+        }
+    }
+
+    private void markDurable(long bytes) {
+        syncLock.lock();
+        try {
+            durableBytes = Math.max(durableBytes, bytes);
+            syncCompleted.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void forceDirectory() {
+        // Makes the rename durable; not supported on every platform, where it is best effort
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            log.debug("Could not force directory {}", directory, e);
+        }
+    }
+
+    private Path file(long generation) {
+        return directory.resolve(String.format("%s-%06d.log", name, generation));
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Still mapped on some platforms; the next open removes it
+            log.debug("Could not delete {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.orderservice.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.orderservice.model.BulkOrderResult;
+import com.example.orderservice.model.Order;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Streams bulk order uploads into batched DynamoDB writes.
+ * <p>
+ * Records are read one line at a time, validated with {@link OrderService#buildOrder},
+ * and handed to the write-behind buffer. At most {@code orders.bulk.maxInFlight}
+ * records are pending at once, and a line longer than {@code orders.bulk.maxRecordLength}
+ * characters is skipped without being buffered and reported as rejected, so memory stays
+ * bounded however large the body is.
+ * Results are reported in input order as soon as the head of the window completes.
+ */
+@Service
+public class BulkOrderIngestService {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    /**
+     * Receives per-record results. {@link #flush()} is called whenever ingestion is about
+     * to wait for DynamoDB, so results written so far can be pushed to the client.
+     */
+    public interface ResultSink {
+        void accept(BulkOrderResult result) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private static final String[] CSV_COLUMNS = {"customerName", "orderAmount", "orderDate"};
+
+    private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+    private final int maxInFlight;
+    private final int maxRecordLength;
+
+    public BulkOrderIngestService(OrderService orderService, ObjectMapper objectMapper,
+                                  @Value("${orders.bulk.maxInFlight:500}") int maxInFlight,
+                                  @Value("${orders.bulk.maxRecordLength:8192}") int maxRecordLength) {
+        this.orderService = orderService;
+        this.objectMapper = objectMapper;
+        this.maxInFlight = maxInFlight;
+        this.maxRecordLength = maxRecordLength;
+    }
+
+    public void ingest(Reader body, Format format, ResultSink sink) throws IOException {
+        BufferedReader reader = body instanceof BufferedReader ? (BufferedReader) body : new BufferedReader(body);
+        Deque<PendingRecord> window = new ArrayDeque<>(maxInFlight);
+        int[] csvColumns = null;
+
+        long lineNumber = 0;
+        StringBuilder buffer = new StringBuilder();
+        while (readLine(reader, buffer)) {
+            lineNumber++;
+            String line = buffer.length() > maxRecordLength ? null : buffer.toString();
+            if (line != null && line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && csvColumns == null) {
+                csvColumns = line != null ? csvHeader(line) : null;
+                if (csvColumns == null) {
+                    sink.accept(new BulkOrderResult(lineNumber, BulkOrderResult.Status.REJECTED, null,
+                            "CSV header must name the columns customerName, orderAmount and orderDate"));
+                    break;
+                }
+                continue;
+            }
+
+            if (window.size() >= maxInFlight) {
+                sink.flush();
+                report(window.poll(), sink);
+            }
+            window.add(line != null ? submit(lineNumber, line, format, csvColumns)
+                    : rejected(lineNumber, "Record exceeds " + maxRecordLength + " characters"));
+            while (!window.isEmpty() && window.peek().future.isDone()) {
+                report(window.poll(), sink);
+            }
+        }
+
+        if (!window.isEmpty()) {
+            sink.flush();
+        }
+        while (!window.isEmpty()) {
+            report(window.poll(), sink);
+        }
+        sink.flush();
+    }
+
+    /**
+     * Reads the next line into {@code line} like {@link BufferedReader#readLine()}, keeping at
+     * most {@code maxRecordLength + 1} characters and discarding the rest, so an over-long line
+     * shows up as a buffer longer than the limit. Returns false at the end of the input.
+     */
+    private boolean readLine(BufferedReader reader, StringBuilder line) throws IOException {
+        line.setLength(0);
+        int c = reader.read();
+        if (c < 0) {
+            return false;
+        }
+        while (c >= 0 && c != '\n') {
+            if (c == '\r') {
+                reader.mark(1);
+                if (reader.read() != '\n') {
+                    reader.reset();
+                }
+                break;
+            }
+            if (line.length() <= maxRecordLength) {
+                line.append((char) c);
+            }
+            c = reader.read();
+        }
+        return true;
+    }
+
+    private PendingRecord submit(long lineNumber, String line, Format format, int[] csvColumns) {
+        Order order;
+        try {
+            Map<String, String> fields = format == Format.CSV ? csvFields(line, csvColumns) : jsonFields(line);
+            order = orderService.buildOrder(fields.get("customerName"), fields.get("orderAmount"), fields.get("orderDate"));
+        } catch (IllegalArgumentException e) {
+            return rejected(lineNumber, e.getMessage());
+        }
+        return new PendingRecord(lineNumber, orderService.saveBufferedOrder(order), null);
+    }
+
+    private static PendingRecord rejected(long lineNumber, String reason) {
+        return new PendingRecord(lineNumber, CompletableFuture.completedFuture(null), reason);
+    }
+
+    private void report(PendingRecord record, ResultSink sink) throws IOException {
+        if (record.rejection != null) {
+            sink.accept(new BulkOrderResult(record.line, BulkOrderResult.Status.REJECTED, null, record.rejection));
+            return;
+        }
+        try {
+            Order order = record.future.join();
+            sink.accept(new BulkOrderResult(record.line, BulkOrderResult.Status.CREATED, order.getOrderId(), null));
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            sink.accept(new BulkOrderResult(record.line, BulkOrderResult.Status.FAILED, null, cause.getMessage()));
+        }
+    }
+
+    private Map<String, String> jsonFields(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON record");
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Record must be a JSON object");
+        }
+
+        Map<String, String> fields = new HashMap<>();
+        for (String column : CSV_COLUMNS) {
+            JsonNode value = node.get(column);
+            fields.put(column, value == null || value.isNull() ? null : value.asText());
+        }
+        return fields;
+    }
+
+    /**
+     * Maps the header to the position of each required column, or returns null if one is missing.
+     */
+    private static int[] csvHeader(String line) {
+        List<String> header;
+        try {
+            header = splitCsv(line);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int[] positions = new int[CSV_COLUMNS.length];
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+            positions[i] = header.indexOf(CSV_COLUMNS[i]);
+            if (positions[i] < 0) {
+                return null;
+            }
+        }
+        return positions;
+    }
+
+    private static Map<String, String> csvFields(String line, int[] columns) {
+        List<String> values = splitCsv(line);
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+            fields.put(CSV_COLUMNS[i], columns[i] < values.size() ? values.get(columns[i]) : null);
+        }
+        return fields;
+    }
+
+    /**
+     * Splits one CSV line, honouring double-quoted fields and {@code ""} escapes.
+     * Records may not span lines.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        values.add(current.toString().trim());
+        return values;
+    }
+
+    private static final class PendingRecord {
+        private final long line;
+        private final CompletableFuture<Order> future;
+        private final String rejection;
+
+        private PendingRecord(long line, CompletableFuture<Order> future, String rejection) {
+            this.line = line;
+            this.future = future;
+            this.rejection = rejection;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.orderservice.service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+/**
+ * A bulkhead and a circuit breaker per AWS dependency, so a slow or failing S3 or SNS
+ * cannot take the threads and connections that order reads from DynamoDB need.
+ * <p>
+ * The bulkhead is a semaphore: at most {@code maxConcurrentCalls} calls to a dependency run
+ * at once, and a caller waits at most {@code orders.resilience.bulkhead.maxWait} for a slot.
+ * The circuit breaker opens when, over the last {@code slidingWindowSize} calls, the share
+ * of failures or of calls slower than the dependency's {@code slowCallDuration} passes its
+ * threshold. While open, calls fail at once; after {@code waitInOpenState} a few probe calls
+ * are let through (half-open) and close the breaker again if they succeed. Client errors
+ * such as a missing S3 key do not count as failures, throttling does.
+ * <p>
+ * Rejected calls throw {@link DependencyUnavailableException}. State, call outcomes and
+ * bulkhead usage are exported as {@code resilience4j.circuitbreaker.*} and
+ * {@code resilience4j.bulkhead.*} meters, tagged with the dependency {@code name}.
+ */
+@Component
+public class DependencyGuards {
+
+    private static final Logger log = LoggerFactory.getLogger(DependencyGuards.class);
+
+    public enum Dependency {
+        DYNAMODB("dynamodb"),
+        S3("s3"),
+        SNS("sns");
+
+        private final String tag;
+
+        Dependency(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final Map<Dependency, CircuitBreaker> circuitBreakers = new EnumMap<>(Dependency.class);
+    private final Map<Dependency, Bulkhead> bulkheads = new EnumMap<>(Dependency.class);
+    private final Duration waitInOpenState;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Guards with the default settings, for tests and benchmarks.
+     */
+    public DependencyGuards(MeterRegistry meterRegistry) {
+        this(meterRegistry, 50, 80, 20, 50, Duration.ofSeconds(10), 5, Duration.ofMillis(10),
+                100, Duration.ofSeconds(1), 32, Duration.ofSeconds(10), 16, Duration.ofSeconds(2));
+    }
+
+    @Autowired
+    public DependencyGuards(MeterRegistry meterRegistry,
+                            @Value("${orders.resilience.failureRateThreshold:50}") float failureRateThreshold,
+                            @Value("${orders.resilience.slowCallRateThreshold:80}") float slowCallRateThreshold,
+                            @Value("${orders.resilience.minimumCalls:20}") int minimumCalls,
+                            @Value("${orders.resilience.slidingWindowSize:50}") int slidingWindowSize,
+                            @Value("${orders.resilience.waitInOpenState:10s}") Duration waitInOpenState,
+                            @Value("${orders.resilience.halfOpenCalls:5}") int halfOpenCalls,
+                            @Value("${orders.resilience.bulkhead.maxWait:10ms}") Duration bulkheadMaxWait,
+                            @Value("${orders.resilience.dynamodb.maxConcurrentCalls:100}") int dynamoDbMaxConcurrentCalls,
+                            @Value("${orders.resilience.dynamodb.slowCallDuration:1s}") Duration dynamoDbSlowCallDuration,
+                            @Value("${orders.resilience.s3.maxConcurrentCalls:32}") int s3MaxConcurrentCalls,
+                            @Value("${orders.resilience.s3.slowCallDuration:10s}") Duration s3SlowCallDuration,
+                            @Value("${orders.resilience.sns.maxConcurrentCalls:16}") int snsMaxConcurrentCalls,
+                            @Value("${orders.resilience.sns.slowCallDuration:2s}") Duration snsSlowCallDuration) {
+        this.waitInOpenState = waitInOpenState;
+        this.meterRegistry = meterRegistry;
+
+        CircuitBreakerConfig.Builder breakerDefaults = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .minimumNumberOfCalls(minimumCalls)
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(slidingWindowSize)
+                .waitDurationInOpenState(waitInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                .automaticTransitionFromOpenToHalfOpenEnabled(false)
+                .recordException(DependencyGuards::isDependencyFailure);
+        CircuitBreakerRegistry breakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.ofDefaults();
+
+        Map<Dependency, Integer> maxConcurrentCalls = Map.of(
+                Dependency.DYNAMODB, dynamoDbMaxConcurrentCalls,
+                Dependency.S3, s3MaxConcurrentCalls,
+                Dependency.SNS, snsMaxConcurrentCalls);
+        Map<Dependency, Duration> slowCallDurations = Map.of(
+                Dependency.DYNAMODB, dynamoDbSlowCallDuration,
+                Dependency.S3, s3SlowCallDuration,
+                Dependency.SNS, snsSlowCallDuration);
+        for (Dependency dependency : Dependency.values()) {
+            CircuitBreaker breaker = breakerRegistry.circuitBreaker(dependency.tag(),
+                    breakerDefaults.slowCallDurationThreshold(slowCallDurations.get(dependency)).build());
+            breaker.getEventPublisher().onStateTransition(event ->
+                    log.warn("Circuit breaker for {} changed from {} to {}", dependency.tag(),
+                            event.getStateTransition().getFromState(), event.getStateTransition().getToState()));
+            circuitBreakers.put(dependency, breaker);
+
+            bulkheads.put(dependency, bulkheadRegistry.bulkhead(dependency.tag(), BulkheadConfig.custom()
+                    .maxConcurrentCalls(maxConcurrentCalls.get(dependency))
+                    .maxWaitDuration(bulkheadMaxWait)
+                    .build()));
+        }
+
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(breakerRegistry).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+    }
+
+    /**
+     * Runs {@code call} inside the dependency's bulkhead and circuit breaker.
+     *
+     * @throws DependencyUnavailableException if the breaker is open or the bulkhead is full
+     */
+    public <T> T call(Dependency dependency, Supplier<T> call) {
+        try {
+            return Bulkhead.decorateSupplier(bulkheads.get(dependency),
+                    CircuitBreaker.decorateSupplier(circuitBreakers.get(dependency), call)).get();
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            throw unavailable(dependency, e);
+        }
+    }
+
+    public void run(Dependency dependency, Runnable call) {
+        call(dependency, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * {@link #call} for a non-blocking call: the bulkhead slot is held and the outcome is
+     * recorded when the returned future completes. Rejections complete the future
+     * exceptionally with {@link DependencyUnavailableException}.
+     */
+    public <T> CompletableFuture<T> callAsync(Dependency dependency, Supplier<? extends CompletionStage<T>> call) {
+        Supplier<CompletionStage<T>> guarded = Bulkhead.decorateCompletionStage(bulkheads.get(dependency),
+                CircuitBreaker.decorateCompletionStage(circuitBreakers.get(dependency), call::get));
+        CompletableFuture<T> result = new CompletableFuture<>();
+        guarded.get().whenComplete((value, e) -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof CallNotPermittedException || cause instanceof BulkheadFullException) {
+                result.completeExceptionally(unavailable(dependency, cause));
+            } else if (cause != null) {
+                result.completeExceptionally(cause);
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Whether calls to {@code dependency} are currently rejected without being attempted.
+     */
+    public boolean isOpen(Dependency dependency) {
+        CircuitBreaker.State state = circuitBreakers.get(dependency).getState();
+        return state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN;
+    }
+
+    public CircuitBreaker.State getState(Dependency dependency) {
+        return circuitBreakers.get(dependency).getState();
+    }
+
+    public Duration getWaitInOpenState() {
+        return waitInOpenState;
+    }
+
+    /**
+     * Counts a degraded answer given instead of calling {@code dependency}.
+     */
+    public void recordFallback(Dependency dependency, String fallback) {
+        Counter.builder("orders.resilience.fallbacks")
+                .description("Requests answered by a fallback because a dependency was unavailable")
+                .tag("dependency", dependency.tag())
+                .tag("fallback", fallback)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private DependencyUnavailableException unavailable(Dependency dependency, Throwable cause) {
+        if (cause instanceof CallNotPermittedException) {
+            return new DependencyUnavailableException(dependency.tag(), "circuit breaker is open", waitInOpenState, cause);
+        }
+        return new DependencyUnavailableException(dependency.tag(), "too many concurrent calls", Duration.ofSeconds(1), cause);
+    }
+
+    /**
+     * Server errors, throttling, timeouts and I/O failures count against a dependency; client
+     * errors such as a missing key or an invalid page token do not.
+     */
+    static boolean isDependencyFailure(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof AwsServiceException) {
+            AwsServiceException serviceException = (AwsServiceException) cause;
+            return serviceException.statusCode() >= 500 || serviceException.isThrottlingException();
+        }
+        return !(cause instanceof IllegalArgumentException);
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.orderservice.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.orderservice.model.DependencyHealth;
+import com.example.orderservice.model.HealthReport;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Probes DynamoDB, S3 and SNS in the background and caches the results, so readiness checks
+ * never wait on a dependency themselves.
+ * <p>
+ * Every {@code orders.health.interval} the probes run in parallel, each bounded by
+ * {@code orders.health.timeout}. A dependency is DOWN when its probe fails or times out and
+ * DEGRADED when it answers slower than {@code orders.health.degradedLatency}. The node is
+ * ready only while every dependency is UP, so a load balancer shifts traffic away before user
+ * requests start timing out. Results older than {@code orders.health.staleAfter} count as
+ * DOWN, in case probing itself has stalled. Each result also reports the state of the
+ * dependency's circuit breaker, which reflects real traffic rather than probes.
+ */
+@Component
+public class DependencyHealthMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(DependencyHealthMonitor.class);
+
+    private final Map<String, Consumer<Duration>> probes = new LinkedHashMap<>();
+    private final Duration timeout;
+    private final long degradedLatencyMillis;
+    private final Duration staleAfter;
+    private final MeterRegistry meterRegistry;
+    private final DependencyGuards dependencyGuards;
+    private final ExecutorService probeRunner;
+    private final ScheduledExecutorService scheduler;
+
+    // Dependencies with a probe still running, possibly hung past its timeout; a new probe
+    // is not started until the previous one returns
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    private volatile Map<String, DependencyHealth> results;
+
+    public DependencyHealthMonitor(DynamoDbService dynamoDbService,
+                                   S3Service s3Service,
+                                   SnsService snsService,
+                                   DependencyGuards dependencyGuards,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${orders.health.interval:10s}") Duration interval,
+                                   @Value("${orders.health.timeout:2s}") Duration timeout,
+                                   @Value("${orders.health.degradedLatency:500ms}") Duration degradedLatency,
+                                   @Value("${orders.health.staleAfter:1m}") Duration staleAfter) {
+        this.timeout = timeout;
+        this.degradedLatencyMillis = degradedLatency.toMillis();
+        this.staleAfter = staleAfter;
+        this.meterRegistry = meterRegistry;
+        this.dependencyGuards = dependencyGuards;
+        probes.put("dynamodb", dynamoDbService::probe);
+        probes.put("s3", s3Service::probe);
+        probes.put("sns", snsService::probe);
+
+        Map<String, DependencyHealth> initial = new LinkedHashMap<>();
+        for (String name : probes.keySet()) {
+            initial.put(name, down(name, 0, "Not probed yet", Instant.now()));
+        }
+        this.results = initial;
+        meterRegistry.gauge("health.ready", this, monitor -> monitor.readiness().getStatus() == DependencyHealth.Status.UP ? 1 : 0);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.probeRunner = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "health-probe-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "health-probe-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = interval.toMillis();
+        if (intervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::refresh, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Probes every dependency once and replaces the cached results.
+     */
+    public void refresh() {
+        Map<String, Future<Long>> started = new LinkedHashMap<>();
+        Map<String, DependencyHealth> refreshed = new LinkedHashMap<>();
+        for (Map.Entry<String, Consumer<Duration>> probe : probes.entrySet()) {
+            String name = probe.getKey();
+            if (!running.add(name)) {
+                refreshed.put(name, down(name, timeout.toMillis(), "Previous probe has not returned", Instant.now()));
+                continue;
+            }
+            started.put(name, probeRunner.submit(() -> {
+                try {
+                    long startNanos = System.nanoTime();
+                    probe.getValue().accept(timeout);
+                    return System.nanoTime() - startNanos;
+                } finally {
+                    running.remove(name);
+                }
+            }));
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (Map.Entry<String, Future<Long>> probe : started.entrySet()) {
+            String name = probe.getKey();
+            DependencyHealth health;
+            try {
+                long latencyMillis = TimeUnit.NANOSECONDS.toMillis(
+                        probe.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                DependencyHealth.Status status = latencyMillis > degradedLatencyMillis
+                        ? DependencyHealth.Status.DEGRADED : DependencyHealth.Status.UP;
+                health = DependencyHealth.builder()
+                        .name(name)
+                        .status(status)
+                        .latencyMillis(latencyMillis)
+                        .checkedAt(Instant.now())
+                        .build();
+            } catch (TimeoutException e) {
+                probe.getValue().cancel(true);
+                health = down(name, timeout.toMillis(), "Timed out after " + timeout.toMillis() + " ms", Instant.now());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                health = down(name, 0, cause.getClass().getSimpleName() + ": " + cause.getMessage(), Instant.now());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            refreshed.put(name, health);
+        }
+
+        Map<String, DependencyHealth> previous = results;
+        Map<String, DependencyHealth> ordered = new LinkedHashMap<>();
+        for (String name : probes.keySet()) {
+            DependencyHealth health = refreshed.get(name);
+            ordered.put(name, health);
+            record(health);
+            if (previous.get(name).getStatus() != health.getStatus()) {
+                log.warn("Dependency {} is now {} ({} ms){}", name, health.getStatus(), health.getLatencyMillis(),
+                        health.getError() != null ? ": " + health.getError() : "");
+            }
+        }
+        results = ordered;
+    }
+
+    /**
+     * The cached probe results, UP only when every dependency was UP at its latest probe.
+     */
+    public HealthReport readiness() {
+        Instant staleBefore = Instant.now().minus(staleAfter);
+        List<DependencyHealth> dependencies = new ArrayList<>(results.size());
+        DependencyHealth.Status overall = DependencyHealth.Status.UP;
+        for (DependencyHealth health : results.values()) {
+            if (health.getCheckedAt().isBefore(staleBefore)) {
+                health = health.toBuilder()
+                        .status(DependencyHealth.Status.DOWN)
+                        .error("No probe result since " + health.getCheckedAt())
+                        .build();
+            }
+            health = health.toBuilder().circuitBreaker(circuitBreakerState(health.getName())).build();
+            if (health.getStatus().compareTo(overall) > 0) {
+                overall = health.getStatus();
+            }
+            dependencies.add(health);
+        }
+        return new HealthReport(overall, dependencies);
+    }
+
+    private String circuitBreakerState(String name) {
+        for (DependencyGuards.Dependency dependency : DependencyGuards.Dependency.values()) {
+            if (dependency.tag().equals(name)) {
+                return dependencyGuards.getState(dependency).name();
+            }
+        }
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        probeRunner.shutdownNow();
+    }
+
+    private void record(DependencyHealth health) {
+        Timer.builder("health.probe")
+                .description("Latency of dependency health probes")
+                .tag("dependency", health.getName())
+                .tag("status", health.getStatus().name())
+                .register(meterRegistry)
+                .record(health.getLatencyMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static DependencyHealth down(String name, long latencyMillis, String error, Instant checkedAt) {
+        return DependencyHealth.builder()
+                .name(name)
+                .status(DependencyHealth.Status.DOWN)
+                .latencyMillis(latencyMillis)
+                .error(error)
+                .checkedAt(checkedAt)
+                .build();
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.orderservice.service;
+
+import java.time.Duration;
+
+/**
+ * Thrown instead of calling a dependency whose circuit breaker is open or whose bulkhead
+ * is full. Callers answer 503, telling clients to retry after {@link #getRetryAfter()}.
+ */
+public class DependencyUnavailableException extends RuntimeException {
+
+    private final String dependency;
+    private final Duration retryAfter;
+
+    public DependencyUnavailableException(String dependency, String reason, Duration retryAfter, Throwable cause) {
+        super(dependency + " is unavailable: " + reason, cause);
+        this.dependency = dependency;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getDependency() {
+        return dependency;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
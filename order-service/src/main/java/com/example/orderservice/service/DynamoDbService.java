@@ -1,60 +1,176 @@
 package com.example.orderservice.service;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderPage;
 
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
 import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
 @Service
 public class DynamoDbService {
 
+    /**
+     * Maximum number of items DynamoDB accepts in a single BatchWriteItem call.
+     */
+    public static final int MAX_BATCH_WRITE_ITEMS = 25;
+
+    /**
+     * Global secondary index keyed by {@code customerName} with {@code orderDate} as sort key.
+     */
+    public static final String CUSTOMER_DATE_INDEX = "customerName-orderDate-index";
+
+    /**
+     * Global secondary index keyed by {@code orderDate} with {@code orderId} as sort key.
+     */
+    public static final String ORDER_DATE_INDEX = "orderDate-index";
+
     private final DynamoDbClient dynamoDbClient;
+    private final DynamoDbAsyncClient dynamoDbAsyncClient;
     private final String tableName;
 
-    public DynamoDbService(DynamoDbClient dynamoDbClient, @Value("${aws.dynamodb.tableName}") String tableName) {
+    public DynamoDbService(DynamoDbClient dynamoDbClient, String tableName) {
+        this(dynamoDbClient, null, tableName);
+    }
+
+    /**
+     * @param dynamoDbAsyncClient client for the {@code *Async} methods; they are unavailable when null
+     */
+    @Autowired
+    public DynamoDbService(DynamoDbClient dynamoDbClient, DynamoDbAsyncClient dynamoDbAsyncClient,
+                           @Value("${aws.dynamodb.tableName}") String tableName) {
         this.dynamoDbClient = dynamoDbClient;
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
         this.tableName = tableName;
     }
 
+    /**
+     * Health probe: describes the orders table, failing if DynamoDB cannot be reached
+     * within {@code timeout} or the table does not exist.
+     */
+    public void probe(Duration timeout) {
+        dynamoDbClient.describeTable(DescribeTableRequest.builder()
+                .tableName(tableName)
+                .overrideConfiguration(AwsRequestOverrideConfiguration.builder().apiCallTimeout(timeout).build())
+                .build());
+    }
+
     public void saveOrder(Order order) {
-        Map<String, AttributeValue> item = new HashMap<>();
-        item.put("orderId", AttributeValue.builder().s(order.getOrderId()).build());
-        item.put("customerName", AttributeValue.builder().s(order.getCustomerName()).build());
-        item.put("orderAmount", AttributeValue.builder().n(order.getOrderAmount().toString()).build());
-        item.put("orderDate", AttributeValue.builder().s(order.getOrderDate().toString()).build());
-        
-        if (order.getInvoiceFileUrl() != null) {
-            item.put("invoiceFileUrl", AttributeValue.builder().s(order.getInvoiceFileUrl()).build());
-        }
+        dynamoDbClient.putItem(putItemRequest(order));
+    }
 
-        PutItemRequest putItemRequest = PutItemRequest.builder()
+    /**
+     * Writes a new order, failing instead of replacing an order stored under the same ID.
+     *
+     * @throws ConditionalCheckFailedException if the order ID is already taken
+     */
+    public void createOrder(Order order) {
+        dynamoDbClient.putItem(putItemRequest(order).toBuilder()
+                .conditionExpression("attribute_not_exists(orderId)")
+                .build());
+    }
+
+    /**
+     * Non-blocking {@link #saveOrder}; the future completes once DynamoDB has stored the order.
+     */
+    public CompletableFuture<Void> saveOrderAsync(Order order) {
+        return dynamoDbAsyncClient.putItem(putItemRequest(order)).thenApply(response -> null);
+    }
+
+    private PutItemRequest putItemRequest(Order order) {
+        return PutItemRequest.builder()
                 .tableName(tableName)
-                .item(item)
+                .item(toItem(order))
+                .build();
+    }
+
+    /**
+     * Writes up to {@value #MAX_BATCH_WRITE_ITEMS} orders with one BatchWriteItem call.
+     * Orders must have distinct IDs.
+     *
+     * @return the orders DynamoDB left unprocessed (for example when throttled); the
+     *         caller is expected to retry them
+     */
+    public List<Order> batchSaveOrders(List<Order> orders) {
+        if (orders.size() > MAX_BATCH_WRITE_ITEMS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_WRITE_ITEMS + " orders can be written per batch");
+        }
+
+        Map<String, Order> ordersById = new HashMap<>();
+        List<WriteRequest> writeRequests = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            ordersById.put(order.getOrderId(), order);
+            writeRequests.add(WriteRequest.builder()
+                    .putRequest(PutRequest.builder().item(toItem(order)).build())
+                    .build());
+        }
+
+        BatchWriteItemRequest batchWriteItemRequest = BatchWriteItemRequest.builder()
+                .requestItems(Map.of(tableName, writeRequests))
                 .build();
 
-        dynamoDbClient.putItem(putItemRequest);
+        BatchWriteItemResponse response = dynamoDbClient.batchWriteItem(batchWriteItemRequest);
+        List<WriteRequest> unprocessed = response.hasUnprocessedItems()
+                ? response.unprocessedItems().getOrDefault(tableName, List.of())
+                : List.of();
+
+        List<Order> unprocessedOrders = new ArrayList<>(unprocessed.size());
+        for (WriteRequest writeRequest : unprocessed) {
+            unprocessedOrders.add(ordersById.get(writeRequest.putRequest().item().get("orderId").s()));
+        }
+        return unprocessedOrders;
+    }
+
+    Map<String, AttributeValue> toItem(Order order) {
+        return OrderItemMapper.toItem(order);
     }
 
     public Order getOrder(String orderId) {
-        Map<String, AttributeValue> key = new HashMap<>();
-        key.put("orderId", AttributeValue.builder().s(orderId).build());
+        return itemToOrder(dynamoDbClient.getItem(getItemRequest(orderId)).item());
+    }
 
-        GetItemRequest getItemRequest = GetItemRequest.builder()
+    /**
+     * Non-blocking {@link #getOrder}; the future completes with null for unknown orders.
+     */
+    public CompletableFuture<Order> getOrderAsync(String orderId) {
+        return dynamoDbAsyncClient.getItem(getItemRequest(orderId)).thenApply(response -> itemToOrder(response.item()));
+    }
+
+    private GetItemRequest getItemRequest(String orderId) {
+        return GetItemRequest.builder()
                 .tableName(tableName)
-                .key(key)
+                .key(orderKey(orderId))
                 .build();
+    }
 
-        Map<String, AttributeValue> item = dynamoDbClient.getItem(getItemRequest).item();
-        
+    private Order itemToOrder(Map<String, AttributeValue> item) {
         if (item == null || item.isEmpty()) {
             return null;
         }
@@ -62,29 +178,213 @@ public class DynamoDbService {
         return mapToOrder(item);
     }
 
-    public java.util.List<Order> getAllOrders() {
+    public void deleteOrder(String orderId) {
+        dynamoDbClient.deleteItem(deleteItemRequest(orderId));
+    }
+
+    /**
+     * Non-blocking {@link #deleteOrder}.
+     */
+    public CompletableFuture<Void> deleteOrderAsync(String orderId) {
+        return dynamoDbAsyncClient.deleteItem(deleteItemRequest(orderId)).thenApply(response -> null);
+    }
+
+    private DeleteItemRequest deleteItemRequest(String orderId) {
+        return DeleteItemRequest.builder()
+                .tableName(tableName)
+                .key(orderKey(orderId))
+                .build();
+    }
+
+    private static Map<String, AttributeValue> orderKey(String orderId) {
+        return Map.of(OrderItemMapper.ORDER_ID, AttributeValue.fromS(orderId));
+    }
+
+    public List<Order> getAllOrders() {
+        List<Order> orders = new ArrayList<>();
+        String nextToken = null;
+        do {
+            OrderPage page = scanPage(nextToken);
+            orders.addAll(page.getOrders());
+            nextToken = page.getNextToken();
+        } while (nextToken != null);
+        return orders;
+    }
+
+    /**
+     * Reads a single page of at most {@code limit} orders, starting after the
+     * position encoded in {@code nextToken} (or at the beginning when it is null).
+     */
+    public OrderPage getOrders(int limit, String nextToken) {
+        return toOrderPage(dynamoDbClient.scan(scanRequest(limit, nextToken)));
+    }
+
+    /**
+     * Non-blocking {@link #getOrders}. An invalid {@code nextToken} is rejected before the
+     * scan is sent, with an IllegalArgumentException thrown by this method.
+     */
+    public CompletableFuture<OrderPage> getOrdersAsync(int limit, String nextToken) {
+        return dynamoDbAsyncClient.scan(scanRequest(limit, nextToken)).thenApply(this::toOrderPage);
+    }
+
+    private ScanRequest scanRequest(Integer limit, String nextToken) {
+        return ScanRequest.builder()
+                .tableName(tableName)
+                .limit(limit)
+                .exclusiveStartKey(PageTokenCodec.decode(nextToken, "orderId"))
+                .build();
+    }
+
+    private OrderPage toOrderPage(ScanResponse response) {
+        return new OrderPage(mapToOrders(response.items()), nextToken(response));
+    }
+
+    /**
+     * Reads one page of a customer's orders through {@value #CUSTOMER_DATE_INDEX}, oldest
+     * first. {@code from} and {@code to} are inclusive and either may be null.
+     */
+    public OrderPage queryByCustomer(String customerName, LocalDate from, LocalDate to, int limit, String nextToken) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":customerName", AttributeValue.builder().s(customerName).build());
+        String condition = "customerName = :customerName";
+        if (from != null && to != null) {
+            condition += " AND orderDate BETWEEN :from AND :to";
+        } else if (from != null) {
+            condition += " AND orderDate >= :from";
+        } else if (to != null) {
+            condition += " AND orderDate <= :to";
+        }
+        if (from != null) {
+            values.put(":from", AttributeValue.builder().s(from.toString()).build());
+        }
+        if (to != null) {
+            values.put(":to", AttributeValue.builder().s(to.toString()).build());
+        }
+
+        QueryResponse response = dynamoDbClient.query(QueryRequest.builder()
+                .tableName(tableName)
+                .indexName(CUSTOMER_DATE_INDEX)
+                .keyConditionExpression(condition)
+                .expressionAttributeValues(values)
+                .limit(limit)
+                .exclusiveStartKey(PageTokenCodec.decode(nextToken, "orderId", "customerName", "orderDate"))
+                .build());
+        return new OrderPage(mapToOrders(response.items()), nextToken(response.lastEvaluatedKey()));
+    }
+
+    /**
+     * Reads one page of the orders placed between {@code from} and {@code to} (inclusive)
+     * through {@value #ORDER_DATE_INDEX}. The index is partitioned by day, so the range
+     * is read as one Query per day, in date order, until the page is full.
+     */
+    public OrderPage queryByDateRange(LocalDate from, LocalDate to, int limit, String nextToken) {
+        LocalDate day = from;
+        Map<String, AttributeValue> startKey = PageTokenCodec.decode(nextToken, "orderDate");
+        if (startKey != null) {
+            day = resumeDay(startKey, from, to);
+            if (!startKey.containsKey("orderId")) {
+                // The previous page ended exactly at the end of a day
+                startKey = null;
+            }
+        }
+
+        List<Order> orders = new ArrayList<>(limit);
+        while (!day.isAfter(to)) {
+            QueryResponse response = dynamoDbClient.query(QueryRequest.builder()
+                    .tableName(tableName)
+                    .indexName(ORDER_DATE_INDEX)
+                    .keyConditionExpression("orderDate = :orderDate")
+                    .expressionAttributeValues(Map.of(":orderDate", AttributeValue.builder().s(day.toString()).build()))
+                    .limit(limit - orders.size())
+                    .exclusiveStartKey(startKey)
+                    .build());
+            orders.addAll(mapToOrders(response.items()));
+
+            startKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                    ? response.lastEvaluatedKey()
+                    : null;
+            if (startKey == null) {
+                day = day.plusDays(1);
+            }
+            if (orders.size() >= limit) {
+                break;
+            }
+        }
+
+        String token = null;
+        if (startKey != null) {
+            token = PageTokenCodec.encode(startKey);
+        } else if (!day.isAfter(to)) {
+            token = PageTokenCodec.encode(Map.of("orderDate", AttributeValue.builder().s(day.toString()).build()));
+        }
+        return new OrderPage(orders, token);
+    }
+
+    static LocalDate resumeDay(Map<String, AttributeValue> startKey, LocalDate from, LocalDate to) {
+        AttributeValue orderDate = startKey.get("orderDate");
+        LocalDate day;
+        try {
+            day = LocalDate.parse(orderDate.s());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+        if (day.isBefore(from) || day.isAfter(to)) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        return day;
+    }
+
+    /**
+     * Reads one full scan page (up to DynamoDB's 1 MB page size), starting after the
+     * position encoded in {@code nextToken}. Walking the table page by page lets callers
+     * hand each page on before the next one is requested, so they never hold more than
+     * a single page in memory.
+     */
+    public OrderPage scanPage(String nextToken) {
+        return toOrderPage(dynamoDbClient.scan(scanRequest(null, nextToken)));
+    }
+
+    /**
+     * Reads one page of a single segment of a parallel scan. When {@code readThrottle}
+     * is given, the read capacity consumed by the page is charged against it, which
+     * blocks the calling worker once the export exceeds its read capacity budget.
+     */
+    public OrderPage scanSegment(int segment, int totalSegments, String nextToken, TokenBucket readThrottle)
+            throws InterruptedException {
         ScanRequest scanRequest = ScanRequest.builder()
                 .tableName(tableName)
+                .segment(segment)
+                .totalSegments(totalSegments)
+                .exclusiveStartKey(PageTokenCodec.decode(nextToken, "orderId"))
+                .returnConsumedCapacity(readThrottle != null ? ReturnConsumedCapacity.TOTAL : ReturnConsumedCapacity.NONE)
                 .build();
 
-        return dynamoDbClient.scan(scanRequest)
-                .items()
-                .stream()
-                .map(this::mapToOrder)
-                .collect(java.util.stream.Collectors.toList());
-    }
-
-    private Order mapToOrder(Map<String, AttributeValue> item) {
-        Order order = new Order();
-        order.setOrderId(item.get("orderId").s());
-        order.setCustomerName(item.get("customerName").s());
-        order.setOrderAmount(new java.math.BigDecimal(item.get("orderAmount").n()));
-        order.setOrderDate(java.time.LocalDate.parse(item.get("orderDate").s()));
-        
-        if (item.containsKey("invoiceFileUrl")) {
-            order.setInvoiceFileUrl(item.get("invoiceFileUrl").s());
+        ScanResponse response = dynamoDbClient.scan(scanRequest);
+        if (readThrottle != null && response.consumedCapacity() != null) {
+            readThrottle.acquire(response.consumedCapacity().capacityUnits());
         }
-        
-        return order;
+        return new OrderPage(mapToOrders(response.items()), nextToken(response));
+    }
+
+    private List<Order> mapToOrders(List<Map<String, AttributeValue>> items) {
+        List<Order> orders = new ArrayList<>(items.size());
+        for (Map<String, AttributeValue> item : items) {
+            orders.add(mapToOrder(item));
+        }
+        return orders;
+    }
+
+    private static String nextToken(ScanResponse response) {
+        return response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                ? PageTokenCodec.encode(response.lastEvaluatedKey())
+                : null;
+    }
+
+    private static String nextToken(Map<String, AttributeValue> lastEvaluatedKey) {
+        return PageTokenCodec.encode(lastEvaluatedKey);
+    }
+
+    Order mapToOrder(Map<String, AttributeValue> item) {
+        return OrderItemMapper.toOrder(item);
     }
-}
\ No newline at end of file
+}
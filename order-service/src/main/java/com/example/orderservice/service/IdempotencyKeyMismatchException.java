@@ -0,0 +1,12 @@
+package com.example.orderservice.service;
+
+/**
+ * Thrown when an {@code Idempotency-Key} is reused for a request that differs from the
+ * one it was first used with.
+ */
+public class IdempotencyKeyMismatchException extends IllegalArgumentException {
+
+    public IdempotencyKeyMismatchException(String idempotencyKey) {
+        super("Idempotency-Key was already used for a different request: " + idempotencyKey);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.orderservice.service;
+
+/**
+ * Thrown when a request arrives with an {@code Idempotency-Key} that another request is
+ * still processing; the client should retry once that request has finished.
+ */
+public class IdempotencyRequestInProgressException extends RuntimeException {
+
+    public IdempotencyRequestInProgressException(String idempotencyKey) {
+        super("A request with this Idempotency-Key is in progress: " + idempotencyKey);
+    }
+}
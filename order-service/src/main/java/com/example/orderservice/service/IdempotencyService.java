@@ -0,0 +1,268 @@
+package com.example.orderservice.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.example.orderservice.model.IdempotencyRecord;
+import com.example.orderservice.model.Order;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Creates orders at most once per {@code Idempotency-Key}. The first request with a key
+ * claims it in the {@link IdempotencyStore} with a conditional write, so concurrent retries
+ * on other nodes see the claim; once the order exists the key is marked completed with its
+ * order ID. Retries with the same key and the same request are answered with that order
+ * and do no other work, reusing the key for a different request is rejected.
+ * <p>
+ * A claim only holds the key for a short {@code lease}, so a node that dies mid-request does
+ * not block retries for the full {@code ttl}; completing the key extends it to the
+ * {@code ttl}. The lease should cover a few request timeouts, since a request still running
+ * when its lease lapses can be duplicated by a retry.
+ * <p>
+ * Completed keys are also kept in a small local LRU, so the common case of a client
+ * retrying against the same node is answered without a DynamoDB round trip.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    // Attempts at marking a key completed before the created order is returned regardless
+    private static final int COMPLETE_ATTEMPTS = 3;
+
+    private final IdempotencyStore idempotencyStore;
+    private final OrderService orderService;
+    private final MeterRegistry meterRegistry;
+    private final Duration ttl;
+    private final Duration lease;
+    private final int maxEntries;
+    private final Clock clock;
+
+    private final LinkedHashMap<String, Entry> completed = new LinkedHashMap<>(16, 0.75f, true);
+
+    @Autowired
+    public IdempotencyService(IdempotencyStore idempotencyStore, OrderService orderService, MeterRegistry meterRegistry,
+                              @Value("${orders.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${orders.idempotency.lease:2m}") Duration lease,
+                              @Value("${orders.idempotency.cache.maxEntries:10000}") int maxEntries) {
+        this(idempotencyStore, orderService, meterRegistry, ttl, lease, maxEntries, Clock.systemUTC());
+    }
+
+    IdempotencyService(IdempotencyStore idempotencyStore, OrderService orderService, MeterRegistry meterRegistry,
+                       Duration ttl, Duration lease, int maxEntries, Clock clock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        if (lease.toSeconds() < 1 || lease.compareTo(ttl) > 0) {
+            throw new IllegalArgumentException("lease must be between 1s and the ttl");
+        }
+        this.idempotencyStore = idempotencyStore;
+        this.orderService = orderService;
+        this.meterRegistry = meterRegistry;
+        this.ttl = ttl;
+        this.lease = lease;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * {@link OrderService#createOrder} guarded by {@code idempotencyKey}.
+     *
+     * @throws IllegalArgumentException        if the key or a field is invalid
+     * @throws IdempotencyKeyMismatchException if the key was used for a different request
+     * @throws IdempotencyRequestInProgressException if a request with the key is still in progress
+     */
+    public Result createOrder(String idempotencyKey, String customerName, String orderAmount, String orderDate,
+                              MultipartFile invoiceFile) throws IOException {
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        // Validate before claiming, so a malformed request does not cost a conditional write
+        Order order = orderService.buildOrder(customerName, orderAmount, orderDate);
+        String requestHash = fingerprint(customerName, orderAmount, orderDate, invoiceFile);
+        long now = clock.instant().getEpochSecond();
+
+        Order replayed = lookup(idempotencyKey, requestHash, now);
+        if (replayed != null) {
+            count("replayed-local");
+            return new Result(replayed, true);
+        }
+
+        IdempotencyRecord claim = IdempotencyRecord.builder()
+                .idempotencyKey(idempotencyKey)
+                .requestHash(requestHash)
+                .status(IdempotencyRecord.Status.IN_PROGRESS)
+                .expiresAt(now + lease.toSeconds())
+                .build();
+        if (!idempotencyStore.claim(claim, now)) {
+            return replay(idempotencyKey, requestHash, now);
+        }
+
+        try {
+            orderService.createOrder(order, invoiceFile);
+        } catch (IOException | RuntimeException e) {
+            idempotencyStore.release(claim);
+            throw e;
+        }
+        // The order exists now, so it is returned even if the key cannot be marked completed
+        long expiresAt = clock.instant().getEpochSecond() + ttl.toSeconds();
+        put(idempotencyKey, requestHash, order, expiresAt);
+        count(complete(claim, order.getOrderId(), expiresAt) ? "created" : "created-uncompleted");
+        return new Result(order, false);
+    }
+
+    /**
+     * Marks the claimed key completed, retrying failed writes a few times.
+     *
+     * @return false if the key could not be completed; retries on other nodes may then
+     * create a second order once the claim's lease has run out
+     */
+    private boolean complete(IdempotencyRecord claim, String orderId, long expiresAt) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (idempotencyStore.complete(claim, orderId, expiresAt)) {
+                    return true;
+                }
+                log.warn("Idempotency-Key {} for order {} was taken over before it could be completed",
+                        claim.getIdempotencyKey(), orderId);
+                return false;
+            } catch (RuntimeException e) {
+                if (attempt == COMPLETE_ATTEMPTS) {
+                    log.warn("Failed to complete Idempotency-Key {} for order {}", claim.getIdempotencyKey(), orderId, e);
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers a request whose key is already claimed, from the stored record.
+     */
+    private Result replay(String idempotencyKey, String requestHash, long now) {
+        IdempotencyRecord record = idempotencyStore.get(idempotencyKey, now);
+        if (record != null && !record.getRequestHash().equals(requestHash)) {
+            count("mismatch");
+            throw new IdempotencyKeyMismatchException(idempotencyKey);
+        }
+        // A missing record was released or expired since the claim failed; the client may retry
+        if (record == null || record.getStatus() == IdempotencyRecord.Status.IN_PROGRESS) {
+            count("in-progress");
+            throw new IdempotencyRequestInProgressException(idempotencyKey);
+        }
+
+        Order order = orderService.getOrder(record.getOrderId());
+        if (order == null) {
+            throw new IllegalStateException("Order " + record.getOrderId() + " created with Idempotency-Key "
+                    + idempotencyKey + " no longer exists");
+        }
+        put(idempotencyKey, requestHash, order, record.getExpiresAt());
+        count("replayed");
+        return new Result(order, true);
+    }
+
+    private synchronized Order lookup(String idempotencyKey, String requestHash, long now) {
+        Entry entry = completed.get(idempotencyKey);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= now) {
+            completed.remove(idempotencyKey);
+            return null;
+        }
+        if (!entry.requestHash.equals(requestHash)) {
+            count("mismatch");
+            throw new IdempotencyKeyMismatchException(idempotencyKey);
+        }
+        return entry.order;
+    }
+
+    private synchronized void put(String idempotencyKey, String requestHash, Order order, long expiresAt) {
+        completed.put(idempotencyKey, new Entry(requestHash, order, expiresAt));
+        Iterator<Entry> eldest = completed.values().iterator();
+        while (completed.size() > maxEntries) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private void count(String outcome) {
+        Counter.builder("orders.idempotency.requests")
+                .description("Order creation requests carrying an Idempotency-Key, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * SHA-256 over the request fields and the invoice's name and size, which is what
+     * tells a retry apart from a different request reusing the key.
+     */
+    static String fingerprint(String customerName, String orderAmount, String orderDate, MultipartFile invoiceFile) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        boolean hasInvoice = invoiceFile != null && !invoiceFile.isEmpty();
+        for (String field : new String[] {customerName, orderAmount, orderDate,
+                hasInvoice ? invoiceFile.getOriginalFilename() : null,
+                hasInvoice ? Long.toString(invoiceFile.getSize()) : null}) {
+            // Length-prefix every field so that adjacent fields cannot run into each other
+            String value = field == null ? "" : field;
+            digest.update((value.length() + ":" + value + ";").getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * The order for a request, and whether it was created by an earlier request with the same key.
+     */
+    public static final class Result {
+        private final Order order;
+        private final boolean replayed;
+
+        public Result(Order order, boolean replayed) {
+            this.order = order;
+            this.replayed = replayed;
+        }
+
+        public Order getOrder() {
+            return order;
+        }
+
+        public boolean isReplayed() {
+            return replayed;
+        }
+    }
+
+    private static final class Entry {
+        private final String requestHash;
+        private final Order order;
+        private final long expiresAt;
+
+        private Entry(String requestHash, Order order, long expiresAt) {
+            this.requestHash = requestHash;
+            this.order = order;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
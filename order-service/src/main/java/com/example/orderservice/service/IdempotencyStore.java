@@ -0,0 +1,161 @@
+package com.example.orderservice.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.orderservice.model.IdempotencyRecord;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+/**
+ * Idempotency keys in their own DynamoDB table ({@code aws.dynamodb.idempotencyTableName}).
+ * Claims are conditional writes, so of several requests racing for a key on any number of
+ * nodes exactly one wins. Records carry an {@code expiresAt} epoch second that DynamoDB's
+ * TTL uses to delete them; because TTL deletion lags, expired records are also ignored here.
+ * <p>
+ * A claim is written with a short lease as its {@code expiresAt}, so a request that dies
+ * while holding a key only blocks retries until the lease runs out; {@link #complete} then
+ * extends the record to the full retention. A claim is identified by its request hash and
+ * lease, so a request whose lease lapsed and was taken over cannot complete or release the
+ * newer claim.
+ */
+@Service
+public class IdempotencyStore {
+
+    public static final String KEY = "idempotencyKey";
+    public static final String EXPIRES_AT = "expiresAt";
+
+    private static final String OWNED_CLAIM =
+            "requestHash = :requestHash AND #status = :inProgress AND #expiresAt = :leaseExpiresAt";
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+
+    public IdempotencyStore(DynamoDbClient dynamoDbClient,
+                            @Value("${aws.dynamodb.idempotencyTableName:order-idempotency}") String tableName) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+    }
+
+    /**
+     * Writes {@code record} unless an unexpired record for its key exists.
+     *
+     * @param nowEpochSecond records expiring at or before this second may be replaced
+     * @return whether the key was claimed
+     */
+    public boolean claim(IdempotencyRecord record, long nowEpochSecond) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(KEY, AttributeValue.builder().s(record.getIdempotencyKey()).build());
+        item.put("requestHash", AttributeValue.builder().s(record.getRequestHash()).build());
+        if (record.getOrderId() != null) {
+            item.put("orderId", AttributeValue.builder().s(record.getOrderId()).build());
+        }
+        item.put("status", AttributeValue.builder().s(record.getStatus().name()).build());
+        item.put(EXPIRES_AT, AttributeValue.builder().n(Long.toString(record.getExpiresAt())).build());
+
+        try {
+            dynamoDbClient.putItem(PutItemRequest.builder()
+                    .tableName(tableName)
+                    .item(item)
+                    .conditionExpression("attribute_not_exists(#key) OR #expiresAt <= :now")
+                    .expressionAttributeNames(Map.of("#key", KEY, "#expiresAt", EXPIRES_AT))
+                    .expressionAttributeValues(Map.of(":now", AttributeValue.builder().n(Long.toString(nowEpochSecond)).build()))
+                    .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the record for {@code idempotencyKey} with a strongly consistent read.
+     *
+     * @return the record, or null if there is none or it has expired
+     */
+    public IdempotencyRecord get(String idempotencyKey, long nowEpochSecond) {
+        GetItemResponse response = dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(tableName)
+                .key(key(idempotencyKey))
+                .consistentRead(true)
+                .build());
+        if (!response.hasItem() || response.item().isEmpty()) {
+            return null;
+        }
+
+        Map<String, AttributeValue> item = response.item();
+        IdempotencyRecord record = IdempotencyRecord.builder()
+                .idempotencyKey(idempotencyKey)
+                .requestHash(item.get("requestHash").s())
+                .orderId(item.containsKey("orderId") ? item.get("orderId").s() : null)
+                .status(IdempotencyRecord.Status.valueOf(item.get("status").s()))
+                .expiresAt(Long.parseLong(item.get(EXPIRES_AT).n()))
+                .build();
+        return record.getExpiresAt() > nowEpochSecond ? record : null;
+    }
+
+    /**
+     * Records the order created under a claimed key, so later requests with it are answered
+     * with that order, and keeps the record until {@code expiresAt}.
+     *
+     * @return false if the claim's lease lapsed and the key was taken over meanwhile
+     */
+    public boolean complete(IdempotencyRecord claim, String orderId, long expiresAt) {
+        Map<String, AttributeValue> values = ownedClaimValues(claim);
+        values.put(":completed", AttributeValue.builder().s(IdempotencyRecord.Status.COMPLETED.name()).build());
+        values.put(":orderId", AttributeValue.builder().s(orderId).build());
+        values.put(":expiresAt", AttributeValue.builder().n(Long.toString(expiresAt)).build());
+        try {
+            dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                    .tableName(tableName)
+                    .key(key(claim.getIdempotencyKey()))
+                    .updateExpression("SET #status = :completed, orderId = :orderId, #expiresAt = :expiresAt")
+                    .conditionExpression(OWNED_CLAIM)
+                    .expressionAttributeNames(Map.of("#status", "status", "#expiresAt", EXPIRES_AT))
+                    .expressionAttributeValues(values)
+                    .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gives up a claim after the request failed, so the client may retry with the same key.
+     * A key that has meanwhile expired and been claimed by a different request is left alone.
+     */
+    public void release(IdempotencyRecord claim) {
+        try {
+            dynamoDbClient.deleteItem(DeleteItemRequest.builder()
+                    .tableName(tableName)
+                    .key(key(claim.getIdempotencyKey()))
+                    .conditionExpression(OWNED_CLAIM)
+                    .expressionAttributeNames(Map.of("#status", "status", "#expiresAt", EXPIRES_AT))
+                    .expressionAttributeValues(ownedClaimValues(claim))
+                    .build());
+        } catch (ConditionalCheckFailedException e) {
+            // Not ours any more
+        }
+    }
+
+    private static Map<String, AttributeValue> ownedClaimValues(IdempotencyRecord claim) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":requestHash", AttributeValue.builder().s(claim.getRequestHash()).build());
+        values.put(":inProgress", AttributeValue.builder().s(IdempotencyRecord.Status.IN_PROGRESS.name()).build());
+        values.put(":leaseExpiresAt", AttributeValue.builder().n(Long.toString(claim.getExpiresAt())).build());
+        return values;
+    }
+
+    private static Map<String, AttributeValue> key(String idempotencyKey) {
+        return Map.of(KEY, AttributeValue.builder().s(idempotencyKey).build());
+    }
+}
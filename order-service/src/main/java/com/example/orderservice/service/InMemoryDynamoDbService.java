@@ -0,0 +1,153 @@
+package com.example.orderservice.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderPage;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+
+/**
+ * Base for DynamoDbService implementations that serve every read from an
+ * {@link InMemoryOrderStore} instead of DynamoDB. Subclasses decide how writes reach the
+ * store: {@link MockDynamoDbService} keeps orders only in memory, {@link LocalDynamoDbService}
+ * also appends them to a log on disk. The {@code *Async} methods run their blocking
+ * counterparts on the calling thread and return a completed future.
+ */
+public abstract class InMemoryDynamoDbService extends DynamoDbService {
+
+    /**
+     * Orders per page handed out by {@link #scanPage}, mirroring scan pages.
+     */
+    private static final int SCAN_PAGE_SIZE = 1000;
+
+    protected final InMemoryOrderStore orderStore = new InMemoryOrderStore();
+
+    protected InMemoryDynamoDbService(String tableName) {
+        super(null, tableName);
+    }
+
+    @Override
+    public void probe(Duration timeout) {
+        // Always reachable
+    }
+
+    @Override
+    public CompletableFuture<Void> saveOrderAsync(Order order) {
+        try {
+            saveOrder(order);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * The failure {@link #createOrder} reports for a taken order ID, as DynamoDB does.
+     */
+    protected static ConditionalCheckFailedException orderExists(String orderId) {
+        return ConditionalCheckFailedException.builder()
+                .message("The conditional request failed: order " + orderId + " already exists")
+                .statusCode(400)
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<Order> getOrderAsync(String orderId) {
+        return CompletableFuture.completedFuture(getOrder(orderId));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteOrderAsync(String orderId) {
+        try {
+            deleteOrder(orderId);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<OrderPage> getOrdersAsync(int limit, String nextToken) {
+        return CompletableFuture.completedFuture(getOrders(limit, nextToken));
+    }
+
+    @Override
+    public Order getOrder(String orderId) {
+        // Return null for unknown orders to match DynamoDbService behavior
+        return orderStore.get(orderId);
+    }
+
+    @Override
+    public List<Order> getAllOrders() {
+        return orderStore.snapshot();
+    }
+
+    @Override
+    public OrderPage getOrders(int limit, String nextToken) {
+        Map<String, AttributeValue> startKey = PageTokenCodec.decode(nextToken, "orderId");
+        String lastOrderId = startKey != null ? startKey.get("orderId").s() : null;
+
+        // Page through orders in orderId order so tokens stay stable between calls
+        List<Order> page = orderStore.pageAfter(lastOrderId, limit + 1);
+
+        String token = null;
+        if (page.size() > limit) {
+            page = page.subList(0, limit);
+            String last = page.get(limit - 1).getOrderId();
+            token = PageTokenCodec.encode(Map.of("orderId", AttributeValue.builder().s(last).build()));
+        }
+        return new OrderPage(new ArrayList<>(page), token);
+    }
+
+    @Override
+    public OrderPage scanPage(String nextToken) {
+        return getOrders(SCAN_PAGE_SIZE, nextToken);
+    }
+
+    @Override
+    public OrderPage scanSegment(int segment, int totalSegments, String nextToken, TokenBucket readThrottle) {
+        // Assign orders to segments by hash, the way DynamoDB spreads partition keys
+        List<Order> orders = orderStore.snapshot().stream()
+                .filter(order -> Math.floorMod(order.getOrderId().hashCode(), totalSegments) == segment)
+                .collect(Collectors.toList());
+        return new OrderPage(orders, null);
+    }
+
+    @Override
+    public OrderPage queryByCustomer(String customerName, LocalDate from, LocalDate to, int limit, String nextToken) {
+        Map<String, AttributeValue> startKey = PageTokenCodec.decode(nextToken, "orderId", "customerName", "orderDate");
+        LocalDate afterDate = startKey != null ? PageTokenCodec.date(startKey, "orderDate") : null;
+        String afterOrderId = startKey != null ? startKey.get("orderId").s() : null;
+
+        return page(orderStore.findByCustomer(customerName, from, to, afterDate, afterOrderId, limit + 1), limit);
+    }
+
+    @Override
+    public OrderPage queryByDateRange(LocalDate from, LocalDate to, int limit, String nextToken) {
+        Map<String, AttributeValue> startKey = PageTokenCodec.decode(nextToken, "orderDate");
+        LocalDate afterDate = startKey != null ? resumeDay(startKey, from, to) : null;
+        String afterOrderId = startKey != null && startKey.containsKey("orderId") ? startKey.get("orderId").s() : null;
+
+        return page(orderStore.findByDate(from, to, afterDate, afterOrderId, limit + 1), limit);
+    }
+
+    private static OrderPage page(List<Order> orders, int limit) {
+        if (orders.size() <= limit) {
+            return new OrderPage(orders, null);
+        }
+        orders = new ArrayList<>(orders.subList(0, limit));
+        Order last = orders.get(limit - 1);
+        return new OrderPage(orders, PageTokenCodec.encode(Map.of(
+                "orderId", AttributeValue.builder().s(last.getOrderId()).build(),
+                "customerName", AttributeValue.builder().s(last.getCustomerName()).build(),
+                "orderDate", AttributeValue.builder().s(last.getOrderDate().toString()).build())));
+    }
+}
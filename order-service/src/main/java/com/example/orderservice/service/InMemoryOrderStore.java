@@ -0,0 +1,214 @@
+package com.example.orderservice.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Collectors;
+
+import com.example.orderservice.model.Order;
+
+/**
+ * Thread-safe in-memory order table with the same two secondary indexes as the DynamoDB
+ * table (by customer and date, and by date).
+ * <p>
+ * Single-key reads and index queries are lock-free. Writes are serialised per key through
+ * a stripe of {@link StampedLock}s, so the table and both indexes always change together
+ * for a given order while writes to different stripes run in parallel. {@link #snapshot()}
+ * briefly holds every stripe to copy a point-in-time view. Like DynamoDB GSIs, index queries
+ * are only weakly consistent with concurrent writes.
+ */
+public class InMemoryOrderStore {
+
+    private static final char SEPARATOR = '\u0000';
+    private static final char AFTER_SEPARATOR = '\u0001';
+
+    private final ConcurrentSkipListMap<String, Entry> orders = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Order> customerDateIndex = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Order> orderDateIndex = new ConcurrentSkipListMap<>();
+    private final StampedLock[] stripes;
+
+    public InMemoryOrderStore() {
+        this(64);
+    }
+
+    public InMemoryOrderStore(int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("stripeCount must be positive");
+        }
+        stripes = new StampedLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new StampedLock();
+        }
+    }
+
+    public Order get(String orderId) {
+        Entry entry = orders.get(orderId);
+        return entry != null ? entry.order : null;
+    }
+
+    /**
+     * Inserts or replaces an order.
+     *
+     * @return the order previously stored under the same ID, or {@code null}
+     */
+    public Order put(Order order) {
+        StampedLock stripe = stripe(order.getOrderId());
+        long stamp = stripe.writeLock();
+        try {
+            Entry entry = new Entry(order);
+            Entry previous = orders.put(order.getOrderId(), entry);
+            unindex(previous);
+            customerDateIndex.put(entry.customerKey, order);
+            orderDateIndex.put(entry.dateKey, order);
+            return previous != null ? previous.order : null;
+        } finally {
+            stripe.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Inserts an order unless one is already stored under its ID.
+     *
+     * @return whether the order was inserted
+     */
+    public boolean putIfAbsent(Order order) {
+        StampedLock stripe = stripe(order.getOrderId());
+        long stamp = stripe.writeLock();
+        try {
+            if (orders.containsKey(order.getOrderId())) {
+                return false;
+            }
+            Entry entry = new Entry(order);
+            orders.put(order.getOrderId(), entry);
+            customerDateIndex.put(entry.customerKey, order);
+            orderDateIndex.put(entry.dateKey, order);
+            return true;
+        } finally {
+            stripe.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes an order.
+     *
+     * @return the removed order, or {@code null} if there was none
+     */
+    public Order remove(String orderId) {
+        StampedLock stripe = stripe(orderId);
+        long stamp = stripe.writeLock();
+        try {
+            Entry previous = orders.remove(orderId);
+            unindex(previous);
+            return previous != null ? previous.order : null;
+        } finally {
+            stripe.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        return orders.size();
+    }
+
+    /**
+     * Copies every order as of a single point in time, in orderId order. Writers wait
+     * for the copy; readers do not.
+     */
+    public List<Order> snapshot() {
+        long[] stamps = new long[stripes.length];
+        // Always lock stripes in the same order; writers only ever hold one
+        for (int i = 0; i < stripes.length; i++) {
+            stamps[i] = stripes[i].readLock();
+        }
+        try {
+            return orders.values().stream().map(entry -> entry.order).collect(Collectors.toCollection(ArrayList::new));
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].unlockRead(stamps[i]);
+            }
+        }
+    }
+
+    /**
+     * Up to {@code limit} orders in orderId order, starting after {@code afterOrderId}
+     * (or at the beginning when it is null).
+     */
+    public List<Order> pageAfter(String afterOrderId, int limit) {
+        NavigableMap<String, Entry> remaining = afterOrderId != null ? orders.tailMap(afterOrderId, false) : orders;
+        return remaining.values().stream().limit(limit).map(entry -> entry.order).collect(Collectors.toList());
+    }
+
+    /**
+     * Up to {@code limit} of a customer's orders between {@code from} and {@code to}
+     * (inclusive, either may be null) in date order, then orderId order. When a cursor is
+     * given, results start after the order with {@code afterDate} and {@code afterOrderId}.
+     */
+    public List<Order> findByCustomer(String customerName, LocalDate from, LocalDate to,
+                                      LocalDate afterDate, String afterOrderId, int limit) {
+        String prefix = customerName + SEPARATOR;
+        String lower = from != null ? prefix + from : prefix;
+        boolean lowerInclusive = true;
+        if (afterDate != null && afterOrderId != null) {
+            lower = prefix + dateKey(afterDate, afterOrderId);
+            lowerInclusive = false;
+        }
+        String upper = to != null ? prefix + to + AFTER_SEPARATOR : customerName + AFTER_SEPARATOR;
+        if (lower.compareTo(upper) >= 0) {
+            return new ArrayList<>();
+        }
+        return first(customerDateIndex.subMap(lower, lowerInclusive, upper, false), limit);
+    }
+
+    /**
+     * Up to {@code limit} orders placed between {@code from} and {@code to} (inclusive) in
+     * date order, then orderId order. When {@code afterDate} is given results resume on that
+     * day, after {@code afterOrderId} if that is given too.
+     */
+    public List<Order> findByDate(LocalDate from, LocalDate to, LocalDate afterDate, String afterOrderId, int limit) {
+        String lower = afterDate != null
+                ? (afterOrderId != null ? dateKey(afterDate, afterOrderId) : afterDate.toString())
+                : from.toString();
+        String upper = to.toString() + AFTER_SEPARATOR;
+        if (lower.compareTo(upper) >= 0) {
+            return new ArrayList<>();
+        }
+        return first(orderDateIndex.subMap(lower, afterOrderId == null, upper, false), limit);
+    }
+
+    private void unindex(Entry previous) {
+        if (previous != null) {
+            customerDateIndex.remove(previous.customerKey);
+            orderDateIndex.remove(previous.dateKey);
+        }
+    }
+
+    private StampedLock stripe(String orderId) {
+        return stripes[Math.floorMod(orderId.hashCode(), stripes.length)];
+    }
+
+    private static List<Order> first(NavigableMap<String, Order> orders, int limit) {
+        return orders.values().stream().limit(limit).collect(Collectors.toList());
+    }
+
+    private static String dateKey(LocalDate orderDate, String orderId) {
+        return orderDate.toString() + SEPARATOR + orderId;
+    }
+
+    /**
+     * A stored order with the index keys it was stored under, so that the old index
+     * entries can still be found if the order object is modified afterwards.
+     */
+    private static final class Entry {
+        private final Order order;
+        private final String customerKey;
+        private final String dateKey;
+
+        private Entry(Order order) {
+            this.order = order;
+            this.dateKey = dateKey(order.getOrderDate(), order.getOrderId());
+            this.customerKey = order.getCustomerName() + SEPARATOR + dateKey;
+        }
+    }
+}
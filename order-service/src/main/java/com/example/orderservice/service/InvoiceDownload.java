@@ -0,0 +1,96 @@
+package com.example.orderservice.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import software.amazon.awssdk.http.Abortable;
+
+/**
+ * An open invoice read from S3. The body is not buffered; callers copy {@link #getContent()}
+ * to wherever it is needed and must close the download afterwards.
+ */
+public class InvoiceDownload implements Closeable {
+
+    private final String fileName;
+    private final String contentType;
+    private final long contentLength;
+    private final String eTag;
+    private final String contentRange;
+    private final InputStream content;
+
+    public InvoiceDownload(String fileName, String contentType, long contentLength, String eTag,
+                           String contentRange, InputStream content) {
+        this.fileName = fileName;
+        this.contentType = contentType;
+        this.contentLength = contentLength;
+        this.eTag = eTag;
+        this.contentRange = contentRange;
+        this.content = content;
+    }
+
+    /**
+     * A download that was not opened because the caller's copy (matching {@code eTag}) is current.
+     */
+    public static InvoiceDownload notModified(String fileName, String eTag) {
+        return new InvoiceDownload(fileName, null, 0, eTag, null, null);
+    }
+
+    public boolean isNotModified() {
+        return content == null;
+    }
+
+    /**
+     * Whether only the byte range described by {@link #getContentRange()} is being returned.
+     */
+    public boolean isPartial() {
+        return contentRange != null;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Length of {@link #getContent()}, i.e. of the requested range for partial downloads.
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * {@code Content-Range} value such as {@code bytes 0-99/1234}, or {@code null} for the whole object.
+     */
+    public String getContentRange() {
+        return contentRange;
+    }
+
+    public InputStream getContent() {
+        return content;
+    }
+
+    /**
+     * Drops the underlying connection instead of draining the rest of the body, for use when
+     * the download is abandoned part way through (e.g. the client went away).
+     */
+    public void abort() {
+        if (content instanceof Abortable) {
+            ((Abortable) content).abort();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (content != null) {
+            content.close();
+        }
+    }
+}
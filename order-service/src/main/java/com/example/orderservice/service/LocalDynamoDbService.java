@@ -0,0 +1,257 @@
+package com.example.orderservice.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.example.orderservice.model.Order;
+
+/**
+ * DynamoDbService for offline and edge deployments without DynamoDB, enabled with the
+ * {@code local-store} profile. Orders are kept durably in an {@link AppendOnlyLog} on local
+ * disk and served from an {@link InMemoryOrderStore} rebuilt from the log on startup.
+ * <p>
+ * Every save or delete appends a record and returns once a group commit has forced it to
+ * disk. An in-memory orderId index remembers where the latest record of each order is, so
+ * the log can be compacted in the background once enough of it is superseded.
+ */
+@Service
+@Profile("local-store")
+@Primary
+public class LocalDynamoDbService extends InMemoryDynamoDbService {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalDynamoDbService.class);
+
+    private static final String LOG_NAME = "orders";
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private final AppendOnlyLog orderLog;
+    private final double compactionGarbageRatio;
+    private final ScheduledExecutorService compactor;
+
+    // Guarded by writeLock, which keeps the log and the store in the same order
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Map<String, Long> offsets = new HashMap<>();
+    private long liveBytes;
+
+    public LocalDynamoDbService(@Value("${orders.localStore.directory:data/orders}") String directory,
+                                @Value("${orders.localStore.initialSize:64MB}") DataSize initialSize,
+                                @Value("${orders.localStore.commitDelay:0ms}") Duration commitDelay,
+                                @Value("${orders.localStore.compactionInterval:5m}") Duration compactionInterval,
+                                @Value("${orders.localStore.compactionGarbageRatio:0.5}") double compactionGarbageRatio)
+            throws IOException {
+        super(LOG_NAME);
+        Path path = Paths.get(directory);
+        this.orderLog = new AppendOnlyLog(path, LOG_NAME, (int) Math.min(Integer.MAX_VALUE, initialSize.toBytes()), commitDelay);
+        this.compactionGarbageRatio = compactionGarbageRatio;
+        replay(path);
+
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = compactionInterval.toMillis();
+        if (intervalMillis > 0) {
+            compactor.scheduleWithFixedDelay(this::compactIfNeeded, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void saveOrder(Order order) {
+        write(List.of(order), false);
+    }
+
+    @Override
+    public void createOrder(Order order) {
+        write(List.of(order), true);
+    }
+
+    @Override
+    public List<Order> batchSaveOrders(List<Order> orders) {
+        write(orders, false);
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void deleteOrder(String orderId) {
+        writeLock.lock();
+        try {
+            Long previous = offsets.remove(orderId);
+            if (previous == null) {
+                return;
+            }
+            liveBytes -= orderLog.recordBytes(previous);
+            orderLog.append(encodeDelete(orderId));
+            orderStore.remove(orderId);
+        } finally {
+            writeLock.unlock();
+        }
+        orderLog.sync();
+    }
+
+    /**
+     * Fails once forcing the log to disk has failed or the log is closed.
+     */
+    @Override
+    public void probe(Duration timeout) {
+        orderLog.sync();
+    }
+
+    /**
+     * Rewrites the log without superseded records when at least
+     * {@code orders.localStore.compactionGarbageRatio} of it is garbage.
+     *
+     * @return whether the log was compacted
+     */
+    public boolean compactIfNeeded() {
+        writeLock.lock();
+        try {
+            long size = orderLog.size();
+            if (size == 0 || size - liveBytes < compactionGarbageRatio * size) {
+                return false;
+            }
+            compact();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to compact the order log", e);
+            return false;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        compactor.shutdownNow();
+        orderLog.close();
+    }
+
+    /**
+     * @param create fail with {@link #orderExists} rather than replace an order already stored
+     */
+    private void write(List<Order> orders, boolean create) {
+        List<byte[]> records = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            records.add(encodePut(order));
+        }
+        writeLock.lock();
+        try {
+            for (int i = 0; i < orders.size(); i++) {
+                Order order = orders.get(i);
+                if (create && offsets.containsKey(order.getOrderId())) {
+                    throw orderExists(order.getOrderId());
+                }
+                long offset = orderLog.append(records.get(i));
+                Long previous = offsets.put(order.getOrderId(), offset);
+                liveBytes += AppendOnlyLog.HEADER_BYTES + records.get(i).length - (previous != null ? orderLog.recordBytes(previous) : 0);
+                orderStore.put(order);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        // Outside the lock, so that concurrent writers share one fsync
+        orderLog.sync();
+    }
+
+    private void compact() throws IOException {
+        // Copy in log order so the old generation is read sequentially
+        List<Map.Entry<String, Long>> live = new ArrayList<>(offsets.entrySet());
+        live.sort(Map.Entry.comparingByValue());
+        long[] liveOffsets = new long[live.size()];
+        for (int i = 0; i < liveOffsets.length; i++) {
+            liveOffsets[i] = live.get(i).getValue();
+        }
+        long before = orderLog.size();
+        long startNanos = System.nanoTime();
+        long[] compacted = orderLog.compact(liveOffsets);
+        for (int i = 0; i < compacted.length; i++) {
+            live.get(i).setValue(compacted[i]);
+        }
+        log.info("Compacted the order log from {} to {} bytes in {} ms", before, orderLog.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
+    private void replay(Path directory) {
+        long startNanos = System.nanoTime();
+        long[] records = new long[1];
+        orderLog.forEach((offset, payload) -> {
+            records[0]++;
+            apply(offset, payload);
+        });
+        log.info("Loaded {} orders from {} log records in {} in {} ms", offsets.size(), records[0], directory,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
+    private void apply(long offset, ByteBuffer payload) {
+        try {
+            DataInputStream in = OrderRecords.input(payload);
+            byte type = in.readByte();
+            Long previous;
+            if (type == PUT) {
+                Order order = OrderRecords.readOrder(in);
+                orderStore.put(order);
+                previous = offsets.put(order.getOrderId(), offset);
+                liveBytes += orderLog.recordBytes(offset);
+            } else if (type == DELETE) {
+                String orderId = in.readUTF();
+                orderStore.remove(orderId);
+                previous = offsets.remove(orderId);
+            } else {
+                throw new IllegalStateException("Unknown order log record type " + type + " at offset " + offset);
+            }
+            if (previous != null) {
+                liveBytes -= orderLog.recordBytes(previous);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt order log record at offset " + offset, e);
+        }
+    }
+
+    private static byte[] encodePut(Order order) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(PUT);
+            OrderRecords.writeOrder(out, order);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeDelete(String orderId) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(DELETE);
+            out.writeUTF(orderId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
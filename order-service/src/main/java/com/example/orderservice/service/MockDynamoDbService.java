@@ -1,68 +1,95 @@
 package com.example.orderservice.service;
 
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
 import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderPage;
 
 /**
  * Mock implementation of DynamoDbService for local testing
  * This service stores orders in memory instead of using AWS DynamoDB
+ * <p>
+ * Orders live in a concurrent {@link InMemoryOrderStore}, so the test profile can be used
+ * for load rehearsals: reads are lock-free, writes are striped, and full-table reads see a
+ * point-in-time snapshot. When the {@code local-store} profile is active as well,
+ * {@link LocalDynamoDbService} takes over so orders survive restarts.
+ * <p>
+ * {@code orders.mock.latency} blocks the calling thread for that long on every save,
+ * delete, get and page read, standing in for a DynamoDB round trip when comparing
+ * platform and virtual request threads.
  */
 @Service
-@Profile("test")
+@Profile("test & !local-store")
 @Primary
-public class MockDynamoDbService extends DynamoDbService {
+public class MockDynamoDbService extends InMemoryDynamoDbService {
 
-    private final Map<String, Order> orderStorage = new HashMap<>();
+    private final Duration latency;
 
     public MockDynamoDbService() {
-        super(null, "mock-table");
+        this(Duration.ZERO);
+    }
+
+    @Autowired
+    public MockDynamoDbService(@Value("${orders.mock.latency:0ms}") Duration latency) {
+        super("mock-table");
+        this.latency = latency;
     }
 
     @Override
     public void saveOrder(Order order) {
-        // Log the order being saved
-        System.out.println("MOCK DYNAMODB: Saving order with ID: " + order.getOrderId());
-        
-        // Store order in memory
-        orderStorage.put(order.getOrderId(), order);
-        
-        // Log success
-        System.out.println("MOCK DYNAMODB: Order saved successfully");
+        simulateRoundTrip();
+        orderStore.put(order);
     }
 
     @Override
-    public Order getOrder(String orderId) {
-        // Log the order ID being requested
-        System.out.println("MOCK DYNAMODB: Getting order with ID: " + orderId);
-        
-        // Retrieve order from memory
-        Order order = orderStorage.get(orderId);
-        
-        if (order == null) {
-            System.out.println("MOCK DYNAMODB: Order not found: " + orderId);
-            // Return null instead of throwing exception to match DynamoDbService behavior
-            return null;
+    public void createOrder(Order order) {
+        simulateRoundTrip();
+        if (!orderStore.putIfAbsent(order)) {
+            throw orderExists(order.getOrderId());
         }
-        
-        System.out.println("MOCK DYNAMODB: Order found: " + order);
-        return order;
     }
 
     @Override
-    public List<Order> getAllOrders() {
-        // Log the number of orders in storage
-        System.out.println("MOCK DYNAMODB: Getting all orders, count: " + orderStorage.size());
-        
-        // Return all orders from memory
-        return new ArrayList<>(orderStorage.values());
+    public List<Order> batchSaveOrders(List<Order> orders) {
+        simulateRoundTrip();
+        orders.forEach(orderStore::put);
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void deleteOrder(String orderId) {
+        simulateRoundTrip();
+        orderStore.remove(orderId);
+    }
+
+    @Override
+    public Order getOrder(String orderId) {
+        simulateRoundTrip();
+        return super.getOrder(orderId);
+    }
+
+    @Override
+    public OrderPage getOrders(int limit, String nextToken) {
+        simulateRoundTrip();
+        return super.getOrders(limit, nextToken);
+    }
+
+    private void simulateRoundTrip() {
+        if (latency.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(latency.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package com.example.orderservice.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import com.example.orderservice.model.IdempotencyRecord;
+
+/**
+ * Mock implementation of IdempotencyStore for local testing
+ * Keys are held in memory with the same conditional semantics as the DynamoDB table
+ */
+@Service
+@Profile("test")
+@Primary
+public class MockIdempotencyStore extends IdempotencyStore {
+
+    private final Map<String, IdempotencyRecord> records = new ConcurrentHashMap<>();
+
+    public MockIdempotencyStore() {
+        super(null, "mock-idempotency-table");
+    }
+
+    @Override
+    public boolean claim(IdempotencyRecord record, long nowEpochSecond) {
+        IdempotencyRecord stored = records.compute(record.getIdempotencyKey(),
+                (key, existing) -> existing == null || existing.getExpiresAt() <= nowEpochSecond ? record : existing);
+        return stored == record;
+    }
+
+    @Override
+    public IdempotencyRecord get(String idempotencyKey, long nowEpochSecond) {
+        IdempotencyRecord record = records.get(idempotencyKey);
+        return record != null && record.getExpiresAt() > nowEpochSecond ? record.toBuilder().build() : null;
+    }
+
+    @Override
+    public boolean complete(IdempotencyRecord claim, String orderId, long expiresAt) {
+        IdempotencyRecord[] completed = new IdempotencyRecord[1];
+        records.computeIfPresent(claim.getIdempotencyKey(), (key, existing) -> owns(existing, claim)
+                ? completed[0] = existing.toBuilder()
+                        .status(IdempotencyRecord.Status.COMPLETED).orderId(orderId).expiresAt(expiresAt).build()
+                : existing);
+        return completed[0] != null;
+    }
+
+    @Override
+    public void release(IdempotencyRecord claim) {
+        records.computeIfPresent(claim.getIdempotencyKey(), (key, existing) -> owns(existing, claim) ? null : existing);
+    }
+
+    private static boolean owns(IdempotencyRecord existing, IdempotencyRecord claim) {
+        return existing.getRequestHash().equals(claim.getRequestHash())
+                && existing.getStatus() == IdempotencyRecord.Status.IN_PROGRESS
+                && existing.getExpiresAt() == claim.getExpiresAt();
+    }
+}
@@ -1,14 +1,30 @@
 package com.example.orderservice.service;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.orderservice.model.PresignedInvoiceUrl;
+
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
 /**
  * Mock implementation of S3Service for local testing
  * This service stores files in memory instead of using AWS S3
@@ -18,31 +34,134 @@ import org.springframework.web.multipart.MultipartFile;
 @Primary
 public class MockS3Service extends S3Service {
 
-    private final Map<String, byte[]> fileStorage = new HashMap<>();
+    private static final Pattern BYTE_RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private final Map<String, StoredFile> fileStorage = new ConcurrentHashMap<>();
     private final String bucketName = "mock-bucket";
 
     public MockS3Service() {
         super(null, "mock-bucket");
     }
 
+    @Override
+    public void probe(Duration timeout) {
+        // Always reachable
+    }
+
     @Override
     public String uploadFile(String key, MultipartFile file) throws IOException {
         // Store file in memory
-        fileStorage.put(key, file.getBytes());
+        fileStorage.put(key, new StoredFile(file.getBytes(), file.getContentType()));
         
         // Return a mock URL
         return String.format("https://%s.s3.amazonaws.com/%s", bucketName, key);
     }
 
     @Override
-    public byte[] downloadFile(String key) {
-        // Retrieve file from memory
-        byte[] fileContent = fileStorage.get(key);
-        
-        if (fileContent == null) {
-            throw new RuntimeException("File not found: " + key);
+    public CompletableFuture<String> uploadFileAsync(String key, Path file, String contentType) {
+        try {
+            fileStorage.put(key, new StoredFile(Files.readAllBytes(file), contentType));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+        return CompletableFuture.completedFuture(getFileUrl(key));
+    }
+
+    @Override
+    public CompletableFuture<InvoiceDownload> openFileAsync(String key) {
+        try {
+            return CompletableFuture.completedFuture(openFile(key, null, null));
+        } catch (S3Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteFileAsync(String key) {
+        fileStorage.remove(key);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public InvoiceDownload openFile(String key, String range, String ifNoneMatch) {
+        StoredFile file = fileStorage.get(key);
+        if (file == null) {
+            throw NoSuchKeyException.builder().statusCode(404).message("File not found: " + key).build();
+        }
+
+        // Mirror S3: a matching ETag wins over the range, and only a single range is honoured
+        if (ifNoneMatch != null && (ifNoneMatch.trim().equals("*") || ifNoneMatch.contains(file.eTag))) {
+            return InvoiceDownload.notModified(fileName(key), file.eTag);
+        }
+        if (range == null || !SINGLE_BYTE_RANGE.matcher(range).matches()) {
+            return new InvoiceDownload(fileName(key), file.contentType, file.content.length, file.eTag, null,
+                    new ByteArrayInputStream(file.content));
+        }
+
+        Matcher matcher = BYTE_RANGE.matcher(range);
+        matcher.matches();
+        long length = file.content.length;
+        long start;
+        long end;
+        if (matcher.group(1).isEmpty()) {
+            start = Math.max(0, length - Long.parseLong(matcher.group(2)));
+            end = length - 1;
+        } else {
+            start = Long.parseLong(matcher.group(1));
+            end = matcher.group(2).isEmpty() ? length - 1 : Math.min(Long.parseLong(matcher.group(2)), length - 1);
+        }
+        if (start >= length || start > end) {
+            throw S3Exception.builder().statusCode(416).message("The requested range is not satisfiable").build();
+        }
+
+        return new InvoiceDownload(fileName(key), file.contentType, end - start + 1, file.eTag,
+                String.format("bytes %d-%d/%d", start, end, length),
+                new ByteArrayInputStream(file.content, (int) start, (int) (end - start + 1)));
+    }
+
+    @Override
+    public PresignedInvoiceUrl presignUpload(String orderId, String key, String contentType) {
+        // Nothing listens on this URL; uploads are simulated with uploadFile
+        return mockPresignedUrl(orderId, key, "PUT", contentType != null
+                ? Collections.singletonMap("Content-Type", contentType)
+                : Collections.emptyMap());
+    }
+
+    @Override
+    public PresignedInvoiceUrl presignDownload(String orderId, String key) {
+        return mockPresignedUrl(orderId, key, "GET", Collections.emptyMap());
+    }
+
+    private PresignedInvoiceUrl mockPresignedUrl(String orderId, String key, String method, Map<String, String> headers) {
+        return PresignedInvoiceUrl.builder()
+                .orderId(orderId)
+                .invoiceKey(key)
+                .method(method)
+                .url(String.format("http://localhost:4566/%s/%s?X-Amz-Signature=mock", bucketName, key))
+                .headers(headers)
+                .expiresAt(Instant.now().plus(Duration.ofMinutes(15)))
+                .build();
+    }
+
+    @Override
+    public boolean fileExists(String key) {
+        return fileStorage.containsKey(key);
+    }
+
+    @Override
+    public void deleteFile(String key) {
+        fileStorage.remove(key);
+    }
+
+    private static final class StoredFile {
+        private final byte[] content;
+        private final String contentType;
+        private final String eTag;
+
+        private StoredFile(byte[] content, String contentType) {
+            this.content = content;
+            this.contentType = contentType != null ? contentType : "application/octet-stream";
+            this.eTag = "\"" + DigestUtils.md5DigestAsHex(content) + "\"";
         }
-        
-        return fileContent;
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,8 @@
 package com.example.orderservice.service;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.springframework.context.annotation.Primary;
@@ -18,12 +20,17 @@ import com.example.orderservice.model.Order;
 @Primary
 public class MockSnsService extends SnsService {
 
-    private final List<String> sentNotifications = new ArrayList<>();
+    private final List<String> sentNotifications = Collections.synchronizedList(new ArrayList<>());
 
     public MockSnsService() {
         super(null, "mock-topic-arn");
     }
 
+    @Override
+    public void probe(Duration timeout) {
+        // Always reachable
+    }
+
     @Override
     public void sendOrderNotification(Order order) {
         // Create notification message
@@ -42,6 +49,12 @@ public class MockSnsService extends SnsService {
         System.out.println("MOCK SNS NOTIFICATION: " + message);
     }
     
+    @Override
+    public List<Order> sendOrderNotifications(List<Order> orders) {
+        orders.forEach(this::sendOrderNotification);
+        return List.of();
+    }
+
     /**
      * Get all sent notifications (for testing purposes)
      */
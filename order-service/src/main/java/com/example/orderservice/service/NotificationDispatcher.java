@@ -0,0 +1,546 @@
+package com.example.orderservice.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.example.orderservice.model.Order;
+import com.example.orderservice.service.DependencyGuards.Dependency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Outbox that sends order notifications off the request thread.
+ * <p>
+ * {@link #dispatch} records the notification in an {@link AppendOnlyLog} under
+ * {@code orders.notifications.outbox.directory} and returns once the record is on disk;
+ * callers dispatching at the same time share one fsync. A flusher coalesces queued
+ * notifications into SNS PublishBatch calls of up to {@code maxBatchSize} messages, sent
+ * when a batch is full or its oldest notification has waited {@code maxDelay}. Messages
+ * SNS rejects, and whole batches that fail, are retried with exponential backoff up to
+ * {@code maxAttempts} times. While the SNS circuit breaker is open nothing is sent: batches
+ * stay queued and are tried again once the breaker lets probe calls through, without using
+ * up their attempts.
+ * <p>
+ * Published notifications are marked done in the log. On startup every notification
+ * without that mark is queued again, so notifications survive restarts and are delivered
+ * at least once. Notifications that used up their attempts stay in the log and are tried
+ * again after the next restart. An empty directory keeps the outbox in memory only.
+ * <p>
+ * At most {@code queueCapacity} notifications may be unpublished at once. Further callers
+ * wait up to {@code enqueueTimeout} for room, so overload slows order creation down; after
+ * that the notification is only written to the outbox and published after the next start
+ * (or, without an outbox, dropped), so a long SNS outage cannot block callers for good.
+ */
+@Component
+public class NotificationDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private static final String LOG_NAME = "notifications";
+    private static final byte PENDING = 1;
+    private static final byte DONE = 2;
+
+    private final SnsService snsService;
+    private final DependencyGuards dependencyGuards;
+    private final int queueCapacity;
+    private final long enqueueTimeoutNanos;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final Semaphore capacity;
+    // Replayed notifications beyond queueCapacity, which hold no permit to release
+    private final AtomicLong replaySurplus;
+    private final AppendOnlyLog outbox;
+
+    // Guarded by lock, which also keeps the outbox records in dispatch order
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchReady = lock.newCondition();
+    private final ArrayDeque<Notification> queue = new ArrayDeque<>();
+    private final Map<Long, Long> offsets = new HashMap<>();
+    private long liveBytes;
+    private long nextSequence;
+    private long oldestQueuedNanos;
+    private boolean running = true;
+
+    private final Thread flusher;
+    private final ThreadPoolExecutor publishers;
+    private final ScheduledExecutorService retryScheduler;
+
+    private final Timer publishTimer;
+    private final Timer deliveryTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter retries;
+    private final Counter failures;
+    private final MeterRegistry meterRegistry;
+
+    public NotificationDispatcher(SnsService snsService,
+                                  DependencyGuards dependencyGuards,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${orders.notifications.workers:2}") int workerCount,
+                                  @Value("${orders.notifications.queueCapacity:10000}") int queueCapacity,
+                                  @Value("${orders.notifications.enqueueTimeout:100ms}") Duration enqueueTimeout,
+                                  @Value("${orders.notifications.maxAttempts:5}") int maxAttempts,
+                                  @Value("${orders.notifications.initialBackoff:200ms}") Duration initialBackoff,
+                                  @Value("${orders.notifications.maxBatchSize:10}") int maxBatchSize,
+                                  @Value("${orders.notifications.maxDelay:10ms}") Duration maxDelay,
+                                  @Value("${orders.notifications.outbox.directory:data/outbox}") String outboxDirectory,
+                                  @Value("${orders.notifications.outbox.initialSize:4MB}") DataSize outboxInitialSize,
+                                  @Value("${orders.notifications.outbox.compactionInterval:1m}") Duration compactionInterval)
+            throws IOException {
+        if (maxBatchSize < 1 || maxBatchSize > SnsService.MAX_PUBLISH_BATCH_ENTRIES) {
+            throw new IllegalArgumentException("maxBatchSize must be between 1 and " + SnsService.MAX_PUBLISH_BATCH_ENTRIES);
+        }
+        this.snsService = snsService;
+        this.dependencyGuards = dependencyGuards;
+        this.queueCapacity = queueCapacity;
+        this.enqueueTimeoutNanos = enqueueTimeout.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+
+        this.outbox = outboxDirectory.isEmpty() ? null : new AppendOnlyLog(Paths.get(outboxDirectory), LOG_NAME,
+                (int) Math.min(Integer.MAX_VALUE, outboxInitialSize.toBytes()), Duration.ZERO);
+        List<Notification> replayed = outbox != null ? replay() : List.of();
+        // Replayed notifications count against the capacity even if there are more of them
+        this.capacity = new Semaphore(Math.max(0, queueCapacity - replayed.size()));
+        this.replaySurplus = new AtomicLong(Math.max(0, replayed.size() - queueCapacity));
+        replayed.forEach(this::enqueue);
+
+        this.publishTimer = Timer.builder("orders.notifications.publish")
+                .description("Latency of SNS PublishBatch calls")
+                .register(meterRegistry);
+        this.deliveryTimer = Timer.builder("orders.notifications.delivery")
+                .description("Time from dispatch until SNS accepted the notification, including retries")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("orders.notifications.batch.size")
+                .description("Notifications per PublishBatch call")
+                .register(meterRegistry);
+        this.retries = meterRegistry.counter("orders.notifications.retries");
+        this.failures = meterRegistry.counter("orders.notifications.failures");
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("orders.notifications.queue.depth", this, NotificationDispatcher::getQueueDepth);
+        if (outbox != null) {
+            meterRegistry.gauge("orders.notifications.outbox.bytes", outbox, AppendOnlyLog::size);
+        }
+
+        // Hand batches to a small publisher pool; when it is saturated the flusher publishes
+        // batches itself, which stops it from draining the queue any faster
+        AtomicInteger threadCount = new AtomicInteger();
+        this.publishers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workerCount),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "order-notify-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-notify-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long compactionMillis = compactionInterval.toMillis();
+        if (outbox != null && compactionMillis > 0) {
+            retryScheduler.scheduleWithFixedDelay(this::compactIfNeeded, compactionMillis, compactionMillis, TimeUnit.MILLISECONDS);
+        }
+        this.flusher = new Thread(this::flushLoop, "order-notify-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queues a notification for {@code order}. Returns once it is in the outbox; if
+     * {@code queueCapacity} notifications are already waiting, at most
+     * {@code enqueueTimeout} later with the notification left in the outbox only.
+     */
+    public void dispatch(Order order) {
+        boolean queued;
+        try {
+            queued = capacity.tryAcquire(enqueueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+
+        lock.lock();
+        try {
+            if (!running) {
+                if (queued) {
+                    capacity.release();
+                }
+                failures.increment();
+                log.error("Dropping notification for order {} during shutdown", order.getOrderId());
+                return;
+            }
+            if (!queued && outbox == null) {
+                overflow("dropped");
+                failures.increment();
+                log.error("Dropping notification for order {}, {} notifications are already waiting",
+                        order.getOrderId(), queueCapacity);
+                return;
+            }
+            Notification notification = new Notification(nextSequence++, order);
+            if (outbox != null) {
+                try {
+                    long offset = outbox.append(encodePending(notification));
+                    offsets.put(notification.sequence, offset);
+                    liveBytes += outbox.recordBytes(offset);
+                } catch (UncheckedIOException e) {
+                    log.error("Notification for order {} could not be written to the outbox", order.getOrderId(), e);
+                }
+            }
+            if (queued) {
+                enqueue(notification);
+            } else {
+                overflow("outbox");
+                log.warn("Notification queue is full, notification for order {} is kept in the outbox until the next start",
+                        order.getOrderId());
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Outside the lock, so that concurrent dispatchers share one fsync
+        if (outbox != null) {
+            try {
+                outbox.sync();
+            } catch (UncheckedIOException e) {
+                log.error("Notification for order {} is queued but not persisted", order.getOrderId(), e);
+            }
+        }
+    }
+
+    /**
+     * Notifications dispatched (or replayed) but not yet published or given up on.
+     */
+    public int getQueueDepth() {
+        return (int) (queueCapacity - capacity.availablePermits() + replaySurplus.get());
+    }
+
+    /**
+     * Rewrites the outbox without done records once they make up at least half of it.
+     *
+     * @return whether the outbox was compacted
+     */
+    public boolean compactIfNeeded() {
+        if (outbox == null) {
+            return false;
+        }
+        lock.lock();
+        try {
+            long size = outbox.size();
+            if (size == 0 || liveBytes * 2 > size) {
+                return false;
+            }
+            // Copy in log order so the old generation is read sequentially
+            List<Map.Entry<Long, Long>> live = new ArrayList<>(offsets.entrySet());
+            live.sort(Map.Entry.comparingByValue());
+            long[] liveOffsets = live.stream().mapToLong(Map.Entry::getValue).toArray();
+            long[] compacted = outbox.compact(liveOffsets);
+            for (int i = 0; i < compacted.length; i++) {
+                live.get(i).setValue(compacted[i]);
+            }
+            log.debug("Compacted the notification outbox from {} to {} bytes", size, outbox.size());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to compact the notification outbox", e);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back the room a notification took in the queue.
+     */
+    private void releaseCapacity() {
+        if (replaySurplus.getAndUpdate(surplus -> surplus > 0 ? surplus - 1 : 0) == 0) {
+            capacity.release();
+        }
+    }
+
+    private void overflow(String outcome) {
+        Counter.builder("orders.notifications.overflow")
+                .description("Notifications that found the queue full, by whether they were kept in the outbox or dropped")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void enqueue(Notification notification) {
+        lock.lock();
+        try {
+            queue.add(notification);
+            if (queue.size() == 1) {
+                oldestQueuedNanos = System.nanoTime();
+                batchReady.signal();
+            }
+            if (queue.size() >= maxBatchSize) {
+                batchReady.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<Notification> batch;
+            lock.lock();
+            try {
+                while (queue.isEmpty()) {
+                    if (!running) {
+                        return;
+                    }
+                    batchReady.await();
+                }
+                long waitNanos = oldestQueuedNanos + maxDelayNanos - System.nanoTime();
+                while (running && queue.size() < maxBatchSize && waitNanos > 0) {
+                    waitNanos = batchReady.awaitNanos(waitNanos);
+                }
+                batch = takeBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            publishers.execute(() -> publish(batch));
+        }
+    }
+
+    private List<Notification> takeBatch() {
+        List<Notification> batch = new ArrayList<>(Math.min(maxBatchSize, queue.size()));
+        while (!queue.isEmpty() && batch.size() < maxBatchSize) {
+            batch.add(queue.poll());
+        }
+        // Notifications left behind start a fresh deadline
+        oldestQueuedNanos = System.nanoTime();
+        return batch;
+    }
+
+    private void publish(List<Notification> batch) {
+        batchSizes.record(batch.size());
+        List<Order> orders = batch.stream().map(notification -> notification.order).collect(Collectors.toList());
+
+        Set<Order> rejected = Collections.newSetFromMap(new IdentityHashMap<>());
+        try {
+            rejected.addAll(publishTimer.record(
+                    () -> dependencyGuards.call(Dependency.SNS, () -> snsService.sendOrderNotifications(orders))));
+        } catch (DependencyUnavailableException e) {
+            dependencyGuards.recordFallback(Dependency.SNS, "deferred");
+            batch.forEach(notification -> defer(notification, e.getRetryAfter()));
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Publishing a batch of {} notifications failed", batch.size(), e);
+            rejected.addAll(orders);
+        }
+
+        List<Notification> published = new ArrayList<>(batch.size());
+        for (Notification notification : batch) {
+            if (rejected.contains(notification.order)) {
+                retryOrGiveUp(notification);
+            } else {
+                published.add(notification);
+                deliveryTimer.record(System.nanoTime() - notification.dispatchedNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        markDone(published);
+    }
+
+    private void retryOrGiveUp(Notification notification) {
+        String orderId = notification.order.getOrderId();
+        if (notification.attempt >= maxAttempts) {
+            failures.increment();
+            log.error("Giving up on notification for order {} after {} attempts", orderId, notification.attempt);
+            // Stays in the outbox, so the next start tries again
+            releaseCapacity();
+            return;
+        }
+
+        retries.increment();
+        long backoffMillis = initialBackoffMillis << Math.min(notification.attempt - 1, 10);
+        log.warn("Notification for order {} failed (attempt {}), retrying in {} ms", orderId, notification.attempt, backoffMillis);
+        notification.attempt++;
+        try {
+            retryScheduler.schedule(() -> enqueue(notification), backoffMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException shuttingDown) {
+            log.warn("Notification for order {} stays in the outbox until the next start", orderId);
+            releaseCapacity();
+        }
+    }
+
+    /**
+     * Queues a notification again after {@code delay}, keeping its attempt count.
+     */
+    private void defer(Notification notification, Duration delay) {
+        try {
+            retryScheduler.schedule(() -> enqueue(notification), delay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException shuttingDown) {
+            log.warn("Notification for order {} stays in the outbox until the next start", notification.order.getOrderId());
+            releaseCapacity();
+        }
+    }
+
+    private void markDone(List<Notification> published) {
+        if (published.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            for (Notification notification : published) {
+                releaseCapacity();
+                Long offset = offsets.remove(notification.sequence);
+                if (offset == null) {
+                    continue;
+                }
+                liveBytes -= outbox.recordBytes(offset);
+                // Not synced: losing a done record only means publishing it again after a crash
+                outbox.append(encodeDone(notification.sequence));
+            }
+        } catch (UncheckedIOException e) {
+            log.error("Published notifications could not be marked done in the outbox", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Notification> replay() {
+        long startNanos = System.nanoTime();
+        TreeMap<Long, Order> pending = new TreeMap<>();
+        outbox.forEach((offset, payload) -> apply(offset, payload, pending));
+
+        List<Notification> replayed = new ArrayList<>(pending.size());
+        pending.forEach((sequence, order) -> replayed.add(new Notification(sequence, order)));
+        if (!replayed.isEmpty()) {
+            log.info("Requeued {} unpublished notifications from the outbox in {} ms", replayed.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+        return replayed;
+    }
+
+    private void apply(long offset, ByteBuffer payload, TreeMap<Long, Order> pending) {
+        try {
+            DataInputStream in = OrderRecords.input(payload);
+            byte type = in.readByte();
+            long sequence = in.readLong();
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            if (type == PENDING) {
+                pending.put(sequence, OrderRecords.readOrder(in));
+                offsets.put(sequence, offset);
+                liveBytes += outbox.recordBytes(offset);
+            } else if (type == DONE) {
+                pending.remove(sequence);
+                Long previous = offsets.remove(sequence);
+                if (previous != null) {
+                    liveBytes -= outbox.recordBytes(previous);
+                }
+            } else {
+                throw new IllegalStateException("Unknown outbox record type " + type + " at offset " + offset);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt outbox record at offset " + offset, e);
+        }
+    }
+
+    private static byte[] encodePending(Notification notification) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(PENDING);
+            out.writeLong(notification.sequence);
+            OrderRecords.writeOrder(out, notification.order);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeDone(long sequence) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(9);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(DONE);
+            out.writeLong(sequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Stops accepting notifications and publishes everything already queued. Pending
+     * retries are not waited for; they stay in the outbox for the next start.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        lock.lock();
+        try {
+            running = false;
+            batchReady.signal();
+        } finally {
+            lock.unlock();
+        }
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        retryScheduler.shutdownNow();
+        publishers.shutdown();
+        publishers.awaitTermination(10, TimeUnit.SECONDS);
+        if (outbox != null) {
+            try {
+                outbox.close();
+            } catch (IOException e) {
+                log.error("Failed to close the notification outbox", e);
+            }
+        }
+    }
+
+    private static final class Notification {
+        private final long sequence;
+        private final Order order;
+        private final long dispatchedNanos = System.nanoTime();
+        private int attempt = 1;
+
+        private Notification(long sequence, Order order) {
+            this.sequence = sequence;
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.orderservice.service;
+
+/**
+ * Thrown when an order is created under an ID that is already taken, such as a second
+ * request for the order an uploaded invoice reserved.
+ */
+public class OrderAlreadyExistsException extends RuntimeException {
+
+    public OrderAlreadyExistsException(String orderId) {
+        super("Order already exists: " + orderId);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.orderservice.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderPage;
+
+/**
+ * Full-table order export using a DynamoDB parallel scan.
+ * <p>
+ * The table is split into {@code Segment}/{@code TotalSegments} workers running on a
+ * bounded executor. Workers hand pages to the calling thread through bounded queues,
+ * so a slow consumer pushes back on the scan instead of buffering the table in heap.
+ * In ordered mode pages are delivered segment by segment (segment 0 first); in
+ * unordered mode they are delivered as soon as any segment produces them.
+ */
+@Service
+public class OrderExportService {
+
+    public static final int MAX_SEGMENTS = 64;
+
+    private static final Object SEGMENT_DONE = new Object();
+
+    private final DynamoDbService dynamoDbService;
+    private final ExecutorService scanExecutor;
+    private final int pagesPerSegment;
+    private final double defaultReadCapacityUnits;
+
+    public OrderExportService(DynamoDbService dynamoDbService,
+                              @Value("${orders.export.maxThreads:16}") int maxThreads,
+                              @Value("${orders.export.pagesPerSegment:2}") int pagesPerSegment,
+                              @Value("${orders.export.readCapacityUnits:0}") double defaultReadCapacityUnits) {
+        this.dynamoDbService = dynamoDbService;
+        this.pagesPerSegment = pagesPerSegment;
+        this.defaultReadCapacityUnits = defaultReadCapacityUnits;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scanExecutor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(maxThreads * 4),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "order-export-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Exports every order using the default read capacity budget.
+     */
+    public void exportOrders(int totalSegments, boolean ordered, Consumer<List<Order>> pageAction)
+            throws InterruptedException {
+        exportOrders(totalSegments, ordered, defaultReadCapacityUnits, pageAction);
+    }
+
+    /**
+     * Exports every order, handing each page to {@code pageAction} on the calling thread.
+     *
+     * @param totalSegments     number of parallel scan segments, 1 to {@value #MAX_SEGMENTS}
+     * @param ordered           deliver pages segment by segment instead of as they arrive
+     * @param readCapacityUnits read capacity units per second the export may consume
+     *                          across all segments; zero or less means unthrottled
+     */
+    public void exportOrders(int totalSegments, boolean ordered, double readCapacityUnits,
+                             Consumer<List<Order>> pageAction) throws InterruptedException {
+        if (totalSegments < 1 || totalSegments > MAX_SEGMENTS) {
+            throw new IllegalArgumentException("totalSegments must be between 1 and " + MAX_SEGMENTS);
+        }
+
+        TokenBucket readThrottle = readCapacityUnits > 0 ? new TokenBucket(readCapacityUnits, readCapacityUnits) : null;
+        List<BlockingQueue<Object>> queues = new ArrayList<>(totalSegments);
+        BlockingQueue<Object> sharedQueue = ordered ? null : new ArrayBlockingQueue<>(pagesPerSegment * totalSegments);
+        for (int segment = 0; segment < totalSegments; segment++) {
+            queues.add(ordered ? new ArrayBlockingQueue<>(pagesPerSegment) : sharedQueue);
+        }
+
+        List<Future<?>> workers = new ArrayList<>(totalSegments);
+        try {
+            for (int segment = 0; segment < totalSegments; segment++) {
+                int current = segment;
+                workers.add(scanExecutor.submit(() -> scanSegment(current, totalSegments, readThrottle, queues.get(current))));
+            }
+
+            int finishedSegments = 0;
+            int currentSegment = 0;
+            while (finishedSegments < totalSegments) {
+                Object next = queues.get(currentSegment).take();
+                if (next == SEGMENT_DONE) {
+                    finishedSegments++;
+                    if (ordered) {
+                        currentSegment++;
+                    }
+                } else if (next instanceof SegmentFailure) {
+                    throw ((SegmentFailure) next).cause;
+                } else {
+                    @SuppressWarnings("unchecked")
+                    List<Order> page = (List<Order>) next;
+                    pageAction.accept(page);
+                }
+            }
+        } finally {
+            // Stop any segment still running, e.g. when the consumer failed or was interrupted
+            workers.forEach(worker -> worker.cancel(true));
+        }
+    }
+
+    private void scanSegment(int segment, int totalSegments, TokenBucket readThrottle, BlockingQueue<Object> queue) {
+        try {
+            try {
+                String nextToken = null;
+                do {
+                    OrderPage page = dynamoDbService.scanSegment(segment, totalSegments, nextToken, readThrottle);
+                    if (!page.getOrders().isEmpty()) {
+                        queue.put(page.getOrders());
+                    }
+                    nextToken = page.getNextToken();
+                } while (nextToken != null);
+                queue.put(SEGMENT_DONE);
+            } catch (RuntimeException e) {
+                queue.put(new SegmentFailure(e));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scanExecutor.shutdownNow();
+    }
+
+    private static final class SegmentFailure {
+        private final RuntimeException cause;
+
+        private SegmentFailure(RuntimeException cause) {
+            this.cause = cause;
+        }
+    }
+}
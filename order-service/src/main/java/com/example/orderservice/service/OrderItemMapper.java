@@ -0,0 +1,130 @@
+package com.example.orderservice.service;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.example.orderservice.model.Order;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Conversion between orders and DynamoDB items, which runs for every order read or written.
+ * <p>
+ * Items are built in a map sized for the five order attributes, with
+ * {@link AttributeValue#fromS} instead of a builder per attribute. Amounts and dates are
+ * parsed by hand for their usual shapes ({@code 149.99}, {@code 2024-03-15}): a
+ * {@code BigDecimal} from its unscaled {@code long}, and a {@code LocalDate} from its
+ * fields, skipping the char array copy of {@code new BigDecimal(String)} and the
+ * {@code DateTimeFormatter} machinery. Anything else falls back to the JDK parsers, so the
+ * results are always identical.
+ */
+final class OrderItemMapper {
+
+    static final String ORDER_ID = "orderId";
+    static final String CUSTOMER_NAME = "customerName";
+    static final String ORDER_AMOUNT = "orderAmount";
+    static final String ORDER_DATE = "orderDate";
+    static final String INVOICE_FILE_URL = "invoiceFileUrl";
+
+    // Five attributes fit without a resize under the default load factor
+    private static final int ITEM_CAPACITY = 8;
+
+    // Digits that always fit in a long
+    private static final int MAX_FAST_DIGITS = 18;
+
+    private OrderItemMapper() {
+    }
+
+    static Map<String, AttributeValue> toItem(Order order) {
+        Map<String, AttributeValue> item = new HashMap<>(ITEM_CAPACITY);
+        item.put(ORDER_ID, AttributeValue.fromS(order.getOrderId()));
+        item.put(CUSTOMER_NAME, AttributeValue.fromS(order.getCustomerName()));
+        item.put(ORDER_AMOUNT, AttributeValue.fromN(order.getOrderAmount().toString()));
+        item.put(ORDER_DATE, AttributeValue.fromS(order.getOrderDate().toString()));
+        if (order.getInvoiceFileUrl() != null) {
+            item.put(INVOICE_FILE_URL, AttributeValue.fromS(order.getInvoiceFileUrl()));
+        }
+        return item;
+    }
+
+    static Order toOrder(Map<String, AttributeValue> item) {
+        AttributeValue invoiceFileUrl = item.get(INVOICE_FILE_URL);
+        return new Order(
+                item.get(ORDER_ID).s(),
+                item.get(CUSTOMER_NAME).s(),
+                parseAmount(item.get(ORDER_AMOUNT).n()),
+                parseDate(item.get(ORDER_DATE).s()),
+                invoiceFileUrl != null ? invoiceFileUrl.s() : null);
+    }
+
+    /**
+     * {@code new BigDecimal(value)}, without intermediate copies for plain decimals of up to
+     * 18 digits.
+     */
+    static BigDecimal parseAmount(String value) {
+        int length = value.length();
+        int start = length > 0 && value.charAt(0) == '-' ? 1 : 0;
+        if (length == start || length - start > MAX_FAST_DIGITS + 1) {
+            return new BigDecimal(value);
+        }
+
+        long unscaled = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                unscaled = unscaled * 10 + (c - '0');
+                if (fraction) {
+                    scale++;
+                }
+            } else if (c == '.' && !fraction && i > start && i < length - 1) {
+                fraction = true;
+            } else {
+                // Exponents, a plus sign, a leading or trailing point: leave them to the JDK
+                return new BigDecimal(value);
+            }
+        }
+        if (!fraction && length - start > MAX_FAST_DIGITS) {
+            return new BigDecimal(value);
+        }
+        return BigDecimal.valueOf(start == 1 ? -unscaled : unscaled, scale);
+    }
+
+    /**
+     * {@code LocalDate.parse(value)}, reading {@code yyyy-MM-dd} directly.
+     */
+    static LocalDate parseDate(String value) {
+        if (value.length() == 10 && value.charAt(4) == '-' && value.charAt(7) == '-') {
+            int year = digits(value, 0, 4);
+            int month = digits(value, 5, 7);
+            int day = digits(value, 8, 10);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                try {
+                    return LocalDate.of(year, month, day);
+                } catch (DateTimeException e) {
+                    // Let the parser report it the way LocalDate.parse does
+                }
+            }
+        }
+        return LocalDate.parse(value);
+    }
+
+    /**
+     * The number in {@code value[from, to)}, or -1 unless it is only ASCII digits.
+     */
+    private static int digits(String value, int from, int to) {
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+}
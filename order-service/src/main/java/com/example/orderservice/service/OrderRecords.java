@@ -0,0 +1,81 @@
+package com.example.orderservice.service;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import com.example.orderservice.model.Order;
+
+/**
+ * Binary encoding of orders inside {@link AppendOnlyLog} records, shared by the local
+ * order store and the notification outbox.
+ */
+final class OrderRecords {
+
+    private OrderRecords() {
+    }
+
+    static void writeOrder(DataOutput out, Order order) throws IOException {
+        out.writeUTF(order.getOrderId());
+        writeNullable(out, order.getCustomerName());
+        writeNullable(out, order.getOrderAmount() != null ? order.getOrderAmount().toPlainString() : null);
+        writeNullable(out, order.getOrderDate() != null ? order.getOrderDate().toString() : null);
+        writeNullable(out, order.getInvoiceFileUrl());
+    }
+
+    static Order readOrder(DataInput in) throws IOException {
+        Order order = new Order();
+        order.setOrderId(in.readUTF());
+        order.setCustomerName(readNullable(in));
+        String amount = readNullable(in);
+        order.setOrderAmount(amount != null ? OrderItemMapper.parseAmount(amount) : null);
+        String date = readNullable(in);
+        order.setOrderDate(date != null ? OrderItemMapper.parseDate(date) : null);
+        order.setInvoiceFileUrl(readNullable(in));
+        return order;
+    }
+
+    /**
+     * Reads a record payload without copying it.
+     */
+    static DataInputStream input(ByteBuffer payload) {
+        return new DataInputStream(new ByteBufferInputStream(payload));
+    }
+
+    private static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
@@ -1,74 +1,576 @@
 package com.example.orderservice.service;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.orderservice.cache.OrderCache;
 import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderPage;
+import com.example.orderservice.model.OrderStatus;
+import com.example.orderservice.model.PresignedInvoiceUrl;
+import com.example.orderservice.service.DependencyGuards.Dependency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 
 @Service
 public class OrderService {
 
+    private static final Logger log = LoggerFactory.getLogger(OrderService.class);
+
+    private static final Pattern UPLOADED_INVOICE_KEY = Pattern.compile(
+            "invoices/([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})/[A-Za-z0-9._-]+");
+
     private final DynamoDbService dynamoDbService;
     private final S3Service s3Service;
-    private final SnsService snsService;
+    private final OrderCache orderCache;
+    private final OrderWriteBuffer orderWriteBuffer;
+    private final NotificationDispatcher notificationDispatcher;
+    private final OrderStatusRegistry orderStatusRegistry;
+    private final Executor pipelineExecutor;
+    private final DependencyGuards dependencyGuards;
+    private final MeterRegistry meterRegistry;
 
-    public OrderService(DynamoDbService dynamoDbService, S3Service s3Service, SnsService snsService) {
+    private final AtomicLong collectionVersion = new AtomicLong();
+
+    public OrderService(DynamoDbService dynamoDbService, S3Service s3Service, OrderCache orderCache,
+                        OrderWriteBuffer orderWriteBuffer, NotificationDispatcher notificationDispatcher, OrderStatusRegistry orderStatusRegistry,
+                        @Qualifier("orderPipelineExecutor") Executor pipelineExecutor, DependencyGuards dependencyGuards,
+                        MeterRegistry meterRegistry) {
         this.dynamoDbService = dynamoDbService;
         this.s3Service = s3Service;
-        this.snsService = snsService;
+        this.orderCache = orderCache;
+        this.orderWriteBuffer = orderWriteBuffer;
+        this.notificationDispatcher = notificationDispatcher;
+        this.orderStatusRegistry = orderStatusRegistry;
+        this.pipelineExecutor = pipelineExecutor;
+        this.dependencyGuards = dependencyGuards;
+        this.meterRegistry = meterRegistry;
     }
 
     public Order createOrder(String customerName, String orderAmount, String orderDate, MultipartFile invoiceFile) throws IOException {
-        // Generate a unique order ID
+        return createOrder(buildOrder(customerName, orderAmount, orderDate), invoiceFile);
+    }
+
+    /**
+     * Creates an order already validated and given its ID by {@link #buildOrder}.
+     */
+    public Order createOrder(Order order, MultipartFile invoiceFile) throws IOException {
+        runPipeline(order, invoiceFile, "sync", false);
+        return order;
+    }
+
+    /**
+     * Non-blocking form of {@link #createOrder} on the async AWS clients. The invoice is
+     * spooled to a temporary file, since the multipart upload may be gone before S3 has read
+     * it; after that no thread waits on AWS. Invalid fields are rejected with an
+     * IllegalArgumentException thrown by this method, AWS failures complete the future
+     * exceptionally. As in {@link #createOrder}, a failed upload or write undoes the other.
+     * The notification is published without waiting for it; if that fails it is handed to
+     * the dispatcher, which retries.
+     */
+    public CompletableFuture<Order> createOrderAsync(String customerName, String orderAmount, String orderDate,
+                                                     MultipartFile invoiceFile) throws IOException {
+        Order order = buildOrder(customerName, orderAmount, orderDate);
+        SpooledMultipartFile spooledInvoice = invoiceFile != null && !invoiceFile.isEmpty()
+                ? SpooledMultipartFile.spool(invoiceFile)
+                : null;
+
+        try {
+            return runPipelineAsync(order, spooledInvoice)
+                    .whenComplete((created, e) -> deleteQuietly(spooledInvoice));
+        } catch (RuntimeException e) {
+            deleteQuietly(spooledInvoice);
+            throw e;
+        }
+    }
+
+    /**
+     * Reserves an order ID and issues a presigned PUT URL for its invoice, so the client can
+     * upload the bytes straight to S3. The order is then created with
+     * {@link #createOrderWithUploadedInvoice} using the returned invoice key.
+     */
+    public PresignedInvoiceUrl presignInvoiceUpload(String fileName, String contentType) {
         String orderId = UUID.randomUUID().toString();
-        
-        // Build the order object
-        Order order = Order.builder()
-                .orderId(orderId)
-                .customerName(customerName)
-                .orderAmount(new java.math.BigDecimal(orderAmount))
-                .orderDate(LocalDate.parse(orderDate))
-                .build();
-        
-        // Upload invoice file to S3 if provided
-        if (invoiceFile != null && !invoiceFile.isEmpty()) {
-            String key = String.format("invoices/%s/%s", orderId, invoiceFile.getOriginalFilename());
-            String fileUrl = s3Service.uploadFile(key, invoiceFile);
-            order.setInvoiceFileUrl(fileUrl);
-        }
-        
-        // Save order to DynamoDB
-        dynamoDbService.saveOrder(order);
-        
-        // Send notification via SNS
-        snsService.sendOrderNotification(order);
-        
+        return s3Service.presignUpload(orderId, invoiceKey(orderId, fileName), contentType);
+    }
+
+    /**
+     * Creates the order an invoice was uploaded for with a presigned URL. The order takes the
+     * ID reserved in the invoice key, and is only created once S3 confirms the upload.
+     *
+     * @throws IllegalArgumentException    if a field is invalid or the invoice has not been uploaded
+     * @throws OrderAlreadyExistsException if the reserved order has already been created
+     */
+    public Order createOrderWithUploadedInvoice(String customerName, String orderAmount, String orderDate,
+                                                String invoiceKey) throws IOException {
+        Matcher key = UPLOADED_INVOICE_KEY.matcher(invoiceKey);
+        if (!key.matches()) {
+            throw new IllegalArgumentException("Invalid invoiceKey: " + invoiceKey);
+        }
+        Order order = buildOrder(customerName, orderAmount, orderDate);
+        order.setOrderId(key.group(1));
+
+        if (!dependencyGuards.call(Dependency.S3, () -> s3Service.fileExists(invoiceKey))) {
+            throw new IllegalArgumentException("Invoice has not been uploaded: " + invoiceKey);
+        }
+
+        order.setInvoiceFileUrl(s3Service.getFileUrl(invoiceKey));
+        try {
+            // Conditional, so two submissions of the same invoice key cannot both create the order
+            runPipeline(order, null, "presigned", true);
+        } catch (ConditionalCheckFailedException e) {
+            throw new OrderAlreadyExistsException(order.getOrderId());
+        }
+        return order;
+    }
+
+    /**
+     * Accepts an order and creates it in the background. The invoice is spooled to a
+     * temporary file first because the multipart upload disappears with the request.
+     * Progress can be followed through {@link #getOrderStatus(String)}.
+     */
+    public Order submitOrder(String customerName, String orderAmount, String orderDate, MultipartFile invoiceFile) throws IOException {
+        Order order = buildOrder(customerName, orderAmount, orderDate);
+        SpooledMultipartFile spooledInvoice = invoiceFile != null && !invoiceFile.isEmpty()
+                ? SpooledMultipartFile.spool(invoiceFile)
+                : null;
+
+        orderStatusRegistry.accepted(order.getOrderId());
+        pipelineExecutor.execute(() -> {
+            try {
+                runPipeline(order, spooledInvoice, "async", false);
+                orderStatusRegistry.completed(order.getOrderId());
+            } catch (IOException | RuntimeException e) {
+                log.error("Asynchronous creation of order {} failed", order.getOrderId(), e);
+                orderStatusRegistry.failed(order.getOrderId(), e.getMessage());
+            } finally {
+                deleteQuietly(spooledInvoice);
+            }
+        });
         return order;
     }
 
+    /**
+     * Returns the state of an order accepted asynchronously. Orders no longer tracked
+     * are reported as completed if they exist, and as unknown (null) otherwise.
+     */
+    public OrderStatus getOrderStatus(String orderId) {
+        OrderStatus status = orderStatusRegistry.get(orderId);
+        if (status != null) {
+            return status;
+        }
+        return getOrder(orderId) != null ? new OrderStatus(orderId, OrderStatus.State.COMPLETED, null) : null;
+    }
+
+    /**
+     * Returns the order, from the cache when possible. While DynamoDB is unavailable an
+     * expired cache entry is served rather than failing the read.
+     *
+     * @throws DependencyUnavailableException if DynamoDB is unavailable and the order is not cached
+     */
     public Order getOrder(String orderId) {
-        return dynamoDbService.getOrder(orderId);
+        try {
+            return orderCache.get(orderId, id -> dependencyGuards.call(Dependency.DYNAMODB, () -> dynamoDbService.getOrder(id)));
+        } catch (DependencyUnavailableException e) {
+            return staleOrFail(orderId, e);
+        }
     }
 
-    public List<Order> getAllOrders() {
-        return dynamoDbService.getAllOrders();
+    /**
+     * Non-blocking {@link #getOrder}; cache hits complete immediately.
+     */
+    public CompletableFuture<Order> getOrderAsync(String orderId) {
+        return orderCache.getAsync(orderId, id -> dependencyGuards.callAsync(Dependency.DYNAMODB, () -> dynamoDbService.getOrderAsync(id)))
+                .exceptionally(e -> {
+                    Throwable cause = unwrap(e);
+                    if (cause instanceof DependencyUnavailableException) {
+                        return staleOrFail(orderId, (DependencyUnavailableException) cause);
+                    }
+                    throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                });
     }
 
-    public byte[] getInvoice(String orderId) throws IOException {
-        Order order = dynamoDbService.getOrder(orderId);
+    private Order staleOrFail(String orderId, DependencyUnavailableException e) {
+        Order stale = orderCache.getStale(orderId);
+        if (stale == null) {
+            throw e;
+        }
+        dependencyGuards.recordFallback(Dependency.DYNAMODB, "stale-cache");
+        return stale;
+    }
+
+    public OrderPage getOrders(int limit, String nextToken) {
+        return dependencyGuards.call(Dependency.DYNAMODB, () -> dynamoDbService.getOrders(limit, nextToken));
+    }
+
+    /**
+     * Non-blocking {@link #getOrders}.
+     *
+     * @throws IllegalArgumentException if {@code nextToken} is invalid
+     */
+    public CompletableFuture<OrderPage> getOrdersAsync(int limit, String nextToken) {
+        return dependencyGuards.callAsync(Dependency.DYNAMODB, () -> dynamoDbService.getOrdersAsync(limit, nextToken));
+    }
+
+    /**
+     * Reads one page of orders matching the filters through a secondary index: the
+     * customer index when {@code customerName} is given (dates optional), otherwise the
+     * order date index, which needs both {@code from} and {@code to}. Dates are inclusive.
+     */
+    public OrderPage findOrders(String customerName, LocalDate from, LocalDate to, int limit, String nextToken) {
+        if (customerName != null) {
+            return dependencyGuards.call(Dependency.DYNAMODB,
+                    () -> dynamoDbService.queryByCustomer(customerName, from, to, limit, nextToken));
+        }
+        return dependencyGuards.call(Dependency.DYNAMODB, () -> dynamoDbService.queryByDateRange(from, to, limit, nextToken));
+    }
+
+    /**
+     * Walks the whole table one scan page at a time, handing each page to {@code action}
+     * before the next one is requested. Each page is read under the DynamoDB guard on its
+     * own, so the bulkhead permit is not held while {@code action} writes the page out and
+     * a long walk is not timed as one slow call.
+     */
+    public void forEachOrderPage(Consumer<List<Order>> action) {
+        String nextToken = null;
+        do {
+            String token = nextToken;
+            OrderPage page = dependencyGuards.call(Dependency.DYNAMODB, () -> dynamoDbService.scanPage(token));
+            if (!page.getOrders().isEmpty()) {
+                action.accept(page.getOrders());
+            }
+            nextToken = page.getNextToken();
+        } while (nextToken != null);
+    }
+
+    /**
+     * A counter moved by every order write made through this service, including failed
+     * ones and the removal of half-created orders. Read it before listing orders: if it
+     * has not moved since, no order written here has changed the result.
+     */
+    public long getCollectionVersion() {
+        return collectionVersion.get();
+    }
+
+    /**
+     * Non-blocking download of the invoice of an order, held in memory once complete. The
+     * future completes with null if the order or its invoice does not exist.
+     */
+    public CompletableFuture<InvoiceDownload> openInvoiceAsync(String orderId) {
+        return getOrderAsync(orderId).thenCompose(order -> order == null || order.getInvoiceFileUrl() == null
+                ? CompletableFuture.completedFuture(null)
+                : dependencyGuards.callAsync(Dependency.S3, () -> s3Service.openFileAsync(invoiceKey(order))));
+    }
+
+    /**
+     * Opens the invoice of an order for streaming, honouring an HTTP {@code Range} and
+     * {@code If-None-Match} header.
+     *
+     * @return the open download, or {@code null} if the order or its invoice does not exist
+     */
+    public InvoiceDownload openInvoice(String orderId, String range, String ifNoneMatch) {
+        Order order = getOrder(orderId);
+        if (order == null || order.getInvoiceFileUrl() == null) {
+            return null;
+        }
+        return dependencyGuards.call(Dependency.S3, () -> s3Service.openFile(invoiceKey(order), range, ifNoneMatch));
+    }
+
+    /**
+     * Issues a presigned GET URL for the invoice of an order.
+     *
+     * @return the URL, or {@code null} if the order or its invoice does not exist
+     */
+    public PresignedInvoiceUrl presignInvoiceDownload(String orderId) {
+        Order order = getOrder(orderId);
         if (order == null || order.getInvoiceFileUrl() == null) {
-            throw new RuntimeException("Invoice not found for order: " + orderId);
+            return null;
         }
-        
+        return s3Service.presignDownload(orderId, invoiceKey(order));
+    }
+
+    private static String invoiceKey(String orderId, String fileName) {
+        // Keep only the last path segment and characters that need no escaping in a URL
+        String name = fileName == null ? "" : fileName.substring(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1);
+        name = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        return String.format("invoices/%s/%s", orderId, name.isEmpty() || name.matches("\\.+") ? "invoice" : name);
+    }
+
+    private static String invoiceKey(Order order) {
         // Extract the key from the URL
         String url = order.getInvoiceFileUrl();
-        String key = url.substring(url.indexOf(".com/") + 5);
-        
-        return s3Service.downloadFile(key);
+        return url.substring(url.indexOf(".com/") + 5);
+    }
+
+    /**
+     * Validates the order fields and builds a new order with a fresh ID.
+     *
+     * @throws IllegalArgumentException if a field is missing or malformed
+     */
+    public Order buildOrder(String customerName, String orderAmount, String orderDate) {
+        if (customerName == null || customerName.isBlank()) {
+            throw new IllegalArgumentException("customerName is required");
+        }
+
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(orderAmount);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid orderAmount: " + orderAmount);
+        }
+
+        LocalDate date;
+        try {
+            date = LocalDate.parse(orderDate);
+        } catch (DateTimeParseException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid orderDate: " + orderDate);
+        }
+
+        // Generate a unique order ID
+        String orderId = UUID.randomUUID().toString();
+
+        return Order.builder()
+                .orderId(orderId)
+                .customerName(customerName)
+                .orderAmount(amount)
+                .orderDate(date)
+                .build();
+    }
+
+    /**
+     * Saves an already validated order through the write-behind buffer, for bulk
+     * ingestion. The future completes with the order once it is durable and its
+     * notification has been queued.
+     */
+    public CompletableFuture<Order> saveBufferedOrder(Order order) {
+        return orderWriteBuffer.save(order)
+                .whenComplete((saved, e) -> collectionVersion.incrementAndGet())
+                .thenApply(saved -> {
+                    orderCache.onSave(order);
+                    notificationDispatcher.dispatch(order);
+                    return order;
+                });
+    }
+
+    /**
+     * Runs the creation stages for {@code order}. The invoice upload runs on the pipeline
+     * executor while the order is written to DynamoDB on the current thread; the invoice
+     * URL is known up front, so neither has to wait for the other. If one of the two fails
+     * the other is undone. The SNS notification is handed to the dispatcher afterwards.
+     *
+     * @param create write the order with {@link DynamoDbService#createOrder}, failing if its ID is taken
+     */
+    private void runPipeline(Order order, MultipartFile invoiceFile, String mode, boolean create) throws IOException {
+        Timer.Sample total = Timer.start(meterRegistry);
+
+        CompletableFuture<Void> upload = CompletableFuture.completedFuture(null);
+        String invoiceKey = null;
+        if (invoiceFile != null && !invoiceFile.isEmpty()) {
+            invoiceKey = String.format("invoices/%s/%s", order.getOrderId(), invoiceFile.getOriginalFilename());
+            order.setInvoiceFileUrl(s3Service.getFileUrl(invoiceKey));
+
+            String key = invoiceKey;
+            upload = CompletableFuture.runAsync(() -> timed("invoice-upload", mode, () -> dependencyGuards.run(Dependency.S3, () -> {
+                try {
+                    s3Service.uploadFile(key, invoiceFile);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            })), pipelineExecutor);
+        }
+
+        try {
+            timed("save", mode, () -> saveOrder(order, create));
+        } catch (RuntimeException e) {
+            if (invoiceKey != null && awaitQuietly(upload)) {
+                deleteInvoiceQuietly(invoiceKey);
+            }
+            throw e;
+        }
+
+        try {
+            upload.join();
+        } catch (CompletionException e) {
+            deleteOrderQuietly(order.getOrderId());
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+
+        orderCache.onSave(order);
+        timed("notify", mode, () -> notificationDispatcher.dispatch(order));
+        total.stop(stageTimer("total", mode));
+    }
+
+    /**
+     * {@link #runPipeline} on the async clients: the upload and the write are both in flight
+     * at once, and the result is assembled on whichever SDK thread completes last.
+     */
+    private CompletableFuture<Order> runPipelineAsync(Order order, SpooledMultipartFile invoiceFile) {
+        String mode = "nonblocking";
+        Timer.Sample total = Timer.start(meterRegistry);
+
+        CompletableFuture<String> upload = CompletableFuture.completedFuture(null);
+        String invoiceKey = null;
+        if (invoiceFile != null) {
+            invoiceKey = String.format("invoices/%s/%s", order.getOrderId(), invoiceFile.getOriginalFilename());
+            order.setInvoiceFileUrl(s3Service.getFileUrl(invoiceKey));
+
+            String key = invoiceKey;
+            upload = timedAsync("invoice-upload", mode, () -> dependencyGuards.callAsync(Dependency.S3,
+                    () -> s3Service.uploadFileAsync(key, invoiceFile.getPath(), invoiceFile.getContentType())));
+        }
+        CompletableFuture<Void> save = timedAsync("save", mode, () -> saveOrderAsync(order));
+
+        String key = invoiceKey;
+        return upload.handle((url, uploadError) -> uploadError)
+                .thenCombine(save.handle((saved, saveError) -> saveError), (uploadError, saveError) -> {
+                    if (saveError != null) {
+                        if (key != null && uploadError == null) {
+                            s3Service.deleteFileAsync(key).exceptionally(e -> {
+                                log.warn("Failed to remove orphaned invoice {}", key, e);
+                                return null;
+                            });
+                        }
+                        throw new CompletionException(unwrap(saveError));
+                    }
+                    if (uploadError != null) {
+                        dynamoDbService.deleteOrderAsync(order.getOrderId()).exceptionally(e -> {
+                            log.warn("Failed to remove order {} after its invoice upload failed", order.getOrderId(), e);
+                            return null;
+                        }).thenRun(() -> {
+                            orderCache.invalidate(order.getOrderId());
+                            collectionVersion.incrementAndGet();
+                        });
+                        throw new CompletionException(unwrap(uploadError));
+                    }
+
+                    orderCache.onSave(order);
+                    timed("notify", mode, () -> notificationDispatcher.dispatch(order));
+                    total.stop(stageTimer("total", mode));
+                    return order;
+                });
+    }
+
+    private CompletableFuture<Void> saveOrderAsync(Order order) {
+        return dependencyGuards.callAsync(Dependency.DYNAMODB, () -> orderWriteBuffer.isWriteBehindEnabled()
+                ? orderWriteBuffer.save(order)
+                : dynamoDbService.saveOrderAsync(order))
+                .whenComplete((saved, e) -> collectionVersion.incrementAndGet());
+    }
+
+    /**
+     * Writes the order directly, or through the write-behind buffer when batching is
+     * enabled. Either way the order is durable when this returns. A {@code create} is always
+     * written directly, as a batched write cannot carry its condition.
+     */
+    private void saveOrder(Order order, boolean create) {
+        try {
+            dependencyGuards.run(Dependency.DYNAMODB, () -> {
+                if (create) {
+                    dynamoDbService.createOrder(order);
+                    return;
+                }
+                if (!orderWriteBuffer.isWriteBehindEnabled()) {
+                    dynamoDbService.saveOrder(order);
+                    return;
+                }
+                try {
+                    orderWriteBuffer.save(order).join();
+                } catch (CompletionException e) {
+                    throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                }
+            });
+        } finally {
+            // Even a failed write may have landed
+            collectionVersion.incrementAndGet();
+        }
+    }
+
+    private void timed(String stage, String mode, Runnable action) {
+        stageTimer(stage, mode).record(action);
+    }
+
+    private <T> CompletableFuture<T> timedAsync(String stage, String mode, Supplier<CompletableFuture<T>> action) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return action.get().whenComplete((result, e) -> sample.stop(stageTimer(stage, mode)));
+    }
+
+    private Timer stageTimer(String stage, String mode) {
+        return Timer.builder("orders.create.stage")
+                .description("Latency of each order creation stage")
+                .tag("stage", stage)
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private static boolean awaitQuietly(CompletableFuture<Void> future) {
+        try {
+            future.join();
+            return true;
+        } catch (CompletionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Removes an order whose invoice upload failed. A failure is only logged, so the caller
+     * still reports the upload error; either way a read that cached the order meanwhile is
+     * dropped.
+     */
+    private void deleteOrderQuietly(String orderId) {
+        try {
+            dynamoDbService.deleteOrder(orderId);
+        } catch (RuntimeException e) {
+            log.warn("Failed to remove order {} after its invoice upload failed", orderId, e);
+        } finally {
+            orderCache.invalidate(orderId);
+            collectionVersion.incrementAndGet();
+        }
+    }
+
+    private void deleteInvoiceQuietly(String key) {
+        try {
+            s3Service.deleteFile(key);
+        } catch (RuntimeException e) {
+            log.warn("Failed to remove orphaned invoice {}", key, e);
+        }
+    }
+
+    private static void deleteQuietly(SpooledMultipartFile file) {
+        if (file != null) {
+            try {
+                file.delete();
+            } catch (IOException e) {
+                log.warn("Failed to delete spooled invoice {}", file.getPath(), e);
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package com.example.orderservice.service;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.orderservice.model.OrderStatus;
+
+/**
+ * Remembers the state of recently accepted asynchronous orders so clients can poll
+ * the status URL returned with 202 Accepted. Only the most recent
+ * {@code orders.pipeline.statusRetention} orders are kept.
+ */
+@Component
+public class OrderStatusRegistry {
+
+    private final int retention;
+    private final Map<String, OrderStatus> statuses = new ConcurrentHashMap<>();
+    private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    public OrderStatusRegistry(@Value("${orders.pipeline.statusRetention:10000}") int retention) {
+        this.retention = retention;
+    }
+
+    public void accepted(String orderId) {
+        if (statuses.put(orderId, new OrderStatus(orderId, OrderStatus.State.ACCEPTED, null)) == null) {
+            insertionOrder.add(orderId);
+            while (statuses.size() > retention) {
+                String eldest = insertionOrder.poll();
+                if (eldest == null) {
+                    break;
+                }
+                statuses.remove(eldest);
+            }
+        }
+    }
+
+    public void completed(String orderId) {
+        statuses.computeIfPresent(orderId, (id, status) -> new OrderStatus(id, OrderStatus.State.COMPLETED, null));
+    }
+
+    public void failed(String orderId, String message) {
+        statuses.computeIfPresent(orderId, (id, status) -> new OrderStatus(id, OrderStatus.State.FAILED, message));
+    }
+
+    /**
+     * Returns the tracked status, or null when the order was never accepted here or has aged out.
+     */
+    public OrderStatus get(String orderId) {
+        return statuses.get(orderId);
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.orderservice.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.orderservice.model.Order;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Write-behind buffer that coalesces order saves into DynamoDB BatchWriteItem calls.
+ * <p>
+ * Saves are collected until {@code maxBatchSize} orders are waiting or the oldest has
+ * waited {@code maxDelay}, then written together. Items DynamoDB leaves unprocessed are
+ * retried with exponential backoff and jitter. Each save gets its own future that
+ * completes once that order is durable, so callers can still wait for their write.
+ * Saving the same order twice before it is flushed writes only the latest version.
+ * At most {@code capacity} saves may be outstanding; further callers block.
+ */
+@Component
+public class OrderWriteBuffer {
+
+    private final DynamoDbService dynamoDbService;
+    private final boolean writeBehindEnabled;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final Semaphore capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchReady = lock.newCondition();
+    private final LinkedHashMap<String, PendingWrite> pending = new LinkedHashMap<>();
+    private long oldestPendingNanos;
+    private boolean running = true;
+
+    private final Thread flusher;
+    private final ThreadPoolExecutor batchWriters;
+
+    private final DistributionSummary batchSizes;
+    private final Timer batchLatency;
+    private final Counter unprocessedRetries;
+
+    public OrderWriteBuffer(DynamoDbService dynamoDbService,
+                            MeterRegistry meterRegistry,
+                            @Value("${orders.write.batching.enabled:false}") boolean writeBehindEnabled,
+                            @Value("${orders.write.batching.maxBatchSize:25}") int maxBatchSize,
+                            @Value("${orders.write.batching.maxDelay:10ms}") Duration maxDelay,
+                            @Value("${orders.write.batching.writerThreads:4}") int writerThreads,
+                            @Value("${orders.write.batching.capacity:10000}") int capacity,
+                            @Value("${orders.write.batching.maxAttempts:8}") int maxAttempts,
+                            @Value("${orders.write.batching.initialBackoff:50ms}") Duration initialBackoff) {
+        if (maxBatchSize < 1 || maxBatchSize > DynamoDbService.MAX_BATCH_WRITE_ITEMS) {
+            throw new IllegalArgumentException("maxBatchSize must be between 1 and " + DynamoDbService.MAX_BATCH_WRITE_ITEMS);
+        }
+        this.dynamoDbService = dynamoDbService;
+        this.writeBehindEnabled = writeBehindEnabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.capacity = new Semaphore(capacity);
+
+        this.batchSizes = DistributionSummary.builder("orders.write.batch.size")
+                .description("Orders per BatchWriteItem call")
+                .register(meterRegistry);
+        this.batchLatency = Timer.builder("orders.write.batch.latency")
+                .description("Time until every order of a batch is durable, including retries")
+                .register(meterRegistry);
+        this.unprocessedRetries = meterRegistry.counter("orders.write.batch.unprocessed.retries");
+        meterRegistry.gauge("orders.write.buffer.pending", this.capacity, permits -> capacity - permits.availablePermits());
+
+        // Hand batches to a small writer pool; when it is saturated the flusher writes
+        // batches itself, which stops it from draining the buffer any faster
+        AtomicInteger threadCount = new AtomicInteger();
+        this.batchWriters = new ThreadPoolExecutor(writerThreads, writerThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(writerThreads),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "order-batch-writer-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.flusher = new Thread(this::flushLoop, "order-batch-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Whether single order saves should go through this buffer
+     * ({@code orders.write.batching.enabled}). Bulk writers always use it.
+     */
+    public boolean isWriteBehindEnabled() {
+        return writeBehindEnabled;
+    }
+
+    /**
+     * Queues {@code order} for the next batch. The returned future completes when the
+     * order has been written, or exceptionally once all attempts have failed.
+     */
+    public CompletableFuture<Void> save(Order order) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        lock.lock();
+        try {
+            if (!running) {
+                capacity.release();
+                future.completeExceptionally(new IllegalStateException("Order write buffer is shut down"));
+                return future;
+            }
+            PendingWrite existing = pending.get(order.getOrderId());
+            if (existing != null) {
+                existing.order = order;
+                existing.futures.add(future);
+            } else {
+                pending.put(order.getOrderId(), new PendingWrite(order, future));
+                if (pending.size() == 1) {
+                    oldestPendingNanos = System.nanoTime();
+                    batchReady.signal();
+                }
+            }
+            if (pending.size() >= maxBatchSize) {
+                batchReady.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return future;
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<PendingWrite> batch;
+            lock.lock();
+            try {
+                while (pending.isEmpty()) {
+                    if (!running) {
+                        return;
+                    }
+                    batchReady.await();
+                }
+                long waitNanos = oldestPendingNanos + maxDelayNanos - System.nanoTime();
+                while (running && pending.size() < maxBatchSize && waitNanos > 0) {
+                    waitNanos = batchReady.awaitNanos(waitNanos);
+                }
+                batch = takeBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            batchWriters.execute(() -> writeBatch(batch));
+        }
+    }
+
+    private List<PendingWrite> takeBatch() {
+        List<PendingWrite> batch = new ArrayList<>(Math.min(maxBatchSize, pending.size()));
+        Iterator<PendingWrite> iterator = pending.values().iterator();
+        while (iterator.hasNext() && batch.size() < maxBatchSize) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+        // Orders left behind start a fresh deadline
+        oldestPendingNanos = System.nanoTime();
+        return batch;
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        Timer.Sample sample = Timer.start();
+        batchSizes.record(batch.size());
+
+        List<PendingWrite> remaining = batch;
+        RuntimeException lastFailure = null;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                List<Order> unprocessed = dynamoDbService.batchSaveOrders(
+                        remaining.stream().map(write -> write.order).collect(Collectors.toList()));
+                Set<String> unprocessedIds = unprocessed.stream().map(Order::getOrderId).collect(Collectors.toSet());
+
+                List<PendingWrite> retry = new ArrayList<>(unprocessedIds.size());
+                for (PendingWrite write : remaining) {
+                    if (unprocessedIds.contains(write.order.getOrderId())) {
+                        retry.add(write);
+                    } else {
+                        complete(write, null);
+                    }
+                }
+                remaining = retry;
+                lastFailure = null;
+            } catch (RuntimeException e) {
+                lastFailure = e;
+            }
+
+            if (remaining.isEmpty()) {
+                break;
+            }
+            if (attempt >= maxAttempts) {
+                RuntimeException failure = lastFailure != null
+                        ? lastFailure
+                        : new IllegalStateException("DynamoDB left orders unprocessed after " + attempt + " attempts");
+                remaining.forEach(write -> complete(write, failure));
+                break;
+            }
+
+            unprocessedRetries.increment(remaining.size());
+            if (!sleepBeforeRetry(attempt)) {
+                RuntimeException failure = new IllegalStateException("Interrupted while retrying batch write");
+                remaining.forEach(write -> complete(write, failure));
+                break;
+            }
+        }
+        sample.stop(batchLatency);
+    }
+
+    private boolean sleepBeforeRetry(int attempt) {
+        long backoffMillis = initialBackoffMillis << Math.min(attempt - 1, 10);
+        try {
+            // Full jitter keeps concurrent writers from retrying in lockstep
+            Thread.sleep(ThreadLocalRandom.current().nextLong(backoffMillis / 2, backoffMillis + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void complete(PendingWrite write, Throwable failure) {
+        for (CompletableFuture<Void> future : write.futures) {
+            capacity.release();
+            if (failure == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    /**
+     * Stops accepting saves, flushes everything still buffered and waits for the writes.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        lock.lock();
+        try {
+            running = false;
+            batchReady.signal();
+        } finally {
+            lock.unlock();
+        }
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        batchWriters.shutdown();
+        batchWriters.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private static final class PendingWrite {
+        private Order order;
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>(1);
+
+        private PendingWrite(Order order, CompletableFuture<Void> future) {
+            this.order = order;
+            this.futures.add(future);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.orderservice.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/**
+ * Encodes a DynamoDB LastEvaluatedKey as an opaque, URL-safe page token and back.
+ * Only string and number key attributes are supported, which covers every key
+ * schema used for orders.
+ */
+final class PageTokenCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Map<String, String>>> TOKEN_TYPE = new TypeReference<>() {};
+
+    private PageTokenCodec() {
+    }
+
+    static String encode(Map<String, AttributeValue> key) {
+        if (key == null || key.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Map<String, String>> token = new LinkedHashMap<>();
+        key.forEach((name, value) -> {
+            if (value.s() != null) {
+                token.put(name, Map.of("S", value.s()));
+            } else if (value.n() != null) {
+                token.put(name, Map.of("N", value.n()));
+            } else {
+                throw new IllegalArgumentException("Unsupported key attribute type for " + name);
+            }
+        });
+
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(token));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode page token", e);
+        }
+    }
+
+    /**
+     * Decodes {@code token}, which must hold every one of {@code requiredAttributes}.
+     *
+     * @return the key, or null for no token
+     * @throws IllegalArgumentException if the token is malformed or lacks a required attribute
+     */
+    static Map<String, AttributeValue> decode(String token, String... requiredAttributes) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        Map<String, Map<String, String>> decoded;
+        try {
+            decoded = MAPPER.readValue(Base64.getUrlDecoder().decode(token.getBytes(StandardCharsets.US_ASCII)), TOKEN_TYPE);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+        // "null" and "{}" are valid JSON, but no key
+        if (decoded == null || decoded.isEmpty()) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+
+        Map<String, AttributeValue> key = new LinkedHashMap<>();
+        decoded.forEach((name, value) -> {
+            if (value != null && value.get("S") != null) {
+                key.put(name, AttributeValue.builder().s(value.get("S")).build());
+            } else if (value != null && value.get("N") != null) {
+                key.put(name, AttributeValue.builder().n(value.get("N")).build());
+            } else {
+                throw new IllegalArgumentException("Invalid page token");
+            }
+        });
+        for (String attribute : requiredAttributes) {
+            if (!key.containsKey(attribute)) {
+                throw new IllegalArgumentException("Invalid page token");
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Reads a date key attribute of a decoded token.
+     *
+     * @throws IllegalArgumentException if the attribute is not an ISO date
+     */
+    static LocalDate date(Map<String, AttributeValue> key, String name) {
+        AttributeValue value = key.get(name);
+        if (value == null || value.s() == null) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        try {
+            return LocalDate.parse(value.s());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid page token", e);
+        }
+    }
+}
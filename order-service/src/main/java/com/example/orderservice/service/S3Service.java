@@ -1,49 +1,449 @@
 package com.example.orderservice.service;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.orderservice.model.PresignedInvoiceUrl;
+
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.awscore.presigner.PresignedRequest;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
 @Service
 public class S3Service {
 
+    /**
+     * Smallest part size S3 accepts for every part but the last.
+     */
+    public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    /**
+     * The single byte range form S3 GetObject understands, e.g. {@code bytes=0-99},
+     * {@code bytes=100-} or {@code bytes=-100}.
+     */
+    static final Pattern SINGLE_BYTE_RANGE = Pattern.compile("bytes=(\\d+-\\d*|-\\d+)");
+
     private final S3Client s3Client;
+    private final S3Presigner s3Presigner;
+    private final S3AsyncClient s3AsyncClient;
     private final String bucketName;
+    private final long multipartThreshold;
+    private final int partSize;
+    private final int partsInFlight;
+    private final ThreadPoolExecutor partUploaders;
+    private final Duration presignTtl;
+
+    public S3Service(S3Client s3Client, String bucketName) {
+        this(s3Client, null, null, bucketName, DataSize.ofMegabytes(16), DataSize.ofMegabytes(8), 4, 8, Duration.ofMinutes(15));
+    }
 
-    public S3Service(S3Client s3Client, @Value("${aws.s3.bucketName}") String bucketName) {
+    /**
+     * @param s3AsyncClient      client for the {@code *Async} methods; they are unavailable when null
+     * @param multipartThreshold files larger than this are sent as an S3 multipart upload
+     * @param partSize           size of each multipart part; one buffer of this size is held per part in flight
+     * @param partsInFlight      parts of a single upload that may be buffered or uploading at the same time
+     * @param uploadThreads      threads shared by all uploads for sending parts
+     * @param presignTtl         how long presigned invoice URLs stay valid
+     */
+    @Autowired
+    public S3Service(S3Client s3Client,
+                     S3Presigner s3Presigner,
+                     S3AsyncClient s3AsyncClient,
+                     @Value("${aws.s3.bucketName}") String bucketName,
+                     @Value("${aws.s3.multipart.threshold:16MB}") DataSize multipartThreshold,
+                     @Value("${aws.s3.multipart.partSize:8MB}") DataSize partSize,
+                     @Value("${aws.s3.multipart.partsInFlight:4}") int partsInFlight,
+                     @Value("${aws.s3.multipart.uploadThreads:8}") int uploadThreads,
+                     @Value("${aws.s3.presign.ttl:15m}") Duration presignTtl) {
+        if (partSize.toBytes() < MIN_PART_SIZE || partSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("partSize must be between 5MB and 2GB");
+        }
         this.s3Client = s3Client;
+        this.s3Presigner = s3Presigner;
+        this.s3AsyncClient = s3AsyncClient;
         this.bucketName = bucketName;
+        this.multipartThreshold = Math.max(multipartThreshold.toBytes(), partSize.toBytes());
+        this.partSize = (int) partSize.toBytes();
+        this.partsInFlight = partsInFlight;
+        this.presignTtl = presignTtl;
+
+        // Part buffers are bounded per upload, so the queue only ever holds parts whose
+        // buffers are already allocated; it never grows heap use on its own
+        AtomicInteger threadCount = new AtomicInteger();
+        this.partUploaders = new ThreadPoolExecutor(uploadThreads, uploadThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "s3-part-upload-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.partUploaders.allowCoreThreadTimeOut(true);
     }
 
+    /**
+     * Streams {@code file} to S3 without copying it into a byte array. Small files are sent
+     * with a single PutObject whose body is re-opened from the multipart file on every
+     * attempt; files above {@code aws.s3.multipart.threshold} are sent as a multipart upload.
+     */
     public String uploadFile(String key, MultipartFile file) throws IOException {
+        long size = file.getSize();
+        if (size > multipartThreshold) {
+            uploadMultipart(key, file, size);
+            return getFileUrl(key);
+        }
+
         PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                 .bucket(bucketName)
                 .key(key)
                 .contentType(file.getContentType())
+                .contentLength(size)
                 .build();
 
-        s3Client.putObject(putObjectRequest, RequestBody.fromBytes(file.getBytes()));
+        s3Client.putObject(putObjectRequest, RequestBody.fromContentProvider(() -> {
+            try {
+                return file.getInputStream();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, size, contentTypeOrDefault(file)));
+
+        return getFileUrl(key);
+    }
+
+    private void uploadMultipart(String key, MultipartFile file, long size) throws IOException {
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(file.getContentType())
+                .build()).uploadId();
+
+        // Parts are read sequentially from the request stream into a fixed set of reusable
+        // buffers; reading the next part waits until an earlier part has been sent
+        BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(partsInFlight);
+        int allocatedBuffers = 0;
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        try (InputStream in = file.getInputStream()) {
+            long remaining = size;
+            for (int partNumber = 1; remaining > 0; partNumber++) {
+                byte[] buffer = freeBuffers.poll();
+                if (buffer == null && allocatedBuffers < partsInFlight) {
+                    buffer = new byte[partSize];
+                    allocatedBuffers++;
+                } else if (buffer == null) {
+                    buffer = freeBuffers.take();
+                }
 
+                int length = readFully(in, buffer, (int) Math.min(partSize, remaining));
+                if (length == 0) {
+                    throw new IOException("Invoice ended " + remaining + " bytes early");
+                }
+                remaining -= length;
+
+                byte[] partBuffer = buffer;
+                int currentPart = partNumber;
+                parts.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return uploadPart(key, uploadId, currentPart, partBuffer, length);
+                    } finally {
+                        freeBuffers.add(partBuffer);
+                    }
+                }, partUploaders));
+                failFast(parts);
+            }
+
+            List<CompletedPart> completedParts = CompletableFuture.allOf(parts.toArray(new CompletableFuture[0]))
+                    .thenApply(done -> parts.stream()
+                            .map(CompletableFuture::join)
+                            .sorted(Comparator.comparing(CompletedPart::partNumber))
+                            .collect(Collectors.toList()))
+                    .join();
+
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                    .build());
+        } catch (CompletionException e) {
+            abortMultipart(key, uploadId, parts);
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        } catch (IOException | RuntimeException e) {
+            abortMultipart(key, uploadId, parts);
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortMultipart(key, uploadId, parts);
+            throw new IOException("Interrupted while uploading invoice", e);
+        }
+    }
+
+    private CompletedPart uploadPart(String key, String uploadId, int partNumber, byte[] buffer, int length) {
+        UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .contentLength((long) length)
+                .build();
+
+        // The content provider wraps the shared buffer instead of copying it like fromBytes would
+        String eTag = s3Client.uploadPart(uploadPartRequest, RequestBody.fromContentProvider(
+                () -> new ByteArrayInputStream(buffer, 0, length), length, "application/octet-stream")).eTag();
+        return CompletedPart.builder().partNumber(partNumber).eTag(eTag).build();
+    }
+
+    private static void failFast(List<CompletableFuture<CompletedPart>> parts) {
+        for (CompletableFuture<CompletedPart> part : parts) {
+            if (part.isCompletedExceptionally()) {
+                part.join();
+            }
+        }
+    }
+
+    private void abortMultipart(String key, String uploadId, List<CompletableFuture<CompletedPart>> parts) {
+        // Let running parts finish first, otherwise they could recreate storage after the abort
+        parts.forEach(part -> part.handle((result, failure) -> null).join());
+        s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .build());
+    }
+
+    private static int readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int count = in.read(buffer, read, length - read);
+            if (count < 0) {
+                break;
+            }
+            read += count;
+        }
+        return read;
+    }
+
+    private static String contentTypeOrDefault(MultipartFile file) {
+        return file.getContentType() != null ? file.getContentType() : "application/octet-stream";
+    }
+
+    /**
+     * Non-blocking upload of a file already on local disk, read by the SDK as it is sent. The
+     * file is sent with a single PutObject (up to 5GB); invoices are far below that. The
+     * future completes with the object's URL.
+     */
+    public CompletableFuture<String> uploadFileAsync(String key, Path file, String contentType) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType != null ? contentType : "application/octet-stream")
+                .build();
+
+        return s3AsyncClient.putObject(putObjectRequest, AsyncRequestBody.fromFile(file))
+                .thenApply(response -> getFileUrl(key));
+    }
+
+    /**
+     * Returns the URL an object stored under {@code key} is (or will be) reachable at.
+     */
+    public String getFileUrl(String key) {
         return String.format("https://%s.s3.amazonaws.com/%s", bucketName, key);
     }
 
-    public byte[] downloadFile(String key) {
+    /**
+     * Issues a presigned PUT URL the client uploads the invoice for {@code orderId} to directly.
+     * When {@code contentType} is given it is signed in and must be sent as-is.
+     */
+    public PresignedInvoiceUrl presignUpload(String orderId, String key, String contentType) {
+        PutObjectPresignRequest presignRequest = PutObjectPresignRequest.builder()
+                .signatureDuration(presignTtl)
+                .putObjectRequest(PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(contentType)
+                        .build())
+                .build();
+        return toPresignedInvoiceUrl(orderId, key, s3Presigner.presignPutObject(presignRequest));
+    }
+
+    /**
+     * Issues a presigned GET URL the client downloads the invoice from directly.
+     */
+    public PresignedInvoiceUrl presignDownload(String orderId, String key) {
+        GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
+                .signatureDuration(presignTtl)
+                .getObjectRequest(GetObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .build())
+                .build();
+        return toPresignedInvoiceUrl(orderId, key, s3Presigner.presignGetObject(presignRequest));
+    }
+
+    private static PresignedInvoiceUrl toPresignedInvoiceUrl(String orderId, String key, PresignedRequest presigned) {
+        // Host is set by the client from the URL; every other signed header must be echoed back
+        Map<String, String> headers = presigned.signedHeaders().entrySet().stream()
+                .filter(header -> !header.getKey().equalsIgnoreCase("host"))
+                .collect(Collectors.toMap(Map.Entry::getKey, header -> String.join(",", header.getValue())));
+        return PresignedInvoiceUrl.builder()
+                .orderId(orderId)
+                .invoiceKey(key)
+                .method(presigned.httpRequest().method().name())
+                .url(presigned.url().toString())
+                .headers(headers)
+                .expiresAt(presigned.expiration())
+                .build();
+    }
+
+    /**
+     * Health probe: checks the invoice bucket exists and is accessible, failing if S3 cannot
+     * be reached within {@code timeout}.
+     */
+    public void probe(Duration timeout) {
+        s3Client.headBucket(HeadBucketRequest.builder()
+                .bucket(bucketName)
+                .overrideConfiguration(AwsRequestOverrideConfiguration.builder().apiCallTimeout(timeout).build())
+                .build());
+    }
+
+    /**
+     * Whether an object exists under {@code key}, e.g. to confirm a presigned upload.
+     */
+    public boolean fileExists(String key) {
+        try {
+            s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build());
+            return true;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    public void deleteFile(String key) {
+        DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+
+        s3Client.deleteObject(deleteObjectRequest);
+    }
+
+    /**
+     * Non-blocking {@link #deleteFile}.
+     */
+    public CompletableFuture<Void> deleteFileAsync(String key) {
+        return s3AsyncClient.deleteObject(DeleteObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build())
+                .thenApply(response -> null);
+    }
+
+    /**
+     * Non-blocking download of the whole object stored under {@code key}. The object is
+     * collected in memory as it arrives, so the download holds no connection once the
+     * future completes.
+     */
+    public CompletableFuture<InvoiceDownload> openFileAsync(String key) {
         GetObjectRequest getObjectRequest = GetObjectRequest.builder()
                 .bucket(bucketName)
                 .key(key)
                 .build();
 
+        return s3AsyncClient.getObject(getObjectRequest, AsyncResponseTransformer.toBytes())
+                .thenApply(bytes -> new InvoiceDownload(fileName(key), bytes.response().contentType(),
+                        bytes.asByteArrayUnsafe().length, bytes.response().eTag(), null, bytes.asInputStream()));
+    }
+
+    /**
+     * Opens the object stored under {@code key} for streaming.
+     *
+     * @param range       an HTTP {@code Range} header, or {@code null}. Only a single byte range
+     *                    is honoured; anything else returns the whole object
+     * @param ifNoneMatch an HTTP {@code If-None-Match} header, or {@code null}. When it matches
+     *                    the object's ETag the result {@link InvoiceDownload#isNotModified() is not modified}
+     * @throws S3Exception with status 404 if the object does not exist, or 416 if the range
+     *                     lies outside it
+     */
+    public InvoiceDownload openFile(String key, String range, String ifNoneMatch) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .range(range != null && SINGLE_BYTE_RANGE.matcher(range).matches() ? range : null)
+                .ifNoneMatch(ifNoneMatch)
+                .build();
+
         try {
-            return s3Client.getObject(getObjectRequest).readAllBytes();
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to read file from S3", e);
+            ResponseInputStream<GetObjectResponse> content = s3Client.getObject(getObjectRequest);
+            GetObjectResponse response = content.response();
+            return new InvoiceDownload(fileName(key), response.contentType(), response.contentLength(),
+                    response.eTag(), response.contentRange(), content);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 304) {
+                String eTag = e.awsErrorDetails().sdkHttpResponse().firstMatchingHeader("ETag").orElse(ifNoneMatch);
+                return InvoiceDownload.notModified(fileName(key), eTag);
+            }
+            throw e;
         }
     }
-}
\ No newline at end of file
+
+    static String fileName(String key) {
+        return key.substring(key.lastIndexOf('/') + 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partUploaders.shutdown();
+    }
+}
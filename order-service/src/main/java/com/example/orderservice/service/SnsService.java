@@ -1,16 +1,33 @@
 package com.example.orderservice.service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.example.orderservice.model.Order;
 
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
 import software.amazon.awssdk.services.sns.SnsClient;
+import software.amazon.awssdk.services.sns.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sns.model.GetTopicAttributesRequest;
+import software.amazon.awssdk.services.sns.model.PublishBatchRequest;
+import software.amazon.awssdk.services.sns.model.PublishBatchRequestEntry;
+import software.amazon.awssdk.services.sns.model.PublishBatchResponse;
 import software.amazon.awssdk.services.sns.model.PublishRequest;
 
 @Service
 public class SnsService {
 
+    /**
+     * Most messages SNS accepts in one PublishBatch call.
+     */
+    public static final int MAX_PUBLISH_BATCH_ENTRIES = 10;
+
+    private static final String SUBJECT = "New Order Notification";
+
     private final SnsClient snsClient;
     private final String topicArn;
 
@@ -20,7 +37,55 @@ public class SnsService {
     }
 
     public void sendOrderNotification(Order order) {
-        String message = String.format(
+        snsClient.publish(publishRequest(order));
+    }
+
+    /**
+     * Publishes the notifications of up to {@link #MAX_PUBLISH_BATCH_ENTRIES} orders in one
+     * PublishBatch call.
+     *
+     * @return the orders whose notifications SNS rejected; they can be retried
+     */
+    public List<Order> sendOrderNotifications(List<Order> orders) {
+        if (orders.size() > MAX_PUBLISH_BATCH_ENTRIES) {
+            throw new IllegalArgumentException("At most " + MAX_PUBLISH_BATCH_ENTRIES + " notifications can be published per batch");
+        }
+
+        // Entry ids only need to be unique within the batch, so the position is enough
+        List<PublishBatchRequestEntry> entries = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            entries.add(PublishBatchRequestEntry.builder()
+                    .id(Integer.toString(i))
+                    .subject(SUBJECT)
+                    .message(message(orders.get(i)))
+                    .build());
+        }
+
+        PublishBatchResponse response = snsClient.publishBatch(PublishBatchRequest.builder()
+                .topicArn(topicArn)
+                .publishBatchRequestEntries(entries)
+                .build());
+        if (!response.hasFailed()) {
+            return List.of();
+        }
+
+        List<Order> failedOrders = new ArrayList<>(response.failed().size());
+        for (BatchResultErrorEntry failed : response.failed()) {
+            failedOrders.add(orders.get(Integer.parseInt(failed.id())));
+        }
+        return failedOrders;
+    }
+
+    private PublishRequest publishRequest(Order order) {
+        return PublishRequest.builder()
+                .topicArn(topicArn)
+                .subject(SUBJECT)
+                .message(message(order))
+                .build();
+    }
+
+    private static String message(Order order) {
+        return String.format(
                 "New order created:\n" +
                 "Order ID: %s\n" +
                 "Customer: %s\n" +
@@ -30,13 +95,16 @@ public class SnsService {
                 order.getCustomerName(),
                 order.getOrderAmount().toString(),
                 order.getOrderDate().toString());
+    }
 
-        PublishRequest publishRequest = PublishRequest.builder()
+    /**
+     * Health probe: reads the notification topic's attributes, failing if SNS cannot be
+     * reached within {@code timeout} or the topic does not exist.
+     */
+    public void probe(Duration timeout) {
+        snsClient.getTopicAttributes(GetTopicAttributesRequest.builder()
                 .topicArn(topicArn)
-                .subject("New Order Notification")
-                .message(message)
-                .build();
-
-        snsClient.publish(publishRequest);
+                .overrideConfiguration(AwsRequestOverrideConfiguration.builder().apiCallTimeout(timeout).build())
+                .build());
     }
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.example.orderservice.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * A multipart upload moved to a temporary file so it outlives the HTTP request that
+ * carried it. The servlet container deletes its own copy when the request completes,
+ * so work that continues after the response has been sent must spool the file first.
+ * Call {@link #delete()} once the file is no longer needed.
+ */
+public class SpooledMultipartFile implements MultipartFile {
+
+    private final String name;
+    private final String originalFilename;
+    private final String contentType;
+    private final long size;
+    private final Path path;
+
+    private SpooledMultipartFile(String name, String originalFilename, String contentType, long size, Path path) {
+        this.name = name;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+        this.size = size;
+        this.path = path;
+    }
+
+    public static SpooledMultipartFile spool(MultipartFile file) throws IOException {
+        Path path = Files.createTempFile("order-upload-", ".tmp");
+        try {
+            file.transferTo(path);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        return new SpooledMultipartFile(file.getName(), file.getOriginalFilename(), file.getContentType(), file.getSize(), path);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        transferTo(dest.toPath());
+    }
+
+    @Override
+    public void transferTo(Path dest) throws IOException {
+        Files.copy(path, dest, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
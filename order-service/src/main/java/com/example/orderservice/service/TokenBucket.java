@@ -0,0 +1,69 @@
+package com.example.orderservice.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe token bucket refilled continuously at a fixed rate.
+ * <p>
+ * {@link #acquire(double)} lets the bucket go into debt and then sleeps the caller
+ * until the debt is repaid, which suits costs that are only known after the fact
+ * (such as DynamoDB consumed capacity). {@link #tryAcquire(double)} never blocks.
+ */
+public class TokenBucket {
+
+    private final double ratePerSecond;
+    private final double capacity;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double ratePerSecond, double capacity) {
+        if (ratePerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Rate and capacity must be positive");
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes {@code permits} from the bucket and blocks until the bucket is no longer in debt.
+     */
+    public void acquire(double permits) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            tokens -= permits;
+            waitNanos = tokens < 0 ? (long) (-tokens / ratePerSecond * TimeUnit.SECONDS.toNanos(1)) : 0;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes {@code permits} only if they are available right now.
+     */
+    public synchronized boolean tryAcquire(double permits) {
+        refill();
+        if (tokens < permits) {
+            return false;
+        }
+        tokens -= permits;
+        return true;
+    }
+
+    /**
+     * Seconds until {@code permits} would be available, or zero if they already are.
+     */
+    public synchronized double secondsUntilAvailable(double permits) {
+        refill();
+        return tokens >= permits ? 0 : (permits - tokens) / ratePerSecond;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * ratePerSecond / TimeUnit.SECONDS.toNanos(1));
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.orderservice.cache;
+
+import com.example.orderservice.model.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryOrderCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private InMemoryOrderCache cache;
+
+    @BeforeEach
+    public void setup() {
+        cache = new InMemoryOrderCache(Duration.ofSeconds(10), 2, 0, true, clock::get);
+    }
+
+    @Test
+    public void testReadThroughCountsHitsAndMisses() {
+        assertEquals("1", cache.get("1", this::load).getOrderId());
+        assertEquals("1", cache.get("1", this::load).getOrderId());
+
+        assertEquals(1, loads.get());
+        OrderCacheStats stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    public void testMissingOrdersAreNotCached() {
+        assertNull(cache.get("missing", orderId -> null));
+        assertEquals(0, cache.stats().getSize());
+    }
+
+    @Test
+    public void testEntriesExpireAfterTtl() {
+        cache.get("1", this::load);
+        clock.addAndGet(Duration.ofSeconds(11).toNanos());
+        cache.get("1", this::load);
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.stats().getExpirations());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        cache.get("1", this::load);
+        cache.get("2", this::load);
+        cache.get("1", this::load);
+        cache.get("3", this::load);
+
+        // "2" was least recently used, so it had to be loaded again
+        cache.get("1", this::load);
+        cache.get("2", this::load);
+
+        assertEquals(4, loads.get());
+        assertEquals(2, cache.stats().getEvictions());
+        assertEquals(2, cache.stats().getSize());
+    }
+
+    @Test
+    public void testMaxBytesBoundsCache() {
+        long orderBytes = InMemoryOrderCache.estimateBytes(order("1"));
+        cache = new InMemoryOrderCache(Duration.ofSeconds(10), 100, orderBytes * 2, true, clock::get);
+
+        cache.get("1", this::load);
+        cache.get("2", this::load);
+        cache.get("3", this::load);
+
+        OrderCacheStats stats = cache.stats();
+        assertEquals(2, stats.getSize());
+        assertEquals(1, stats.getEvictions());
+        assertTrue(stats.getEstimatedBytes() <= orderBytes * 2);
+    }
+
+    @Test
+    public void testWriteThroughCachesSavedOrder() {
+        cache.onSave(order("1"));
+
+        assertEquals("1", cache.get("1", this::load).getOrderId());
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    public void testInvalidateModeDropsEntryOnSave() {
+        cache = new InMemoryOrderCache(Duration.ofSeconds(10), 2, 0, false, clock::get);
+        cache.get("1", this::load);
+
+        cache.onSave(order("1"));
+        cache.get("1", this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    private Order load(String orderId) {
+        loads.incrementAndGet();
+        return order(orderId);
+    }
+
+    private static Order order(String orderId) {
+        return new Order(orderId, "Customer " + orderId, new BigDecimal("10.00"), LocalDate.now(), null);
+    }
+}
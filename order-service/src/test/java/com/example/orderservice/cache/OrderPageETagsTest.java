@@ -0,0 +1,79 @@
+package com.example.orderservice.cache;
+
+import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderPage;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderPageETagsTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void testServedETagIsKeptUntilVersionChanges() {
+        OrderPageETags pageETags = new OrderPageETags(Duration.ofSeconds(30), 10, clock::get);
+        pageETags.put(List.of("page", 10), 1, "W/\"a\"");
+
+        assertEquals("W/\"a\"", pageETags.get(List.of("page", 10), 1));
+        assertNull(pageETags.get(List.of("page", 10), 2));
+        assertNull(pageETags.get(List.of("page", 20), 1));
+    }
+
+    @Test
+    public void testServedETagExpires() {
+        OrderPageETags pageETags = new OrderPageETags(Duration.ofSeconds(30), 10, clock::get);
+        pageETags.put(List.of("all"), 1, "W/\"a\"");
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(29));
+        assertEquals("W/\"a\"", pageETags.get(List.of("all"), 1));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertNull(pageETags.get(List.of("all"), 1));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedQuery() {
+        OrderPageETags pageETags = new OrderPageETags(Duration.ofSeconds(30), 2, clock::get);
+        pageETags.put(List.of("page", 1), 1, "W/\"1\"");
+        pageETags.put(List.of("page", 2), 1, "W/\"2\"");
+        pageETags.get(List.of("page", 1), 1);
+        pageETags.put(List.of("page", 3), 1, "W/\"3\"");
+
+        assertEquals(2, pageETags.size());
+        assertNotNull(pageETags.get(List.of("page", 1), 1));
+        assertNull(pageETags.get(List.of("page", 2), 1));
+    }
+
+    @Test
+    public void testZeroMaxAgeDisablesShortcut() {
+        OrderPageETags pageETags = new OrderPageETags(Duration.ZERO, 10, clock::get);
+        pageETags.put(List.of("all"), 1, "W/\"a\"");
+
+        assertNull(pageETags.get(List.of("all"), 1));
+        assertEquals(0, pageETags.size());
+    }
+
+    @Test
+    public void testETagsFollowOrderContent() {
+        Order order = new Order("1", "Customer", new BigDecimal("100.00"), LocalDate.of(2024, 1, 15), null);
+        String eTag = OrderETags.of(order);
+
+        assertTrue(eTag.matches("W/\"[0-9a-f]{32}\""));
+        assertEquals(eTag, OrderETags.of(new Order("1", "Customer", new BigDecimal("100.00"), LocalDate.of(2024, 1, 15), null)));
+        assertNotEquals(eTag, OrderETags.of(new Order("1", "Customer", new BigDecimal("100.0"), LocalDate.of(2024, 1, 15), null)));
+        assertNotEquals(OrderETags.of(new OrderPage(List.of(order), null)), OrderETags.of(new OrderPage(List.of(order), "next")));
+
+        assertTrue(OrderETags.matches(eTag, eTag));
+        assertTrue(OrderETags.matches("\"other\", " + eTag.substring(2), eTag));
+        assertTrue(OrderETags.matches("*", eTag));
+        assertFalse(OrderETags.matches("W/\"other\"", eTag));
+        assertFalse(OrderETags.matches(null, eTag));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.orderservice.config;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AwsConfigTest {
+
+    private final AwsConfig awsConfig = new AwsConfig();
+
+    @Test
+    public void testHttpClientTransports() {
+        try (SdkHttpClient apache = httpClient("apache");
+             SdkHttpClient urlConnection = httpClient("url-connection")) {
+            assertTrue(apache instanceof ApacheHttpClient);
+            assertTrue(urlConnection instanceof UrlConnectionHttpClient);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> httpClient("crt"));
+    }
+
+    @Test
+    public void testAdaptiveRetryAndTimeouts() {
+        ClientOverrideConfiguration configuration = awsConfig.awsClientOverrideConfiguration(
+                new SimpleMeterRegistry(), "adaptive", 5, Duration.ofSeconds(10), Duration.ZERO);
+
+        assertEquals(RetryMode.ADAPTIVE, configuration.retryPolicy().get().retryMode());
+        assertEquals(4, configuration.retryPolicy().get().numRetries());
+        assertEquals(Duration.ofSeconds(10), configuration.apiCallTimeout().get());
+        assertFalse(configuration.apiCallAttemptTimeout().isPresent());
+        assertEquals(2, configuration.executionInterceptors().size() + configuration.metricPublishers().size());
+    }
+
+    private SdkHttpClient httpClient(String transport) {
+        return awsConfig.awsHttpClient(transport, 10, Duration.ofSeconds(1), Duration.ofSeconds(5),
+                Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofSeconds(30), true);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.orderservice.config;
+
+import com.example.orderservice.service.DynamoDbService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+import software.amazon.awssdk.services.dynamodb.waiters.DynamoDbWaiter;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class DynamoDbTableInitializerTest {
+
+    @Mock
+    private DynamoDbClient dynamoDbClient;
+
+    @Mock
+    private DynamoDbWaiter waiter;
+
+    private DynamoDbTableInitializer initializer;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(dynamoDbClient.waiter()).thenReturn(waiter);
+        initializer = new DynamoDbTableInitializer(dynamoDbClient, "orders", "order-idempotency");
+    }
+
+    @Test
+    public void testCreatesMissingTableWithIndexes() {
+        when(dynamoDbClient.describeTable(any(DescribeTableRequest.class)))
+                .thenThrow(ResourceNotFoundException.builder().message("not found").build());
+
+        initializer.ensureTable();
+
+        ArgumentCaptor<CreateTableRequest> requestCaptor = ArgumentCaptor.forClass(CreateTableRequest.class);
+        verify(dynamoDbClient).createTable(requestCaptor.capture());
+        assertEquals("orders", requestCaptor.getValue().tableName());
+        assertEquals(List.of(DynamoDbService.CUSTOMER_DATE_INDEX, DynamoDbService.ORDER_DATE_INDEX),
+                requestCaptor.getValue().globalSecondaryIndexes().stream()
+                        .map(GlobalSecondaryIndex::indexName)
+                        .collect(Collectors.toList()));
+        verify(waiter).waitUntilTableExists(any(DescribeTableRequest.class));
+    }
+
+    @Test
+    public void testAddsMissingIndexToExistingTable() {
+        when(dynamoDbClient.describeTable(any(DescribeTableRequest.class))).thenReturn(DescribeTableResponse.builder()
+                .table(TableDescription.builder()
+                        .tableName("orders")
+                        .globalSecondaryIndexes(GlobalSecondaryIndexDescription.builder()
+                                .indexName(DynamoDbService.CUSTOMER_DATE_INDEX)
+                                .build())
+                        .build())
+                .build());
+
+        initializer.ensureTable();
+
+        ArgumentCaptor<UpdateTableRequest> requestCaptor = ArgumentCaptor.forClass(UpdateTableRequest.class);
+        verify(dynamoDbClient, times(1)).updateTable(requestCaptor.capture());
+        assertEquals(DynamoDbService.ORDER_DATE_INDEX,
+                requestCaptor.getValue().globalSecondaryIndexUpdates().get(0).create().indexName());
+        verify(dynamoDbClient, never()).createTable(any(CreateTableRequest.class));
+    }
+
+    @Test
+    public void testCreatesIdempotencyTableWithTimeToLive() {
+        when(dynamoDbClient.describeTable(any(DescribeTableRequest.class)))
+                .thenThrow(ResourceNotFoundException.builder().message("not found").build());
+        when(dynamoDbClient.describeTimeToLive(any(DescribeTimeToLiveRequest.class))).thenReturn(DescribeTimeToLiveResponse.builder()
+                .timeToLiveDescription(TimeToLiveDescription.builder().timeToLiveStatus(TimeToLiveStatus.DISABLED).build())
+                .build());
+
+        initializer.ensureIdempotencyTable();
+
+        ArgumentCaptor<CreateTableRequest> createCaptor = ArgumentCaptor.forClass(CreateTableRequest.class);
+        verify(dynamoDbClient).createTable(createCaptor.capture());
+        assertEquals("order-idempotency", createCaptor.getValue().tableName());
+        assertEquals("idempotencyKey", createCaptor.getValue().keySchema().get(0).attributeName());
+
+        ArgumentCaptor<UpdateTimeToLiveRequest> ttlCaptor = ArgumentCaptor.forClass(UpdateTimeToLiveRequest.class);
+        verify(dynamoDbClient).updateTimeToLive(ttlCaptor.capture());
+        assertEquals("expiresAt", ttlCaptor.getValue().timeToLiveSpecification().attributeName());
+        assertEquals(true, ttlCaptor.getValue().timeToLiveSpecification().enabled());
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.orderservice.controller;
+
+import com.example.orderservice.cache.OrderPageETags;
+import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderPage;
+import com.example.orderservice.service.DependencyUnavailableException;
+import com.example.orderservice.service.InvoiceDownload;
+import com.example.orderservice.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+public class AsyncOrderControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private OrderService orderService;
+
+    @Spy
+    private OrderPageETags orderPageETags = new OrderPageETags(Duration.ofMinutes(1), 100);
+
+    @InjectMocks
+    private AsyncOrderController asyncOrderController;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(asyncOrderController)
+                .setControllerAdvice(new DependencyUnavailableHandler())
+                .build();
+    }
+
+    @Test
+    public void testCreateOrderCompletesAsynchronously() throws Exception {
+        // Prepare test data
+        Order order = new Order("1", "Customer", new BigDecimal("100.00"), LocalDate.of(2024, 1, 15), null);
+        CompletableFuture<Order> pending = new CompletableFuture<>();
+        when(orderService.createOrderAsync(eq("Customer"), eq("100.00"), eq("2024-01-15"), any())).thenReturn(pending);
+
+        MvcResult result = mockMvc.perform(multipart("/async/orders")
+                        .file(new MockMultipartFile("invoiceFile", "invoice.pdf", "application/pdf", "PDF".getBytes()))
+                        .param("customerName", "Customer")
+                        .param("orderAmount", "100.00")
+                        .param("orderDate", "2024-01-15"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // The request thread is released before the order exists
+        pending.complete(order);
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.orderId").value("1"));
+    }
+
+    @Test
+    public void testCreateOrderRejectsInvalidFields() throws Exception {
+        when(orderService.createOrderAsync(anyString(), anyString(), anyString(), isNull()))
+                .thenThrow(new IllegalArgumentException("Invalid orderAmount: abc"));
+
+        MvcResult result = mockMvc.perform(post("/async/orders")
+                        .param("customerName", "Customer")
+                        .param("orderAmount", "abc")
+                        .param("orderDate", "2024-01-15"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetOrder() throws Exception {
+        // Prepare test data
+        Order order = new Order("1", "Customer", new BigDecimal("100.00"), LocalDate.now(), null);
+        when(orderService.getOrderAsync("1")).thenReturn(CompletableFuture.completedFuture(order));
+        when(orderService.getOrderAsync("2")).thenReturn(CompletableFuture.completedFuture(null));
+
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/async/orders/1")).andReturn()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.customerName").value("Customer"));
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/async/orders/2")).andReturn()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testGetOrderWhileDynamoDbIsUnavailable() throws Exception {
+        when(orderService.getOrderAsync("1")).thenReturn(CompletableFuture.failedFuture(
+                new DependencyUnavailableException("dynamodb", "too many concurrent calls", Duration.ofMillis(500), null)));
+
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/async/orders/1")).andReturn()))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    public void testGetOrderPage() throws Exception {
+        // Prepare test data
+        Order order = new Order("1", "Customer", new BigDecimal("100.00"), LocalDate.now(), null);
+        when(orderService.getOrdersAsync(10, "token"))
+                .thenReturn(CompletableFuture.completedFuture(new OrderPage(List.of(order), "next")));
+        when(orderService.getOrdersAsync(anyInt(), eq("bad"))).thenThrow(new IllegalArgumentException("Invalid nextToken"));
+
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/async/orders").param("limit", "10").param("nextToken", "token")).andReturn()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders[0].orderId").value("1"))
+                .andExpect(jsonPath("$.nextToken").value("next"));
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/async/orders").param("limit", "10").param("nextToken", "bad")).andReturn()))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/async/orders").param("limit", "0")).andReturn()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetOrderPageIsNotModified() throws Exception {
+        // Prepare test data
+        Order order = new Order("1", "Customer", new BigDecimal("100.00"), LocalDate.now(), null);
+        when(orderService.getOrdersAsync(10, null))
+                .thenReturn(CompletableFuture.completedFuture(new OrderPage(List.of(order), null)));
+
+        String eTag = mockMvc.perform(asyncDispatch(mockMvc.perform(get("/async/orders").param("limit", "10")).andReturn()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Answered before any DynamoDB read while nothing has been written
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/async/orders").param("limit", "10")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)).andReturn()))
+                .andExpect(status().isNotModified());
+        verify(orderService, times(1)).getOrdersAsync(10, null);
+    }
+
+    @Test
+    public void testGetInvoice() throws Exception {
+        // Prepare test data
+        byte[] content = "PNG content".getBytes();
+        InvoiceDownload download = new InvoiceDownload("scan.png", "image/png", content.length, "\"abc\"", null,
+                new ByteArrayInputStream(content));
+        when(orderService.openInvoiceAsync("1")).thenReturn(CompletableFuture.completedFuture(download));
+
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/async/orders/1/invoice")).andReturn()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/png"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"invoice-1.png\""))
+                .andExpect(header().string("ETag", "\"abc\""))
+                .andExpect(content().bytes(content));
+
+        verify(orderService).openInvoiceAsync("1");
+    }
+}
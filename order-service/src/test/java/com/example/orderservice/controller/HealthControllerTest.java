@@ -1,22 +1,41 @@
 package com.example.orderservice.controller;
 
+import java.time.Instant;
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import com.example.orderservice.model.DependencyHealth;
+import com.example.orderservice.model.HealthReport;
+import com.example.orderservice.service.DependencyHealthMonitor;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class HealthControllerTest {
 
     private MockMvc mockMvc;
+
+    @Mock
+    private DependencyHealthMonitor dependencyHealthMonitor;
+
+    @InjectMocks
     private HealthController healthController;
 
     @BeforeEach
     public void setup() {
-        healthController = new HealthController();
+        MockitoAnnotations.openMocks(this);
         mockMvc = MockMvcBuilders.standaloneSetup(healthController).build();
     }
 
@@ -26,4 +45,48 @@ public class HealthControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("Application is running"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLivenessIgnoresDependencies() throws Exception {
+        mockMvc.perform(get("/health/live"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UP"));
+
+        verify(dependencyHealthMonitor, never()).readiness();
+    }
+
+    @Test
+    public void testReadyWhenAllDependenciesAreUp() throws Exception {
+        // Prepare test data
+        when(dependencyHealthMonitor.readiness()).thenReturn(new HealthReport(DependencyHealth.Status.UP,
+                List.of(dependency("dynamodb", DependencyHealth.Status.UP, 12))));
+
+        mockMvc.perform(get("/health/ready"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UP"))
+                .andExpect(jsonPath("$.dependencies[0].name").value("dynamodb"))
+                .andExpect(jsonPath("$.dependencies[0].latencyMillis").value(12));
+    }
+
+    @Test
+    public void testNotReadyWhenDependencyIsDegraded() throws Exception {
+        // Prepare test data
+        when(dependencyHealthMonitor.readiness()).thenReturn(new HealthReport(DependencyHealth.Status.DEGRADED,
+                List.of(dependency("dynamodb", DependencyHealth.Status.UP, 12),
+                        dependency("s3", DependencyHealth.Status.DEGRADED, 900))));
+
+        mockMvc.perform(get("/health/ready"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("DEGRADED"))
+                .andExpect(jsonPath("$.dependencies[1].status").value("DEGRADED"));
+    }
+
+    private static DependencyHealth dependency(String name, DependencyHealth.Status status, long latencyMillis) {
+        return DependencyHealth.builder()
+                .name(name)
+                .status(status)
+                .latencyMillis(latencyMillis)
+                .checkedAt(Instant.now())
+                .build();
+    }
+}
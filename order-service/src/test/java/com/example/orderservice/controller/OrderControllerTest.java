@@ -1,24 +1,67 @@
 package com.example.orderservice.controller;
 
+import com.example.orderservice.cache.OrderPageETags;
+import com.example.orderservice.model.BulkOrderResult;
 import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderPage;
+import com.example.orderservice.model.OrderStatus;
+import com.example.orderservice.model.PresignedInvoiceUrl;
+import com.example.orderservice.service.BulkOrderIngestService;
+import com.example.orderservice.service.DependencyUnavailableException;
+import com.example.orderservice.service.IdempotencyKeyMismatchException;
+import com.example.orderservice.service.IdempotencyRequestInProgressException;
+import com.example.orderservice.service.IdempotencyService;
+import com.example.orderservice.service.InvoiceDownload;
+import com.example.orderservice.service.OrderAlreadyExistsException;
+import com.example.orderservice.service.OrderExportService;
 import com.example.orderservice.service.OrderService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import jakarta.servlet.ServletException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Reader;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -30,32 +73,79 @@ public class OrderControllerTest {
     @Mock
     private OrderService orderService;
 
+    @Mock
+    private OrderExportService orderExportService;
+
+    @Mock
+    private BulkOrderIngestService bulkOrderIngestService;
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    // Mirrors the ObjectMapper Spring Boot configures (ISO dates instead of arrays)
+    @Spy
+    private ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    @Spy
+    private OrderPageETags orderPageETags = new OrderPageETags(Duration.ofMinutes(1), 100);
+
     @InjectMocks
     private OrderController orderController;
 
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
-        mockMvc = MockMvcBuilders.standaloneSetup(orderController).build();
+        mockMvc = MockMvcBuilders.standaloneSetup(orderController)
+                .setControllerAdvice(new DependencyUnavailableHandler())
+                .build();
     }
 
     @Test
-    public void testGetAllOrders() throws Exception {
+    public void testGetOrdersReturnsFirstPageByDefault() throws Exception {
         // Prepare test data
         Order order1 = new Order("1", "Customer 1", new BigDecimal("100.00"), LocalDate.now(), null);
         Order order2 = new Order("2", "Customer 2", new BigDecimal("200.00"), LocalDate.now(), null);
-        List<Order> orders = Arrays.asList(order1, order2);
 
         // Mock service method
-        when(orderService.getAllOrders()).thenReturn(orders);
+        when(orderService.getOrders(100, null)).thenReturn(new OrderPage(Arrays.asList(order1, order2), "next"));
 
-        // Perform GET request and validate response
+        // Without paging parameters only the first page is read, never the whole table
         mockMvc.perform(get("/orders"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].orderId").value("1"))
-                .andExpect(jsonPath("$[0].customerName").value("Customer 1"))
-                .andExpect(jsonPath("$[1].orderId").value("2"))
-                .andExpect(jsonPath("$[1].customerName").value("Customer 2"));
+                .andExpect(jsonPath("$.orders[0].orderId").value("1"))
+                .andExpect(jsonPath("$.orders[0].customerName").value("Customer 1"))
+                .andExpect(jsonPath("$.orders[1].orderId").value("2"))
+                .andExpect(jsonPath("$.nextToken").value("next"));
+        verify(orderService, never()).forEachOrderPage(any());
+    }
+
+    @Test
+    public void testGetOrdersAsCbor() throws Exception {
+        // Prepare test data
+        Order order = new Order("1", "Customer 1", new BigDecimal("100.00"), LocalDate.of(2024, 1, 15), null);
+        when(orderService.getOrders(100, null)).thenReturn(new OrderPage(List.of(order), null));
+        ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.json()
+                .factory(new CBORFactory())
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        MockMvc binaryMockMvc = MockMvcBuilders.standaloneSetup(orderController)
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper),
+                        new MappingJackson2CborHttpMessageConverter(cborMapper))
+                .build();
+
+        // JSON stays the default; CBOR is served when asked for
+        binaryMockMvc.perform(get("/orders"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+        byte[] body = binaryMockMvc.perform(get("/orders").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        OrderPage decoded = cborMapper.readValue(body, OrderPage.class);
+        assertEquals(List.of(order), decoded.getOrders());
     }
 
     @Test
@@ -73,6 +163,18 @@ public class OrderControllerTest {
                 .andExpect(jsonPath("$.customerName").value("Customer 1"));
     }
 
+    @Test
+    public void testGetOrderWhileDynamoDbIsUnavailable() throws Exception {
+        // Mock service method to reject the read, as an open circuit breaker does
+        when(orderService.getOrder("1")).thenThrow(new DependencyUnavailableException("dynamodb", "circuit breaker is open",
+                Duration.ofSeconds(10), null));
+
+        // Perform GET request and validate 503 response
+        mockMvc.perform(get("/orders/1"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "10"));
+    }
+
     @Test
     public void testGetOrderNotFound() throws Exception {
         // Mock service method to return null (order not found)
@@ -108,4 +210,515 @@ public class OrderControllerTest {
                 .andExpect(jsonPath("$.orderId").value("1"))
                 .andExpect(jsonPath("$.customerName").value("Customer 1"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCreateOrderWithIdempotencyKeyReplaysOrder() throws Exception {
+        // Prepare test data
+        Order createdOrder = new Order("1", "Customer 1", new BigDecimal("100.00"), LocalDate.now(), null);
+
+        // Mock service method
+        when(idempotencyService.createOrder(eq("key-1"), anyString(), anyString(), anyString(), any()))
+                .thenReturn(new IdempotencyService.Result(createdOrder, true));
+
+        // Perform POST request and validate response
+        mockMvc.perform(multipart("/orders")
+                .header("Idempotency-Key", "key-1")
+                .param("customerName", "Customer 1")
+                .param("orderAmount", "100.00")
+                .param("orderDate", LocalDate.now().toString()))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.orderId").value("1"));
+        verify(orderService, never()).createOrder(anyString(), anyString(), anyString(), any());
+    }
+
+    @Test
+    public void testCreateOrderWithReusedIdempotencyKey() throws Exception {
+        when(idempotencyService.createOrder(eq("key-1"), anyString(), anyString(), anyString(), any()))
+                .thenThrow(new IdempotencyKeyMismatchException("key-1"));
+
+        mockMvc.perform(multipart("/orders")
+                .header("Idempotency-Key", "key-1")
+                .param("customerName", "Customer 1")
+                .param("orderAmount", "100.00")
+                .param("orderDate", LocalDate.now().toString()))
+                .andExpect(status().isUnprocessableEntity());
+
+        when(idempotencyService.createOrder(eq("key-3"), anyString(), anyString(), anyString(), any()))
+                .thenThrow(new IdempotencyRequestInProgressException("key-3"));
+        mockMvc.perform(multipart("/orders")
+                .header("Idempotency-Key", "key-3")
+                .param("customerName", "Customer 1")
+                .param("orderAmount", "100.00")
+                .param("orderDate", LocalDate.now().toString()))
+                .andExpect(status().isConflict());
+
+        // Not combinable with asynchronous creation
+        mockMvc.perform(multipart("/orders")
+                .header("Idempotency-Key", "key-2")
+                .header("Prefer", "respond-async")
+                .param("customerName", "Customer 1")
+                .param("orderAmount", "100.00")
+                .param("orderDate", LocalDate.now().toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetOrderPage() throws Exception {
+        // Prepare test data
+        Order order1 = new Order("1", "Customer 1", new BigDecimal("100.00"), LocalDate.now(), null);
+        OrderPage page = new OrderPage(Arrays.asList(order1), "next-token");
+
+        // Mock service method
+        when(orderService.getOrders(1, "start-token")).thenReturn(page);
+
+        // Perform GET request and validate response
+        mockMvc.perform(get("/orders").param("limit", "1").param("nextToken", "start-token"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders[0].orderId").value("1"))
+                .andExpect(jsonPath("$.nextToken").value("next-token"));
+    }
+
+    @Test
+    public void testGetOrderIsNotModified() throws Exception {
+        // Prepare test data
+        Order order = new Order("1", "Customer 1", new BigDecimal("100.00"), LocalDate.of(2024, 1, 15), null);
+        when(orderService.getOrder("1")).thenReturn(order);
+
+        // The first read returns the order and its ETag
+        String eTag = mockMvc.perform(get("/orders/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue(eTag.startsWith("W/\""));
+
+        // Presenting it gets 304 without a body, until the order changes
+        mockMvc.perform(get("/orders/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        order.setCustomerName("Customer 2");
+        mockMvc.perform(get("/orders/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.customerName").value("Customer 2"));
+    }
+
+    @Test
+    public void testUnchangedOrderPageIsNotReadAgain() throws Exception {
+        // Prepare test data
+        Order order1 = new Order("1", "Customer 1", new BigDecimal("100.00"), LocalDate.now(), null);
+        when(orderService.getOrders(10, null)).thenReturn(new OrderPage(List.of(order1), null));
+        when(orderService.getCollectionVersion()).thenReturn(1L);
+
+        String eTag = mockMvc.perform(get("/orders").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Nothing written since: 304 without asking DynamoDB
+        mockMvc.perform(get("/orders").param("limit", "10").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+        verify(orderService, times(1)).getOrders(10, null);
+
+        // After a write the page is read again, and is still 304 if its content did not change
+        when(orderService.getCollectionVersion()).thenReturn(2L);
+        mockMvc.perform(get("/orders").param("limit", "10").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        verify(orderService, times(2)).getOrders(10, null);
+
+        // A different ETag gets the page
+        mockMvc.perform(get("/orders").param("limit", "10").header(HttpHeaders.IF_NONE_MATCH, "W/\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders[0].orderId").value("1"));
+    }
+
+    @Test
+    public void testOrderPageIsAlwaysReadWhenShortcutIsDisabled() throws Exception {
+        // The default configuration: writes from other instances do not move this node's version
+        OrderController defaultController = new OrderController(orderService, orderExportService, bulkOrderIngestService,
+                idempotencyService, objectMapper, new OrderPageETags(Duration.ZERO, 100));
+        MockMvc defaultMockMvc = MockMvcBuilders.standaloneSetup(defaultController).build();
+        Order order1 = new Order("1", "Customer 1", new BigDecimal("100.00"), LocalDate.now(), null);
+        Order order2 = new Order("2", "Customer 2", new BigDecimal("200.00"), LocalDate.now(), null);
+        when(orderService.getCollectionVersion()).thenReturn(1L);
+        when(orderService.getOrders(10, null))
+                .thenReturn(new OrderPage(List.of(order1), null))
+                .thenReturn(new OrderPage(List.of(order1, order2), null));
+
+        String eTag = defaultMockMvc.perform(get("/orders").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Another instance added an order: the page is read again and returned in full
+        defaultMockMvc.perform(get("/orders").param("limit", "10").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders[1].orderId").value("2"));
+        verify(orderService, times(2)).getOrders(10, null);
+    }
+
+    @Test
+    public void testGetOrderPageInvalidLimit() throws Exception {
+        mockMvc.perform(get("/orders").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetOrderPageInvalidToken() throws Exception {
+        // Mock service method to reject the token
+        when(orderService.getOrders(10, "garbage")).thenThrow(new IllegalArgumentException("Invalid page token"));
+
+        mockMvc.perform(get("/orders").param("limit", "10").param("nextToken", "garbage"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStreamOrders() throws Exception {
+        // Prepare test data split across two scan pages
+        Order order1 = new Order("1", "Customer 1", new BigDecimal("100.00"), LocalDate.parse("2024-01-01"), null);
+        Order order2 = new Order("2", "Customer 2", new BigDecimal("200.00"), LocalDate.parse("2024-01-02"), null);
+
+        // Mock service method to deliver one page at a time
+        doAnswer(invocation -> {
+            Consumer<List<Order>> action = invocation.getArgument(0);
+            action.accept(Arrays.asList(order1));
+            action.accept(Arrays.asList(order2));
+            return null;
+        }).when(orderService).forEachOrderPage(any(Consumer.class));
+
+        // Perform GET request and validate one JSON document per line
+        mockMvc.perform(get("/orders").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"orderId\":\"1\",\"customerName\":\"Customer 1\",\"orderAmount\":100.00,\"orderDate\":\"2024-01-01\",\"invoiceFileUrl\":null}\n" +
+                        "{\"orderId\":\"2\",\"customerName\":\"Customer 2\",\"orderAmount\":200.00,\"orderDate\":\"2024-01-02\",\"invoiceFileUrl\":null}\n"));
+
+        // The stream has no pages to ask for
+        mockMvc.perform(get("/orders").param("limit", "10").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isBadRequest());
+        verify(orderService, times(1)).forEachOrderPage(any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExportOrders() throws Exception {
+        // Prepare test data
+        Order order1 = new Order("1", "Customer 1", new BigDecimal("100.00"), LocalDate.parse("2024-01-01"), null);
+
+        // Mock service method to deliver a single page
+        doAnswer(invocation -> {
+            Consumer<List<Order>> action = invocation.getArgument(3);
+            action.accept(Arrays.asList(order1));
+            return null;
+        }).when(orderExportService).exportOrders(eq(8), eq(true), eq(50.0), any(Consumer.class));
+
+        // Perform GET request and validate response
+        mockMvc.perform(get("/orders/export")
+                .param("segments", "8")
+                .param("ordered", "true")
+                .param("readCapacityUnits", "50"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(
+                        "{\"orderId\":\"1\",\"customerName\":\"Customer 1\",\"orderAmount\":100.00,\"orderDate\":\"2024-01-01\",\"invoiceFileUrl\":null}\n"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testExportOrdersInvalidSegments() throws Exception {
+        mockMvc.perform(get("/orders/export").param("segments", "0"))
+                .andExpect(status().isBadRequest());
+
+        verify(orderExportService, never()).exportOrders(anyInt(), anyBoolean(), anyDouble(), any(Consumer.class));
+    }
+
+    @Test
+    public void testCreateOrderAsync() throws Exception {
+        // Prepare test data
+        Order acceptedOrder = new Order("1", "Customer 1", new BigDecimal("100.00"), LocalDate.now(), null);
+
+        // Mock service method
+        when(orderService.submitOrder(anyString(), anyString(), anyString(), any()))
+                .thenReturn(acceptedOrder);
+
+        // Perform POST request asking for asynchronous processing
+        mockMvc.perform(multipart("/orders")
+                .param("customerName", "Customer 1")
+                .param("orderAmount", "100.00")
+                .param("orderDate", LocalDate.now().toString())
+                .header("Prefer", "respond-async"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/orders/1/status"))
+                .andExpect(jsonPath("$.orderId").value("1"))
+                .andExpect(jsonPath("$.state").value("ACCEPTED"));
+
+        verify(orderService, never()).createOrder(anyString(), anyString(), anyString(), any());
+    }
+
+    @Test
+    public void testGetOrderStatus() throws Exception {
+        // Mock service method
+        when(orderService.getOrderStatus("1")).thenReturn(new OrderStatus("1", OrderStatus.State.COMPLETED, null));
+
+        // Perform GET request and validate response
+        mockMvc.perform(get("/orders/1/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("COMPLETED"));
+    }
+
+    @Test
+    public void testGetOrderStatusNotFound() throws Exception {
+        mockMvc.perform(get("/orders/999/status"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testBulkCreateOrdersFromCsv() throws Exception {
+        // Mock service method to echo one result per record
+        doAnswer(invocation -> {
+            Reader body = invocation.getArgument(0);
+            BulkOrderIngestService.ResultSink sink = invocation.getArgument(2);
+            assertEquals("customerName,orderAmount,orderDate\nCustomer 1,100.00,2024-01-01\n",
+                    new BufferedReader(body).lines().collect(Collectors.joining("\n", "", "\n")));
+            sink.accept(new BulkOrderResult(2, BulkOrderResult.Status.CREATED, "1", null));
+            sink.flush();
+            return null;
+        }).when(bulkOrderIngestService).ingest(any(Reader.class), eq(BulkOrderIngestService.Format.CSV), any());
+
+        // Perform POST request and validate the streamed results
+        mockMvc.perform(post("/orders/bulk")
+                .contentType("text/csv")
+                .content("customerName,orderAmount,orderDate\nCustomer 1,100.00,2024-01-01\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("{\"line\":2,\"status\":\"CREATED\",\"orderId\":\"1\",\"error\":null}\n"));
+    }
+
+    @Test
+    public void testBulkCreateOrdersDetectsNdjson() throws Exception {
+        mockMvc.perform(post("/orders/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{}\n"))
+                .andExpect(status().isOk());
+
+        verify(bulkOrderIngestService).ingest(any(Reader.class), eq(BulkOrderIngestService.Format.NDJSON), any());
+    }
+
+    @Test
+    public void testCreateOrderRejectsInvalidFields() throws Exception {
+        // Mock service method to fail validation
+        when(orderService.createOrder(anyString(), anyString(), anyString(), any()))
+                .thenThrow(new IllegalArgumentException("Invalid orderAmount: abc"));
+
+        mockMvc.perform(multipart("/orders")
+                .param("customerName", "Customer 1")
+                .param("orderAmount", "abc")
+                .param("orderDate", LocalDate.now().toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testGetInvoiceStreamsObject() throws Exception {
+        // Mock service method to return the whole invoice
+        byte[] content = "PNG content".getBytes();
+        when(orderService.openInvoice("1", null, null)).thenReturn(new InvoiceDownload("scan.png", "image/png",
+                content.length, "\"etag-1\"", null, new ByteArrayInputStream(content)));
+
+        // Perform GET request and validate the streamed response
+        mockMvc.perform(get("/orders/1/invoice"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/png"))
+                .andExpect(header().string(HttpHeaders.CONTENT_LENGTH, String.valueOf(content.length)))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"etag-1\""))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"invoice-1.png\""))
+                .andExpect(content().bytes(content));
+    }
+
+    @Test
+    public void testGetInvoiceRange() throws Exception {
+        // Mock service method to return the requested range
+        when(orderService.openInvoice("1", "bytes=0-2", null)).thenReturn(new InvoiceDownload("invoice.pdf",
+                "application/pdf", 3, "\"etag-1\"", "bytes 0-2/11", new ByteArrayInputStream("PDF".getBytes())));
+
+        mockMvc.perform(get("/orders/1/invoice").header(HttpHeaders.RANGE, "bytes=0-2"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-2/11"))
+                .andExpect(content().string("PDF"));
+    }
+
+    @Test
+    public void testGetInvoiceNotModified() throws Exception {
+        // Mock service method to report a matching ETag
+        when(orderService.openInvoice("1", null, "\"etag-1\""))
+                .thenReturn(InvoiceDownload.notModified("invoice.pdf", "\"etag-1\""));
+
+        mockMvc.perform(get("/orders/1/invoice").header(HttpHeaders.IF_NONE_MATCH, "\"etag-1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"etag-1\""))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    public void testGetInvoiceNotFound() throws Exception {
+        when(orderService.openInvoice("999", null, null)).thenReturn(null);
+
+        mockMvc.perform(get("/orders/999/invoice"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testGetInvoiceRangeNotSatisfiable() throws Exception {
+        when(orderService.openInvoice("1", "bytes=100-", null))
+                .thenThrow(S3Exception.builder().statusCode(416).message("Invalid range").build());
+
+        mockMvc.perform(get("/orders/1/invoice").header(HttpHeaders.RANGE, "bytes=100-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable());
+    }
+
+    @Test
+    public void testGetInvoiceOnlyReportsMissingObjectsAsNotFound() throws Exception {
+        when(orderService.openInvoice("1", null, null))
+                .thenThrow(S3Exception.builder().statusCode(404).message("The specified key does not exist").build());
+        mockMvc.perform(get("/orders/1/invoice"))
+                .andExpect(status().isNotFound());
+
+        // Throttling, access and server errors are S3 failures, not a missing invoice
+        for (int statusCode : new int[] {403, 503}) {
+            doThrow(S3Exception.builder().statusCode(statusCode).message("S3 failed").build())
+                    .when(orderService).openInvoice("2", null, null);
+            ServletException failure = assertThrows(ServletException.class, () -> mockMvc.perform(get("/orders/2/invoice")));
+            assertInstanceOf(S3Exception.class, failure.getCause());
+        }
+    }
+
+    @Test
+    public void testPresignInvoiceUpload() throws Exception {
+        // Mock service method
+        when(orderService.presignInvoiceUpload("invoice.pdf", "application/pdf")).thenReturn(PresignedInvoiceUrl.builder()
+                .orderId("1")
+                .invoiceKey("invoices/1/invoice.pdf")
+                .method("PUT")
+                .url("http://localhost:4566/bucket/invoices/1/invoice.pdf?X-Amz-Signature=abc")
+                .build());
+
+        mockMvc.perform(post("/orders/invoice-uploads")
+                .param("fileName", "invoice.pdf")
+                .param("contentType", "application/pdf"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orderId").value("1"))
+                .andExpect(jsonPath("$.invoiceKey").value("invoices/1/invoice.pdf"))
+                .andExpect(jsonPath("$.method").value("PUT"));
+    }
+
+    @Test
+    public void testCreateOrderWithUploadedInvoice() throws Exception {
+        // Mock service method
+        Order order = new Order("1", "Customer 1", new BigDecimal("100.00"), LocalDate.now(),
+                "https://bucket.s3.amazonaws.com/invoices/1/invoice.pdf");
+        when(orderService.createOrderWithUploadedInvoice("Customer 1", "100.00", "2024-01-01", "invoices/1/invoice.pdf"))
+                .thenReturn(order);
+
+        mockMvc.perform(multipart("/orders")
+                .param("customerName", "Customer 1")
+                .param("orderAmount", "100.00")
+                .param("orderDate", "2024-01-01")
+                .param("invoiceKey", "invoices/1/invoice.pdf"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.orderId").value("1"));
+
+        verify(orderService, never()).createOrder(anyString(), anyString(), anyString(), any());
+    }
+
+    @Test
+    public void testCreateOrderWithUploadedInvoiceTwice() throws Exception {
+        when(orderService.createOrderWithUploadedInvoice(anyString(), anyString(), anyString(), anyString()))
+                .thenThrow(new OrderAlreadyExistsException("1"));
+
+        mockMvc.perform(multipart("/orders")
+                .param("customerName", "Customer 1")
+                .param("orderAmount", "100.00")
+                .param("orderDate", "2024-01-01")
+                .param("invoiceKey", "invoices/1/invoice.pdf"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void testCreateOrderServerFailureIsNotConflict() throws Exception {
+        // e.g. a full write buffer; left to the server's error handling rather than reported as 409
+        when(orderService.createOrder(anyString(), anyString(), anyString(), any()))
+                .thenThrow(new IllegalStateException("Order write buffer is full"));
+
+        ServletException failure = assertThrows(ServletException.class, () -> mockMvc.perform(multipart("/orders")
+                .param("customerName", "Customer 1")
+                .param("orderAmount", "100.00")
+                .param("orderDate", "2024-01-01")));
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+    }
+
+    @Test
+    public void testGetInvoiceUrl() throws Exception {
+        when(orderService.presignInvoiceDownload("1")).thenReturn(PresignedInvoiceUrl.builder()
+                .orderId("1")
+                .method("GET")
+                .url("http://localhost:4566/bucket/invoices/1/invoice.pdf?X-Amz-Signature=abc")
+                .build());
+
+        mockMvc.perform(get("/orders/1/invoice/url"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.method").value("GET"));
+
+        mockMvc.perform(get("/orders/2/invoice/url"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testGetOrdersByCustomer() throws Exception {
+        // Mock service method
+        Order order = new Order("1", "Customer 1", new BigDecimal("100.00"), LocalDate.of(2024, 1, 5), null);
+        when(orderService.findOrders("Customer 1", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), 20, null))
+                .thenReturn(new OrderPage(List.of(order), "token"));
+
+        // Perform GET request and validate the response
+        mockMvc.perform(get("/orders")
+                .param("customerName", "Customer 1")
+                .param("from", "2024-01-01")
+                .param("to", "2024-01-31")
+                .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders[0].orderId").value("1"))
+                .andExpect(jsonPath("$.nextToken").value("token"));
+
+        verify(orderService, never()).getOrders(anyInt(), any());
+    }
+
+    @Test
+    public void testGetOrdersByDate() throws Exception {
+        // Mock service method
+        when(orderService.findOrders(null, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 7), 100, null))
+                .thenReturn(new OrderPage(List.of(), null));
+
+        mockMvc.perform(get("/orders")
+                .param("from", "2024-01-01")
+                .param("to", "2024-01-07"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orders").isEmpty());
+    }
+
+    @Test
+    public void testGetOrdersByDateRejectsInvalidRanges() throws Exception {
+        // Reversed range
+        mockMvc.perform(get("/orders").param("from", "2024-02-01").param("to", "2024-01-01"))
+                .andExpect(status().isBadRequest());
+
+        // Range wider than the per-day fan-out allows
+        mockMvc.perform(get("/orders").param("from", "2020-01-01").param("to", "2024-01-01"))
+                .andExpect(status().isBadRequest());
+
+        // Missing end date and malformed date
+        mockMvc.perform(get("/orders").param("from", "2024-01-01"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/orders").param("customerName", "Customer 1").param("from", "01/01/2024"))
+                .andExpect(status().isBadRequest());
+
+        verify(orderService, never()).findOrders(any(), any(), any(), anyInt(), any());
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.orderservice.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Drives HTTP endpoints at fixed request rates, independent of how fast responses arrive
+ * (open loop).
+ * <p>
+ * Every endpoint has a schedule of intended send times, one every {@code 1 / rate} seconds.
+ * Requests are sent asynchronously, so a slow response never delays the next request. The
+ * response time of a request is measured from its intended send time rather than from when
+ * it was actually sent. If the generator or the server falls behind, the waiting time is
+ * still counted, which avoids coordinated omission. The time from the actual send is kept
+ * separately as the service time.
+ */
+public class OpenLoopLoadGenerator {
+
+    private final HttpClient httpClient;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+
+    public OpenLoopLoadGenerator(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Adds an endpoint that receives {@code ratePerSecond} requests per second, each built
+     * by {@code requests}. Requests that would exceed {@code maxInFlight} outstanding
+     * requests are dropped and reported as such.
+     */
+    public Endpoint endpoint(String name, double ratePerSecond, int maxInFlight, Supplier<HttpRequest> requests) {
+        Endpoint endpoint = new Endpoint(name, ratePerSecond, maxInFlight, requests);
+        endpoints.add(endpoint);
+        return endpoint;
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Runs every endpoint for {@code duration}, then waits up to {@code drainTimeout} for
+     * outstanding responses.
+     */
+    public void run(Duration duration, Duration drainTimeout) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        List<Thread> schedulers = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.ratePerSecond <= 0) {
+                continue;
+            }
+            Thread scheduler = new Thread(() -> schedule(endpoint, start, end), "load-" + endpoint.name);
+            scheduler.setDaemon(true);
+            scheduler.start();
+            schedulers.add(scheduler);
+        }
+        for (Thread scheduler : schedulers) {
+            scheduler.join();
+        }
+
+        long drainDeadline = System.nanoTime() + drainTimeout.toNanos();
+        while (endpoints.stream().anyMatch(endpoint -> endpoint.inFlight.get() > 0) && System.nanoTime() < drainDeadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    private void schedule(Endpoint endpoint, long start, long end) {
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / endpoint.ratePerSecond;
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (intended - end >= 0) {
+                return;
+            }
+            for (long wait = intended - System.nanoTime(); wait > 0; wait = intended - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            send(endpoint, intended);
+        }
+    }
+
+    private void send(Endpoint endpoint, long intended) {
+        if (endpoint.inFlight.incrementAndGet() > endpoint.maxInFlight) {
+            endpoint.inFlight.decrementAndGet();
+            endpoint.dropped.increment();
+            return;
+        }
+        HttpRequest request = endpoint.requests.get();
+        long sent = System.nanoTime();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+            long completed = System.nanoTime();
+            endpoint.inFlight.decrementAndGet();
+            if (failure == null && response.statusCode() < 400) {
+                endpoint.responseTime.recordValue(TimeUnit.NANOSECONDS.toMicros(completed - intended));
+                endpoint.serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(completed - sent));
+                endpoint.succeeded.increment();
+            } else {
+                endpoint.failed.increment();
+            }
+        });
+    }
+
+    /**
+     * Load and measurements of one endpoint. Latencies are recorded in microseconds.
+     */
+    public static final class Endpoint {
+        private final String name;
+        private final double ratePerSecond;
+        private final int maxInFlight;
+        private final Supplier<HttpRequest> requests;
+
+        private final Histogram responseTime = new ConcurrentHistogram(3);
+        private final Histogram serviceTime = new ConcurrentHistogram(3);
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private Endpoint(String name, double ratePerSecond, int maxInFlight, Supplier<HttpRequest> requests) {
+            this.name = name;
+            this.ratePerSecond = ratePerSecond;
+            this.maxInFlight = maxInFlight;
+            this.requests = requests;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getRatePerSecond() {
+            return ratePerSecond;
+        }
+
+        public long getSucceeded() {
+            return succeeded.sum();
+        }
+
+        /**
+         * Discards everything measured so far, e.g. after a warmup run.
+         */
+        public void reset() {
+            responseTime.reset();
+            serviceTime.reset();
+            succeeded.reset();
+            failed.reset();
+            dropped.reset();
+        }
+
+        /**
+         * Summary of the measurements over a run of {@code duration}, including the full
+         * response time histogram (compressed, Base64) so runs can be merged or re-plotted.
+         */
+        public Map<String, Object> report(Duration duration) {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("targetRatePerSecond", ratePerSecond);
+            report.put("succeeded", succeeded.sum());
+            report.put("failed", failed.sum());
+            report.put("dropped", dropped.sum());
+            report.put("throughputPerSecond", succeeded.sum() / (duration.toMillis() / 1000.0));
+            report.put("responseTimeMs", percentiles(responseTime));
+            report.put("serviceTimeMs", percentiles(serviceTime));
+            ByteBuffer encoded = ByteBuffer.allocate(responseTime.getNeededByteBufferCapacity());
+            int length = responseTime.encodeIntoCompressedByteBuffer(encoded);
+            report.put("responseTimeHistogram", Base64.getEncoder().encodeToString(
+                    Arrays.copyOf(encoded.array(), length)));
+            return report;
+        }
+
+        private static Map<String, Object> percentiles(Histogram histogram) {
+            Map<String, Object> percentiles = new LinkedHashMap<>();
+            percentiles.put("p50", millis(histogram.getValueAtPercentile(50)));
+            percentiles.put("p90", millis(histogram.getValueAtPercentile(90)));
+            percentiles.put("p99", millis(histogram.getValueAtPercentile(99)));
+            percentiles.put("p999", millis(histogram.getValueAtPercentile(99.9)));
+            percentiles.put("max", millis(histogram.getMaxValue()));
+            percentiles.put("mean", histogram.getTotalCount() > 0 ? histogram.getMean() / 1000.0 : 0.0);
+            return percentiles;
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+}
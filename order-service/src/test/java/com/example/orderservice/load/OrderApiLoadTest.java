@@ -0,0 +1,212 @@
+package com.example.orderservice.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Boots the application under the {@code test} profile and drives its REST API with an
+ * {@link OpenLoopLoadGenerator} at fixed per-endpoint rates. Latency percentiles and
+ * throughput per endpoint are printed and written as a JSON report.
+ * <p>
+ * Not part of the regular test run. Run it with:
+ * <pre>
+ * mvn test -Dtest=OrderApiLoadTest -Dload.enabled=true [-Dload.duration=60s] [-Dload.rate.getOrder=2000]
+ * </pre>
+ * Settings (system properties, rates in requests per second, 0 disables an endpoint):
+ * {@code load.rate.createOrder} (100), {@code load.rate.createOrderWithInvoice} (10),
+ * {@code load.rate.getOrder} (200), {@code load.rate.listOrders} (10),
+ * {@code load.rate.getInvoice} (50), {@code load.duration} (30s), {@code load.warmup} (10s),
+ * {@code load.seedOrders} (200), {@code load.invoiceBytes} (65536),
+ * {@code load.listLimit} (100, 0 sends no limit and gets the default page), {@code load.maxInFlight} (10000) and
+ * {@code load.report} (target/load-report.json).
+ * <p>
+ * To compare platform and virtual request threads, run it twice with
+ * {@code -Dspring.threads.virtual.enabled=false} and {@code =true}, a simulated DynamoDB
+ * round trip such as {@code -Dorders.mock.latency=1s} and a separate {@code load.report}
+ * each, with the admission limits, DynamoDB bulkhead and slow-call threshold raised so
+ * they do not cap the run first (see the README). The report records which threads served
+ * the run.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        // src/test/resources/application-test.properties hides the one in src/main/resources
+        "spring.main.allow-bean-definition-overriding=true",
+        "orders.cache.enabled=false",
+        // Every request comes from one client; the concurrency limits stay on
+        "orders.limits.client.ratePerSecond=0",
+        // Per-request debug logging would dominate the measured latencies
+        "logging.level.com.example.orderservice=INFO"
+})
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "load.enabled", matches = "true")
+public class OrderApiLoadTest {
+
+    private static final String BOUNDARY = "load-test-boundary";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private Environment environment;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    @Test
+    public void runLoad() throws Exception {
+        Duration duration = DurationStyle.detectAndParse(System.getProperty("load.duration", "30s"));
+        Duration warmup = DurationStyle.detectAndParse(System.getProperty("load.warmup", "10s"));
+        int seedOrders = Integer.getInteger("load.seedOrders", 200);
+        int invoiceBytes = Integer.getInteger("load.invoiceBytes", 65536);
+        int listLimit = Integer.getInteger("load.listLimit", 100);
+        int maxInFlight = Integer.getInteger("load.maxInFlight", 10_000);
+        Path reportPath = Paths.get(System.getProperty("load.report", "target/load-report.json"));
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        URI baseUri = URI.create("http://localhost:" + port);
+
+        // Fixed seeds so every run sends the same invoice bytes and request mix
+        byte[] invoice = new byte[invoiceBytes];
+        new Random(42).nextBytes(invoice);
+        byte[] orderForm = orderForm(null);
+        byte[] orderFormWithInvoice = orderForm(invoice);
+
+        // Seed orders with invoices for the read endpoints
+        List<String> orderIds = new ArrayList<>(seedOrders);
+        for (int i = 0; i < seedOrders; i++) {
+            HttpResponse<String> response = httpClient.send(createOrder(baseUri, orderFormWithInvoice), HttpResponse.BodyHandlers.ofString());
+            assertEquals(201, response.statusCode(), response.body());
+            orderIds.add(objectMapper.readTree(response.body()).get("orderId").asText());
+        }
+
+        OpenLoopLoadGenerator generator = new OpenLoopLoadGenerator(httpClient);
+        generator.endpoint("createOrder", rate("createOrder", 100), maxInFlight,
+                () -> createOrder(baseUri, orderForm));
+        generator.endpoint("createOrderWithInvoice", rate("createOrderWithInvoice", 10), maxInFlight,
+                () -> createOrder(baseUri, orderFormWithInvoice));
+        Random getOrderIds = new Random(1);
+        generator.endpoint("getOrder", rate("getOrder", 200), maxInFlight,
+                () -> get(baseUri.resolve("/orders/" + orderIds.get(getOrderIds.nextInt(orderIds.size())))));
+        generator.endpoint("listOrders", rate("listOrders", 10), maxInFlight,
+                () -> get(baseUri.resolve(listLimit > 0 ? "/orders?limit=" + listLimit : "/orders")));
+        Random invoiceOrderIds = new Random(2);
+        generator.endpoint("getInvoice", rate("getInvoice", 50), maxInFlight,
+                () -> get(baseUri.resolve("/orders/" + orderIds.get(invoiceOrderIds.nextInt(orderIds.size())) + "/invoice")));
+
+        if (!warmup.isZero()) {
+            generator.run(warmup, REQUEST_TIMEOUT);
+            generator.getEndpoints().forEach(OpenLoopLoadGenerator.Endpoint::reset);
+        }
+        Instant startedAt = Instant.now();
+        generator.run(duration, REQUEST_TIMEOUT);
+
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("durationSeconds", duration.toMillis() / 1000.0);
+        settings.put("warmupSeconds", warmup.toMillis() / 1000.0);
+        settings.put("seedOrders", seedOrders);
+        settings.put("invoiceBytes", invoiceBytes);
+        settings.put("listLimit", listLimit);
+        settings.put("maxInFlight", maxInFlight);
+        settings.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        settings.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+        settings.put("javaVersion", Runtime.version().toString());
+        settings.put("virtualThreads", Threading.VIRTUAL.isActive(environment));
+        settings.put("tomcatMaxThreads", environment.getProperty("server.tomcat.threads.max", Integer.class, 200));
+        settings.put("mockLatency", environment.getProperty("orders.mock.latency", "0ms"));
+
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        System.out.printf("%-24s %10s %8s %8s %10s %10s %10s %10s%n",
+                "endpoint", "req/s", "failed", "dropped", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (OpenLoopLoadGenerator.Endpoint endpoint : generator.getEndpoints()) {
+            Map<String, Object> report = endpoint.report(duration);
+            endpoints.put(endpoint.getName(), report);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> latency = (Map<String, Object>) report.get("responseTimeMs");
+            System.out.printf("%-24s %10.1f %8d %8d %10.2f %10.2f %10.2f %10.2f%n", endpoint.getName(),
+                    report.get("throughputPerSecond"), report.get("failed"), report.get("dropped"),
+                    latency.get("p50"), latency.get("p99"), latency.get("p999"), latency.get("max"));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", startedAt.toString());
+        report.put("settings", settings);
+        report.put("endpoints", endpoints);
+        Files.createDirectories(reportPath.toAbsolutePath().getParent());
+        objectMapper.writeValue(reportPath.toFile(), report);
+        System.out.println("Load report written to " + reportPath.toAbsolutePath());
+
+        for (OpenLoopLoadGenerator.Endpoint endpoint : generator.getEndpoints()) {
+            assertTrue(endpoint.getRatePerSecond() <= 0 || endpoint.getSucceeded() > 0, endpoint.getName() + " never succeeded");
+        }
+    }
+
+    private static double rate(String endpoint, double defaultRate) {
+        return Double.parseDouble(System.getProperty("load.rate." + endpoint, String.valueOf(defaultRate)));
+    }
+
+    private static HttpRequest createOrder(URI baseUri, byte[] form) {
+        return HttpRequest.newBuilder(baseUri.resolve("/orders"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(form))
+                .build();
+    }
+
+    private static HttpRequest get(URI uri) {
+        return HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT).GET().build();
+    }
+
+    private static byte[] orderForm(byte[] invoice) throws IOException {
+        ByteArrayOutputStream form = new ByteArrayOutputStream();
+        formField(form, "customerName", "Load Test Customer");
+        formField(form, "orderAmount", "149.99");
+        formField(form, "orderDate", "2024-03-15");
+        if (invoice != null) {
+            form.write(("--" + BOUNDARY + "\r\n"
+                    + "Content-Disposition: form-data; name=\"invoiceFile\"; filename=\"invoice.pdf\"\r\n"
+                    + "Content-Type: application/pdf\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            form.write(invoice);
+            form.write("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+        form.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return form.toByteArray();
+    }
+
+    private static void formField(ByteArrayOutputStream form, String name, String value) throws IOException {
+        form.write(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n"
+                + value + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
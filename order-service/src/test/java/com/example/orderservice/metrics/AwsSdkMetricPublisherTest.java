@@ -0,0 +1,62 @@
+package com.example.orderservice.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricCollector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AwsSdkMetricPublisherTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AwsSdkMetricPublisher publisher;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        publisher = new AwsSdkMetricPublisher(meterRegistry);
+    }
+
+    @Test
+    public void testPoolStateAndConnectionAcquire() {
+        // Prepare test data - a saturated pool with two waiting requests
+        publisher.publish(apiCall(50, 50, 0, 2, Duration.ofMillis(30)));
+
+        assertEquals(50, meterRegistry.get("aws.sdk.http.pool.max").tags("client", "Apache").gauge().value());
+        assertEquals(50, meterRegistry.get("aws.sdk.http.pool.leased").gauge().value());
+        assertEquals(0, meterRegistry.get("aws.sdk.http.pool.available").gauge().value());
+        assertEquals(2, meterRegistry.get("aws.sdk.http.pool.pending").gauge().value());
+        assertEquals(30, meterRegistry.get("aws.sdk.http.connection.acquire").tags("service", "DynamoDB").timer()
+                .totalTime(TimeUnit.MILLISECONDS));
+
+        // The gauges follow the latest report
+        publisher.publish(apiCall(50, 10, 40, 0, Duration.ZERO));
+
+        assertEquals(10, meterRegistry.get("aws.sdk.http.pool.leased").gauge().value());
+        assertEquals(0, meterRegistry.get("aws.sdk.http.pool.pending").gauge().value());
+        assertEquals(2, meterRegistry.get("aws.sdk.http.connection.acquire").timer().count());
+    }
+
+    private static MetricCollection apiCall(int max, int leased, int available, int pending, Duration acquire) {
+        MetricCollector apiCall = MetricCollector.create("ApiCall");
+        apiCall.reportMetric(CoreMetric.SERVICE_ID, "DynamoDB");
+        MetricCollector attempt = apiCall.createChild("ApiCallAttempt");
+        MetricCollector http = attempt.createChild("HttpClient");
+        http.reportMetric(HttpMetric.HTTP_CLIENT_NAME, "Apache");
+        http.reportMetric(HttpMetric.MAX_CONCURRENCY, max);
+        http.reportMetric(HttpMetric.LEASED_CONCURRENCY, leased);
+        http.reportMetric(HttpMetric.AVAILABLE_CONCURRENCY, available);
+        http.reportMetric(HttpMetric.PENDING_CONCURRENCY_ACQUIRES, pending);
+        http.reportMetric(HttpMetric.CONCURRENCY_ACQUIRE_DURATION, acquire);
+        return apiCall.collect();
+    }
+}
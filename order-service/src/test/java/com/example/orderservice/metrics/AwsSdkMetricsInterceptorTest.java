@@ -0,0 +1,141 @@
+package com.example.orderservice.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.http.ExecutableHttpRequest;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.HttpExecuteResponse;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AwsSdkMetricsInterceptorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private Deque<HttpExecuteResponse> responses;
+    private DynamoDbClient dynamoDbClient;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        responses = new ArrayDeque<>();
+        dynamoDbClient = DynamoDbClient.builder()
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+                .endpointOverride(URI.create("http://localhost:8000"))
+                .httpClient(new StubHttpClient(responses))
+                .overrideConfiguration(override -> override
+                        .addExecutionInterceptor(new AwsSdkMetricsInterceptor(meterRegistry))
+                        .addMetricPublisher(new AwsSdkMetricPublisher(meterRegistry)))
+                .build();
+    }
+
+    @Test
+    public void testThrottledAttemptIsRetriedAndRecorded() {
+        // Prepare test data - DynamoDB throttles the first attempt
+        responses.add(response(400, "ProvisionedThroughputExceededException:",
+                "{\"__type\":\"com.amazonaws.dynamodb.v20120810#ProvisionedThroughputExceededException\",\"message\":\"Slow down\"}"));
+        responses.add(response(200, null, "{}"));
+
+        dynamoDbClient.getItem(getItem());
+
+        assertEquals(1, meterRegistry.get("aws.sdk.calls")
+                .tags("service", "DynamoDb", "operation", "GetItem", "outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("aws.sdk.retries").tags("operation", "GetItem").counter().count());
+        assertEquals(1, meterRegistry.get("aws.sdk.throttles").tags("operation", "GetItem").counter().count());
+        assertEquals(2, meterRegistry.get("aws.sdk.request.bytes").tags("operation", "GetItem").summary().count());
+        assertEquals(2, meterRegistry.get("aws.sdk.response.bytes").tags("operation", "GetItem").summary().count());
+        assertEquals(0, meterRegistry.get("aws.sdk.calls.in.flight").tags("service", "DynamoDb").gauge().value());
+        assertEquals(1, meterRegistry.get("aws.sdk.retry.backoff").tags("service", "DynamoDB").timer().count());
+    }
+
+    @Test
+    public void testFailedCallIsRecordedAsError() {
+        // Prepare test data - a validation error is not retried
+        responses.add(response(400, "ValidationException:",
+                "{\"__type\":\"com.amazon.coral.validate#ValidationException\",\"message\":\"Bad key\"}"));
+
+        assertThrows(DynamoDbException.class, () -> dynamoDbClient.getItem(getItem()));
+
+        assertEquals(1, meterRegistry.get("aws.sdk.calls")
+                .tags("operation", "GetItem", "outcome", "error", "exception", "DynamoDbException").timer().count());
+        assertNull(meterRegistry.find("aws.sdk.throttles").counter());
+        assertNull(meterRegistry.find("aws.sdk.retries").counter());
+    }
+
+    @Test
+    public void testIsThrottled() {
+        assertTrue(AwsSdkMetricsInterceptor.isThrottled(SdkHttpResponse.builder().statusCode(503).build()));
+        assertTrue(AwsSdkMetricsInterceptor.isThrottled(SdkHttpResponse.builder().statusCode(429).build()));
+        assertTrue(AwsSdkMetricsInterceptor.isThrottled(SdkHttpResponse.builder().statusCode(400)
+                .putHeader("x-amzn-ErrorType", "ThrottlingException:").build()));
+        assertFalse(AwsSdkMetricsInterceptor.isThrottled(SdkHttpResponse.builder().statusCode(400)
+                .putHeader("x-amzn-ErrorType", "ValidationException:").build()));
+        assertFalse(AwsSdkMetricsInterceptor.isThrottled(SdkHttpResponse.builder().statusCode(500).build()));
+    }
+
+    private static GetItemRequest getItem() {
+        return GetItemRequest.builder()
+                .tableName("orders")
+                .key(Map.of("orderId", AttributeValue.builder().s("1").build()))
+                .build();
+    }
+
+    private static HttpExecuteResponse response(int status, String errorType, String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        SdkHttpResponse.Builder response = SdkHttpResponse.builder()
+                .statusCode(status)
+                .putHeader("Content-Length", String.valueOf(bytes.length))
+                .putHeader("Content-Type", "application/x-amz-json-1.0");
+        if (errorType != null) {
+            response.putHeader("x-amzn-ErrorType", errorType);
+        }
+        return HttpExecuteResponse.builder()
+                .response(response.build())
+                .responseBody(AbortableInputStream.create(new ByteArrayInputStream(bytes)))
+                .build();
+    }
+
+    private static final class StubHttpClient implements SdkHttpClient {
+        private final Deque<HttpExecuteResponse> responses;
+
+        private StubHttpClient(Deque<HttpExecuteResponse> responses) {
+            this.responses = responses;
+        }
+
+        @Override
+        public ExecutableHttpRequest prepareRequest(HttpExecuteRequest request) {
+            return new ExecutableHttpRequest() {
+                @Override
+                public HttpExecuteResponse call() {
+                    return responses.remove();
+                }
+
+                @Override
+                public void abort() {
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.orderservice.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RequestMetricsInterceptorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RequestMetricsInterceptor interceptor;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        interceptor = new RequestMetricsInterceptor(meterRegistry);
+    }
+
+    @Test
+    public void testRequestIsActiveUntilCompletion() {
+        // Prepare test data
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/orders");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/orders");
+        request.setContent(new byte[128]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, new Object());
+        // An async redispatch must not start a second sample
+        interceptor.preHandle(request, response, new Object());
+        assertEquals(1, meterRegistry.get("http.server.requests.active").tags("method", "POST", "uri", "/orders")
+                .longTaskTimer().activeTasks());
+
+        interceptor.afterCompletion(request, response, new Object(), null);
+
+        assertEquals(0, meterRegistry.get("http.server.requests.active").longTaskTimer().activeTasks());
+        assertEquals(128, meterRegistry.get("http.server.requests.bytes").tags("uri", "/orders").summary().totalAmount());
+    }
+}
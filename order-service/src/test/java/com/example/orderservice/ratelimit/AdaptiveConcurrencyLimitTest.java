@@ -0,0 +1,80 @@
+package com.example.orderservice.ratelimit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimitTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private AdaptiveConcurrencyLimit limit;
+
+    @BeforeEach
+    public void setup() {
+        limit = new AdaptiveConcurrencyLimit(10, 2, 20, Duration.ofMillis(100), 0.5, clock::get);
+    }
+
+    @Test
+    public void testRejectsOverLimit() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limit.tryAcquire() >= 0);
+        }
+
+        assertEquals(-1, limit.tryAcquire());
+        assertEquals(10, limit.getInFlight());
+        assertEquals(1.0, limit.utilization());
+    }
+
+    @Test
+    public void testGrowsWhileFastAndSaturated() {
+        // A full limit's worth of fast requests raises the limit by one
+        for (int round = 0; round < 10; round++) {
+            long[] starts = new long[10];
+            for (int i = 0; i < 10; i++) {
+                starts[i] = limit.tryAcquire();
+            }
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+            for (long start : starts) {
+                limit.release(start, false);
+            }
+        }
+
+        assertTrue(limit.getLimit() > 10);
+        assertTrue(limit.getLimit() <= 20);
+    }
+
+    @Test
+    public void testDoesNotGrowWhileIdle() {
+        for (int i = 0; i < 100; i++) {
+            limit.release(limit.tryAcquire(), false);
+        }
+
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    public void testSlowBurstCutsLimitOnce() {
+        long[] starts = new long[8];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = limit.tryAcquire();
+        }
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        for (long start : starts) {
+            limit.release(start, false);
+        }
+
+        assertEquals(5, limit.getLimit());
+
+        // Requests admitted after the cut count again
+        limit.release(limit.tryAcquire(), true);
+        assertEquals(2, limit.getLimit());
+        limit.release(limit.tryAcquire(), true);
+        assertEquals(2, limit.getLimit());
+    }
+}
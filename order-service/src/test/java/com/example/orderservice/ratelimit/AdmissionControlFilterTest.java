@@ -0,0 +1,125 @@
+package com.example.orderservice.ratelimit;
+
+import com.example.orderservice.ratelimit.AdmissionControlFilter.EndpointGroup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlFilterTest {
+
+    private AdaptiveConcurrencyLimit readLimit;
+    private AdaptiveConcurrencyLimit writeLimit;
+    private AdaptiveConcurrencyLimit bulkLimit;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AdmissionControlFilter filter;
+
+    @BeforeEach
+    public void setup() {
+        readLimit = new AdaptiveConcurrencyLimit(4, 1, 8, Duration.ofSeconds(1), 0.9);
+        writeLimit = new AdaptiveConcurrencyLimit(2, 1, 8, Duration.ofSeconds(1), 0.9);
+        bulkLimit = new AdaptiveConcurrencyLimit(1, 1, 1, Duration.ofDays(1), 0.9);
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new AdmissionControlFilter(
+                Map.of(EndpointGroup.READ, readLimit, EndpointGroup.WRITE, writeLimit, EndpointGroup.BULK, bulkLimit),
+                new ClientRateLimiter(1, 2, 100), 1, 0.5, Duration.ofSeconds(2), meterRegistry);
+    }
+
+    @Test
+    public void testClassifiesEndpoints() {
+        assertNull(AdmissionControlFilter.classify(new MockHttpServletRequest("GET", "/health/ready")));
+        assertNull(AdmissionControlFilter.classify(new MockHttpServletRequest("GET", "/actuator/prometheus")));
+        assertEquals(EndpointGroup.READ, AdmissionControlFilter.classify(new MockHttpServletRequest("GET", "/orders/1")));
+        assertEquals(EndpointGroup.WRITE, AdmissionControlFilter.classify(new MockHttpServletRequest("POST", "/orders")));
+        assertEquals(EndpointGroup.BULK, AdmissionControlFilter.classify(new MockHttpServletRequest("POST", "/orders/bulk")));
+        assertEquals(EndpointGroup.BULK, AdmissionControlFilter.classify(new MockHttpServletRequest("GET", "/orders/export")));
+    }
+
+    @Test
+    public void testClientOverRateGets429() throws Exception {
+        assertEquals(200, perform(request("GET", "/orders/1", "client-a")).getStatus());
+        assertEquals(200, perform(request("GET", "/orders/1", "client-a")).getStatus());
+
+        MockHttpServletResponse rejected = perform(request("GET", "/orders/1", "client-a"));
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+
+        // Other clients have their own bucket, and health checks are never limited
+        assertEquals(200, perform(request("GET", "/orders/1", "client-b")).getStatus());
+        assertEquals(200, perform(request("GET", "/health", "client-a")).getStatus());
+        assertEquals(1.0, meterRegistry.get("orders.limits.rejected").tag("reason", "client-rate").counter().count());
+    }
+
+    @Test
+    public void testClientIsIdentifiedByTrustedHopOrPrincipal() {
+        MockHttpServletRequest direct = new MockHttpServletRequest("GET", "/orders/1");
+        direct.setRemoteAddr("10.0.0.5");
+        assertEquals("10.0.0.5", filter.clientId(direct));
+
+        // The balancer appended the address it saw; what the client wrote in front is ignored
+        MockHttpServletRequest forwarded = request("GET", "/orders/1", "1.2.3.4, 203.0.113.7");
+        forwarded.setRemoteAddr("10.0.0.1");
+        assertEquals("203.0.113.7", filter.clientId(forwarded));
+
+        forwarded.setUserPrincipal(() -> "alice");
+        assertEquals("principal:alice", filter.clientId(forwarded));
+    }
+
+    @Test
+    public void testRequestOverConcurrencyLimitGets503() throws Exception {
+        writeLimit.tryAcquire();
+        writeLimit.tryAcquire();
+
+        MockHttpServletResponse rejected = perform(request("POST", "/orders", "client-a"));
+
+        assertEquals(503, rejected.getStatus());
+        assertEquals("2", rejected.getHeader("Retry-After"));
+        assertEquals(200, perform(request("GET", "/orders/1", "client-a")).getStatus());
+        assertEquals(1.0, meterRegistry.get("orders.limits.rejected").tag("group", "write").tag("reason", "concurrency")
+                .counter().count());
+        assertEquals(2.0, meterRegistry.get("orders.limits.inflight").tag("group", "write").gauge().value());
+    }
+
+    @Test
+    public void testBulkIsShedWhileReadsAreBusy() throws Exception {
+        readLimit.tryAcquire();
+        readLimit.tryAcquire();
+        readLimit.tryAcquire();
+
+        assertEquals(503, perform(request("POST", "/orders/bulk", "client-a")).getStatus());
+        assertEquals(1.0, meterRegistry.get("orders.limits.rejected").tag("reason", "priority").counter().count());
+    }
+
+    @Test
+    public void testPermitIsReleasedAndServerErrorsCountAsFailures() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain failing = (req, res) -> ((MockHttpServletResponse) res).setStatus(500);
+
+        filter.doFilter(request("POST", "/orders", "client-a"), response, failing);
+
+        assertEquals(0, writeLimit.getInFlight());
+        assertEquals(1, writeLimit.getLimit());
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String path, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        return request;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.orderservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AppendOnlyLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRecordsSurviveReopenAndGrowth() throws IOException {
+        // Prepare test data - a 64 byte mapping has to grow several times
+        List<String> written = new ArrayList<>();
+        try (AppendOnlyLog log = new AppendOnlyLog(directory, "test", 64, Duration.ZERO)) {
+            for (int i = 0; i < 100; i++) {
+                written.add("record-" + i);
+                log.append(bytes("record-" + i));
+            }
+            log.sync();
+        }
+
+        try (AppendOnlyLog log = new AppendOnlyLog(directory, "test", 64, Duration.ZERO)) {
+            assertEquals(written, read(log));
+        }
+    }
+
+    @Test
+    public void testTornRecordIsDiscardedOnOpen() throws IOException {
+        // Prepare test data
+        long secondOffset;
+        try (AppendOnlyLog log = new AppendOnlyLog(directory, "test", 4096, Duration.ZERO)) {
+            log.append(bytes("first"));
+            secondOffset = log.append(bytes("second"));
+            log.append(bytes("third"));
+            log.sync();
+        }
+        // Corrupt one payload byte of the second record, as a crash mid-write would
+        try (FileChannel file = FileChannel.open(directory.resolve("test-000001.log"), StandardOpenOption.WRITE)) {
+            file.write(ByteBuffer.wrap(new byte[]{'X'}), secondOffset + AppendOnlyLog.HEADER_BYTES);
+        }
+
+        try (AppendOnlyLog log = new AppendOnlyLog(directory, "test", 4096, Duration.ZERO)) {
+            assertEquals(List.of("first"), read(log));
+            log.append(bytes("fourth"));
+            log.sync();
+        }
+        try (AppendOnlyLog log = new AppendOnlyLog(directory, "test", 4096, Duration.ZERO)) {
+            assertEquals(List.of("first", "fourth"), read(log));
+        }
+    }
+
+    @Test
+    public void testCompactKeepsOnlyLiveRecords() throws IOException {
+        // Prepare test data
+        try (AppendOnlyLog log = new AppendOnlyLog(directory, "test", 4096, Duration.ZERO)) {
+            long a = log.append(bytes("a-old"));
+            log.append(bytes("b"));
+            long c = log.append(bytes("c"));
+            long[] compacted = log.compact(new long[]{a, c});
+
+            assertArrayEquals(new long[]{0, AppendOnlyLog.HEADER_BYTES + 5}, compacted);
+            assertEquals(List.of("a-old", "c"), read(log));
+            log.append(bytes("d"));
+            log.sync();
+        }
+
+        assertFalse(Files.exists(directory.resolve("test-000001.log")));
+        try (AppendOnlyLog log = new AppendOnlyLog(directory, "test", 4096, Duration.ZERO)) {
+            assertEquals(List.of("a-old", "c", "d"), read(log));
+        }
+    }
+
+    @Test
+    public void testConcurrentWritersShareSync() throws Exception {
+        // Prepare test data
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (AppendOnlyLog log = new AppendOnlyLog(directory, "test", 4096, Duration.ofMillis(1))) {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        log.append(bytes(thread + "-" + i));
+                        log.sync();
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            assertEquals(400, read(log).size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> read(AppendOnlyLog log) {
+        List<ByteBuffer> records = new ArrayList<>();
+        log.forEach((offset, payload) -> records.add(ByteBuffer.allocate(payload.remaining()).put(payload).flip()));
+        return records.stream().map(record -> StandardCharsets.UTF_8.decode(record).toString()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.model.BulkOrderResult;
+import com.example.orderservice.model.Order;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class BulkOrderIngestServiceTest {
+
+    @Mock
+    private OrderService orderService;
+
+    private BulkOrderIngestService bulkOrderIngestService;
+
+    private final List<BulkOrderResult> results = new ArrayList<>();
+
+    private final BulkOrderIngestService.ResultSink sink = new BulkOrderIngestService.ResultSink() {
+        @Override
+        public void accept(BulkOrderResult result) {
+            results.add(result);
+        }
+
+        @Override
+        public void flush() {
+        }
+    };
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        bulkOrderIngestService = new BulkOrderIngestService(orderService, new ObjectMapper(), 2, 100);
+
+        // Use the real validation and accept every valid order
+        when(orderService.buildOrder(any(), any(), any())).thenCallRealMethod();
+        when(orderService.saveBufferedOrder(any(Order.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+    }
+
+    @Test
+    public void testIngestNdjson() throws IOException {
+        String body = "{\"customerName\":\"Customer 1\",\"orderAmount\":\"100.00\",\"orderDate\":\"2024-01-01\"}\n" +
+                "\n" +
+                "{\"customerName\":\"Customer 2\",\"orderAmount\":250,\"orderDate\":\"2024-01-02\"}\n" +
+                "{\"customerName\":\"Customer 3\",\"orderAmount\":\"abc\",\"orderDate\":\"2024-01-03\"}\n" +
+                "not json\n";
+
+        bulkOrderIngestService.ingest(new StringReader(body), BulkOrderIngestService.Format.NDJSON, sink);
+
+        assertEquals(4, results.size());
+        assertResult(results.get(0), 1, BulkOrderResult.Status.CREATED);
+        assertResult(results.get(1), 3, BulkOrderResult.Status.CREATED);
+        assertResult(results.get(2), 4, BulkOrderResult.Status.REJECTED);
+        assertEquals("Invalid orderAmount: abc", results.get(2).getError());
+        assertResult(results.get(3), 5, BulkOrderResult.Status.REJECTED);
+
+        verify(orderService, times(2)).saveBufferedOrder(any(Order.class));
+    }
+
+    @Test
+    public void testIngestCsvWithQuotedFields() throws IOException {
+        String body = "orderDate,customerName,orderAmount\n" +
+                "2024-01-01,\"Smith, \"\"Jr\"\"\",12.50\n" +
+                "2024-01-02,,10\n";
+
+        bulkOrderIngestService.ingest(new StringReader(body), BulkOrderIngestService.Format.CSV, sink);
+
+        assertEquals(2, results.size());
+        assertResult(results.get(0), 2, BulkOrderResult.Status.CREATED);
+        assertResult(results.get(1), 3, BulkOrderResult.Status.REJECTED);
+        verify(orderService).saveBufferedOrder(argThat(order ->
+                order.getCustomerName().equals("Smith, \"Jr\"") && order.getOrderAmount().equals(new BigDecimal("12.50"))));
+    }
+
+    @Test
+    public void testIngestCsvRequiresHeader() throws IOException {
+        bulkOrderIngestService.ingest(new StringReader("Customer,10,2024-01-01\n"), BulkOrderIngestService.Format.CSV, sink);
+
+        assertEquals(1, results.size());
+        assertResult(results.get(0), 1, BulkOrderResult.Status.REJECTED);
+        verify(orderService, never()).saveBufferedOrder(any(Order.class));
+    }
+
+    @Test
+    public void testFailedWritesAreReportedInInputOrder() throws IOException {
+        CompletableFuture<Order> failedWrite = new CompletableFuture<>();
+        failedWrite.completeExceptionally(new IllegalStateException("throttled"));
+        CompletableFuture<Order> slowWrite = new CompletableFuture<>();
+        when(orderService.saveBufferedOrder(any(Order.class)))
+                .thenReturn(slowWrite)
+                .thenReturn(failedWrite)
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(invocation.getArgument(0)));
+
+        String body = "{\"customerName\":\"A\",\"orderAmount\":1,\"orderDate\":\"2024-01-01\"}\n" +
+                "{\"customerName\":\"B\",\"orderAmount\":1,\"orderDate\":\"2024-01-01\"}\n" +
+                "{\"customerName\":\"C\",\"orderAmount\":1,\"orderDate\":\"2024-01-01\"}\n";
+
+        // The window holds two records, so the third waits until the first write completes
+        CompletableFuture.runAsync(() -> slowWrite.complete(new Order("slow", "Customer", BigDecimal.ONE, null, null)),
+                CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS));
+
+        bulkOrderIngestService.ingest(new StringReader(body), BulkOrderIngestService.Format.NDJSON, sink);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), Arrays.asList(results.get(0).getLine(), results.get(1).getLine(), results.get(2).getLine()));
+        assertEquals("slow", results.get(0).getOrderId());
+        assertResult(results.get(1), 2, BulkOrderResult.Status.FAILED);
+        assertEquals("throttled", results.get(1).getError());
+        assertResult(results.get(2), 3, BulkOrderResult.Status.CREATED);
+    }
+
+    @Test
+    public void testOverlongRecordIsRejectedWithoutBuffering() throws IOException {
+        String body = "{\"customerName\":\"" + "x".repeat(200) + "\",\"orderAmount\":1,\"orderDate\":\"2024-01-01\"}\r\n" +
+                "{\"customerName\":\"A\",\"orderAmount\":1,\"orderDate\":\"2024-01-01\"}\r\n";
+
+        bulkOrderIngestService.ingest(new StringReader(body), BulkOrderIngestService.Format.NDJSON, sink);
+
+        assertEquals(2, results.size());
+        assertResult(results.get(0), 1, BulkOrderResult.Status.REJECTED);
+        assertEquals("Record exceeds 100 characters", results.get(0).getError());
+        assertResult(results.get(1), 2, BulkOrderResult.Status.CREATED);
+        verify(orderService).saveBufferedOrder(any(Order.class));
+    }
+
+    @Test
+    public void testSplitCsv() {
+        assertEquals(Arrays.asList("a", "b, c", "", "d\"e"), BulkOrderIngestService.splitCsv("a,\"b, c\",,\"d\"\"e\""));
+        assertThrows(IllegalArgumentException.class, () -> BulkOrderIngestService.splitCsv("a,\"b"));
+    }
+
+    private static void assertResult(BulkOrderResult result, long line, BulkOrderResult.Status status) {
+        assertEquals(line, result.getLine());
+        assertEquals(status, result.getStatus());
+        if (status == BulkOrderResult.Status.CREATED) {
+            assertNotNull(result.getOrderId());
+        }
+    }
+}
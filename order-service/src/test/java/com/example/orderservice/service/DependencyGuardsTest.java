@@ -0,0 +1,124 @@
+package com.example.orderservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.example.orderservice.service.DependencyGuards.Dependency;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DependencyGuardsTest {
+
+    private MeterRegistry meterRegistry;
+    private DependencyGuards guards;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Opens after 4 calls with half of them failed, probes again after 50ms with one call
+        guards = new DependencyGuards(meterRegistry, 50, 100, 4, 4, Duration.ofMillis(50), 1, Duration.ZERO,
+                1, Duration.ofSeconds(10), 2, Duration.ofSeconds(10), 2, Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void testOpensAfterFailuresAndRejects() {
+        for (int i = 0; i < 4; i++) {
+            assertThrows(RuntimeException.class, () -> guards.call(Dependency.SNS, () -> {
+                throw AwsServiceException.builder().statusCode(500).message("Internal error").build();
+            }));
+        }
+
+        assertTrue(guards.isOpen(Dependency.SNS));
+        DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class,
+                () -> guards.call(Dependency.SNS, () -> "sent"));
+        assertEquals("sns", e.getDependency());
+        assertEquals(Duration.ofMillis(50), e.getRetryAfter());
+
+        // The other dependencies are unaffected
+        assertFalse(guards.isOpen(Dependency.S3));
+        assertEquals("stored", guards.call(Dependency.S3, () -> "stored"));
+    }
+
+    @Test
+    public void testClosesAfterSuccessfulProbe() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            assertThrows(RuntimeException.class, () -> guards.run(Dependency.DYNAMODB, () -> {
+                throw new IllegalStateException("Connection reset");
+            }));
+        }
+        assertTrue(guards.isOpen(Dependency.DYNAMODB));
+
+        Thread.sleep(100);
+
+        assertEquals("order", guards.call(Dependency.DYNAMODB, () -> "order"));
+        assertEquals(CircuitBreaker.State.CLOSED, guards.getState(Dependency.DYNAMODB));
+    }
+
+    @Test
+    public void testClientErrorsDoNotOpen() {
+        for (int i = 0; i < 10; i++) {
+            assertThrows(NoSuchKeyException.class, () -> guards.call(Dependency.S3, () -> {
+                throw NoSuchKeyException.builder().statusCode(404).message("No such key").build();
+            }));
+            assertThrows(IllegalArgumentException.class, () -> guards.call(Dependency.S3, () -> {
+                throw new IllegalArgumentException("Invalid page token");
+            }));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, guards.getState(Dependency.S3));
+    }
+
+    @Test
+    public void testFullBulkheadRejects() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> blocked = CompletableFuture.supplyAsync(() -> guards.call(Dependency.DYNAMODB, () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "first";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        DependencyUnavailableException e = assertThrows(DependencyUnavailableException.class,
+                () -> guards.call(Dependency.DYNAMODB, () -> "second"));
+        assertEquals(Duration.ofSeconds(1), e.getRetryAfter());
+
+        release.countDown();
+        assertEquals("first", blocked.get(5, TimeUnit.SECONDS));
+        assertEquals("third", guards.call(Dependency.DYNAMODB, () -> "third"));
+    }
+
+    @Test
+    public void testAsyncRejectionCompletesExceptionally() {
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<String> failed = guards.callAsync(Dependency.SNS,
+                    () -> CompletableFuture.failedFuture(new IllegalStateException("Timed out")));
+            assertTrue(failed.isCompletedExceptionally());
+        }
+
+        CompletableFuture<String> rejected = guards.callAsync(Dependency.SNS, () -> CompletableFuture.completedFuture("sent"));
+
+        Exception e = assertThrows(Exception.class, rejected::join);
+        assertInstanceOf(DependencyUnavailableException.class, e.getCause());
+
+        guards.recordFallback(Dependency.SNS, "outbox");
+        assertEquals(1.0, meterRegistry.get("orders.resilience.fallbacks")
+                .tag("dependency", "sns").tag("fallback", "outbox").counter().count());
+        assertNotNull(meterRegistry.find("resilience4j.circuitbreaker.state").tag("name", "sns").gauges());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.orderservice.service;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.example.orderservice.model.DependencyHealth;
+import com.example.orderservice.model.HealthReport;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class DependencyHealthMonitorTest {
+
+    @Mock
+    private DynamoDbService dynamoDbService;
+
+    @Mock
+    private S3Service s3Service;
+
+    @Mock
+    private SnsService snsService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private DependencyHealthMonitor monitor;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        // No background probing; tests call refresh() themselves
+        monitor = new DependencyHealthMonitor(dynamoDbService, s3Service, snsService, new DependencyGuards(meterRegistry), meterRegistry,
+                Duration.ZERO, Duration.ofSeconds(1), Duration.ofMillis(50), Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        monitor.shutdown();
+    }
+
+    @Test
+    public void testNotReadyBeforeFirstProbe() {
+        HealthReport report = monitor.readiness();
+
+        assertEquals(DependencyHealth.Status.DOWN, report.getStatus());
+        assertEquals(3, report.getDependencies().size());
+    }
+
+    @Test
+    public void testReadyWhenAllProbesSucceed() {
+        monitor.refresh();
+
+        HealthReport report = monitor.readiness();
+        assertEquals(DependencyHealth.Status.UP, report.getStatus());
+        assertEquals("dynamodb", report.getDependencies().get(0).getName());
+        assertEquals(1, meterRegistry.get("health.ready").gauge().value());
+        assertEquals(1, meterRegistry.get("health.probe").tags("dependency", "sns", "status", "UP").timer().count());
+        verify(dynamoDbService).probe(Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void testSlowAndFailingProbes() {
+        // Prepare test data - S3 answers slowly, SNS fails
+        doAnswer(invocation -> {
+            Thread.sleep(100);
+            return null;
+        }).when(s3Service).probe(any());
+        doThrow(new IllegalStateException("Topic not found")).when(snsService).probe(any());
+
+        monitor.refresh();
+
+        HealthReport report = monitor.readiness();
+        assertEquals(DependencyHealth.Status.DOWN, report.getStatus());
+        assertEquals(DependencyHealth.Status.UP, report.getDependencies().get(0).getStatus());
+        assertEquals(DependencyHealth.Status.DEGRADED, report.getDependencies().get(1).getStatus());
+        assertTrue(report.getDependencies().get(1).getLatencyMillis() >= 100);
+        assertEquals(DependencyHealth.Status.DOWN, report.getDependencies().get(2).getStatus());
+        assertEquals("IllegalStateException: Topic not found", report.getDependencies().get(2).getError());
+    }
+
+    @Test
+    public void testHungProbeTimesOutAndIsNotRestarted() throws Exception {
+        // Prepare test data - the DynamoDB probe ignores interrupts until released
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            while (true) {
+                try {
+                    release.await();
+                    return null;
+                } catch (InterruptedException ignored) {
+                    // Keep hanging like a stuck socket read
+                }
+            }
+        }).when(dynamoDbService).probe(any());
+
+        monitor.refresh();
+        DependencyHealth dynamoDb = monitor.readiness().getDependencies().get(0);
+        assertEquals(DependencyHealth.Status.DOWN, dynamoDb.getStatus());
+        assertEquals("Timed out after 1000 ms", dynamoDb.getError());
+
+        monitor.refresh();
+        assertEquals("Previous probe has not returned", monitor.readiness().getDependencies().get(0).getError());
+        verify(dynamoDbService, times(1)).probe(any());
+
+        release.countDown();
+        Thread.sleep(50);
+        monitor.refresh();
+        assertEquals(DependencyHealth.Status.UP, monitor.readiness().getStatus());
+    }
+
+    @Test
+    public void testStaleResultsCountAsDown() throws Exception {
+        monitor.shutdown();
+        monitor = new DependencyHealthMonitor(dynamoDbService, s3Service, snsService, new DependencyGuards(meterRegistry), meterRegistry,
+                Duration.ZERO, Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofMillis(200));
+        monitor.refresh();
+        assertEquals(DependencyHealth.Status.UP, monitor.readiness().getStatus());
+
+        Thread.sleep(300);
+
+        assertEquals(DependencyHealth.Status.DOWN, monitor.readiness().getStatus());
+    }
+}
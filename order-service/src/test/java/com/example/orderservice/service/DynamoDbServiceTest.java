@@ -1,19 +1,25 @@
 package com.example.orderservice.service;
 
 import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderPage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -24,6 +30,9 @@ public class DynamoDbServiceTest {
     @Mock
     private DynamoDbClient dynamoDbClient;
 
+    @Mock
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+
     private DynamoDbService dynamoDbService;
 
     private final String tableName = "test-orders";
@@ -31,7 +40,7 @@ public class DynamoDbServiceTest {
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
-        dynamoDbService = new DynamoDbService(dynamoDbClient, tableName);
+        dynamoDbService = new DynamoDbService(dynamoDbClient, dynamoDbAsyncClient, tableName);
     }
 
     @Test
@@ -68,6 +77,19 @@ public class DynamoDbServiceTest {
         assertEquals(order.getInvoiceFileUrl(), item.get("invoiceFileUrl").s());
     }
 
+    @Test
+    public void testCreateOrderIsConditional() {
+        Order order = new Order("123", "Test Customer", new BigDecimal("150.50"), LocalDate.now(), null);
+        when(dynamoDbClient.putItem(any(PutItemRequest.class))).thenReturn(PutItemResponse.builder().build());
+
+        dynamoDbService.createOrder(order);
+
+        ArgumentCaptor<PutItemRequest> requestCaptor = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(dynamoDbClient, times(1)).putItem(requestCaptor.capture());
+        assertEquals("attribute_not_exists(orderId)", requestCaptor.getValue().conditionExpression());
+        assertEquals("123", requestCaptor.getValue().item().get("orderId").s());
+    }
+
     @Test
     public void testGetOrder() {
         // Prepare test data
@@ -176,4 +198,240 @@ public class DynamoDbServiceTest {
         ScanRequest capturedRequest = requestCaptor.getValue();
         assertEquals(tableName, capturedRequest.tableName());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetAllOrdersFollowsScanPages() {
+        // Prepare two scan pages linked by a LastEvaluatedKey
+        Map<String, AttributeValue> item1 = orderItem("1");
+        Map<String, AttributeValue> item2 = orderItem("2");
+        Map<String, AttributeValue> lastKey = Map.of("orderId", AttributeValue.builder().s("1").build());
+
+        // Mock DynamoDB client responses
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenReturn(ScanResponse.builder().items(item1).lastEvaluatedKey(lastKey).build())
+                .thenReturn(ScanResponse.builder().items(item2).build());
+
+        // Call the service method
+        List<Order> results = dynamoDbService.getAllOrders();
+
+        // Verify both pages were read
+        assertEquals(2, results.size());
+        assertEquals("1", results.get(0).getOrderId());
+        assertEquals("2", results.get(1).getOrderId());
+
+        // Verify the second scan resumed from the first page's LastEvaluatedKey
+        ArgumentCaptor<ScanRequest> requestCaptor = ArgumentCaptor.forClass(ScanRequest.class);
+        verify(dynamoDbClient, times(2)).scan(requestCaptor.capture());
+        assertFalse(requestCaptor.getAllValues().get(0).hasExclusiveStartKey());
+        assertEquals(lastKey, requestCaptor.getAllValues().get(1).exclusiveStartKey());
+    }
+
+    @Test
+    public void testGetOrdersPageTokenRoundTrip() {
+        // Prepare a first page that has more data behind it
+        Map<String, AttributeValue> lastKey = Map.of("orderId", AttributeValue.builder().s("1").build());
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenReturn(ScanResponse.builder().items(orderItem("1")).lastEvaluatedKey(lastKey).build())
+                .thenReturn(ScanResponse.builder().items(orderItem("2")).build());
+
+        // Read the first page
+        OrderPage firstPage = dynamoDbService.getOrders(1, null);
+        assertEquals(1, firstPage.getOrders().size());
+        assertNotNull(firstPage.getNextToken());
+
+        // Read the second page using the returned token
+        OrderPage secondPage = dynamoDbService.getOrders(1, firstPage.getNextToken());
+        assertEquals("2", secondPage.getOrders().get(0).getOrderId());
+        assertNull(secondPage.getNextToken());
+
+        // Verify the limit and the decoded start key were sent to DynamoDB
+        ArgumentCaptor<ScanRequest> requestCaptor = ArgumentCaptor.forClass(ScanRequest.class);
+        verify(dynamoDbClient, times(2)).scan(requestCaptor.capture());
+        assertEquals(1, requestCaptor.getAllValues().get(0).limit());
+        assertEquals(lastKey, requestCaptor.getAllValues().get(1).exclusiveStartKey());
+    }
+
+    @Test
+    public void testGetOrdersRejectsInvalidToken() {
+        assertThrows(IllegalArgumentException.class, () -> dynamoDbService.getOrders(10, "not-a-token"));
+        // Well-formed JSON that is no key, or a key without the table's key attribute
+        for (String json : new String[] {"null", "{}", "{\"orderId\":null}", "{\"customerName\":{\"S\":\"A\"}}"}) {
+            String token = Base64.getUrlEncoder().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+            assertThrows(IllegalArgumentException.class, () -> dynamoDbService.getOrders(10, token), json);
+        }
+        verify(dynamoDbClient, never()).scan(any(ScanRequest.class));
+    }
+
+    @Test
+    public void testBatchSaveOrdersReturnsUnprocessedOrders() {
+        // Prepare test data
+        Order order1 = new Order("1", "Customer 1", new BigDecimal("100.00"), LocalDate.now(), null);
+        Order order2 = new Order("2", "Customer 2", new BigDecimal("200.00"), LocalDate.now(), null);
+
+        // Mock DynamoDB client response leaving the second order unprocessed
+        WriteRequest unprocessed = WriteRequest.builder()
+                .putRequest(PutRequest.builder().item(orderItem("2")).build())
+                .build();
+        when(dynamoDbClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(BatchWriteItemResponse.builder()
+                        .unprocessedItems(Map.of(tableName, List.of(unprocessed)))
+                        .build());
+
+        // Call the service method
+        List<Order> result = dynamoDbService.batchSaveOrders(List.of(order1, order2));
+
+        // Verify only the unprocessed order is handed back
+        assertEquals(List.of(order2), result);
+
+        // Verify both orders were sent in one request
+        ArgumentCaptor<BatchWriteItemRequest> requestCaptor = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDbClient, times(1)).batchWriteItem(requestCaptor.capture());
+        List<WriteRequest> writes = requestCaptor.getValue().requestItems().get(tableName);
+        assertEquals(2, writes.size());
+        assertEquals("1", writes.get(0).putRequest().item().get("orderId").s());
+    }
+
+    @Test
+    public void testBatchSaveOrdersRejectsOversizedBatch() {
+        List<Order> orders = new java.util.ArrayList<>();
+        for (int i = 0; i <= DynamoDbService.MAX_BATCH_WRITE_ITEMS; i++) {
+            orders.add(new Order(String.valueOf(i), "Customer", new BigDecimal("1.00"), LocalDate.now(), null));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> dynamoDbService.batchSaveOrders(orders));
+        verify(dynamoDbClient, never()).batchWriteItem(any(BatchWriteItemRequest.class));
+    }
+
+    private Map<String, AttributeValue> orderItem(String orderId) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("orderId", AttributeValue.builder().s(orderId).build());
+        item.put("customerName", AttributeValue.builder().s("Customer " + orderId).build());
+        item.put("orderAmount", AttributeValue.builder().n("100.00").build());
+        item.put("orderDate", AttributeValue.builder().s(LocalDate.now().toString()).build());
+        return item;
+    }
+
+    @Test
+    public void testQueryByCustomer() {
+        // Mock DynamoDB client response with one more page to come
+        Map<String, AttributeValue> lastKey = Map.of(
+                "orderId", AttributeValue.builder().s("1").build(),
+                "customerName", AttributeValue.builder().s("Alice").build(),
+                "orderDate", AttributeValue.builder().s("2024-01-05").build());
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenReturn(QueryResponse.builder()
+                .items(item("1", "Alice", "2024-01-05"))
+                .lastEvaluatedKey(lastKey)
+                .build());
+
+        // Call the service method
+        OrderPage page = dynamoDbService.queryByCustomer("Alice", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), 1, null);
+
+        // Verify the result
+        assertEquals(1, page.getOrders().size());
+        assertNotNull(page.getNextToken());
+
+        // Verify the query uses the customer index
+        ArgumentCaptor<QueryRequest> requestCaptor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient).query(requestCaptor.capture());
+        QueryRequest request = requestCaptor.getValue();
+        assertEquals(DynamoDbService.CUSTOMER_DATE_INDEX, request.indexName());
+        assertEquals("customerName = :customerName AND orderDate BETWEEN :from AND :to", request.keyConditionExpression());
+        assertEquals("2024-01-01", request.expressionAttributeValues().get(":from").s());
+        assertEquals("2024-01-31", request.expressionAttributeValues().get(":to").s());
+        assertEquals(1, request.limit());
+
+        // The token resumes after the last key
+        dynamoDbService.queryByCustomer("Alice", null, null, 1, page.getNextToken());
+        verify(dynamoDbClient, times(2)).query(requestCaptor.capture());
+        assertEquals("customerName = :customerName", requestCaptor.getValue().keyConditionExpression());
+        assertEquals(lastKey, requestCaptor.getValue().exclusiveStartKey());
+    }
+
+    @Test
+    public void testQueryByDateRangeQueriesEachDay() {
+        // Mock one order on Jan 1, none on Jan 2 and two on Jan 3
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenAnswer(invocation -> {
+            QueryRequest request = invocation.getArgument(0);
+            String day = request.expressionAttributeValues().get(":orderDate").s();
+            switch (day) {
+                case "2024-01-01":
+                    return QueryResponse.builder().items(item("a", "Alice", day)).build();
+                case "2024-01-03":
+                    // Honour the limit the way DynamoDB does, returning the last key read
+                    return request.limit() == 1
+                            ? QueryResponse.builder().items(item("b", "Bob", day)).lastEvaluatedKey(item("b", "Bob", day)).build()
+                            : QueryResponse.builder().items(item("b", "Bob", day), item("c", "Carol", day)).build();
+                default:
+                    return QueryResponse.builder().items(List.of()).build();
+            }
+        });
+
+        // Read the first page of two orders
+        OrderPage first = dynamoDbService.queryByDateRange(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 4), 2, null);
+
+        assertEquals(List.of("a", "b"), orderIds(first));
+        ArgumentCaptor<QueryRequest> requestCaptor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(dynamoDbClient, times(3)).query(requestCaptor.capture());
+        assertEquals(DynamoDbService.ORDER_DATE_INDEX, requestCaptor.getValue().indexName());
+        assertEquals(1, requestCaptor.getValue().limit());
+        assertNotNull(first.getNextToken());
+    }
+
+    @Test
+    public void testQueryByDateRangeResumesOnNextDay() {
+        // Mock a single order per day
+        when(dynamoDbClient.query(any(QueryRequest.class))).thenAnswer(invocation -> {
+            QueryRequest request = invocation.getArgument(0);
+            String day = request.expressionAttributeValues().get(":orderDate").s();
+            return QueryResponse.builder().items(item("order-" + day, "Alice", day)).build();
+        });
+
+        // A page that ends exactly at the end of a day continues with the following day
+        OrderPage first = dynamoDbService.queryByDateRange(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2), 1, null);
+        assertEquals(List.of("order-2024-01-01"), orderIds(first));
+
+        OrderPage second = dynamoDbService.queryByDateRange(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2), 1, first.getNextToken());
+        assertEquals(List.of("order-2024-01-02"), orderIds(second));
+        assertNull(second.getNextToken());
+
+        // A token from outside the requested range is rejected
+        assertThrows(IllegalArgumentException.class, () ->
+                dynamoDbService.queryByDateRange(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 2), 1, first.getNextToken()));
+    }
+
+    private static Map<String, AttributeValue> item(String orderId, String customerName, String orderDate) {
+        return Map.of(
+                "orderId", AttributeValue.builder().s(orderId).build(),
+                "customerName", AttributeValue.builder().s(customerName).build(),
+                "orderAmount", AttributeValue.builder().n("10.00").build(),
+                "orderDate", AttributeValue.builder().s(orderDate).build());
+    }
+
+    private static List<String> orderIds(OrderPage page) {
+        return page.getOrders().stream().map(Order::getOrderId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testGetOrderAsync() {
+        // Prepare test data
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("orderId", AttributeValue.builder().s("123").build());
+        item.put("customerName", AttributeValue.builder().s("Test Customer").build());
+        item.put("orderAmount", AttributeValue.builder().n("150.50").build());
+        item.put("orderDate", AttributeValue.builder().s("2024-01-01").build());
+
+        // Mock DynamoDB async client responses
+        when(dynamoDbAsyncClient.getItem(any(GetItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(GetItemResponse.builder().item(item).build()))
+                .thenReturn(CompletableFuture.completedFuture(GetItemResponse.builder().build()));
+
+        // Call the service method and verify the results
+        Order result = dynamoDbService.getOrderAsync("123").join();
+        assertEquals("Test Customer", result.getCustomerName());
+        assertEquals(new BigDecimal("150.50"), result.getOrderAmount());
+        assertNull(dynamoDbService.getOrderAsync("missing").join());
+
+        // The blocking client is not used
+        verifyNoInteractions(dynamoDbClient);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.model.IdempotencyRecord;
+import com.example.orderservice.model.Order;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class IdempotencyServiceTest {
+
+    @Mock
+    private OrderService orderService;
+
+    private MockIdempotencyStore idempotencyStore;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private IdempotencyService idempotencyService;
+
+    private final String orderDate = LocalDate.now().toString();
+
+    @BeforeEach
+    public void setup() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        when(orderService.buildOrder(anyString(), anyString(), anyString())).thenAnswer(invocation -> Order.builder()
+                .orderId(UUID.randomUUID().toString())
+                .customerName(invocation.getArgument(0))
+                .orderAmount(new BigDecimal(invocation.<String>getArgument(1)))
+                .orderDate(LocalDate.parse(invocation.getArgument(2)))
+                .build());
+        when(orderService.createOrder(any(Order.class), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        idempotencyStore = spy(new MockIdempotencyStore());
+        meterRegistry = new SimpleMeterRegistry();
+        idempotencyService = new IdempotencyService(idempotencyStore, orderService, meterRegistry, Duration.ofHours(24),
+                Duration.ofMinutes(2), 100, Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC));
+    }
+
+    @Test
+    public void testRetryIsReplayedLocallyWithoutDownstreamWork() throws IOException {
+        IdempotencyService.Result first = idempotencyService.createOrder("key-1", "Customer", "100.00", orderDate, null);
+        IdempotencyService.Result retry = idempotencyService.createOrder("key-1", "Customer", "100.00", orderDate, null);
+
+        assertFalse(first.isReplayed());
+        assertTrue(retry.isReplayed());
+        assertEquals(first.getOrder().getOrderId(), retry.getOrder().getOrderId());
+        verify(orderService, times(1)).createOrder(any(Order.class), any());
+        verify(idempotencyStore, times(1)).claim(any(IdempotencyRecord.class), anyLong());
+        assertEquals(1.0, meterRegistry.get("orders.idempotency.requests").tag("outcome", "replayed-local").counter().count());
+    }
+
+    @Test
+    public void testRetryOnAnotherNodeIsReplayedFromStore() throws IOException {
+        Order created = idempotencyService.createOrder("key-1", "Customer", "100.00", orderDate, null).getOrder();
+        when(orderService.getOrder(created.getOrderId())).thenReturn(created);
+
+        // A second node shares the store but not the local cache
+        IdempotencyService otherNode = new IdempotencyService(idempotencyStore, orderService, meterRegistry, Duration.ofHours(24),
+                Duration.ofMinutes(2), 100, Clock.fixed(Instant.parse("2024-01-01T00:00:05Z"), ZoneOffset.UTC));
+        IdempotencyService.Result retry = otherNode.createOrder("key-1", "Customer", "100.00", orderDate, null);
+
+        assertTrue(retry.isReplayed());
+        assertSame(created, retry.getOrder());
+        verify(orderService, times(1)).createOrder(any(Order.class), any());
+    }
+
+    @Test
+    public void testKeyReusedForDifferentRequestIsRejected() throws IOException {
+        idempotencyService.createOrder("key-1", "Customer", "100.00", orderDate, null);
+
+        assertThrows(IdempotencyKeyMismatchException.class,
+                () -> idempotencyService.createOrder("key-1", "Customer", "999.00", orderDate, null));
+        MockMultipartFile invoice = new MockMultipartFile("invoiceFile", "invoice.pdf", "application/pdf", new byte[] {1});
+        assertThrows(IdempotencyKeyMismatchException.class,
+                () -> idempotencyService.createOrder("key-1", "Customer", "100.00", orderDate, invoice));
+        verify(orderService, times(1)).createOrder(any(Order.class), any());
+    }
+
+    @Test
+    public void testConcurrentRetryWhileInProgressIsRejected() throws IOException {
+        String requestHash = IdempotencyService.fingerprint("Customer", "100.00", orderDate, null);
+        idempotencyStore.claim(IdempotencyRecord.builder()
+                .idempotencyKey("key-1")
+                .requestHash(requestHash)
+                .status(IdempotencyRecord.Status.IN_PROGRESS)
+                .expiresAt(Instant.parse("2024-01-02T00:00:00Z").getEpochSecond())
+                .build(), 0);
+
+        assertThrows(IdempotencyRequestInProgressException.class,
+                () -> idempotencyService.createOrder("key-1", "Customer", "100.00", orderDate, null));
+        verify(orderService, never()).createOrder(any(Order.class), any());
+    }
+
+    @Test
+    public void testAbandonedClaimIsTakenOverAfterLease() throws IOException {
+        // A node died after claiming the key at midnight; its two-minute lease has run out
+        String requestHash = IdempotencyService.fingerprint("Customer", "100.00", orderDate, null);
+        idempotencyStore.claim(IdempotencyRecord.builder()
+                .idempotencyKey("key-1")
+                .requestHash(requestHash)
+                .status(IdempotencyRecord.Status.IN_PROGRESS)
+                .expiresAt(Instant.parse("2024-01-01T00:02:00Z").getEpochSecond())
+                .build(), 0);
+        IdempotencyService later = new IdempotencyService(idempotencyStore, orderService, meterRegistry, Duration.ofHours(24),
+                Duration.ofMinutes(2), 100, Clock.fixed(Instant.parse("2024-01-01T00:02:00Z"), ZoneOffset.UTC));
+
+        IdempotencyService.Result retry = later.createOrder("key-1", "Customer", "100.00", orderDate, null);
+
+        assertFalse(retry.isReplayed());
+        IdempotencyRecord record = idempotencyStore.get("key-1", 0);
+        assertEquals(IdempotencyRecord.Status.COMPLETED, record.getStatus());
+        assertEquals(Instant.parse("2024-01-02T00:02:00Z").getEpochSecond(), record.getExpiresAt());
+    }
+
+    @Test
+    public void testOrderIsReturnedWhenKeyCannotBeCompleted() throws IOException {
+        doThrow(new IllegalStateException("DynamoDB unavailable"))
+                .when(idempotencyStore).complete(any(IdempotencyRecord.class), anyString(), anyLong());
+
+        IdempotencyService.Result first = idempotencyService.createOrder("key-1", "Customer", "100.00", orderDate, null);
+
+        assertFalse(first.isReplayed());
+        verify(idempotencyStore, times(3)).complete(any(IdempotencyRecord.class), anyString(), anyLong());
+        assertEquals(1.0, meterRegistry.get("orders.idempotency.requests").tag("outcome", "created-uncompleted").counter().count());
+        // Retries reaching this node are still answered with the order
+        assertTrue(idempotencyService.createOrder("key-1", "Customer", "100.00", orderDate, null).isReplayed());
+        verify(orderService, times(1)).createOrder(any(Order.class), any());
+    }
+
+    @Test
+    public void testFailedRequestReleasesKey() throws IOException {
+        when(orderService.createOrder(any(Order.class), any()))
+                .thenThrow(new IllegalStateException("DynamoDB unavailable"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertThrows(IllegalStateException.class,
+                () -> idempotencyService.createOrder("key-1", "Customer", "100.00", orderDate, null));
+        IdempotencyService.Result retry = idempotencyService.createOrder("key-1", "Customer", "100.00", orderDate, null);
+
+        assertFalse(retry.isReplayed());
+        verify(orderService, times(2)).createOrder(any(Order.class), any());
+    }
+
+    @Test
+    public void testInvalidKeyIsRejectedBeforeClaiming() {
+        assertThrows(IllegalArgumentException.class,
+                () -> idempotencyService.createOrder("", "Customer", "100.00", orderDate, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> idempotencyService.createOrder("k".repeat(256), "Customer", "100.00", orderDate, null));
+        verify(idempotencyStore, never()).claim(any(IdempotencyRecord.class), anyLong());
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.model.IdempotencyRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class IdempotencyStoreTest {
+
+    @Mock
+    private DynamoDbClient dynamoDbClient;
+
+    private IdempotencyStore idempotencyStore;
+
+    private final IdempotencyRecord claim = IdempotencyRecord.builder()
+            .idempotencyKey("key-1")
+            .requestHash("hash")
+            .status(IdempotencyRecord.Status.IN_PROGRESS)
+            .expiresAt(2000)
+            .build();
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        idempotencyStore = new IdempotencyStore(dynamoDbClient, "order-idempotency");
+    }
+
+    @Test
+    public void testClaimIsConditionalPut() {
+        assertTrue(idempotencyStore.claim(claim, 1000));
+
+        ArgumentCaptor<PutItemRequest> requestCaptor = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(dynamoDbClient).putItem(requestCaptor.capture());
+        PutItemRequest request = requestCaptor.getValue();
+        assertEquals("order-idempotency", request.tableName());
+        assertEquals("attribute_not_exists(#key) OR #expiresAt <= :now", request.conditionExpression());
+        assertEquals("1000", request.expressionAttributeValues().get(":now").n());
+        assertEquals("2000", request.item().get("expiresAt").n());
+        assertFalse(request.item().containsKey("orderId"));
+    }
+
+    @Test
+    public void testClaimOfTakenKeyFails() {
+        when(dynamoDbClient.putItem(any(PutItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().message("taken").build());
+
+        assertFalse(idempotencyStore.claim(claim, 1000));
+    }
+
+    @Test
+    public void testExpiredRecordIsIgnored() {
+        when(dynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder()
+                .item(Map.of(
+                        "idempotencyKey", AttributeValue.builder().s("key-1").build(),
+                        "requestHash", AttributeValue.builder().s("hash").build(),
+                        "orderId", AttributeValue.builder().s("123").build(),
+                        "status", AttributeValue.builder().s("COMPLETED").build(),
+                        "expiresAt", AttributeValue.builder().n("2000").build()))
+                .build());
+
+        assertEquals("123", idempotencyStore.get("key-1", 1999).getOrderId());
+        assertNull(idempotencyStore.get("key-1", 2000));
+    }
+
+    @Test
+    public void testCompleteExtendsOwnedClaim() {
+        assertTrue(idempotencyStore.complete(claim, "123", 90000));
+
+        ArgumentCaptor<UpdateItemRequest> requestCaptor = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDbClient).updateItem(requestCaptor.capture());
+        UpdateItemRequest request = requestCaptor.getValue();
+        assertTrue(request.conditionExpression().contains("#expiresAt = :leaseExpiresAt"));
+        assertEquals("2000", request.expressionAttributeValues().get(":leaseExpiresAt").n());
+        assertEquals("90000", request.expressionAttributeValues().get(":expiresAt").n());
+
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().message("taken over").build());
+        assertFalse(idempotencyStore.complete(claim, "123", 90000));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.model.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryOrderStoreTest {
+
+    private InMemoryOrderStore store;
+
+    @BeforeEach
+    public void setup() {
+        store = new InMemoryOrderStore(4);
+    }
+
+    @Test
+    public void testPutReplacesOrderAndItsIndexEntries() {
+        // Prepare test data
+        assertNull(store.put(order("1", "Alice", "2024-01-01")));
+        Order replaced = store.put(order("1", "Bob", "2024-01-02"));
+
+        assertEquals("Alice", replaced.getCustomerName());
+        assertEquals("Bob", store.get("1").getCustomerName());
+        assertEquals(1, store.size());
+        assertTrue(store.findByCustomer("Alice", null, null, null, null, 10).isEmpty());
+        assertEquals(List.of("1"), orderIds(store.findByCustomer("Bob", null, null, null, null, 10)));
+        assertTrue(store.findByDate(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 1), null, null, 10).isEmpty());
+    }
+
+    @Test
+    public void testRemoveUnindexesOrderModifiedAfterPut() {
+        // Prepare test data - mutate the stored instance, as callers holding a reference may
+        Order order = order("1", "Alice", "2024-01-01");
+        store.put(order);
+        order.setCustomerName("Mallory");
+        order.setOrderDate(LocalDate.of(2025, 1, 1));
+
+        assertSame(order, store.remove("1"));
+
+        assertNull(store.get("1"));
+        assertTrue(store.findByCustomer("Alice", null, null, null, null, 10).isEmpty());
+        assertTrue(store.findByDate(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 1), null, null, 10).isEmpty());
+        assertNull(store.remove("1"));
+    }
+
+    @Test
+    public void testQueriesPageFromCursor() {
+        // Prepare test data
+        store.put(order("b", "Alice", "2024-01-01"));
+        store.put(order("a", "Alice", "2024-01-01"));
+        store.put(order("c", "Alice", "2024-01-02"));
+        store.put(order("d", "Alice2", "2024-01-01"));
+
+        assertEquals(List.of("a", "b", "c"), orderIds(store.findByCustomer("Alice", null, null, null, null, 10)));
+        assertEquals(List.of("c"), orderIds(store.findByCustomer("Alice", null, null, LocalDate.of(2024, 1, 1), "b", 10)));
+        assertEquals(List.of("a", "b", "d"), orderIds(store.findByDate(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 1), null, null, 10)));
+        assertEquals(List.of("c"), orderIds(store.findByDate(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 2), null, 10)));
+        assertEquals(List.of("c", "d"), orderIds(store.pageAfter("b", 10)));
+        assertEquals(List.of("a", "b", "c", "d"), orderIds(store.snapshot()));
+    }
+
+    @Test
+    public void testConcurrentWritesKeepIndexesConsistent() throws Exception {
+        // Prepare test data - each thread repeatedly rewrites and deletes its own orders
+        int threads = 8;
+        int ordersPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ordersPerThread; i++) {
+                    String orderId = thread + "-" + i;
+                    store.put(order(orderId, "Alice", "2024-01-01"));
+                    store.put(order(orderId, "Bob", "2024-01-0" + (1 + i % 9)));
+                    if (i % 2 == 0) {
+                        store.remove(orderId);
+                    }
+                    store.snapshot();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        executor.shutdown();
+
+        int expected = threads * ordersPerThread / 2;
+        assertEquals(expected, store.size());
+        assertEquals(expected, store.snapshot().size());
+        assertTrue(store.findByCustomer("Alice", null, null, null, null, Integer.MAX_VALUE).isEmpty());
+        assertEquals(expected, store.findByCustomer("Bob", null, null, null, null, Integer.MAX_VALUE).size());
+        assertEquals(expected, store.findByDate(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 9), null, null, Integer.MAX_VALUE).size());
+    }
+
+    private static Order order(String orderId, String customerName, String orderDate) {
+        return new Order(orderId, customerName, new BigDecimal("10.00"), LocalDate.parse(orderDate), null);
+    }
+
+    private static List<String> orderIds(List<Order> orders) {
+        return orders.stream().map(Order::getOrderId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.model.Order;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalDynamoDbServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private LocalDynamoDbService dynamoDbService;
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        dynamoDbService.shutdown();
+    }
+
+    @Test
+    public void testOrdersSurviveRestart() throws IOException {
+        // Prepare test data
+        dynamoDbService = open();
+        dynamoDbService.saveOrder(order("1", "Alice", "10.50", "2024-01-01"));
+        dynamoDbService.batchSaveOrders(List.of(order("2", "Bob", "20.00", "2024-01-02"), order("3", "Alice", "5", "2024-01-03")));
+        dynamoDbService.saveOrder(order("1", "Alice", "11.00", "2024-01-01"));
+        dynamoDbService.deleteOrder("2");
+        dynamoDbService.shutdown();
+
+        dynamoDbService = open();
+
+        assertEquals(List.of("1", "3"), orderIds(dynamoDbService.getAllOrders()));
+        assertEquals(new BigDecimal("11.00"), dynamoDbService.getOrder("1").getOrderAmount());
+        assertEquals(LocalDate.of(2024, 1, 1), dynamoDbService.getOrder("1").getOrderDate());
+        assertNull(dynamoDbService.getOrder("2"));
+        assertEquals(List.of("1", "3"), orderIds(dynamoDbService.queryByCustomer("Alice", null, null, 10, null).getOrders()));
+    }
+
+    @Test
+    public void testCompactionDropsSupersededRecords() throws IOException {
+        // Prepare test data - overwrite the same order many times, then delete another
+        dynamoDbService = open();
+        for (int i = 0; i < 100; i++) {
+            dynamoDbService.saveOrder(order("1", "Alice", String.valueOf(i), "2024-01-01"));
+        }
+        dynamoDbService.saveOrder(order("2", "Bob", "1", "2024-01-01"));
+        dynamoDbService.deleteOrder("2");
+
+        assertTrue(dynamoDbService.compactIfNeeded());
+        assertFalse(dynamoDbService.compactIfNeeded());
+        dynamoDbService.saveOrder(order("3", "Carol", "3", "2024-01-02"));
+        dynamoDbService.shutdown();
+
+        dynamoDbService = open();
+        assertEquals(List.of("1", "3"), orderIds(dynamoDbService.getAllOrders()));
+        assertEquals(new BigDecimal("99"), dynamoDbService.getOrder("1").getOrderAmount());
+    }
+
+    @Test
+    public void testCreateOrderDoesNotReplaceStoredOrder() throws IOException {
+        dynamoDbService = open();
+        dynamoDbService.createOrder(order("1", "Alice", "10.50", "2024-01-01"));
+        dynamoDbService.shutdown();
+
+        dynamoDbService = open();
+        assertThrows(ConditionalCheckFailedException.class,
+                () -> dynamoDbService.createOrder(order("1", "Bob", "20.00", "2024-01-02")));
+        assertEquals("Alice", dynamoDbService.getOrder("1").getCustomerName());
+    }
+
+    private LocalDynamoDbService open() throws IOException {
+        return new LocalDynamoDbService(directory.toString(), DataSize.ofKilobytes(4), Duration.ZERO, Duration.ZERO, 0.5);
+    }
+
+    private static Order order(String orderId, String customerName, String orderAmount, String orderDate) {
+        return new Order(orderId, customerName, new BigDecimal(orderAmount), LocalDate.parse(orderDate), null);
+    }
+
+    private static List<String> orderIds(List<Order> orders) {
+        return orders.stream().map(Order::getOrderId).collect(Collectors.toList());
+    }
+}
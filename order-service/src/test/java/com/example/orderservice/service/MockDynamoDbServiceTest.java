@@ -0,0 +1,108 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MockDynamoDbServiceTest {
+
+    private MockDynamoDbService dynamoDbService;
+
+    @BeforeEach
+    public void setup() {
+        dynamoDbService = new MockDynamoDbService();
+        dynamoDbService.saveOrder(order("1", "Alice", "2024-01-03"));
+        dynamoDbService.saveOrder(order("2", "Bob", "2024-01-01"));
+        dynamoDbService.saveOrder(order("3", "Alice", "2024-01-01"));
+        dynamoDbService.saveOrder(order("4", "Alice", "2024-02-01"));
+    }
+
+    @Test
+    public void testQueryByCustomerPagesInDateOrder() {
+        OrderPage first = dynamoDbService.queryByCustomer("Alice", null, LocalDate.of(2024, 1, 31), 1, null);
+        assertEquals(List.of("3"), orderIds(first));
+
+        OrderPage second = dynamoDbService.queryByCustomer("Alice", null, LocalDate.of(2024, 1, 31), 1, first.getNextToken());
+        assertEquals(List.of("1"), orderIds(second));
+        assertNull(second.getNextToken());
+
+        assertEquals(List.of("4"), orderIds(dynamoDbService.queryByCustomer("Alice", LocalDate.of(2024, 2, 1), null, 10, null)));
+        assertTrue(dynamoDbService.queryByCustomer("Nobody", null, null, 10, null).getOrders().isEmpty());
+    }
+
+    @Test
+    public void testMalformedTokensAreRejected() {
+        String missingOrderId = token("{\"customerName\":{\"S\":\"Alice\"}}");
+        String badDate = token("{\"orderId\":{\"S\":\"3\"},\"customerName\":{\"S\":\"Alice\"},\"orderDate\":{\"S\":\"2024-13-01\"}}");
+
+        assertThrows(IllegalArgumentException.class, () -> dynamoDbService.getOrders(10, token("{}")));
+        assertThrows(IllegalArgumentException.class, () -> dynamoDbService.getOrders(10, missingOrderId));
+        assertThrows(IllegalArgumentException.class, () -> dynamoDbService.queryByCustomer("Alice", null, null, 10, missingOrderId));
+        assertThrows(IllegalArgumentException.class, () -> dynamoDbService.queryByCustomer("Alice", null, null, 10, badDate));
+        assertThrows(IllegalArgumentException.class,
+                () -> dynamoDbService.queryByDateRange(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), 10, missingOrderId));
+    }
+
+    @Test
+    public void testQueryByDateRange() {
+        OrderPage first = dynamoDbService.queryByDateRange(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), 2, null);
+        assertEquals(List.of("2", "3"), orderIds(first));
+
+        OrderPage second = dynamoDbService.queryByDateRange(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), 2, first.getNextToken());
+        assertEquals(List.of("1"), orderIds(second));
+        assertNull(second.getNextToken());
+    }
+
+    @Test
+    public void testIndexesFollowUpdatesAndDeletes() {
+        // Move order 1 to another customer and day, then delete order 3
+        dynamoDbService.saveOrder(order("1", "Bob", "2024-02-01"));
+        dynamoDbService.deleteOrder("3");
+
+        assertTrue(dynamoDbService.queryByCustomer("Alice", null, LocalDate.of(2024, 1, 31), 10, null).getOrders().isEmpty());
+        assertEquals(List.of("2", "1"), orderIds(dynamoDbService.queryByCustomer("Bob", null, null, 10, null)));
+        assertEquals(List.of("1", "4"), orderIds(dynamoDbService.queryByDateRange(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 1), 10, null)));
+    }
+
+    @Test
+    public void testConcurrentCreatesOfOneOrderOnlyStoreTheFirst() {
+        List<CompletableFuture<Boolean>> creates = List.of("Carol", "Dave", "Erin", "Frank").stream()
+                .map(customerName -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        dynamoDbService.createOrder(order("5", customerName, "2024-03-01"));
+                        return true;
+                    } catch (ConditionalCheckFailedException e) {
+                        return false;
+                    }
+                }))
+                .collect(Collectors.toList());
+
+        assertEquals(1, creates.stream().filter(CompletableFuture::join).count());
+        assertThrows(ConditionalCheckFailedException.class, () -> dynamoDbService.createOrder(order("1", "Bob", "2024-01-01")));
+        assertEquals("Alice", dynamoDbService.getOrder("1").getCustomerName());
+    }
+
+    private static Order order(String orderId, String customerName, String orderDate) {
+        return new Order(orderId, customerName, new BigDecimal("10.00"), LocalDate.parse(orderDate), null);
+    }
+
+    private static List<String> orderIds(OrderPage page) {
+        return page.getOrders().stream().map(Order::getOrderId).collect(Collectors.toList());
+    }
+
+    private static String token(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
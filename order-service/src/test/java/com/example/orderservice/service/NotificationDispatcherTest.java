@@ -0,0 +1,189 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.model.Order;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class NotificationDispatcherTest {
+
+    @Mock
+    private SnsService snsService;
+
+    @TempDir
+    Path outboxDirectory;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private NotificationDispatcher notificationDispatcher;
+
+    private final Order order = new Order("123", "Test Customer", new BigDecimal("150.50"), LocalDate.now(), null);
+
+    @BeforeEach
+    public void setup() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        when(snsService.sendOrderNotifications(anyList())).thenReturn(List.of());
+        meterRegistry = new SimpleMeterRegistry();
+        notificationDispatcher = dispatcher(3, Duration.ofMillis(1));
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        notificationDispatcher.shutdown();
+    }
+
+    @Test
+    public void testDispatchPublishesInBackground() {
+        notificationDispatcher.dispatch(order);
+
+        verify(snsService, timeout(1000).times(1)).sendOrderNotifications(List.of(order));
+        verify(snsService, never()).sendOrderNotification(order);
+    }
+
+    @Test
+    public void testNotificationsAreCoalescedIntoBatches() throws Exception {
+        notificationDispatcher.shutdown();
+        notificationDispatcher = dispatcher(3, Duration.ofSeconds(10));
+        Order second = new Order("456", "Other Customer", new BigDecimal("10.00"), LocalDate.now(), null);
+
+        // Nothing is sent until the batch is full, well before maxDelay
+        notificationDispatcher.dispatch(order);
+        notificationDispatcher.dispatch(second);
+        for (int i = 0; i < 10; i++) {
+            notificationDispatcher.dispatch(order);
+        }
+
+        verify(snsService, timeout(1000).times(1)).sendOrderNotifications(List.of(order, second, order, order, order,
+                order, order, order, order, order));
+        assertEquals(10.0, meterRegistry.get("orders.notifications.batch.size").summary().max());
+    }
+
+    @Test
+    public void testFailedPublishIsRetried() {
+        doThrow(new IllegalStateException("SNS unavailable"))
+                .doReturn(List.of())
+                .when(snsService).sendOrderNotifications(anyList());
+
+        notificationDispatcher.dispatch(order);
+
+        verify(snsService, timeout(1000).times(2)).sendOrderNotifications(List.of(order));
+        assertEquals(1.0, meterRegistry.get("orders.notifications.retries").counter().count());
+        assertEquals(1L, meterRegistry.get("orders.notifications.delivery").timer().count());
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() {
+        when(snsService.sendOrderNotifications(anyList())).thenReturn(List.of(order));
+
+        notificationDispatcher.dispatch(order);
+
+        verify(snsService, timeout(1000).times(3)).sendOrderNotifications(anyList());
+        verify(snsService, after(100).times(3)).sendOrderNotifications(anyList());
+        assertEquals(1.0, meterRegistry.get("orders.notifications.failures").counter().count());
+        assertEquals(0, notificationDispatcher.getQueueDepth());
+    }
+
+    @Test
+    public void testPublishIsDeferredWhileCircuitIsOpen() throws Exception {
+        notificationDispatcher.shutdown();
+        DependencyGuards guards = new DependencyGuards(meterRegistry, 50, 100, 1, 1, Duration.ofMillis(200), 1,
+                Duration.ZERO, 10, Duration.ofSeconds(1), 10, Duration.ofSeconds(1), 10, Duration.ofSeconds(1));
+        notificationDispatcher = new NotificationDispatcher(snsService, guards, meterRegistry, 1, 10, Duration.ofMillis(100), 1, Duration.ofMillis(1),
+                10, Duration.ofMillis(1), outboxDirectory.toString(), DataSize.ofKilobytes(64), Duration.ZERO);
+        assertThrows(IllegalStateException.class, () -> guards.run(DependencyGuards.Dependency.SNS, () -> {
+            throw new IllegalStateException("SNS unavailable");
+        }));
+
+        notificationDispatcher.dispatch(order);
+
+        // Deferred without using up its single attempt, then published once the breaker lets calls through
+        verify(snsService, timeout(2000).times(1)).sendOrderNotifications(List.of(order));
+        assertTrue(meterRegistry.get("orders.resilience.fallbacks").tag("fallback", "deferred").counter().count() >= 1.0);
+        assertEquals(0.0, meterRegistry.get("orders.notifications.failures").counter().count());
+    }
+
+    @Test
+    public void testUnpublishedNotificationsSurviveRestart() throws Exception {
+        // Fail every attempt, so the notification is still in the outbox at shutdown
+        when(snsService.sendOrderNotifications(anyList())).thenThrow(new IllegalStateException("SNS unavailable"));
+        notificationDispatcher.dispatch(order);
+        verify(snsService, timeout(1000).times(3)).sendOrderNotifications(anyList());
+        notificationDispatcher.shutdown();
+
+        // The next start publishes it
+        SnsService recoveredSnsService = mock(SnsService.class);
+        when(recoveredSnsService.sendOrderNotifications(anyList())).thenReturn(List.of());
+        notificationDispatcher = new NotificationDispatcher(recoveredSnsService, new DependencyGuards(meterRegistry), meterRegistry, 1, 10, Duration.ofMillis(100), 3, Duration.ofMillis(1),
+                10, Duration.ofMillis(1), outboxDirectory.toString(), DataSize.ofKilobytes(64), Duration.ZERO);
+        verify(recoveredSnsService, timeout(1000).times(1)).sendOrderNotifications(List.of(order));
+
+        // Once it is marked done the outbox can be compacted
+        verify(recoveredSnsService, after(100).times(1)).sendOrderNotifications(anyList());
+        assertTrue(notificationDispatcher.compactIfNeeded());
+    }
+
+    @Test
+    public void testFullQueueKeepsNotificationsInOutbox() throws Exception {
+        notificationDispatcher.shutdown();
+        // SNS hangs, so the one notification the queue has room for is never published
+        CountDownLatch snsDown = new CountDownLatch(1);
+        when(snsService.sendOrderNotifications(anyList())).thenAnswer(invocation -> {
+            snsDown.await();
+            return List.of();
+        });
+        notificationDispatcher = dispatcher(1, 3, Duration.ofMillis(1));
+        Order second = new Order("456", "Test Customer", new BigDecimal("1.00"), LocalDate.now(), null);
+        Order third = new Order("789", "Test Customer", new BigDecimal("2.00"), LocalDate.now(), null);
+
+        notificationDispatcher.dispatch(order);
+        verify(snsService, timeout(1000).times(1)).sendOrderNotifications(List.of(order));
+        long start = System.nanoTime();
+        notificationDispatcher.dispatch(second);
+        notificationDispatcher.dispatch(third);
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(2.0, meterRegistry.get("orders.notifications.overflow").tag("outcome", "outbox").counter().count());
+        snsDown.countDown();
+        notificationDispatcher.shutdown();
+
+        // The next start replays both into a queue with room for one, and gets back to empty
+        when(snsService.sendOrderNotifications(anyList())).thenReturn(List.of());
+        notificationDispatcher = dispatcher(1, 3, Duration.ofMillis(1));
+        assertEquals(2, notificationDispatcher.getQueueDepth());
+        verify(snsService, timeout(1000)).sendOrderNotifications(List.of(second, third));
+        verify(snsService, after(100).times(2)).sendOrderNotifications(anyList());
+        assertEquals(0, notificationDispatcher.getQueueDepth());
+        notificationDispatcher.dispatch(order);
+        assertEquals(2.0, meterRegistry.get("orders.notifications.overflow").tag("outcome", "outbox").counter().count());
+    }
+
+    private NotificationDispatcher dispatcher(int maxAttempts, Duration maxDelay) throws IOException {
+        return dispatcher(10, maxAttempts, maxDelay);
+    }
+
+    private NotificationDispatcher dispatcher(int queueCapacity, int maxAttempts, Duration maxDelay) throws IOException {
+        return new NotificationDispatcher(snsService, new DependencyGuards(meterRegistry), meterRegistry, 1, queueCapacity,
+                Duration.ofMillis(100), maxAttempts, Duration.ofMillis(1), 10, maxDelay, outboxDirectory.toString(),
+                DataSize.ofKilobytes(64), Duration.ZERO);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+public class OrderExportServiceTest {
+
+    @Mock
+    private DynamoDbService dynamoDbService;
+
+    private OrderExportService orderExportService;
+
+    @BeforeEach
+    public void setup() throws InterruptedException {
+        MockitoAnnotations.openMocks(this);
+        orderExportService = new OrderExportService(dynamoDbService, 4, 2, 0);
+
+        // Segment N returns two pages: orders "N-a" then "N-b"
+        when(dynamoDbService.scanSegment(anyInt(), eq(3), isNull(), any())).thenAnswer(invocation -> {
+            int segment = invocation.getArgument(0);
+            return new OrderPage(Collections.singletonList(order(segment + "-a")), "token-" + segment);
+        });
+        for (int segment = 0; segment < 3; segment++) {
+            when(dynamoDbService.scanSegment(eq(segment), eq(3), eq("token-" + segment), any()))
+                    .thenReturn(new OrderPage(Collections.singletonList(order(segment + "-b")), null));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        orderExportService.shutdown();
+    }
+
+    @Test
+    public void testOrderedExportDeliversSegmentsInOrder() throws InterruptedException {
+        List<String> orderIds = new ArrayList<>();
+
+        orderExportService.exportOrders(3, true, pageIds(orderIds));
+
+        assertEquals(Arrays.asList("0-a", "0-b", "1-a", "1-b", "2-a", "2-b"), orderIds);
+    }
+
+    @Test
+    public void testUnorderedExportDeliversEveryPage() throws InterruptedException {
+        List<String> orderIds = new ArrayList<>();
+
+        orderExportService.exportOrders(3, false, pageIds(orderIds));
+
+        Collections.sort(orderIds);
+        assertEquals(Arrays.asList("0-a", "0-b", "1-a", "1-b", "2-a", "2-b"), orderIds);
+        verify(dynamoDbService, times(6)).scanSegment(anyInt(), eq(3), any(), isNull());
+    }
+
+    @Test
+    public void testReadCapacityBudgetIsPassedToSegments() throws InterruptedException {
+        orderExportService.exportOrders(3, false, 100, page -> { });
+
+        verify(dynamoDbService, times(6)).scanSegment(anyInt(), eq(3), any(), any(TokenBucket.class));
+    }
+
+    @Test
+    public void testSegmentFailureIsPropagated() throws InterruptedException {
+        when(dynamoDbService.scanSegment(eq(1), eq(3), eq("token-1"), any()))
+                .thenThrow(new IllegalStateException("scan failed"));
+
+        Exception exception = assertThrows(IllegalStateException.class,
+                () -> orderExportService.exportOrders(3, true, page -> { }));
+        assertEquals("scan failed", exception.getMessage());
+    }
+
+    @Test
+    public void testRejectsInvalidSegmentCount() {
+        assertThrows(IllegalArgumentException.class, () -> orderExportService.exportOrders(0, false, page -> { }));
+        assertThrows(IllegalArgumentException.class,
+                () -> orderExportService.exportOrders(OrderExportService.MAX_SEGMENTS + 1, false, page -> { }));
+    }
+
+    private static java.util.function.Consumer<List<Order>> pageIds(List<String> orderIds) {
+        return page -> orderIds.addAll(page.stream().map(Order::getOrderId).collect(Collectors.toList()));
+    }
+
+    private static Order order(String orderId) {
+        return new Order(orderId, "Customer", new BigDecimal("10.00"), LocalDate.now(), null);
+    }
+}
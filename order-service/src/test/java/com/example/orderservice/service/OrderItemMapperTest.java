@@ -0,0 +1,63 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.model.Order;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderItemMapperTest {
+
+    @Test
+    public void testRoundTrip() {
+        Order order = new Order("123", "Test Customer", new BigDecimal("150.50"), LocalDate.of(2024, 3, 15),
+                "https://bucket.s3.amazonaws.com/invoices/123/invoice.pdf");
+
+        Map<String, AttributeValue> item = OrderItemMapper.toItem(order);
+
+        assertEquals("150.50", item.get("orderAmount").n());
+        assertEquals("2024-03-15", item.get("orderDate").s());
+        assertEquals(order, OrderItemMapper.toOrder(item));
+
+        order.setInvoiceFileUrl(null);
+        item = OrderItemMapper.toItem(order);
+        assertFalse(item.containsKey("invoiceFileUrl"));
+        assertEquals(order, OrderItemMapper.toOrder(item));
+    }
+
+    @Test
+    public void testParseAmountMatchesBigDecimal() {
+        String[] amounts = {"0", "-0", "150.50", "0.01", "-12.5", "007", "100", "999999999999999999",
+                "9999999999999999999", "12345678901234567.8", "1234567890123456789.01", "1E+3", "1.5e-2",
+                "+5", ".5", "5."};
+        for (String amount : amounts) {
+            BigDecimal expected = new BigDecimal(amount);
+            BigDecimal actual = OrderItemMapper.parseAmount(amount);
+            // Same value and same scale, so toString() and equals() agree with the JDK
+            assertEquals(expected, actual, amount);
+            assertEquals(expected.toString(), actual.toString(), amount);
+        }
+
+        assertThrows(NumberFormatException.class, () -> OrderItemMapper.parseAmount("12a"));
+        assertThrows(NumberFormatException.class, () -> OrderItemMapper.parseAmount("-"));
+        assertThrows(NumberFormatException.class, () -> OrderItemMapper.parseAmount(""));
+    }
+
+    @Test
+    public void testParseDateMatchesLocalDate() {
+        String[] dates = {"2024-03-15", "2024-02-29", "0001-01-01", "9999-12-31", "+10000-01-01"};
+        for (String date : dates) {
+            assertEquals(LocalDate.parse(date), OrderItemMapper.parseDate(date), date);
+        }
+
+        assertThrows(DateTimeParseException.class, () -> OrderItemMapper.parseDate("2023-02-29"));
+        assertThrows(DateTimeParseException.class, () -> OrderItemMapper.parseDate("2024-13-01"));
+        assertThrows(DateTimeParseException.class, () -> OrderItemMapper.parseDate("2024-3-15"));
+        assertThrows(DateTimeParseException.class, () -> OrderItemMapper.parseDate("2024-0a-15"));
+    }
+}
@@ -1,23 +1,41 @@
 package com.example.orderservice.service;
 
+import com.example.orderservice.cache.InMemoryOrderCache;
+import com.example.orderservice.cache.NoOpOrderCache;
+import com.example.orderservice.cache.OrderCache;
 import com.example.orderservice.model.Order;
+import com.example.orderservice.model.OrderPage;
+import com.example.orderservice.model.OrderStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.matches;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.*;
 
 public class OrderServiceTest {
@@ -29,7 +47,25 @@ public class OrderServiceTest {
     private S3Service s3Service;
 
     @Mock
-    private SnsService snsService;
+    private OrderWriteBuffer orderWriteBuffer;
+
+    @Mock
+    private NotificationDispatcher notificationDispatcher;
+
+    @Spy
+    private OrderCache orderCache = new NoOpOrderCache();
+
+    @Spy
+    private OrderStatusRegistry orderStatusRegistry = new OrderStatusRegistry(100);
+
+    @Spy
+    private SyncTaskExecutor orderPipelineExecutor = new SyncTaskExecutor();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private DependencyGuards dependencyGuards = new DependencyGuards(new SimpleMeterRegistry());
 
     @InjectMocks
     private OrderService orderService;
@@ -48,7 +84,7 @@ public class OrderServiceTest {
 
         // Mock service methods
         doNothing().when(dynamoDbService).saveOrder(any(Order.class));
-        doNothing().when(snsService).sendOrderNotification(any(Order.class));
+        doNothing().when(notificationDispatcher).dispatch(any(Order.class));
 
         // Call the service method
         Order createdOrder = orderService.createOrder(customerName, orderAmount, orderDate, null);
@@ -63,7 +99,7 @@ public class OrderServiceTest {
 
         // Verify interactions with mocked services
         verify(dynamoDbService, times(1)).saveOrder(any(Order.class));
-        verify(snsService, times(1)).sendOrderNotification(any(Order.class));
+        verify(notificationDispatcher, times(1)).dispatch(any(Order.class));
         verify(s3Service, never()).uploadFile(anyString(), any(MultipartFile.class));
     }
 
@@ -82,9 +118,10 @@ public class OrderServiceTest {
         String fileUrl = "https://bucket.s3.amazonaws.com/invoices/123/invoice.pdf";
 
         // Mock service methods
+        when(s3Service.getFileUrl(anyString())).thenReturn(fileUrl);
         when(s3Service.uploadFile(anyString(), any(MultipartFile.class))).thenReturn(fileUrl);
         doNothing().when(dynamoDbService).saveOrder(any(Order.class));
-        doNothing().when(snsService).sendOrderNotification(any(Order.class));
+        doNothing().when(notificationDispatcher).dispatch(any(Order.class));
 
         // Call the service method
         Order createdOrder = orderService.createOrder(customerName, orderAmount, orderDate, invoiceFile);
@@ -100,7 +137,59 @@ public class OrderServiceTest {
         // Verify interactions with mocked services
         verify(s3Service, times(1)).uploadFile(anyString(), any(MultipartFile.class));
         verify(dynamoDbService, times(1)).saveOrder(any(Order.class));
-        verify(snsService, times(1)).sendOrderNotification(any(Order.class));
+        verify(notificationDispatcher, times(1)).dispatch(any(Order.class));
+    }
+
+    @Test
+    public void testCreateOrderWithUploadedInvoice() throws IOException {
+        // Prepare an invoice uploaded with a presigned URL
+        String orderId = "6f1c2b3a-0d4e-4f5a-8b6c-7d8e9f0a1b2c";
+        String invoiceKey = "invoices/" + orderId + "/invoice.pdf";
+        String fileUrl = "https://bucket.s3.amazonaws.com/" + invoiceKey;
+
+        // Mock service methods
+        when(s3Service.fileExists(invoiceKey)).thenReturn(true);
+        when(s3Service.getFileUrl(invoiceKey)).thenReturn(fileUrl);
+
+        // Call the service method
+        Order createdOrder = orderService.createOrderWithUploadedInvoice("Customer", "10.00", "2024-01-01", invoiceKey);
+
+        // Verify the order takes the reserved ID and no bytes pass through the service
+        assertEquals(orderId, createdOrder.getOrderId());
+        assertEquals(fileUrl, createdOrder.getInvoiceFileUrl());
+        verify(dynamoDbService, times(1)).createOrder(createdOrder);
+        verify(dynamoDbService, never()).saveOrder(any(Order.class));
+        verify(notificationDispatcher, times(1)).dispatch(createdOrder);
+        verify(s3Service, never()).uploadFile(anyString(), any(MultipartFile.class));
+    }
+
+    @Test
+    public void testCreateOrderWithUploadedInvoiceRequiresUpload() {
+        String orderId = "6f1c2b3a-0d4e-4f5a-8b6c-7d8e9f0a1b2c";
+        String invoiceKey = "invoices/" + orderId + "/invoice.pdf";
+        when(s3Service.fileExists(invoiceKey)).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> orderService.createOrderWithUploadedInvoice("Customer", "10.00", "2024-01-01", invoiceKey));
+        assertThrows(IllegalArgumentException.class,
+                () -> orderService.createOrderWithUploadedInvoice("Customer", "10.00", "2024-01-01", "invoices/../secret"));
+
+        // An order that already exists cannot be created again
+        when(s3Service.fileExists(invoiceKey)).thenReturn(true);
+        doThrow(ConditionalCheckFailedException.builder().message("exists").build())
+                .when(dynamoDbService).createOrder(any(Order.class));
+        assertThrows(OrderAlreadyExistsException.class,
+                () -> orderService.createOrderWithUploadedInvoice("Customer", "10.00", "2024-01-01", invoiceKey));
+
+        verify(dynamoDbService, never()).saveOrder(any(Order.class));
+        verify(notificationDispatcher, never()).dispatch(any(Order.class));
+    }
+
+    @Test
+    public void testPresignInvoiceUploadSanitizesFileName() {
+        orderService.presignInvoiceUpload("C:\\scans\\my invoice?.pdf", "application/pdf");
+
+        verify(s3Service).presignUpload(anyString(), matches("invoices/[0-9a-f-]{36}/my_invoice_\\.pdf"), eq("application/pdf"));
     }
 
     @Test
@@ -124,70 +213,319 @@ public class OrderServiceTest {
     }
 
     @Test
-    public void testGetAllOrders() {
-        // Prepare test data
-        List<Order> expectedOrders = Arrays.asList(
-                new Order("1", "Customer 1", new BigDecimal("100.00"), LocalDate.now(), null),
-                new Order("2", "Customer 2", new BigDecimal("200.00"), LocalDate.now(), null)
-        );
-
-        // Mock service method
-        when(dynamoDbService.getAllOrders()).thenReturn(expectedOrders);
-
-        // Call the service method
-        List<Order> result = orderService.getAllOrders();
+    public void testOpenInvoiceOrderWithoutInvoice() {
+        // Prepare an order that has no invoice
+        Order order = new Order("123", "Customer", new BigDecimal("100.00"), LocalDate.now(), null);
+        when(dynamoDbService.getOrder("123")).thenReturn(order);
+
+        assertNull(orderService.openInvoice("123", null, null));
+        assertNull(orderService.openInvoice("999", null, null));
+        verify(s3Service, never()).openFile(anyString(), any(), any());
+    }
 
-        // Verify the result
-        assertNotNull(result);
-        assertEquals(2, result.size());
-        assertEquals(expectedOrders, result);
+    @Test
+    public void testOpenInvoice() {
+        // Prepare test data
+        String fileUrl = "https://bucket.s3.amazonaws.com/invoices/123/invoice.pdf";
+        Order order = new Order("123", "Customer", new BigDecimal("100.00"), LocalDate.now(), fileUrl);
+        InvoiceDownload download = InvoiceDownload.notModified("invoice.pdf", "\"etag\"");
+        when(dynamoDbService.getOrder("123")).thenReturn(order);
+        when(s3Service.openFile("invoices/123/invoice.pdf", "bytes=0-9", "\"etag\"")).thenReturn(download);
 
-        // Verify interaction with mocked service
-        verify(dynamoDbService, times(1)).getAllOrders();
+        assertEquals(download, orderService.openInvoice("123", "bytes=0-9", "\"etag\""));
     }
 
     @Test
-    public void testGetInvoice() throws IOException {
-        // Prepare test data
+    public void testGetOrderIsServedFromCache() throws IOException {
+        // Use a real cache in front of the mocked DynamoDB service
+        OrderService cachedOrderService = new OrderService(dynamoDbService, s3Service,
+                new InMemoryOrderCache(Duration.ofMinutes(1), 100, 0, true),
+                orderWriteBuffer, notificationDispatcher, orderStatusRegistry, orderPipelineExecutor, dependencyGuards, meterRegistry);
         String orderId = "123";
         String fileUrl = "https://bucket.s3.amazonaws.com/invoices/123/invoice.pdf";
         Order order = new Order(orderId, "Customer", new BigDecimal("100.00"), LocalDate.now(), fileUrl);
-        byte[] expectedFileContent = "PDF content".getBytes();
 
         // Mock service methods
         when(dynamoDbService.getOrder(orderId)).thenReturn(order);
-        when(s3Service.downloadFile(anyString())).thenReturn(expectedFileContent);
-
-        // Call the service method
-        byte[] result = orderService.getInvoice(orderId);
+        when(s3Service.openFile(anyString(), any(), any())).thenReturn(InvoiceDownload.notModified("invoice.pdf", "\"etag\""));
 
-        // Verify the result
-        assertNotNull(result);
-        assertArrayEquals(expectedFileContent, result);
+        // Read the order and then its invoice
+        assertEquals(order, cachedOrderService.getOrder(orderId));
+        cachedOrderService.openInvoice(orderId, null, null);
 
-        // Verify interactions with mocked services
+        // Verify DynamoDB was only asked once
         verify(dynamoDbService, times(1)).getOrder(orderId);
-        verify(s3Service, times(1)).downloadFile(anyString());
     }
 
     @Test
-    public void testGetInvoiceOrderNotFound() {
+    public void testGetOrderServesStaleCacheWhileDynamoDbIsUnavailable() throws Exception {
+        // Open the DynamoDB breaker after a single failure, in front of a cache whose entries expire at once
+        DependencyGuards sensitiveGuards = new DependencyGuards(meterRegistry, 50, 100, 1, 1, Duration.ofMinutes(1), 1,
+                Duration.ZERO, 10, Duration.ofSeconds(1), 10, Duration.ofSeconds(1), 10, Duration.ofSeconds(1));
+        OrderService cachedOrderService = new OrderService(dynamoDbService, s3Service,
+                new InMemoryOrderCache(Duration.ofMillis(1), 100, 0, true),
+                orderWriteBuffer, notificationDispatcher, orderStatusRegistry, orderPipelineExecutor, sensitiveGuards, meterRegistry);
+        Order order = new Order("123", "Customer", new BigDecimal("100.00"), LocalDate.now(), null);
+
+        // Mock service methods
+        when(dynamoDbService.getOrder("123"))
+                .thenReturn(order)
+                .thenThrow(AwsServiceException.builder().statusCode(500).message("Internal error").build());
+
+        // Cache the order, let it expire, then fail the next read to open the breaker
+        assertEquals(order, cachedOrderService.getOrder("123"));
+        Thread.sleep(10);
+        assertThrows(AwsServiceException.class, () -> cachedOrderService.getOrder("123"));
+        assertTrue(sensitiveGuards.isOpen(DependencyGuards.Dependency.DYNAMODB));
+
+        // The expired entry is served without calling DynamoDB; an uncached order still fails
+        assertEquals(order, cachedOrderService.getOrder("123"));
+        assertThrows(DependencyUnavailableException.class, () -> cachedOrderService.getOrder("456"));
+        verify(dynamoDbService, times(2)).getOrder(anyString());
+        assertEquals(1.0, meterRegistry.get("orders.resilience.fallbacks").tag("fallback", "stale-cache").counter().count());
+    }
+
+    @Test
+    public void testForEachOrderPageReadsEachPageThroughDynamoDbGuard() {
+        // Open the DynamoDB breaker after a single failure
+        DependencyGuards sensitiveGuards = new DependencyGuards(meterRegistry, 50, 100, 1, 1, Duration.ofMinutes(1), 1,
+                Duration.ZERO, 10, Duration.ofSeconds(1), 10, Duration.ofSeconds(1), 10, Duration.ofSeconds(1));
+        OrderService guardedOrderService = new OrderService(dynamoDbService, s3Service, orderCache,
+                orderWriteBuffer, notificationDispatcher, orderStatusRegistry, orderPipelineExecutor, sensitiveGuards, meterRegistry);
+        Order order = new Order("1", "Customer", new BigDecimal("100.00"), LocalDate.now(), null);
+
+        // Mock a first page followed by a failing second page
+        when(dynamoDbService.scanPage(null)).thenReturn(new OrderPage(List.of(order), "token"));
+        when(dynamoDbService.scanPage("token"))
+                .thenThrow(AwsServiceException.builder().statusCode(500).message("Internal error").build());
+
+        // The first page is handed on before the second one fails and opens the breaker
+        List<List<Order>> pages = new ArrayList<>();
+        assertThrows(AwsServiceException.class, () -> guardedOrderService.forEachOrderPage(pages::add));
+        assertEquals(List.of(List.of(order)), pages);
+        assertTrue(sensitiveGuards.isOpen(DependencyGuards.Dependency.DYNAMODB));
+
+        // Further walks are rejected without scanning
+        assertThrows(DependencyUnavailableException.class, () -> guardedOrderService.forEachOrderPage(pages::add));
+        verify(dynamoDbService, times(2)).scanPage(any());
+    }
+
+    @Test
+    public void testWritesMoveCollectionVersion() throws IOException {
+        long before = orderService.getCollectionVersion();
+
+        orderService.createOrder("Customer", "100.00", LocalDate.now().toString(), null);
+
+        // Reads do not move it
+        orderService.getOrders(10, null);
+        assertEquals(before + 1, orderService.getCollectionVersion());
+    }
+
+    @Test
+    public void testCreateOrderWritesThroughCache() throws IOException {
+        // Use a real write-through cache in front of the mocked DynamoDB service
+        OrderService cachedOrderService = new OrderService(dynamoDbService, s3Service,
+                new InMemoryOrderCache(Duration.ofMinutes(1), 100, 0, true),
+                orderWriteBuffer, notificationDispatcher, orderStatusRegistry, orderPipelineExecutor, dependencyGuards, meterRegistry);
+
+        // Create an order, then read it back
+        Order createdOrder = cachedOrderService.createOrder("Customer", "100.00", LocalDate.now().toString(), null);
+        Order result = cachedOrderService.getOrder(createdOrder.getOrderId());
+
+        // Verify the read was answered by the cache
+        assertEquals(createdOrder, result);
+        verify(dynamoDbService, never()).getOrder(anyString());
+    }
+
+    @Test
+    public void testCreateOrderRemovesOrderWhenInvoiceUploadFails() throws IOException {
+        // Prepare test data
+        MockMultipartFile invoiceFile = new MockMultipartFile("invoice", "invoice.pdf", "application/pdf", "PDF content".getBytes());
+
+        // Mock service methods
+        when(s3Service.getFileUrl(anyString())).thenReturn("https://bucket.s3.amazonaws.com/invoices/1/invoice.pdf");
+        when(s3Service.uploadFile(anyString(), any(MultipartFile.class))).thenThrow(new IOException("upload failed"));
+
+        // Call the service method and verify exception
+        assertThrows(IOException.class,
+                () -> orderService.createOrder("Customer", "100.00", LocalDate.now().toString(), invoiceFile));
+
+        // Verify the saved order was removed and nobody was notified
+        verify(dynamoDbService, times(1)).saveOrder(any(Order.class));
+        verify(dynamoDbService, times(1)).deleteOrder(anyString());
+        verify(notificationDispatcher, never()).dispatch(any(Order.class));
+    }
+
+    @Test
+    public void testFailedCleanupKeepsUploadError() throws IOException {
+        // Prepare test data
+        MockMultipartFile invoiceFile = new MockMultipartFile("invoice", "invoice.pdf", "application/pdf", "PDF content".getBytes());
+
+        // Mock service methods
+        when(s3Service.getFileUrl(anyString())).thenReturn("https://bucket.s3.amazonaws.com/invoices/1/invoice.pdf");
+        when(s3Service.uploadFile(anyString(), any(MultipartFile.class))).thenThrow(new IOException("upload failed"));
+        doThrow(new IllegalStateException("DynamoDB unavailable")).when(dynamoDbService).deleteOrder(anyString());
+
+        // The upload failure is reported, not the failed cleanup
+        IOException e = assertThrows(IOException.class,
+                () -> orderService.createOrder("Customer", "100.00", LocalDate.now().toString(), invoiceFile));
+        assertEquals("upload failed", e.getMessage());
+
+        // A read that cached the order in between is dropped
+        verify(orderCache, times(1)).invalidate(anyString());
+    }
+
+    @Test
+    public void testCreateOrderRemovesInvoiceWhenSaveFails() {
         // Prepare test data
-        String orderId = "999";
+        MockMultipartFile invoiceFile = new MockMultipartFile("invoice", "invoice.pdf", "application/pdf", "PDF content".getBytes());
+
+        // Mock service methods
+        when(s3Service.getFileUrl(anyString())).thenReturn("https://bucket.s3.amazonaws.com/invoices/1/invoice.pdf");
+        doThrow(new IllegalStateException("save failed")).when(dynamoDbService).saveOrder(any(Order.class));
+
+        // Call the service method and verify exception
+        assertThrows(IllegalStateException.class,
+                () -> orderService.createOrder("Customer", "100.00", LocalDate.now().toString(), invoiceFile));
+
+        // Verify the uploaded invoice was removed and nobody was notified
+        verify(s3Service, times(1)).deleteFile(startsWith("invoices/"));
+        verify(notificationDispatcher, never()).dispatch(any(Order.class));
+    }
+
+    @Test
+    public void testSubmitOrderTracksStatus() throws IOException {
+        // Call the service method (the pipeline runs inline on the synchronous executor)
+        Order acceptedOrder = orderService.submitOrder("Customer", "100.00", LocalDate.now().toString(), null);
+
+        // Verify the order was created and its status is tracked
+        verify(dynamoDbService, times(1)).saveOrder(acceptedOrder);
+        verify(notificationDispatcher, times(1)).dispatch(acceptedOrder);
+        assertEquals(OrderStatus.State.COMPLETED, orderService.getOrderStatus(acceptedOrder.getOrderId()).getState());
+    }
 
+    @Test
+    public void testSubmitOrderRecordsFailure() throws IOException {
         // Mock service method
-        when(dynamoDbService.getOrder(orderId)).thenReturn(null);
+        doThrow(new IllegalStateException("save failed")).when(dynamoDbService).saveOrder(any(Order.class));
+
+        // Call the service method
+        Order acceptedOrder = orderService.submitOrder("Customer", "100.00", LocalDate.now().toString(), null);
+
+        // Verify the failure is reported through the status
+        OrderStatus status = orderService.getOrderStatus(acceptedOrder.getOrderId());
+        assertEquals(OrderStatus.State.FAILED, status.getState());
+        assertEquals("save failed", status.getMessage());
+    }
+
+    @Test
+    public void testCreateOrderRecordsStageLatencies() throws IOException {
+        // Call the service method
+        orderService.createOrder("Customer", "100.00", LocalDate.now().toString(), null);
+
+        // Verify a timer exists for each stage that ran
+        for (String stage : Arrays.asList("save", "notify", "total")) {
+            assertEquals(1, meterRegistry.get("orders.create.stage").tag("stage", stage).tag("mode", "sync").timer().count());
+        }
+    }
+
+    @Test
+    public void testCreateOrderUsesWriteBufferWhenEnabled() throws IOException {
+        // Mock the buffer as enabled
+        when(orderWriteBuffer.isWriteBehindEnabled()).thenReturn(true);
+        when(orderWriteBuffer.save(any(Order.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        // Call the service method
+        Order createdOrder = orderService.createOrder("Customer", "100.00", LocalDate.now().toString(), null);
+
+        // Verify the order went through the buffer instead of a single PutItem
+        verify(orderWriteBuffer, times(1)).save(createdOrder);
+        verify(dynamoDbService, never()).saveOrder(any(Order.class));
+    }
+
+    @Test
+    public void testCreateOrderFailsWhenBufferedWriteFails() {
+        // Mock the buffer as enabled with a failing write
+        CompletableFuture<Void> failedWrite = new CompletableFuture<>();
+        failedWrite.completeExceptionally(new IllegalStateException("batch failed"));
+        when(orderWriteBuffer.isWriteBehindEnabled()).thenReturn(true);
+        when(orderWriteBuffer.save(any(Order.class))).thenReturn(failedWrite);
 
         // Call the service method and verify exception
-        Exception exception = assertThrows(RuntimeException.class, () -> {
-            orderService.getInvoice(orderId);
-        });
+        Exception exception = assertThrows(IllegalStateException.class,
+                () -> orderService.createOrder("Customer", "100.00", LocalDate.now().toString(), null));
+        assertEquals("batch failed", exception.getMessage());
+        verify(notificationDispatcher, never()).dispatch(any(Order.class));
+    }
 
-        // Verify the exception message
-        assertTrue(exception.getMessage().contains("Invoice not found for order"));
+    @Test
+    public void testBuildOrderValidatesFields() {
+        assertThrows(IllegalArgumentException.class, () -> orderService.buildOrder(" ", "10.00", "2024-01-01"));
+        assertThrows(IllegalArgumentException.class, () -> orderService.buildOrder("Customer", "ten", "2024-01-01"));
+        assertThrows(IllegalArgumentException.class, () -> orderService.buildOrder("Customer", "10.00", "01/01/2024"));
+        assertThrows(IllegalArgumentException.class, () -> orderService.buildOrder("Customer", null, "2024-01-01"));
+    }
 
-        // Verify interaction with mocked service
-        verify(dynamoDbService, times(1)).getOrder(orderId);
-        verify(s3Service, never()).downloadFile(anyString());
+    @Test
+    public void testSaveBufferedOrderNotifiesOnceDurable() {
+        // Prepare a buffered write that has not completed yet
+        Order order = new Order("1", "Customer", new BigDecimal("100.00"), LocalDate.now(), null);
+        CompletableFuture<Void> write = new CompletableFuture<>();
+        when(orderWriteBuffer.save(order)).thenReturn(write);
+
+        CompletableFuture<Order> saved = orderService.saveBufferedOrder(order);
+        verify(notificationDispatcher, never()).dispatch(order);
+
+        // Complete the write and verify the notification follows
+        write.complete(null);
+        assertEquals(order, saved.join());
+        verify(notificationDispatcher, times(1)).dispatch(order);
+    }
+
+    @Test
+    public void testCreateOrderAsyncUploadsAndSavesConcurrently() throws IOException {
+        // Prepare test data
+        MockMultipartFile invoiceFile = new MockMultipartFile("invoice", "invoice.pdf", "application/pdf", "PDF content".getBytes());
+        CompletableFuture<Void> save = new CompletableFuture<>();
+
+        // Mock service methods
+        when(s3Service.getFileUrl(anyString())).thenReturn("https://bucket.s3.amazonaws.com/invoices/1/invoice.pdf");
+        when(s3Service.uploadFileAsync(anyString(), any(), eq("application/pdf")))
+                .thenReturn(CompletableFuture.completedFuture("https://bucket.s3.amazonaws.com/invoices/1/invoice.pdf"));
+        when(dynamoDbService.saveOrderAsync(any(Order.class))).thenReturn(save);
+
+        // The upload has finished but the order is not returned until the write completes
+        CompletableFuture<Order> created = orderService.createOrderAsync("Customer", "100.00", LocalDate.now().toString(), invoiceFile);
+        assertFalse(created.isDone());
+        save.complete(null);
+
+        // Verify the result
+        Order order = created.join();
+        assertEquals("https://bucket.s3.amazonaws.com/invoices/1/invoice.pdf", order.getInvoiceFileUrl());
+        verify(notificationDispatcher, times(1)).dispatch(order);
+        verify(dynamoDbService, never()).saveOrder(any(Order.class));
+    }
+
+    @Test
+    public void testCreateOrderAsyncRemovesOrderWhenInvoiceUploadFails() throws IOException {
+        // Prepare test data
+        MockMultipartFile invoiceFile = new MockMultipartFile("invoice", "invoice.pdf", "application/pdf", "PDF content".getBytes());
+        CompletableFuture<String> upload = new CompletableFuture<>();
+        upload.completeExceptionally(new IOException("upload failed"));
+
+        // Mock service methods
+        when(s3Service.getFileUrl(anyString())).thenReturn("https://bucket.s3.amazonaws.com/invoices/1/invoice.pdf");
+        when(s3Service.uploadFileAsync(anyString(), any(), anyString())).thenReturn(upload);
+        when(dynamoDbService.saveOrderAsync(any(Order.class))).thenReturn(CompletableFuture.completedFuture(null));
+        when(dynamoDbService.deleteOrderAsync(anyString())).thenReturn(CompletableFuture.completedFuture(null));
+
+        // Call the service method and verify exception
+        CompletableFuture<Order> created = orderService.createOrderAsync("Customer", "100.00", LocalDate.now().toString(), invoiceFile);
+        CompletionException exception = assertThrows(CompletionException.class, created::join);
+        assertTrue(exception.getCause() instanceof IOException);
+
+        // Verify the saved order was removed and nobody was notified
+        verify(dynamoDbService, times(1)).deleteOrderAsync(anyString());
+        verify(notificationDispatcher, never()).dispatch(any(Order.class));
     }
-}
\ No newline at end of file
+}
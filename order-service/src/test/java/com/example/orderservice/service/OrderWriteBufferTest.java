@@ -0,0 +1,143 @@
+package com.example.orderservice.service;
+
+import com.example.orderservice.model.Order;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class OrderWriteBufferTest {
+
+    @Mock
+    private DynamoDbService dynamoDbService;
+
+    private OrderWriteBuffer orderWriteBuffer;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(dynamoDbService.batchSaveOrders(anyList())).thenReturn(Collections.emptyList());
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        orderWriteBuffer.shutdown();
+    }
+
+    @Test
+    public void testFlushesFullBatchesOfTwentyFive() throws Exception {
+        orderWriteBuffer = buffer(Duration.ofSeconds(10), 3);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(orderWriteBuffer.save(order(String.valueOf(i))));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        // Both batches were full, so neither waited for the 10 second deadline
+        List<List<Order>> batches = capturedBatches(2);
+        assertEquals(25, batches.get(0).size());
+        assertEquals(25, batches.get(1).size());
+    }
+
+    @Test
+    public void testFlushesPartialBatchOnDeadline() throws Exception {
+        orderWriteBuffer = buffer(Duration.ofMillis(20), 3);
+
+        orderWriteBuffer.save(order("1")).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, capturedBatches(1).get(0).size());
+    }
+
+    @Test
+    public void testCoalescesRepeatedSavesOfSameOrder() throws Exception {
+        orderWriteBuffer = buffer(Duration.ofMillis(200), 3);
+        Order first = order("1");
+        Order second = order("1");
+        second.setCustomerName("Updated Customer");
+
+        CompletableFuture<Void> firstSave = orderWriteBuffer.save(first);
+        CompletableFuture<Void> secondSave = orderWriteBuffer.save(second);
+        CompletableFuture.allOf(firstSave, secondSave).get(5, TimeUnit.SECONDS);
+
+        // Only the latest version was written, once
+        List<Order> batch = capturedBatches(1).get(0);
+        assertEquals(1, batch.size());
+        assertEquals("Updated Customer", batch.get(0).getCustomerName());
+    }
+
+    @Test
+    public void testRetriesUnprocessedItems() throws Exception {
+        orderWriteBuffer = buffer(Duration.ofMillis(20), 3);
+        Order throttled = order("2");
+        when(dynamoDbService.batchSaveOrders(anyList()))
+                .thenReturn(Collections.singletonList(throttled))
+                .thenReturn(Collections.emptyList());
+
+        CompletableFuture<Void> accepted = orderWriteBuffer.save(order("1"));
+        CompletableFuture<Void> retried = orderWriteBuffer.save(throttled);
+        CompletableFuture.allOf(accepted, retried).get(5, TimeUnit.SECONDS);
+
+        // The retry only resent the unprocessed order
+        List<List<Order>> batches = capturedBatches(2);
+        assertEquals(2, batches.get(0).size());
+        assertEquals(Collections.singletonList(throttled), batches.get(1));
+    }
+
+    @Test
+    public void testFailsFutureAfterMaxAttempts() {
+        orderWriteBuffer = buffer(Duration.ofMillis(20), 2);
+        when(dynamoDbService.batchSaveOrders(anyList())).thenThrow(new IllegalStateException("throttled"));
+
+        CompletableFuture<Void> save = orderWriteBuffer.save(order("1"));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> save.get(5, TimeUnit.SECONDS));
+        assertEquals("throttled", exception.getCause().getMessage());
+        verify(dynamoDbService, times(2)).batchSaveOrders(anyList());
+    }
+
+    @Test
+    public void testShutdownFlushesPendingOrders() throws Exception {
+        orderWriteBuffer = buffer(Duration.ofSeconds(10), 3);
+
+        CompletableFuture<Void> save = orderWriteBuffer.save(order("1"));
+        orderWriteBuffer.shutdown();
+
+        assertTrue(save.isDone());
+        assertFalse(save.isCompletedExceptionally());
+        assertTrue(orderWriteBuffer.save(order("2")).isCompletedExceptionally());
+    }
+
+    private OrderWriteBuffer buffer(Duration maxDelay, int maxAttempts) {
+        return new OrderWriteBuffer(dynamoDbService, new SimpleMeterRegistry(), true, 25, maxDelay, 2, 1000,
+                maxAttempts, Duration.ofMillis(1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<Order>> capturedBatches(int expectedCalls) {
+        ArgumentCaptor<List<Order>> captor = ArgumentCaptor.forClass(List.class);
+        verify(dynamoDbService, timeout(5000).times(expectedCalls)).batchSaveOrders(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static Order order(String orderId) {
+        return new Order(orderId, "Customer " + orderId, new BigDecimal("10.00"), LocalDate.now(), null);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.orderservice.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures how {@link OrderExportService} scales from 1 to 16 scan segments against the
+ * local DynamoDB endpoint used by {@code AwsConfig} (http://localhost:8000).
+ * <p>
+ * Not part of the regular test run. Start DynamoDB Local or LocalStack, then run:
+ * <pre>
+ * mvn test -Dtest=ParallelScanBenchmark -Dbenchmark.dynamodb=true [-Dbenchmark.orders=50000]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "benchmark.dynamodb", matches = "true")
+public class ParallelScanBenchmark {
+
+    private static final String TABLE_NAME = "orders-scan-benchmark";
+    private static final int[] SEGMENTS = {1, 2, 4, 8, 16};
+
+    private static DynamoDbClient dynamoDbClient;
+    private static int orderCount;
+
+    @BeforeAll
+    public static void seedTable() {
+        dynamoDbClient = DynamoDbClient.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+                .region(Region.US_EAST_1)
+                .endpointOverride(URI.create(System.getProperty("benchmark.dynamodb.endpoint", "http://localhost:8000")))
+                .build();
+        orderCount = Integer.getInteger("benchmark.orders", 50_000);
+
+        dynamoDbClient.createTable(CreateTableRequest.builder()
+                .tableName(TABLE_NAME)
+                .attributeDefinitions(AttributeDefinition.builder().attributeName("orderId").attributeType(ScalarAttributeType.S).build())
+                .keySchema(KeySchemaElement.builder().attributeName("orderId").keyType(KeyType.HASH).build())
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .build());
+        dynamoDbClient.waiter().waitUntilTableExists(DescribeTableRequest.builder().tableName(TABLE_NAME).build());
+
+        List<WriteRequest> batch = new ArrayList<>(25);
+        for (int i = 0; i < orderCount; i++) {
+            Map<String, AttributeValue> item = new HashMap<>();
+            item.put("orderId", AttributeValue.builder().s(UUID.randomUUID().toString()).build());
+            item.put("customerName", AttributeValue.builder().s("Customer " + (i % 1000)).build());
+            item.put("orderAmount", AttributeValue.builder().n(String.valueOf(i % 500) + ".25").build());
+            item.put("orderDate", AttributeValue.builder().s(LocalDate.of(2024, 1, 1).plusDays(i % 365).toString()).build());
+            batch.add(WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build());
+            if (batch.size() == 25 || i == orderCount - 1) {
+                Map<String, List<WriteRequest>> pending = Map.of(TABLE_NAME, batch);
+                while (!pending.isEmpty()) {
+                    pending = dynamoDbClient.batchWriteItem(BatchWriteItemRequest.builder().requestItems(pending).build())
+                            .unprocessedItems();
+                }
+                batch = new ArrayList<>(25);
+            }
+        }
+    }
+
+    @AfterAll
+    public static void dropTable() {
+        if (dynamoDbClient != null) {
+            dynamoDbClient.deleteTable(DeleteTableRequest.builder().tableName(TABLE_NAME).build());
+            dynamoDbClient.close();
+        }
+    }
+
+    @Test
+    public void scaleSegments() throws InterruptedException {
+        DynamoDbService dynamoDbService = new DynamoDbService(dynamoDbClient, TABLE_NAME);
+        OrderExportService exportService = new OrderExportService(dynamoDbService, 16, 2, 0);
+
+        try {
+            // Warm up connections and the JIT before measuring
+            exportService.exportOrders(4, false, page -> { });
+
+            System.out.printf("%n%-10s %-10s %-12s %-14s%n", "segments", "orders", "millis", "orders/sec");
+            for (int segments : SEGMENTS) {
+                LongAdder exported = new LongAdder();
+                long start = System.nanoTime();
+                exportService.exportOrders(segments, false, page -> exported.add(page.size()));
+                long millis = (System.nanoTime() - start) / 1_000_000;
+
+                assertEquals(orderCount, exported.sum());
+                System.out.printf("%-10d %-10d %-12d %-14.0f%n",
+                        segments, exported.sum(), millis, exported.sum() * 1000.0 / Math.max(1, millis));
+            }
+        } finally {
+            exportService.shutdown();
+        }
+    }
+}
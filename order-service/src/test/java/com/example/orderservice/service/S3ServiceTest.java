@@ -6,19 +6,54 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.mock.web.MockMultipartFile;
+import com.example.orderservice.model.PresignedInvoiceUrl;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.http.SdkHttpResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -69,39 +104,195 @@ public class S3ServiceTest {
         assertEquals(bucketName, capturedRequest.bucket());
         assertEquals(key, capturedRequest.key());
         assertEquals(file.getContentType(), capturedRequest.contentType());
+        assertEquals(file.getSize(), capturedRequest.contentLength());
+
+        // Verify the body is streamed from the file with its known length
+        RequestBody body = bodyCaptor.getValue();
+        assertEquals(file.getSize(), body.optionalContentLength().orElse(-1L));
+        try (InputStream stream = body.contentStreamProvider().newStream()) {
+            assertArrayEquals(file.getBytes(), stream.readAllBytes());
+        }
     }
 
     @Test
-    public void testDownloadFile() throws IOException {
+    public void testUploadLargeFileUsesParallelMultipartUpload() throws IOException {
+        // Prepare a file just over two 5MB parts
+        byte[] content = new byte[(int) (2 * S3Service.MIN_PART_SIZE + 1024)];
+        new Random(42).nextBytes(content);
+        MockMultipartFile file = new MockMultipartFile("invoice", "invoice.pdf", "application/pdf", content);
+        S3Service multipartService = new S3Service(s3Client, null, null, bucketName,
+                DataSize.ofMegabytes(5), DataSize.ofMegabytes(5), 2, 2, Duration.ofMinutes(15));
+
+        // Mock S3 client responses, keeping a copy of every part as it is uploaded
+        Map<Integer, byte[]> uploadedParts = new ConcurrentHashMap<>();
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            RequestBody body = invocation.getArgument(1);
+            try (InputStream stream = body.contentStreamProvider().newStream()) {
+                uploadedParts.put(request.partNumber(), stream.readAllBytes());
+            }
+            return UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build();
+        });
+
+        String result = multipartService.uploadFile("invoices/big.pdf", file);
+
+        assertEquals(String.format("https://%s.s3.amazonaws.com/%s", bucketName, "invoices/big.pdf"), result);
+        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+
+        // Verify the parts reassemble into the original file
+        assertEquals(3, uploadedParts.size());
+        ByteArrayOutputStream reassembled = new ByteArrayOutputStream();
+        for (int part = 1; part <= 3; part++) {
+            reassembled.write(uploadedParts.get(part));
+        }
+        assertArrayEquals(content, reassembled.toByteArray());
+
+        // Verify the upload is completed with every part in order
+        ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor =
+                ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3Client).completeMultipartUpload(completeCaptor.capture());
+        List<String> eTags = completeCaptor.getValue().multipartUpload().parts().stream()
+                .map(CompletedPart::eTag)
+                .collect(Collectors.toList());
+        assertEquals(List.of("etag-1", "etag-2", "etag-3"), eTags);
+        assertEquals("upload-1", completeCaptor.getValue().uploadId());
+
+        multipartService.shutdown();
+    }
+
+    @Test
+    public void testFailedPartAbortsMultipartUpload() {
         // Prepare test data
-        String key = "invoices/123/invoice.pdf";
-        byte[] fileContent = "PDF content".getBytes();
+        MockMultipartFile file = new MockMultipartFile("invoice", "invoice.pdf", "application/pdf",
+                new byte[(int) (3 * S3Service.MIN_PART_SIZE)]);
+        S3Service multipartService = new S3Service(s3Client, null, null, bucketName,
+                DataSize.ofMegabytes(5), DataSize.ofMegabytes(5), 2, 2, Duration.ofMinutes(15));
 
-        // Create a mock response input stream
+        // Mock S3 client responses with a failing second part
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-2").build());
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class))).thenAnswer(invocation -> {
+            UploadPartRequest request = invocation.getArgument(0);
+            if (request.partNumber() == 2) {
+                throw new IllegalStateException("S3 unavailable");
+            }
+            return UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build();
+        });
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> multipartService.uploadFile("invoices/big.pdf", file));
+
+        assertEquals("S3 unavailable", failure.getMessage());
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+
+        multipartService.shutdown();
+    }
+
+    @Test
+    public void testOpenFileRange() throws IOException {
+        // Prepare a partial response
+        String key = "invoices/123/invoice.pdf";
         ResponseInputStream<GetObjectResponse> responseStream = new ResponseInputStream<>(
                 GetObjectResponse.builder()
                         .contentType("application/pdf")
-                        .contentLength((long) fileContent.length)
+                        .contentLength(3L)
+                        .contentRange("bytes 0-2/11")
+                        .eTag("\"etag-1\"")
                         .build(),
-                new ByteArrayInputStream(fileContent)
+                AbortableInputStream.create(new ByteArrayInputStream("PDF".getBytes()))
         );
-
-        // Mock S3 client response
         when(s3Client.getObject(any(GetObjectRequest.class))).thenReturn(responseStream);
 
         // Call the service method
-        byte[] result = s3Service.downloadFile(key);
+        try (InvoiceDownload download = s3Service.openFile(key, "bytes=0-2", "\"other\"")) {
+            // Verify the download streams the S3 response
+            assertTrue(download.isPartial());
+            assertFalse(download.isNotModified());
+            assertEquals("invoice.pdf", download.getFileName());
+            assertEquals("application/pdf", download.getContentType());
+            assertEquals(3L, download.getContentLength());
+            assertEquals("bytes 0-2/11", download.getContentRange());
+            assertArrayEquals("PDF".getBytes(), download.getContent().readAllBytes());
+        }
 
-        // Verify the result
-        assertArrayEquals(fileContent, result);
+        // Verify the conditional range request
+        ArgumentCaptor<GetObjectRequest> requestCaptor = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(s3Client).getObject(requestCaptor.capture());
+        assertEquals("bytes=0-2", requestCaptor.getValue().range());
+        assertEquals("\"other\"", requestCaptor.getValue().ifNoneMatch());
+    }
+
+    @Test
+    public void testOpenFileIgnoresMultipleRanges() {
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenReturn(new ResponseInputStream<>(
+                GetObjectResponse.builder().contentLength(11L).build(),
+                AbortableInputStream.create(new ByteArrayInputStream("PDF content".getBytes()))));
+
+        s3Service.openFile("invoices/123/invoice.pdf", "bytes=0-1,5-6", null);
 
-        // Capture the request argument
         ArgumentCaptor<GetObjectRequest> requestCaptor = ArgumentCaptor.forClass(GetObjectRequest.class);
-        verify(s3Client, times(1)).getObject(requestCaptor.capture());
+        verify(s3Client).getObject(requestCaptor.capture());
+        assertNull(requestCaptor.getValue().range());
+    }
 
-        // Verify the request
-        GetObjectRequest capturedRequest = requestCaptor.getValue();
-        assertEquals(bucketName, capturedRequest.bucket());
-        assertEquals(key, capturedRequest.key());
+    @Test
+    public void testOpenFileNotModified() {
+        // Mock S3 answering 304 for a matching ETag
+        S3Exception notModified = (S3Exception) S3Exception.builder()
+                .statusCode(304)
+                .awsErrorDetails(AwsErrorDetails.builder()
+                        .sdkHttpResponse(SdkHttpResponse.builder().statusCode(304).putHeader("ETag", "\"etag-1\"").build())
+                        .build())
+                .build();
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenThrow(notModified);
+
+        InvoiceDownload download = s3Service.openFile("invoices/123/invoice.pdf", null, "\"etag-1\"");
+
+        assertTrue(download.isNotModified());
+        assertEquals("\"etag-1\"", download.getETag());
+    }
+
+    @Test
+    public void testPresignUploadAndDownload() {
+        // Sign against the LocalStack endpoint used by AwsConfig; signing needs no network
+        S3Presigner presigner = S3Presigner.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+                .region(Region.US_EAST_1)
+                .endpointOverride(URI.create("http://localhost:4566"))
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build())
+                .build();
+        S3Service presigningService = new S3Service(s3Client, presigner, null, bucketName,
+                DataSize.ofMegabytes(16), DataSize.ofMegabytes(8), 4, 8, Duration.ofMinutes(5));
+
+        PresignedInvoiceUrl upload = presigningService.presignUpload("123", "invoices/123/invoice.pdf", "application/pdf");
+
+        assertEquals("123", upload.getOrderId());
+        assertEquals("invoices/123/invoice.pdf", upload.getInvoiceKey());
+        assertEquals("PUT", upload.getMethod());
+        assertTrue(upload.getUrl().startsWith("http://localhost:4566/test-bucket/invoices/123/invoice.pdf?"));
+        assertTrue(upload.getUrl().contains("X-Amz-Signature="));
+        assertEquals("application/pdf", upload.getHeaders().get("content-type"));
+        assertFalse(upload.getHeaders().containsKey("host"));
+        assertTrue(upload.getExpiresAt().isAfter(Instant.now()));
+
+        PresignedInvoiceUrl download = presigningService.presignDownload("123", "invoices/123/invoice.pdf");
+        assertEquals("GET", download.getMethod());
+        assertTrue(download.getUrl().contains("X-Amz-Expires=300"));
+
+        presigner.close();
+        presigningService.shutdown();
+    }
+
+    @Test
+    public void testFileExists() {
+        when(s3Client.headObject(any(HeadObjectRequest.class)))
+                .thenReturn(HeadObjectResponse.builder().contentLength(11L).build())
+                .thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+
+        assertTrue(s3Service.fileExists("invoices/123/invoice.pdf"));
+        assertFalse(s3Service.fileExists("invoices/123/missing.pdf"));
     }
-}
\ No newline at end of file
+}
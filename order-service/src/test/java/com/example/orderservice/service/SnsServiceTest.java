@@ -7,11 +7,15 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import software.amazon.awssdk.services.sns.SnsClient;
+import software.amazon.awssdk.services.sns.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sns.model.PublishBatchRequest;
+import software.amazon.awssdk.services.sns.model.PublishBatchResponse;
 import software.amazon.awssdk.services.sns.model.PublishRequest;
 import software.amazon.awssdk.services.sns.model.PublishResponse;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -67,4 +71,28 @@ public class SnsServiceTest {
         assertTrue(message.contains("Amount: $" + order.getOrderAmount()));
         assertTrue(message.contains("Date: " + order.getOrderDate()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSendOrderNotificationsReturnsRejectedOrders() {
+        // Prepare test data
+        Order first = new Order("1", "Customer", new BigDecimal("10.00"), LocalDate.now(), null);
+        Order second = new Order("2", "Customer", new BigDecimal("20.00"), LocalDate.now(), null);
+
+        // Mock SNS client response: the second entry is throttled
+        when(snsClient.publishBatch(any(PublishBatchRequest.class)))
+                .thenReturn(PublishBatchResponse.builder()
+                        .failed(BatchResultErrorEntry.builder().id("1").code("Throttled").senderFault(false).build())
+                        .build());
+
+        // Call the service method and verify the result
+        assertEquals(List.of(second), snsService.sendOrderNotifications(List.of(first, second)));
+
+        // Verify the request
+        ArgumentCaptor<PublishBatchRequest> requestCaptor = ArgumentCaptor.forClass(PublishBatchRequest.class);
+        verify(snsClient, times(1)).publishBatch(requestCaptor.capture());
+        PublishBatchRequest capturedRequest = requestCaptor.getValue();
+        assertEquals(topicArn, capturedRequest.topicArn());
+        assertEquals(2, capturedRequest.publishBatchRequestEntries().size());
+        assertTrue(capturedRequest.publishBatchRequestEntries().get(1).message().contains("Order ID: 2"));
+    }
+}